@@ -0,0 +1,126 @@
+package com.example.familybenefits.part_auth.filter;
+
+import com.example.familybenefits.part_auth.models.JwtUserData;
+import com.example.familybenefits.part_auth.models.LoginResponse;
+import com.example.familybenefits.part_auth.services.interfaces.AuthService;
+import com.example.familybenefits.resources.R;
+import com.example.familybenefits.resources.RDB;
+import com.example.familybenefits.security.RandomValue;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маршрутизация запросов фильтром {@link AllRequestsFilterFB}: поиск маршрута в таблице и проверка правила доступа
+ * для каждого вида правила и для неподдерживаемого пути. Аутентификация заменена заглушкой с готовыми данными пользователя,
+ * ее стоимость измеряется в {@code TokenCodeServiceFBBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AllRequestsFilterFBBenchmark {
+
+  /**
+   * Вид запроса: метод и путь, правило доступа которого проверяется
+   */
+  @Param({"PERMIT_ALL", "ANONYMOUS", "OWNER", "ADMIN", "NOT_FOUND"})
+  private String requestKind;
+
+  private AllRequestsFilterFB allRequestsFilterFB;
+
+  private String method;
+
+  private String requestURI;
+
+  @Setup
+  public void setup() {
+
+    String idUser = RandomValue.randomString(R.ID_LENGTH);
+    Optional<JwtUserData> optUserData = Optional.of(JwtUserData
+        .builder()
+        .idUser(idUser)
+        .nameRoleList(List.of(RDB.ROLE_USER.getName(), RDB.ROLE_ADMIN.getName()))
+        .build());
+    allRequestsFilterFB = new AllRequestsFilterFB(new FixedAuthService(optUserData));
+
+    switch (requestKind) {
+      case "PERMIT_ALL":
+        method = "GET";
+        requestURI = "/api/benefits/" + RandomValue.randomString(R.ID_LENGTH);
+        break;
+      case "ANONYMOUS":
+        method = "POST";
+        requestURI = "/api/auth/login";
+        break;
+      case "OWNER":
+        method = "PUT";
+        requestURI = "/api/users/" + idUser;
+        break;
+      case "ADMIN":
+        method = "GET";
+        requestURI = "/api/criterion-types/partial";
+        break;
+      default:
+        method = "GET";
+        requestURI = "/api/unknown/" + idUser;
+    }
+  }
+
+  @Benchmark
+  public RouteTable.Route resolve() {
+    return AllRequestsFilterFB.ROUTE_TABLE.resolve(method, requestURI);
+  }
+
+  @Benchmark
+  public int doFilter() throws ServletException, IOException {
+
+    MockHttpServletRequest request = new MockHttpServletRequest(method, requestURI);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    allRequestsFilterFB.doFilterInternal(request, response, new MockFilterChain());
+    return response.getStatus();
+  }
+
+  /**
+   * Сервис аутентификации, возвращающий одни и те же данные пользователя
+   */
+  private static class FixedAuthService implements AuthService {
+
+    private final Optional<JwtUserData> optUserData;
+
+    private FixedAuthService(Optional<JwtUserData> optUserData) {
+      this.optUserData = optUserData;
+    }
+
+    @Override
+    public void preLogin(String email) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginResponse login(String email, int loginCode) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void logout(String idUser) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Optional<JwtUserData> authenticate(HttpServletRequest request, HttpServletResponse response) {
+      return optUserData;
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.example.familybenefits.part_auth.models;
+
+import com.example.familybenefits.dto.entities.RoleEntity;
+import com.example.familybenefits.resources.R;
+import com.example.familybenefits.resources.RDB;
+import com.example.familybenefits.security.RandomValue;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.impl.DefaultClaims;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор данных пользователя из утверждений jwt, нового формата и прежнего формата в subject, и проверка ролей,
+ * выполняемые при каждом запросе с jwt
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtUserDataBenchmark {
+
+  private JwtUserData jwtUserData;
+
+  private Claims claims;
+
+  private Claims legacyClaims;
+
+  private final List<RoleEntity> adminRoleList = List.of(RDB.ROLE_ADMIN);
+
+  private final int adminRoleMask = JwtUserData.roleMaskOf(adminRoleList);
+
+  @Setup
+  public void setup() {
+
+    jwtUserData = JwtUserData
+        .builder()
+        .idUser(RandomValue.randomString(R.ID_LENGTH))
+        .nameRoleList(List.of(RDB.ROLE_USER.getName(), RDB.ROLE_ADMIN.getName()))
+        .build();
+
+    claims = new DefaultClaims().setSubject(jwtUserData.getIdUser());
+    claims.put(JwtUserData.CLAIM_ROLE_MASK, jwtUserData.getRoleMask());
+    legacyClaims = new DefaultClaims().setSubject(jwtUserData.toString());
+  }
+
+  @Benchmark
+  public JwtUserData fromClaims() {
+    return JwtUserData.fromClaims(claims);
+  }
+
+  @Benchmark
+  public JwtUserData fromClaimsLegacy() {
+    return JwtUserData.fromClaims(legacyClaims);
+  }
+
+  @Benchmark
+  public boolean hasAnyRole() {
+    return jwtUserData.hasAnyRole(adminRoleMask);
+  }
+
+  @Benchmark
+  public boolean hasRole() {
+    return jwtUserData.hasRole(adminRoleList);
+  }
+}
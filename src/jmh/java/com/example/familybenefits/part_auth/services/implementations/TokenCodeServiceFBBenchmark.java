@@ -0,0 +1,82 @@
+package com.example.familybenefits.part_auth.services.implementations;
+
+import com.example.familybenefits.part_auth.JwtCache;
+import com.example.familybenefits.part_auth.models.JwtUserData;
+import com.example.familybenefits.resources.R;
+import com.example.familybenefits.resources.RDB;
+import com.example.familybenefits.security.DateTimeSupport;
+import com.example.familybenefits.security.RandomValue;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка jwt {@link TokenCodeServiceFB#checkJwt(String)}: поиск в кэше проверенных токенов
+ * и, при промахе, проверка подписи и разбор данных пользователя. Репозитории сервиса в проверке jwt не участвуют и не передаются
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class TokenCodeServiceFBBenchmark {
+
+  private final JwtCache jwtCache = new JwtCache();
+
+  private final TokenCodeServiceFB tokenCodeServiceFB = new TokenCodeServiceFB(null, null, null, null, null, jwtCache);
+
+  private String jwt;
+
+  private String jwtLegacy;
+
+  @Setup
+  public void setup() {
+
+    JwtUserData userData = JwtUserData
+        .builder()
+        .idUser(RandomValue.randomString(R.ID_LENGTH))
+        .nameRoleList(List.of(RDB.ROLE_USER.getName()))
+        .build();
+
+    // Токен подписывается так же, как при входе в систему, и в прежнем формате с данными в subject
+    Date expiration = Date.from(DateTimeSupport.getExpiration(R.JWT_EXPIRATION_SEC).toInstant(ZoneOffset.UTC));
+    jwt = Jwts.builder()
+        .setSubject(userData.getIdUser())
+        .claim(JwtUserData.CLAIM_ROLE_MASK, userData.getRoleMask())
+        .setExpiration(expiration)
+        .signWith(SignatureAlgorithm.HS512, R.JWT_SECRET)
+        .compact();
+    jwtLegacy = Jwts.builder()
+        .setSubject(userData.toString())
+        .setExpiration(expiration)
+        .signWith(SignatureAlgorithm.HS512, R.JWT_SECRET)
+        .compact();
+  }
+
+  @Benchmark
+  public JwtUserData checkJwt() {
+    return tokenCodeServiceFB.checkJwt(jwt);
+  }
+
+  @Benchmark
+  public JwtUserData checkJwtUncached() {
+
+    // Очистка кэша из одной записи, чтобы каждый вызов проверял подпись
+    jwtCache.invalidateAll();
+    return tokenCodeServiceFB.checkJwt(jwt);
+  }
+
+  @Benchmark
+  public JwtUserData checkJwtLegacyUncached() {
+
+    jwtCache.invalidateAll();
+    return tokenCodeServiceFB.checkJwt(jwtLegacy);
+  }
+}
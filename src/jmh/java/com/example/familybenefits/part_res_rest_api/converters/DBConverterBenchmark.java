@@ -0,0 +1,143 @@
+package com.example.familybenefits.part_res_rest_api.converters;
+
+import com.example.familybenefits.dto.entities.BenefitEntity;
+import com.example.familybenefits.dto.entities.ChildBirthEntity;
+import com.example.familybenefits.dto.entities.RoleEntity;
+import com.example.familybenefits.dto.entities.UserEntity;
+import com.example.familybenefits.exceptions.InvalidStringException;
+import com.example.familybenefits.part_res_rest_api.api_model.admin.AdminInfo;
+import com.example.familybenefits.part_res_rest_api.api_model.benefit.BenefitInfo;
+import com.example.familybenefits.part_res_rest_api.api_model.benefit.BenefitSave;
+import com.example.familybenefits.part_res_rest_api.api_model.criterion.CriterionInfo;
+import com.example.familybenefits.part_res_rest_api.api_model.user.UserInfo;
+import com.example.familybenefits.part_res_rest_api.api_model.user.UserSave;
+import com.example.familybenefits.resources.R;
+import com.example.familybenefits.resources.RDB;
+import com.example.familybenefits.security.DBSecuritySupport;
+import com.example.familybenefits.security.RandomValue;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка строковых полей {@link FieldConverter} и преобразования моделей таблиц в объекты API и обратно,
+ * выполняемые при каждом сохранении и чтении объектов
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DBConverterBenchmark {
+
+  /**
+   * Количество строк в списке критерий
+   */
+  private static final int CRITERION_ROW_COUNT = 50;
+
+  private final String idObject = RandomValue.randomString(R.ID_LENGTH);
+
+  private final BenefitSave benefitSave = BenefitSave
+      .builder()
+      .name("Материнский капитал")
+      .info("Выплата при рождении второго ребенка")
+      .documents("Паспорт, свидетельство о рождении")
+      .build();
+
+  private final BenefitEntity benefitEntity = new BenefitEntity(
+      idObject, "Материнский капитал", "Выплата при рождении второго ребенка", "Паспорт, свидетельство о рождении");
+
+  private final UserSave userSave = UserSave
+      .builder()
+      .name("Иван")
+      .email("ivan@example.com")
+      .idCity(idObject)
+      .build();
+
+  private final UserEntity userEntity = UserEntity
+      .builder()
+      .id(idObject)
+      .name("Иван")
+      .email("ivan@example.com")
+      .idCity(idObject)
+      .build();
+
+  private final List<ChildBirthEntity> childBirthEntityList = List.of(
+      new ChildBirthEntity(idObject, LocalDate.of(2012, 2, 29)),
+      new ChildBirthEntity(idObject, LocalDate.of(2015, 12, 31)));
+
+  private final List<RoleEntity> roleEntityList = List.of(RDB.ROLE_USER, RDB.ROLE_ADMIN);
+
+  private final Object[] shortRow = {idObject, "Москва"};
+
+  private final List<Object[]> criterionRowList = new ArrayList<>(CRITERION_ROW_COUNT);
+
+  @Setup
+  public void setup() {
+
+    for (int i = 0; i < CRITERION_ROW_COUNT; i++) {
+      criterionRowList.add(new Object[] {
+          RandomValue.randomString(R.ID_LENGTH), "Критерий " + i, "Информация критерия " + i, "Тип критерия"});
+    }
+  }
+
+  @Benchmark
+  public String withSymbolsFieldValid() throws InvalidStringException {
+    return FieldConverter.withSymbolsField("Материнский капитал", "name", true);
+  }
+
+  @Benchmark
+  public void withSymbolsFieldInvalid(Blackhole blackhole) {
+
+    try {
+      blackhole.consume(FieldConverter.withSymbolsField(" ,.- ", "name", true));
+    } catch (InvalidStringException e) {
+      blackhole.consume(e);
+    }
+  }
+
+  @Benchmark
+  public BenefitEntity benefitFromSave() throws InvalidStringException {
+    return BenefitDBConverter.fromSave(null, benefitSave, DBSecuritySupport::preparePostgreSQLString);
+  }
+
+  @Benchmark
+  public BenefitInfo benefitToInfo() {
+    return BenefitDBConverter.toInfo(benefitEntity);
+  }
+
+  @Benchmark
+  public UserEntity userFromSave() throws InvalidStringException {
+    return UserDBConverter.fromSave(null, userSave, DBSecuritySupport::preparePostgreSQLString);
+  }
+
+  @Benchmark
+  public UserInfo userToInfo() {
+    return UserDBConverter.toInfo(userEntity, childBirthEntityList, roleEntityList, "Москва");
+  }
+
+  @Benchmark
+  public AdminInfo adminToInfo() {
+    return AdminDBConverter.toInfo(userEntity, roleEntityList);
+  }
+
+  @Benchmark
+  public List<CriterionInfo> criterionToInfoList() {
+    return CriterionDBConverter.toInfoList(criterionRowList.stream());
+  }
+
+  @Benchmark
+  public void toShortInfoRow(Blackhole blackhole) {
+
+    blackhole.consume(CityDBConverter.toShortInfo(shortRow));
+    blackhole.consume(BenefitDBConverter.toShortInfo(shortRow));
+    blackhole.consume(InstitutionDBConverter.toShortInfo(shortRow));
+    blackhole.consume(CriterionTypeDBConverter.toShortInfo(shortRow));
+    blackhole.consume(CriterionDBConverter.toShortInfo(shortRow));
+  }
+}
@@ -0,0 +1,58 @@
+package com.example.familybenefits.security;
+
+import com.example.familybenefits.exceptions.DateFormatException;
+import org.openjdk.jmh.annotations.*;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение разбора дат рождения "dd.mm.yyyy": общий SimpleDateFormat под блокировкой,
+ * через который даты разбирались раньше, и посимвольный разбор DateTimeSupport.
+ * Запуск с несколькими потоками показывает конкуренцию за общий объект формата
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class DateTimeSupportBenchmark {
+
+  /**
+   * Общий объект формата. SimpleDateFormat не потокобезопасен, поэтому используется под блокировкой
+   */
+  private final SimpleDateFormat simpleDateFormat = new SimpleDateFormat("dd.MM.yyyy");
+
+  private final String dateBirth = "14.07.1988";
+
+  private final List<String> birthDateChildren = List.of("02.03.2010", "29.02.2012", "31.12.2015", "01.01.2020");
+
+  @Benchmark
+  public LocalDate simpleDateFormat() throws ParseException {
+
+    synchronized (simpleDateFormat) {
+      return simpleDateFormat.parse(dateBirth).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+  }
+
+  @Benchmark
+  public LocalDate strToDate() throws DateFormatException {
+    return DateTimeSupport.strToDate(dateBirth);
+  }
+
+  @Benchmark
+  public List<LocalDate> strToDateList() throws DateFormatException {
+    return DateTimeSupport.strToDate(birthDateChildren);
+  }
+
+  @Benchmark
+  public String dateToStr() {
+    return DateTimeSupport.dateToStr(LocalDate.of(1988, 7, 14));
+  }
+}
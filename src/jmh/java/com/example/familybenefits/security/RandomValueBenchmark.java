@@ -0,0 +1,53 @@
+package com.example.familybenefits.security;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение генерации идентификаторов и кодов: прежний способ с новым SecureRandom на каждый вызов
+ * и переводом байтов через double, и RandomValue с генератором потока и отбором байтов
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class RandomValueBenchmark {
+
+  private static final char[] RANDOM_STRING_SYMBOLS =
+      "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+  /**
+   * Длина идентификатора сущности
+   */
+  @Param({"20", "64"})
+  private int length;
+
+  @Benchmark
+  public String randomStringPerCallSecureRandom() {
+
+    byte[] randBytes = new byte[length];
+    new SecureRandom().nextBytes(randBytes);
+
+    StringBuilder stringBuilder = new StringBuilder(length);
+    for (byte randByte : randBytes) {
+      stringBuilder.append(RANDOM_STRING_SYMBOLS[(int) Math.floor(
+          (randByte + 128) / 256.0 * RANDOM_STRING_SYMBOLS.length)]);
+    }
+    return stringBuilder.toString();
+  }
+
+  @Benchmark
+  public String randomString() {
+    return RandomValue.randomString(length);
+  }
+
+  @Benchmark
+  public int randomInteger() {
+    return RandomValue.randomInteger(6);
+  }
+}
@@ -0,0 +1,37 @@
+package com.example.familybenefits.cluster;
+
+/**
+ * Каналы уведомлений между экземплярами приложения
+ */
+public enum ClusterChannel {
+
+  /**
+   * Отзыв токенов восстановления и сессий пользователей
+   */
+  REFRESH_TOKEN_REVOCATION("refresh_token_revocation"),
+  /**
+   * Изменение справочных данных: городов, критерий, типов критерий, учреждений и пособий
+   */
+  REFERENCE_DATA_CHANGE("reference_data_change");
+
+  /**
+   * Название канала уведомлений PostgreSQL
+   */
+  private final String name;
+
+  /**
+   * Конструктор для создания канала
+   * @param name название канала уведомлений PostgreSQL
+   */
+  ClusterChannel(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Возвращает название канала уведомлений PostgreSQL
+   * @return название канала
+   */
+  public String getName() {
+    return name;
+  }
+}
@@ -0,0 +1,232 @@
+package com.example.familybenefits.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Уведомления между экземплярами приложения на основе LISTEN/NOTIFY PostgreSQL.
+ * Каждый канал {@link ClusterChannel} имеет своих получателей. Уведомление получают все экземпляры, включая отправителя.
+ * Одно соединение с бд постоянно занято подпиской на все каналы
+ */
+@Slf4j
+@Component
+public class ClusterNotificationChannel {
+
+  /**
+   * Время ожидания уведомлений за одну проверку, в миллисекундах
+   */
+  private static final int POLL_TIMEOUT_MS = 500;
+  /**
+   * Пауза перед повторным подключением к бд после ошибки, в миллисекундах
+   */
+  private static final long RECONNECT_DELAY_MS = 5_000;
+
+  /**
+   * Источник соединений с бд
+   */
+  private final DataSource dataSource;
+  /**
+   * Шаблон для отправки уведомлений
+   */
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Получатели уведомлений по каналу
+   */
+  private final Map<ClusterChannel, List<ClusterNotificationListener>> listenerMap = new EnumMap<>(ClusterChannel.class);
+
+  /**
+   * Флаг работы подписки на каналы
+   */
+  private volatile boolean running;
+  /**
+   * Поток, получающий уведомления каналов
+   */
+  private Thread listenerThread;
+
+  /**
+   * Конструктор для инициализации каналов
+   * @param dataSource источник соединений с бд
+   * @param jdbcTemplate шаблон для отправки уведомлений
+   */
+  @Autowired
+  public ClusterNotificationChannel(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+
+    this.dataSource = dataSource;
+    this.jdbcTemplate = jdbcTemplate;
+    for (ClusterChannel channel : ClusterChannel.values()) {
+      listenerMap.put(channel, new CopyOnWriteArrayList<>());
+    }
+  }
+
+  /**
+   * Добавляет получателя уведомлений канала. Получатель сразу сбрасывает данные через
+   * {@link ClusterNotificationListener#onSubscribed()}: уведомления до его добавления ему не доставлены
+   * @param channel канал
+   * @param listener получатель уведомлений
+   */
+  public void subscribe(ClusterChannel channel, ClusterNotificationListener listener) {
+
+    listenerMap.get(channel).add(listener);
+    listener.onSubscribed();
+  }
+
+  /**
+   * Отправляет уведомление в канал. Внутри транзакции уведомление отправляется после ее фиксации,
+   * чтобы получатели читали из бд уже измененные данные
+   * @param channel канал
+   * @param payload содержимое уведомления
+   */
+  public void publish(ClusterChannel channel, String payload) {
+
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          sendNotification(channel, payload);
+        }
+      });
+    } else {
+      sendNotification(channel, payload);
+    }
+  }
+
+  /**
+   * Запускает поток подписки на каналы
+   */
+  @PostConstruct
+  public void start() {
+
+    running = true;
+    listenerThread = new Thread(this::listen, "cluster-notification");
+    listenerThread.setDaemon(true);
+    listenerThread.start();
+  }
+
+  /**
+   * Останавливает поток подписки на каналы
+   */
+  @PreDestroy
+  public void stop() {
+
+    running = false;
+    listenerThread.interrupt();
+  }
+
+  /**
+   * Выполняет запрос отправки уведомления в канал
+   * @param channel канал
+   * @param payload содержимое уведомления
+   */
+  private void sendNotification(ClusterChannel channel, String payload) {
+
+    try {
+      jdbcTemplate.query("SELECT pg_notify(?, ?)", (ResultSetExtractor<Void>) resultSet -> null,
+                         channel.getName(), payload);
+    } catch (DataAccessException e) {
+      log.warn("DB. Notification \"{}\" to the channel {} not published. {}", payload, channel.getName(), e.getMessage());
+    }
+  }
+
+  /**
+   * Подписывается на каналы и передает полученные уведомления получателям.
+   * При потере соединения переподключается
+   */
+  private void listen() {
+
+    boolean resubscription = false;
+    while (running) {
+      try (Connection connection = dataSource.getConnection();
+           Statement statement = connection.createStatement()) {
+
+        for (ClusterChannel channel : ClusterChannel.values()) {
+          statement.execute("LISTEN " + channel.getName());
+        }
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+        // Уведомления, отправленные без подписки, потеряны
+        if (resubscription) {
+          for (List<ClusterNotificationListener> listenerList : listenerMap.values()) {
+            listenerList.forEach(this::resubscribe);
+          }
+        }
+        resubscription = true;
+        log.info("DB. Listening to the cluster notification channels");
+
+        while (running) {
+          PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+          if (notifications != null) {
+            for (PGNotification notification : notifications) {
+              dispatch(notification.getName(), notification.getParameter());
+            }
+          }
+        }
+
+      } catch (SQLException e) {
+        if (!running) {
+          return;
+        }
+        resubscription = true;
+        log.warn("DB. Cluster notification channels lost. {}", e.getMessage());
+        try {
+          Thread.sleep(RECONNECT_DELAY_MS);
+        } catch (InterruptedException interruptedException) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Передает уведомление получателям канала. Ошибка получателя не прерывает подписку:
+   * она записывается в журнал, а уведомление передается остальным получателям
+   * @param channelName название канала уведомления
+   * @param payload содержимое уведомления
+   */
+  private void dispatch(String channelName, String payload) {
+
+    for (ClusterChannel channel : ClusterChannel.values()) {
+      if (channel.getName().equals(channelName)) {
+        for (ClusterNotificationListener listener : listenerMap.get(channel)) {
+          try {
+            listener.onNotification(payload);
+          } catch (RuntimeException e) {
+            log.error("Notification \"{}\" of the channel {} not handled", payload, channelName, e);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Сообщает получателю о повторной подписке. Ошибка получателя записывается в журнал и не прерывает подписку
+   * @param listener получатель уведомлений
+   */
+  private void resubscribe(ClusterNotificationListener listener) {
+
+    try {
+      listener.onSubscribed();
+    } catch (RuntimeException e) {
+      log.error("Resubscription of the cluster notification listener not handled", e);
+    }
+  }
+}
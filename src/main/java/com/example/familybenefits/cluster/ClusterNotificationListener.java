@@ -0,0 +1,19 @@
+package com.example.familybenefits.cluster;
+
+/**
+ * Получатель уведомлений канала между экземплярами приложения
+ */
+public interface ClusterNotificationListener {
+
+  /**
+   * Обрабатывает уведомление канала
+   * @param payload содержимое уведомления
+   */
+  void onNotification(String payload);
+
+  /**
+   * Вызывается при подписке получателя и после каждого переподключения к бд.
+   * Уведомления, отправленные без подписки, потеряны, поэтому получатель сбрасывает зависящие от них данные
+   */
+  void onSubscribed();
+}
@@ -0,0 +1,88 @@
+package com.example.familybenefits.dto.entities;
+
+import lombok.*;
+import org.hibernate.Hibernate;
+import org.springframework.lang.NonNull;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * Модель записи таблицы "mail_outbox"
+ */
+@Entity
+@Table(name = "mail_outbox", schema = "family_benefit")
+@Getter
+@Setter
+@ToString
+@Builder
+@NoArgsConstructor(access = AccessLevel.PUBLIC)
+@AllArgsConstructor
+public class MailOutboxEntity extends ObjectEntity {
+
+  /**
+   * ID сообщения
+   */
+  @NonNull
+  @Id
+  @Column(name = "id")
+  private String id;
+
+  /**
+   * ID пользователя-получателя
+   */
+  @NonNull
+  @Column(name = "id_user")
+  private String idUser;
+
+  /**
+   * Адрес получателя
+   */
+  @NonNull
+  @Column(name = "email")
+  private String email;
+
+  /**
+   * Тема сообщения
+   */
+  @NonNull
+  @Column(name = "subject")
+  private String subject;
+
+  /**
+   * Текст сообщения
+   */
+  @NonNull
+  @ToString.Exclude
+  @Column(name = "text")
+  private String text;
+
+  /**
+   * Количество неудачных попыток отправки
+   */
+  @Column(name = "attempts")
+  private int attempts;
+
+  /**
+   * Время следующей попытки отправки
+   */
+  @NonNull
+  @Column(name = "date_next_attempt")
+  private LocalDateTime dateNextAttempt;
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) return false;
+    MailOutboxEntity mailOutboxEntity = (MailOutboxEntity) o;
+    return id.equals(mailOutboxEntity.id);
+  }
+
+  @Override
+  public int hashCode() {
+    return getClass().hashCode();
+  }
+}
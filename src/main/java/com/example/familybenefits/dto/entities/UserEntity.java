@@ -58,9 +58,9 @@ public class UserEntity extends ObjectEntity {
   private LocalDate dateSelectCriterion;
 
   /**
-   * Флаг свежести подобранных пособий
+   * Флаг свежести подобранных пособий. Устанавливается в бд при подборе пособий, приложением не записывается
    */
-  @Column(name = "is_fresh_benefits")
+  @Column(name = "is_fresh_benefits", insertable = false, updatable = false)
   private boolean isFreshBenefits;
 
   /**
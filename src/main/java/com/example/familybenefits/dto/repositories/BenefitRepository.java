@@ -2,15 +2,40 @@ package com.example.familybenefits.dto.repositories;
 
 import com.example.familybenefits.dto.entities.BenefitEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий, работающий с моделью таблицы "benefit"
  */
 public interface BenefitRepository extends JpaRepository<BenefitEntity, String> {
 
+  /**
+   * Часть запроса страницы пособий по фильтру после списка столбцов. Параметры, указанные пустой строкой, не участвуют в фильтрации.
+   * Страница упорядочена по ID и начинается после указанного ID, пустая строка - с начала
+   */
+  String FILTER_QUERY =
+      "FROM family_benefit.benefit " +
+          "WHERE (?1 = '' OR family_benefit.benefit.name = ?1) " +
+          "AND EXISTS (SELECT 1 FROM family_benefit.benefits_cities " +
+            "WHERE family_benefit.benefits_cities.id_benefit = family_benefit.benefit.id " +
+            "AND (?2 = '' OR family_benefit.benefits_cities.id_city = ?2)) " +
+          "AND EXISTS (SELECT 1 FROM family_benefit.benefits_criteria " +
+            "WHERE family_benefit.benefits_criteria.id_benefit = family_benefit.benefit.id " +
+            "AND (?3 = '' OR family_benefit.benefits_criteria.id_criterion = ?3)) " +
+          "AND EXISTS (SELECT 1 FROM family_benefit.benefits_institutions " +
+            "WHERE family_benefit.benefits_institutions.id_benefit = family_benefit.benefit.id " +
+            "AND (?4 = '' OR family_benefit.benefits_institutions.id_institution = ?4)) " +
+          "AND family_benefit.benefit.id > ?5 " +
+          "ORDER BY family_benefit.benefit.id " +
+          "LIMIT ?6";
+
   /**
    * Проверяет наличие пособия по его названию
    * @param name название пособия
@@ -18,6 +43,18 @@ public interface BenefitRepository extends JpaRepository<BenefitEntity, String>
    */
   boolean existsByName(String name);
 
+  /**
+   * Возвращает ID пособий, которых нет в базе данных, из указанного списка ID
+   * @param idCsv ID пособий, разделенные запятой
+   * @return список ненайденных ID
+   */
+  @Query(nativeQuery = true,
+      value = "SELECT ids.id " +
+          "FROM unnest(string_to_array(?1, ',')) AS ids(id) " +
+          "WHERE NOT EXISTS (" +
+            "SELECT 1 FROM family_benefit.benefit WHERE family_benefit.benefit.id = ids.id)")
+  List<String> findMissingIds(String idCsv);
+
   /**
    * Проверяет наличие пособия с отличным от данного ID и данным названием
    * @param id ID пособия
@@ -39,38 +76,127 @@ public interface BenefitRepository extends JpaRepository<BenefitEntity, String>
   List<BenefitEntity> findAllByIdUser(String idUser);
 
   /**
-   * Возвращает список пособий по фильтру: название пособия, ID города, ID критерия, ID учреждения.
-   * Если в качестве параметра указан {@code null}, то параметр бд сравнивается {@code != null}
+   * Возвращает страницу пособий, в которых есть города, критерии и учреждения, по фильтру: название пособия, ID города, ID критерия, ID учреждения.
+   * Если в качестве параметра указана пустая строка, то параметр не участвует в фильтрации
    * @param name название пособия
    * @param idCity ID города
    * @param idCriterion ID критерия
    * @param idInstitution ID учреждения
-   * @return список пособий, удовлетворяющих параметрам
+   * @param after ID пособия, после которого начинается страница, пустая строка - с начала
+   * @param limit максимальное количество пособий на странице
+   * @return страница пособий, упорядоченная по ID
+   */
+  @Query(nativeQuery = true,
+      value = "SELECT family_benefit.benefit.id, family_benefit.benefit.name, family_benefit.benefit.info, family_benefit.benefit.documents " + FILTER_QUERY)
+  List<BenefitEntity> findAllFilter(String name, String idCity, String idCriterion, String idInstitution, String after, int limit);
+
+  /**
+   * Возвращает поток строк кратких информаций о пособиях, в которых есть города, критерии и учреждения, по фильтру. Строки загружаются из бд частями по мере чтения потока.
+   * Поток необходимо закрыть и читать в транзакции
+   * @param name название пособия
+   * @param idCity ID города
+   * @param idCriterion ID критерия
+   * @param idInstitution ID учреждения
+   * @param after ID пособия, после которого начинается поток, пустая строка - с начала
+   * @param limit максимальное количество пособий
+   * @return поток строк: ID и название, упорядоченный по ID
+   */
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+  @Query(nativeQuery = true,
+      value = "SELECT family_benefit.benefit.id, family_benefit.benefit.name " + FILTER_QUERY)
+  Stream<Object[]> streamShortFilter(String name, String idCity, String idCriterion, String idInstitution, String after, int limit);
+
+  /**
+   * Возвращает страницу неполных пособий: без города, критерия или учреждения
+   * @param after ID пособия, после которого начинается страница, пустая строка - с начала
+   * @param limit максимальное количество пособий на странице
+   * @return страница пособий, упорядоченная по ID
    */
   @Query(nativeQuery = true,
       value = "SELECT family_benefit.benefit.id, family_benefit.benefit.name, family_benefit.benefit.info, family_benefit.benefit.documents " +
           "FROM family_benefit.benefit " +
-          "INNER JOIN family_benefit.benefits_cities ON family_benefit.benefits_cities.id_benefit = family_benefit.benefit.id " +
-          "INNER JOIN family_benefit.benefits_criteria ON family_benefit.benefits_criteria.id_benefit = family_benefit.benefit.id " +
-          "INNER JOIN family_benefit.benefits_institutions ON family_benefit.benefits_institutions.id_benefit = family_benefit.benefit.id " +
-          "WHERE (?1 = '' OR family_benefit.benefit.name = ?1) " +
-          "AND (?2 = '' OR family_benefit.benefits_cities.id_city = ?2) " +
-          "AND (?3 = '' OR family_benefit.benefits_criteria.id_criterion = ?3) " +
-          "AND (?4 = '' OR family_benefit.benefits_institutions.id_institution = ?4);")
-  List<BenefitEntity> findAllFilter(String name, String idCity, String idCriterion, String idInstitution);
+          "WHERE (NOT EXISTS (SELECT 1 FROM family_benefit.benefits_cities " +
+            "WHERE family_benefit.benefits_cities.id_benefit = family_benefit.benefit.id) " +
+          "OR NOT EXISTS (SELECT 1 FROM family_benefit.benefits_criteria " +
+            "WHERE family_benefit.benefits_criteria.id_benefit = family_benefit.benefit.id) " +
+          "OR NOT EXISTS (SELECT 1 FROM family_benefit.benefits_institutions " +
+            "WHERE family_benefit.benefits_institutions.id_benefit = family_benefit.benefit.id)) " +
+          "AND family_benefit.benefit.id > ?1 " +
+          "ORDER BY family_benefit.benefit.id " +
+          "LIMIT ?2")
+  List<BenefitEntity> findAllPartial(String after, int limit);
 
   /**
-   * Возвращает список неполных пособий: без города, критерия или учреждения
-   * @return список неполных критерий
+   * Возвращает страницу пособий, в которых есть города, критерии и учреждения, найденных по тексту запроса.
+   * Найдены пособия, у которых название или информация содержат слова запроса, или название содержит текст запроса.
+   * Поиск выполняется по индексам поискового вектора и триграмм. Результат упорядочен по рангу полнотекстового поиска
+   * и сходству названия с текстом запроса
+   * @param text текст запроса в синтаксисе поисковых систем: слова, фразы в кавычках, исключение словом с минусом
+   * @param containsPattern шаблон LIKE, которому соответствует строка, содержащая текст запроса
+   * @param limit максимальное количество пособий на странице
+   * @param offset количество пропускаемых пособий
+   * @return страница пособий, упорядоченная по убыванию релевантности
    */
   @Query(nativeQuery = true,
       value = "SELECT family_benefit.benefit.id, family_benefit.benefit.name, family_benefit.benefit.info, family_benefit.benefit.documents " +
-          "FROM family_benefit.benefit " +
-          "LEFT JOIN family_benefit.benefits_cities ON family_benefit.benefits_cities.id_benefit = family_benefit.benefit.id " +
-          "LEFT JOIN family_benefit.benefits_criteria ON family_benefit.benefits_criteria.id_benefit = family_benefit.benefit.id " +
-          "LEFT JOIN family_benefit.benefits_institutions ON family_benefit.benefits_institutions.id_benefit = family_benefit.benefit.id " +
-          "WHERE family_benefit.benefits_cities.id_city = '' " +
-          "OR family_benefit.benefits_criteria.id_criterion = '' " +
-          "OR family_benefit.benefits_institutions.id_institution = '';")
-  List<BenefitEntity> findAllPartial();
+          "FROM family_benefit.benefit, websearch_to_tsquery('russian', ?1) AS search_query " +
+          "WHERE (family_benefit.benefit.search_vector @@ search_query OR family_benefit.benefit.name ILIKE ?2) " +
+          "AND EXISTS (SELECT 1 FROM family_benefit.benefits_cities " +
+            "WHERE family_benefit.benefits_cities.id_benefit = family_benefit.benefit.id) " +
+          "AND EXISTS (SELECT 1 FROM family_benefit.benefits_criteria " +
+            "WHERE family_benefit.benefits_criteria.id_benefit = family_benefit.benefit.id) " +
+          "AND EXISTS (SELECT 1 FROM family_benefit.benefits_institutions " +
+            "WHERE family_benefit.benefits_institutions.id_benefit = family_benefit.benefit.id) " +
+          "ORDER BY ts_rank(family_benefit.benefit.search_vector, search_query) + similarity(family_benefit.benefit.name, ?1) DESC, " +
+            "family_benefit.benefit.id " +
+          "LIMIT ?3 OFFSET ?4")
+  List<BenefitEntity> search(String text, String containsPattern, int limit, int offset);
+
+  /**
+   * Заменяет города пособия одним запросом: связи с другими городами удаляются, новые связи создаются.
+   * Триггеры таблицы отмечают несвежими только пользователей, которых затрагивает изменение
+   * @param idBenefit ID пособия
+   * @param idCityArray ID существующих городов, перечисленные через запятую
+   */
+  @Modifying
+  @Transactional
+  @Query(nativeQuery = true,
+      value = "WITH new_cities AS (SELECT DISTINCT unnest(string_to_array(?2, ',')) AS id_city), " +
+          "deleted AS (DELETE FROM family_benefit.benefits_cities " +
+          "WHERE id_benefit = ?1 AND id_city NOT IN (SELECT id_city FROM new_cities)) " +
+          "INSERT INTO family_benefit.benefits_cities (id_benefit, id_city) " +
+          "SELECT ?1, id_city FROM new_cities ON CONFLICT DO NOTHING;")
+  void replaceCities(String idBenefit, String idCityArray);
+
+  /**
+   * Заменяет критерии пособия одним запросом: связи с другими критериями удаляются, новые связи создаются.
+   * Триггеры таблицы отмечают несвежими только пользователей, которых затрагивает изменение
+   * @param idBenefit ID пособия
+   * @param idCriterionArray ID существующих критерий, перечисленные через запятую
+   */
+  @Modifying
+  @Transactional
+  @Query(nativeQuery = true,
+      value = "WITH new_criteria AS (SELECT DISTINCT unnest(string_to_array(?2, ',')) AS id_criterion), " +
+          "deleted AS (DELETE FROM family_benefit.benefits_criteria " +
+          "WHERE id_benefit = ?1 AND id_criterion NOT IN (SELECT id_criterion FROM new_criteria)) " +
+          "INSERT INTO family_benefit.benefits_criteria (id_benefit, id_criterion) " +
+          "SELECT ?1, id_criterion FROM new_criteria ON CONFLICT DO NOTHING;")
+  void replaceCriteria(String idBenefit, String idCriterionArray);
+
+  /**
+   * Заменяет учреждения пособия одним запросом: связи с другими учреждениями удаляются, новые связи создаются.
+   * Триггеры таблицы отмечают несвежими только пользователей, которых затрагивает изменение
+   * @param idBenefit ID пособия
+   * @param idInstitutionArray ID существующих учреждений, перечисленные через запятую
+   */
+  @Modifying
+  @Transactional
+  @Query(nativeQuery = true,
+      value = "WITH new_institutions AS (SELECT DISTINCT unnest(string_to_array(?2, ',')) AS id_institution), " +
+          "deleted AS (DELETE FROM family_benefit.benefits_institutions " +
+          "WHERE id_benefit = ?1 AND id_institution NOT IN (SELECT id_institution FROM new_institutions)) " +
+          "INSERT INTO family_benefit.benefits_institutions (id_benefit, id_institution) " +
+          "SELECT ?1, id_institution FROM new_institutions ON CONFLICT DO NOTHING;")
+  void replaceInstitutions(String idBenefit, String idInstitutionArray);
 }
@@ -3,15 +3,35 @@ package com.example.familybenefits.dto.repositories;
 import com.example.familybenefits.dto.entities.CityEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий, работающий с моделью таблицы "city"
  */
 public interface CityRepository extends JpaRepository<CityEntity, String> {
 
+  /**
+   * Часть запроса страницы городов по фильтру после списка столбцов. Параметры, указанные пустой строкой, не участвуют в фильтрации.
+   * Страница упорядочена по ID и начинается после указанного ID, пустая строка - с начала
+   */
+  String FILTER_QUERY =
+      "FROM family_benefit.city " +
+          "WHERE (?1 = '' OR family_benefit.city.name = ?1) " +
+          "AND EXISTS (SELECT 1 FROM family_benefit.benefits_cities " +
+            "WHERE family_benefit.benefits_cities.id_city = family_benefit.city.id " +
+            "AND (?2 = '' OR family_benefit.benefits_cities.id_benefit = ?2)) " +
+          "AND EXISTS (SELECT 1 FROM family_benefit.institution " +
+            "WHERE family_benefit.institution.id_city = family_benefit.city.id " +
+            "AND (?3 = '' OR family_benefit.institution.id = ?3)) " +
+          "AND family_benefit.city.id > ?4 " +
+          "ORDER BY family_benefit.city.id " +
+          "LIMIT ?5";
+
   /**
    * Проверяет наличие города по его названию
    * @param name название города
@@ -19,6 +39,18 @@ public interface CityRepository extends JpaRepository<CityEntity, String> {
    */
   boolean existsByName(String name);
 
+  /**
+   * Возвращает ID городов, которых нет в базе данных, из указанного списка ID
+   * @param idCsv ID городов, разделенные запятой
+   * @return список ненайденных ID
+   */
+  @Query(nativeQuery = true,
+      value = "SELECT ids.id " +
+          "FROM unnest(string_to_array(?1, ',')) AS ids(id) " +
+          "WHERE NOT EXISTS (" +
+            "SELECT 1 FROM family_benefit.city WHERE family_benefit.city.id = ids.id)")
+  List<String> findMissingIds(String idCsv);
+
   /**
    * Проверяет наличие города с отличным от данного ID и данным названием
    * @param id ID города
@@ -28,32 +60,49 @@ public interface CityRepository extends JpaRepository<CityEntity, String> {
   boolean existsByIdIsNotAndName(String id, String name);
 
   /**
-   * Возвращает список городов по фильтру: название города, ID пособия, ID учреждения.
-   * Если в качестве параметра указан {@code null}, то параметр бд сравнивается {@code != null}
+   * Возвращает страницу городов, в которых есть пособия и учреждения, по фильтру: название города, ID пособия, ID учреждения.
+   * Если в качестве параметра указана пустая строка, то параметр не участвует в фильтрации
    * @param name название города
    * @param idBenefit ID пособия
    * @param idInstitution ID учреждения
-   * @return список городов, удовлетворяющих параметрам
+   * @param after ID города, после которого начинается страница, пустая строка - с начала
+   * @param limit максимальное количество городов на странице
+   * @return страница городов, упорядоченная по ID
    */
   @Query(nativeQuery = true,
-      value = "SELECT DISTINCT family_benefit.city.id, family_benefit.city.name, family_benefit.city.info " +
-          "FROM family_benefit.city " +
-          "INNER JOIN family_benefit.benefits_cities ON family_benefit.benefits_cities.id_city = family_benefit.city.id " +
-          "INNER JOIN family_benefit.institution ON family_benefit.institution.id_city = family_benefit.city.id " +
-          "WHERE (?1 = '' OR family_benefit.city.name = ?1) " +
-          "AND (?2 = '' OR family_benefit.benefits_cities.id_benefit = ?2) " +
-          "AND (?3 = '' OR family_benefit.institution.id = ?3);")
-  List<CityEntity> findAllFilter(String name, String idBenefit, String idInstitution);
+      value = "SELECT family_benefit.city.id, family_benefit.city.name, family_benefit.city.info " + FILTER_QUERY)
+  List<CityEntity> findAllFilter(String name, String idBenefit, String idInstitution, String after, int limit);
+
+  /**
+   * Возвращает поток строк кратких информаций о городах, в которых есть пособия и учреждения, по фильтру. Строки загружаются из бд частями по мере чтения потока.
+   * Поток необходимо закрыть и читать в транзакции
+   * @param name название города
+   * @param idBenefit ID пособия
+   * @param idInstitution ID учреждения
+   * @param after ID города, после которого начинается поток, пустая строка - с начала
+   * @param limit максимальное количество городов
+   * @return поток строк: ID и название, упорядоченный по ID
+   */
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+  @Query(nativeQuery = true,
+      value = "SELECT family_benefit.city.id, family_benefit.city.name " + FILTER_QUERY)
+  Stream<Object[]> streamShortFilter(String name, String idBenefit, String idInstitution, String after, int limit);
 
   /**
-   * Возвращает список неполных городов: без пособия или без учреждения
-   * @return список городов
+   * Возвращает страницу неполных городов: без пособия или без учреждения
+   * @param after ID города, после которого начинается страница, пустая строка - с начала
+   * @param limit максимальное количество городов на странице
+   * @return страница городов, упорядоченная по ID
    */
   @Query(nativeQuery = true,
       value = "SELECT family_benefit.city.id, family_benefit.city.name, family_benefit.city.info " +
           "FROM family_benefit.city " +
-          "LEFT JOIN family_benefit.benefits_cities ON family_benefit.benefits_cities.id_city = family_benefit.city.id " +
-          "LEFT JOIN family_benefit.institution ON family_benefit.institution.id_city = family_benefit.city.id " +
-          "WHERE family_benefit.benefits_cities.id_benefit = '' OR family_benefit.institution.id = '';")
-  List<CityEntity> findAllPartial();
+          "WHERE (NOT EXISTS (SELECT 1 FROM family_benefit.benefits_cities " +
+            "WHERE family_benefit.benefits_cities.id_city = family_benefit.city.id) " +
+          "OR NOT EXISTS (SELECT 1 FROM family_benefit.institution " +
+            "WHERE family_benefit.institution.id_city = family_benefit.city.id)) " +
+          "AND family_benefit.city.id > ?1 " +
+          "ORDER BY family_benefit.city.id " +
+          "LIMIT ?2")
+  List<CityEntity> findAllPartial(String after, int limit);
 }
@@ -3,14 +3,32 @@ package com.example.familybenefits.dto.repositories;
 import com.example.familybenefits.dto.entities.CriterionEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий, работающий с моделью таблицы "criterion"
  */
 public interface CriterionRepository extends JpaRepository<CriterionEntity, String> {
 
+  /**
+   * Часть запроса страницы критериев по фильтру после списка столбцов. Параметры, указанные пустой строкой, не участвуют в фильтрации.
+   * Страница упорядочена по ID и начинается после указанного ID, пустая строка - с начала
+   */
+  String FILTER_QUERY =
+      "FROM family_benefit.criterion " +
+          "WHERE (?1 = '' OR family_benefit.criterion.name = ?1) " +
+          "AND (?3 = '' OR family_benefit.criterion.id_type = ?3) " +
+          "AND EXISTS (SELECT 1 FROM family_benefit.benefits_criteria " +
+            "WHERE family_benefit.benefits_criteria.id_criterion = family_benefit.criterion.id " +
+            "AND (?2 = '' OR family_benefit.benefits_criteria.id_benefit = ?2)) " +
+          "AND family_benefit.criterion.id > ?4 " +
+          "ORDER BY family_benefit.criterion.id " +
+          "LIMIT ?5";
+
   /**
    * Проверяет наличие критерия по его названию
    * @param name название критерия
@@ -18,6 +36,18 @@ public interface CriterionRepository extends JpaRepository<CriterionEntity, Stri
    */
   boolean existsByName(String name);
 
+  /**
+   * Возвращает ID критериев, которых нет в базе данных, из указанного списка ID
+   * @param idCsv ID критериев, разделенные запятой
+   * @return список ненайденных ID
+   */
+  @Query(nativeQuery = true,
+      value = "SELECT ids.id " +
+          "FROM unnest(string_to_array(?1, ',')) AS ids(id) " +
+          "WHERE NOT EXISTS (" +
+            "SELECT 1 FROM family_benefit.criterion WHERE family_benefit.criterion.id = ids.id)")
+  List<String> findMissingIds(String idCsv);
+
   /**
    * Проверяет наличие критерия с отличным от данного ID и данным названием
    * @param id ID критерия
@@ -39,30 +69,85 @@ public interface CriterionRepository extends JpaRepository<CriterionEntity, Stri
   List<CriterionEntity> findAllByIdUser(String idUser);
 
   /**
-   * Возвращает список критерий по фильтру: название критерия, ID пособия, ID типа критерия.
-   * Если в качестве параметра указан {@code null}, то параметр бд сравнивается {@code != null}
-   * @param name название пособия
+   * Возвращает страницу критериев, в которых есть пособия, по фильтру: название критерия, ID пособия, ID типа критерия.
+   * Если в качестве параметра указана пустая строка, то параметр не участвует в фильтрации
+   * @param name название критерия
    * @param idBenefit ID пособия
    * @param idCriterionType ID типа критерия
-   * @return список критерий, удовлетворяющих параметрам
+   * @param after ID критерия, после которого начинается страница, пустая строка - с начала
+   * @param limit максимальное количество критериев на странице
+   * @return страница критериев, упорядоченная по ID
    */
   @Query(nativeQuery = true,
-      value = "SELECT DISTINCT family_benefit.criterion.id, family_benefit.criterion.name, family_benefit.criterion.info, family_benefit.criterion.id_type " +
+      value = "SELECT family_benefit.criterion.id, family_benefit.criterion.name, family_benefit.criterion.info, family_benefit.criterion.id_type " + FILTER_QUERY)
+  List<CriterionEntity> findAllFilter(String name, String idBenefit, String idCriterionType, String after, int limit);
+
+  /**
+   * Возвращает поток строк кратких информаций о критериях, в которых есть пособия, по фильтру. Строки загружаются из бд частями по мере чтения потока.
+   * Поток необходимо закрыть и читать в транзакции
+   * @param name название критерия
+   * @param idBenefit ID пособия
+   * @param idCriterionType ID типа критерия
+   * @param after ID критерия, после которого начинается поток, пустая строка - с начала
+   * @param limit максимальное количество критериев
+   * @return поток строк: ID и название, упорядоченный по ID
+   */
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+  @Query(nativeQuery = true,
+      value = "SELECT family_benefit.criterion.id, family_benefit.criterion.name " + FILTER_QUERY)
+  Stream<Object[]> streamShortFilter(String name, String idBenefit, String idCriterionType, String after, int limit);
+
+  /**
+   * Возвращает поток критерий, в которых есть пособия, вместе с названиями их типов.
+   * Критерии и названия типов читаются одним запросом, строки загружаются из бд частями по мере чтения потока.
+   * Поток необходимо закрыть и читать в транзакции
+   * @return поток строк: ID, название, информация критерия и название типа критерия
+   */
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+  @Query(nativeQuery = true,
+      value = "SELECT family_benefit.criterion.id, family_benefit.criterion.name, family_benefit.criterion.info, " +
+          "family_benefit.criterion_type.name AS name_type " +
           "FROM family_benefit.criterion " +
-          "INNER JOIN family_benefit.benefits_criteria ON family_benefit.benefits_criteria.id_criterion = family_benefit.criterion.id " +
-          "WHERE (?1 = '' OR family_benefit.criterion.name = ?1) " +
-          "AND (?2 = '' OR family_benefit.benefits_criteria.id_benefit = ?2) " +
-          "AND (?3 = '' OR family_benefit.criterion.id_type = ?3);")
-  List<CriterionEntity> findAllFilter(String name, String idBenefit, String idCriterionType);
+          "LEFT JOIN family_benefit.criterion_type ON family_benefit.criterion_type.id = family_benefit.criterion.id_type " +
+          "WHERE EXISTS (SELECT 1 FROM family_benefit.benefits_criteria " +
+          "WHERE family_benefit.benefits_criteria.id_criterion = family_benefit.criterion.id);")
+  Stream<Object[]> streamAllFullWithNameType();
 
   /**
-   * Возвращает список неполных критериев: без пособия
-   * @return список критерий
+   * Возвращает страницу неполных критериев: без пособия
+   * @param after ID критерия, после которого начинается страница, пустая строка - с начала
+   * @param limit максимальное количество критериев на странице
+   * @return страница критериев, упорядоченная по ID
    */
   @Query(nativeQuery = true,
       value = "SELECT family_benefit.criterion.id, family_benefit.criterion.name, family_benefit.criterion.info, family_benefit.criterion.id_type " +
           "FROM family_benefit.criterion " +
-          "LEFT JOIN family_benefit.benefits_criteria ON family_benefit.benefits_criteria.id_criterion = family_benefit.city.id " +
-          "WHERE family_benefit.benefits_criteria.id_benefit = '';")
-  List<CriterionEntity> findAllPartial();
+          "WHERE NOT EXISTS (SELECT 1 FROM family_benefit.benefits_criteria " +
+            "WHERE family_benefit.benefits_criteria.id_criterion = family_benefit.criterion.id) " +
+          "AND family_benefit.criterion.id > ?1 " +
+          "ORDER BY family_benefit.criterion.id " +
+          "LIMIT ?2")
+  List<CriterionEntity> findAllPartial(String after, int limit);
+
+  /**
+   * Возвращает страницу критериев, в которых есть пособия, найденных по тексту запроса.
+   * Найдены критерии, у которых название или информация содержат слова запроса, или название содержит текст запроса.
+   * Поиск выполняется по индексам поискового вектора и триграмм. Результат упорядочен по рангу полнотекстового поиска
+   * и сходству названия с текстом запроса
+   * @param text текст запроса в синтаксисе поисковых систем: слова, фразы в кавычках, исключение словом с минусом
+   * @param containsPattern шаблон LIKE, которому соответствует строка, содержащая текст запроса
+   * @param limit максимальное количество критериев на странице
+   * @param offset количество пропускаемых критериев
+   * @return страница критериев, упорядоченная по убыванию релевантности
+   */
+  @Query(nativeQuery = true,
+      value = "SELECT family_benefit.criterion.id, family_benefit.criterion.name, family_benefit.criterion.info, family_benefit.criterion.id_type " +
+          "FROM family_benefit.criterion, websearch_to_tsquery('russian', ?1) AS search_query " +
+          "WHERE (family_benefit.criterion.search_vector @@ search_query OR family_benefit.criterion.name ILIKE ?2) " +
+          "AND EXISTS (SELECT 1 FROM family_benefit.benefits_criteria " +
+            "WHERE family_benefit.benefits_criteria.id_criterion = family_benefit.criterion.id) " +
+          "ORDER BY ts_rank(family_benefit.criterion.search_vector, search_query) + similarity(family_benefit.criterion.name, ?1) DESC, " +
+            "family_benefit.criterion.id " +
+          "LIMIT ?3 OFFSET ?4")
+  List<CriterionEntity> search(String text, String containsPattern, int limit, int offset);
 }
@@ -3,14 +3,31 @@ package com.example.familybenefits.dto.repositories;
 import com.example.familybenefits.dto.entities.CriterionTypeEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий, работающий с моделью таблицы "criterion_type"
  */
 public interface CriterionTypeRepository extends JpaRepository<CriterionTypeEntity, String> {
 
+  /**
+   * Часть запроса страницы типов критерия по фильтру после списка столбцов. Параметры, указанные пустой строкой, не участвуют в фильтрации.
+   * Страница упорядочена по ID и начинается после указанного ID, пустая строка - с начала
+   */
+  String FILTER_QUERY =
+      "FROM family_benefit.criterion_type " +
+          "WHERE (?1 = '' OR family_benefit.criterion_type.name = ?1) " +
+          "AND EXISTS (SELECT 1 FROM family_benefit.criterion " +
+            "WHERE family_benefit.criterion.id_type = family_benefit.criterion_type.id " +
+            "AND (?2 = '' OR family_benefit.criterion.id = ?2)) " +
+          "AND family_benefit.criterion_type.id > ?3 " +
+          "ORDER BY family_benefit.criterion_type.id " +
+          "LIMIT ?4";
+
   /**
    * Проверяет наличие типа критерия по его названию
    * @param name название типа критерия
@@ -27,28 +44,45 @@ public interface CriterionTypeRepository extends JpaRepository<CriterionTypeEnti
   boolean existsByIdIsNotAndName(String id, String name);
 
   /**
-   * Возвращает список типов критерия по фильтру: название типа критерия, ID критерия.
-   * Если в качестве параметра указан {@code null}, то параметр бд сравнивается {@code != null}
-   * @param name название критерия
+   * Возвращает страницу типов критерия, в которых есть критерии, по фильтру: название типа критерия, ID критерия.
+   * Если в качестве параметра указана пустая строка, то параметр не участвует в фильтрации
+   * @param name название типа критерия
    * @param idCriterion ID критерия
-   * @return список типов критерия, удовлетворяющих параметрам
+   * @param after ID типа критерия, после которого начинается страница, пустая строка - с начала
+   * @param limit максимальное количество типов критерия на странице
+   * @return страница типов критерия, упорядоченная по ID
    */
   @Query(nativeQuery = true,
-      value = "SELECT DISTINCT family_benefit.criterion_type.id, family_benefit.criterion_type.name, family_benefit.criterion_type.info " +
-          "FROM family_benefit.criterion_type " +
-          "INNER JOIN family_benefit.criterion ON family_benefit.criterion.id_type = family_benefit.criterion_type.id " +
-          "WHERE (?1 = '' OR family_benefit.criterion_type.name = ?1) " +
-          "AND (?2 = '' OR family_benefit.criterion.id = ?2);")
-  List<CriterionTypeEntity> findAllFilter(String name, String idCriterion);
+      value = "SELECT family_benefit.criterion_type.id, family_benefit.criterion_type.name, family_benefit.criterion_type.info " + FILTER_QUERY)
+  List<CriterionTypeEntity> findAllFilter(String name, String idCriterion, String after, int limit);
+
+  /**
+   * Возвращает поток строк кратких информаций о типах критерия, в которых есть критерии, по фильтру. Строки загружаются из бд частями по мере чтения потока.
+   * Поток необходимо закрыть и читать в транзакции
+   * @param name название типа критерия
+   * @param idCriterion ID критерия
+   * @param after ID типа критерия, после которого начинается поток, пустая строка - с начала
+   * @param limit максимальное количество типов критерия
+   * @return поток строк: ID и название, упорядоченный по ID
+   */
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+  @Query(nativeQuery = true,
+      value = "SELECT family_benefit.criterion_type.id, family_benefit.criterion_type.name " + FILTER_QUERY)
+  Stream<Object[]> streamShortFilter(String name, String idCriterion, String after, int limit);
 
   /**
-   * Возвращает список неполных типов критерия: без критериев
-   * @return список критерий
+   * Возвращает страницу неполных типов критерия: без критериев
+   * @param after ID типа критерия, после которого начинается страница, пустая строка - с начала
+   * @param limit максимальное количество типов критерия на странице
+   * @return страница типов критерия, упорядоченная по ID
    */
   @Query(nativeQuery = true,
       value = "SELECT family_benefit.criterion_type.id, family_benefit.criterion_type.name, family_benefit.criterion_type.info " +
           "FROM family_benefit.criterion_type " +
-          "LEFT JOIN family_benefit.criterion ON family_benefit.criterion.id_type = family_benefit.criterion_type.id " +
-          "WHERE family_benefit.criterion.id = '';")
-  List<CriterionTypeEntity> findAllPartial();
+          "WHERE NOT EXISTS (SELECT 1 FROM family_benefit.criterion " +
+            "WHERE family_benefit.criterion.id_type = family_benefit.criterion_type.id) " +
+          "AND family_benefit.criterion_type.id > ?1 " +
+          "ORDER BY family_benefit.criterion_type.id " +
+          "LIMIT ?2")
+  List<CriterionTypeEntity> findAllPartial(String after, int limit);
 }
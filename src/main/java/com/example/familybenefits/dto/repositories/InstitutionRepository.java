@@ -3,14 +3,32 @@ package com.example.familybenefits.dto.repositories;
 import com.example.familybenefits.dto.entities.InstitutionEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий, работающий с моделью таблицы "institution"
  */
 public interface InstitutionRepository extends JpaRepository<InstitutionEntity, String> {
 
+  /**
+   * Часть запроса страницы учреждений по фильтру после списка столбцов. Параметры, указанные пустой строкой, не участвуют в фильтрации.
+   * Страница упорядочена по ID и начинается после указанного ID, пустая строка - с начала
+   */
+  String FILTER_QUERY =
+      "FROM family_benefit.institution " +
+          "WHERE (?1 = '' OR family_benefit.institution.name = ?1) " +
+          "AND (?2 = '' OR family_benefit.institution.id_city = ?2) " +
+          "AND EXISTS (SELECT 1 FROM family_benefit.benefits_institutions " +
+            "WHERE family_benefit.benefits_institutions.id_institution = family_benefit.institution.id " +
+            "AND (?3 = '' OR family_benefit.benefits_institutions.id_benefit = ?3)) " +
+          "AND family_benefit.institution.id > ?4 " +
+          "ORDER BY family_benefit.institution.id " +
+          "LIMIT ?5";
+
   /**
    * Проверяет наличие учреждения по его названию
    * @param name название учреждения
@@ -18,6 +36,18 @@ public interface InstitutionRepository extends JpaRepository<InstitutionEntity,
    */
   boolean existsByName(String name);
 
+  /**
+   * Возвращает ID учреждений, которых нет в базе данных, из указанного списка ID
+   * @param idCsv ID учреждений, разделенные запятой
+   * @return список ненайденных ID
+   */
+  @Query(nativeQuery = true,
+      value = "SELECT ids.id " +
+          "FROM unnest(string_to_array(?1, ',')) AS ids(id) " +
+          "WHERE NOT EXISTS (" +
+            "SELECT 1 FROM family_benefit.institution WHERE family_benefit.institution.id = ids.id)")
+  List<String> findMissingIds(String idCsv);
+
   /**
    * Проверяет наличие учреждения с отличным от данного ID и данным названием
    * @param id ID учреждения
@@ -27,33 +57,73 @@ public interface InstitutionRepository extends JpaRepository<InstitutionEntity,
   boolean existsByIdIsNotAndName(String id, String name);
 
   /**
-   * Возвращает список учреждений по фильтру: название учреждения, ID города, ID пособия.
-   * Если в качестве параметра указан {@code null}, то параметр бд сравнивается {@code != null}
+   * Возвращает страницу учреждений, в которых есть пособия, по фильтру: название учреждения, ID города, ID пособия.
+   * Если в качестве параметра указана пустая строка, то параметр не участвует в фильтрации
+   * @param name название учреждения
+   * @param idCity ID города
+   * @param idBenefit ID пособия
+   * @param after ID учреждения, после которого начинается страница, пустая строка - с начала
+   * @param limit максимальное количество учреждений на странице
+   * @return страница учреждений, упорядоченная по ID
+   */
+  @Query(nativeQuery = true,
+      value = "SELECT family_benefit.institution.id, family_benefit.institution.name, family_benefit.institution.info, family_benefit.institution.address, " +
+          "family_benefit.institution.phone, family_benefit.institution.email, family_benefit.institution.schedule, family_benefit.institution.id_city " + FILTER_QUERY)
+  List<InstitutionEntity> findAllFilter(String name, String idCity, String idBenefit, String after, int limit);
+
+  /**
+   * Возвращает поток строк кратких информаций об учреждениях, в которых есть пособия, по фильтру. Строки загружаются из бд частями по мере чтения потока.
+   * Поток необходимо закрыть и читать в транзакции
    * @param name название учреждения
    * @param idCity ID города
    * @param idBenefit ID пособия
-   * @return список учреждений, удовлетворяющих параметрам
+   * @param after ID учреждения, после которого начинается поток, пустая строка - с начала
+   * @param limit максимальное количество учреждений
+   * @return поток строк: ID и название, упорядоченный по ID
+   */
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+  @Query(nativeQuery = true,
+      value = "SELECT family_benefit.institution.id, family_benefit.institution.name " + FILTER_QUERY)
+  Stream<Object[]> streamShortFilter(String name, String idCity, String idBenefit, String after, int limit);
+
+  /**
+   * Возвращает страницу неполных учреждений: без пособия
+   * @param after ID учреждения, после которого начинается страница, пустая строка - с начала
+   * @param limit максимальное количество учреждений на странице
+   * @return страница учреждений, упорядоченная по ID
    */
   @Query(nativeQuery = true,
       value = "SELECT family_benefit.institution.id, family_benefit.institution.name, family_benefit.institution.info, family_benefit.institution.address, " +
           "family_benefit.institution.phone, family_benefit.institution.email, family_benefit.institution.schedule, family_benefit.institution.id_city " +
           "FROM family_benefit.institution " +
-          "INNER JOIN family_benefit.benefits_institutions ON family_benefit.benefits_institutions.id_institution = family_benefit.institution.id " +
-          "WHERE (?1 = '' OR family_benefit.institution.name = ?1) " +
-          "AND (?2 = '' OR family_benefit.institution.id_city = ?2) " +
-          "AND (?3 = '' OR family_benefit.benefits_institutions.id_benefit = ?3);")
-  List<InstitutionEntity> findAllFilter(String name, String idCity, String idBenefit);
+          "WHERE NOT EXISTS (SELECT 1 FROM family_benefit.benefits_institutions " +
+            "WHERE family_benefit.benefits_institutions.id_institution = family_benefit.institution.id) " +
+          "AND family_benefit.institution.id > ?1 " +
+          "ORDER BY family_benefit.institution.id " +
+          "LIMIT ?2")
+  List<InstitutionEntity> findAllPartial(String after, int limit);
 
   /**
-   * Возвращает список неполных учреждений: без пособия
-   * @return список неполных учреждений
+   * Возвращает страницу учреждений, в которых есть пособия, найденных по тексту запроса.
+   * Найдены учреждения, у которых название или адрес содержат слова запроса, или название или адрес содержит текст запроса.
+   * Поиск выполняется по индексам поискового вектора и триграмм. Результат упорядочен по рангу полнотекстового поиска
+   * и сходству названия с текстом запроса
+   * @param text текст запроса в синтаксисе поисковых систем: слова, фразы в кавычках, исключение словом с минусом
+   * @param containsPattern шаблон LIKE, которому соответствует строка, содержащая текст запроса
+   * @param limit максимальное количество учреждений на странице
+   * @param offset количество пропускаемых учреждений
+   * @return страница учреждений, упорядоченная по убыванию релевантности
    */
   @Query(nativeQuery = true,
       value = "SELECT family_benefit.institution.id, family_benefit.institution.name, family_benefit.institution.info, family_benefit.institution.address, " +
           "family_benefit.institution.phone, family_benefit.institution.email, family_benefit.institution.schedule, family_benefit.institution.id_city " +
-          "FROM family_benefit.institution " +
-          "LEFT JOIN family_benefit.benefits_institutions ON family_benefit.benefits_institutions.id_institution = family_benefit.institution.id " +
-          "WHERE family_benefit.benefits_institutions.id_benefit = '';")
-  List<InstitutionEntity> findAllPartial();
+          "FROM family_benefit.institution, websearch_to_tsquery('russian', ?1) AS search_query " +
+          "WHERE (family_benefit.institution.search_vector @@ search_query OR family_benefit.institution.name ILIKE ?2 OR family_benefit.institution.address ILIKE ?2) " +
+          "AND EXISTS (SELECT 1 FROM family_benefit.benefits_institutions " +
+            "WHERE family_benefit.benefits_institutions.id_institution = family_benefit.institution.id) " +
+          "ORDER BY ts_rank(family_benefit.institution.search_vector, search_query) + similarity(family_benefit.institution.name, ?1) DESC, " +
+            "family_benefit.institution.id " +
+          "LIMIT ?3 OFFSET ?4")
+  List<InstitutionEntity> search(String text, String containsPattern, int limit, int offset);
 
 }
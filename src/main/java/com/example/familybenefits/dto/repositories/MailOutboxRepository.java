@@ -0,0 +1,72 @@
+package com.example.familybenefits.dto.repositories;
+
+import com.example.familybenefits.dto.entities.MailOutboxEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Репозиторий, работающий с моделью таблицы "mail_outbox"
+ */
+public interface MailOutboxRepository extends JpaRepository<MailOutboxEntity, String> {
+
+  /**
+   * Добавляет сообщение пользователю в очередь отправки. Если у пользователя уже есть неотправленное сообщение,
+   * оно заменяется новым, поэтому размер очереди ограничен количеством пользователей
+   * @param id ID нового сообщения
+   * @param idUser ID пользователя-получателя
+   * @param email адрес получателя
+   * @param subject тема сообщения
+   * @param text текст сообщения
+   * @param dateNextAttempt время первой попытки отправки
+   */
+  @Modifying
+  @Transactional
+  @Query(nativeQuery = true,
+      value = "INSERT INTO family_benefit.mail_outbox (id, id_user, email, subject, text, attempts, date_next_attempt) " +
+          "VALUES (?1, ?2, ?3, ?4, ?5, 0, ?6) " +
+          "ON CONFLICT (id_user) DO UPDATE SET id = EXCLUDED.id, email = EXCLUDED.email, subject = EXCLUDED.subject, " +
+          "text = EXCLUDED.text, attempts = 0, date_next_attempt = EXCLUDED.date_next_attempt")
+  void enqueue(String id, String idUser, String email, String subject, String text, LocalDateTime dateNextAttempt);
+
+  /**
+   * Захватывает пакет сообщений, время отправки которых наступило, переносом времени следующей попытки.
+   * Строки, захваченные другими отправителями, пропускаются
+   * @param now текущее время
+   * @param dateLeaseExpiration время, после которого сообщение снова доступно для захвата, если отправитель не ответил
+   * @param limit максимальный размер пакета
+   * @return список захваченных сообщений
+   */
+  @Transactional
+  @Query(nativeQuery = true,
+      value = "UPDATE family_benefit.mail_outbox SET date_next_attempt = ?2 " +
+          "WHERE id IN (SELECT id FROM family_benefit.mail_outbox WHERE date_next_attempt <= ?1 " +
+          "ORDER BY date_next_attempt LIMIT ?3 FOR UPDATE SKIP LOCKED) " +
+          "RETURNING *")
+  List<MailOutboxEntity> claimBatch(LocalDateTime now, LocalDateTime dateLeaseExpiration, int limit);
+
+  /**
+   * Назначает повторную попытку отправки сообщения
+   * @param id ID сообщения
+   * @param dateNextAttempt время следующей попытки отправки
+   */
+  @Modifying
+  @Transactional
+  @Query(nativeQuery = true,
+      value = "UPDATE family_benefit.mail_outbox SET attempts = attempts + 1, date_next_attempt = ?2 WHERE id = ?1")
+  void reschedule(String id, LocalDateTime dateNextAttempt);
+
+  /**
+   * Удаляет сообщения по ID. Сообщения, замененные новыми после захвата, не удаляются
+   * @param idCsv строка ID сообщений, разделенных запятой
+   */
+  @Modifying
+  @Transactional
+  @Query(nativeQuery = true,
+      value = "DELETE FROM family_benefit.mail_outbox WHERE id = ANY(string_to_array(?1, ','))")
+  void deleteAllByIdCsv(String idCsv);
+}
@@ -4,6 +4,7 @@ import com.example.familybenefits.dto.entities.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -47,23 +48,25 @@ public interface UserRepository extends JpaRepository<UserEntity, String> {
   UserEntity getSuperAdmin();
 
   /**
-   * Создает связь между существующими датой рождения ребенка и пользователем, по их ID
+   * Заменяет даты рождения детей пользователя одним запросом.
+   * Отсутствующие в бд даты рождения создаются, связи с другими датами удаляются
    * @param idUser ID пользователя
-   * @param idChildBirth ID рождения ребенка
+   * @param dateBirthArray даты рождения детей в формате "yyyy-mm-dd", перечисленные через запятую
    */
   @Modifying
+  @Transactional
   @Query(nativeQuery = true,
-      value = "INSERT INTO family_benefit.users_child_births (id_user, id_child_birth) VALUES (?1, ?2);")
-  void addChild(String idUser, String idChildBirth);
-
-  /**
-   * Удаляет связь между датами рождениями детей и пользователем по его ID
-   * @param idUser ID пользователя
-   */
-  @Modifying
-  @Query(nativeQuery = true,
-      value = "DELETE FROM family_benefit.users_child_births WHERE (id_user = ?1);")
-  void deleteAllChildBirths(String idUser);
+      value = "WITH new_dates AS (SELECT DISTINCT CAST(unnest(string_to_array(?2, ',')) AS DATE) AS date_birth), " +
+          "inserted AS (INSERT INTO family_benefit.child_birth (date_birth) SELECT date_birth FROM new_dates " +
+          "ON CONFLICT (date_birth) DO NOTHING RETURNING id), " +
+          "new_children AS (SELECT id FROM inserted " +
+          "UNION SELECT family_benefit.child_birth.id FROM family_benefit.child_birth " +
+          "INNER JOIN new_dates ON new_dates.date_birth = family_benefit.child_birth.date_birth), " +
+          "deleted AS (DELETE FROM family_benefit.users_child_births " +
+          "WHERE id_user = ?1 AND id_child_birth NOT IN (SELECT id FROM new_children)) " +
+          "INSERT INTO family_benefit.users_child_births (id_user, id_child_birth) " +
+          "SELECT ?1, id FROM new_children ON CONFLICT DO NOTHING;")
+  void replaceChildBirths(String idUser, String dateBirthArray);
 
   /**
    * Проверяет наличие роли у пользователя по их ID
@@ -96,40 +99,47 @@ public interface UserRepository extends JpaRepository<UserEntity, String> {
   void deleteRole(String idUser, String idRole);
 
   /**
-   * Создает связь между существующими пособием и пользователем, по их ID
-   * @param idUser ID пользователя
-   * @param idBenefit ID пособия
+   * Подбирает пособия пользователей одним запросом: связи с неподходящими пособиями удаляются,
+   * связи с подходящими создаются, пособия пользователей отмечаются свежими
+   * @param idUserArray ID пользователей, перечисленные через запятую
+   * @return количество удаленных и созданных связей
    */
-  @Modifying
+  @Transactional
   @Query(nativeQuery = true,
-      value = "INSERT INTO family_benefit.users_benefits (id_user, id_benefit) VALUES (?1, ?2);")
-  void addBenefit(String idUser, String idBenefit);
+      value = "SELECT family_benefit.refresh_users_benefits_by_user(string_to_array(?1, ','));")
+  int refreshBenefits(String idUserArray);
 
   /**
-   * Удаляет связь между пособиями и пользователем по его ID
-   * @param idUser ID пользователя
+   * Подбирает пособия пакета несвежих пользователей одним запросом, начиная с недавно активных.
+   * Пользователи, пособия которых подбираются в другой транзакции, пропускаются
+   * @param limit максимальный размер пакета
+   * @return количество пользователей, пособия которых подобраны
    */
-  @Modifying
+  @Transactional
   @Query(nativeQuery = true,
-      value = "DELETE FROM family_benefit.users_benefits WHERE id_user = ?1;")
-  void deleteAllBenefits(String idUser);
+      value = "SELECT family_benefit.refresh_stale_users_benefits(?1);")
+  int refreshStaleBenefits(int limit);
 
   /**
-   * Создает связь между существующими критерием и пользователем, по их ID
-   * @param idUser ID пользователя
-   * @param idCriterion ID критерия
+   * Возвращает количество пользователей, пособия которых не свежие
+   * @return количество пользователей в очереди подбора пособий
    */
-  @Modifying
   @Query(nativeQuery = true,
-      value = "INSERT INTO family_benefit.users_criteria (id_user, id_criterion) VALUES (?1, ?2);")
-  void addCriterion(String idUser, String idCriterion);
+      value = "SELECT count(*) FROM family_benefit.user WHERE NOT family_benefit.user.is_fresh_benefits;")
+  long countStaleBenefits();
 
   /**
-   * Удаляет связь между критериями и пользователем по его ID
+   * Заменяет критерии пользователя одним запросом: связи с другими критериями удаляются, новые связи создаются
    * @param idUser ID пользователя
+   * @param idCriterionArray ID существующих критерий, перечисленные через запятую
    */
   @Modifying
+  @Transactional
   @Query(nativeQuery = true,
-      value = "DELETE FROM family_benefit.users_criteria WHERE id_user = ?1;")
-  void deleteAllCriteria(String idUser);
+      value = "WITH new_criteria AS (SELECT DISTINCT unnest(string_to_array(?2, ',')) AS id_criterion), " +
+          "deleted AS (DELETE FROM family_benefit.users_criteria " +
+          "WHERE id_user = ?1 AND id_criterion NOT IN (SELECT id_criterion FROM new_criteria)) " +
+          "INSERT INTO family_benefit.users_criteria (id_user, id_criterion) " +
+          "SELECT ?1, id_criterion FROM new_criteria ON CONFLICT DO NOTHING;")
+  void replaceCriteria(String idUser, String idCriterionArray);
 }
@@ -0,0 +1,214 @@
+package com.example.familybenefits.part_auth;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ограниченный по размеру кэш с моментом устаревания у каждой записи.
+ * Устаревшая запись не возвращается. При превышении размера удаляются устаревшие записи,
+ * а если их недостаточно - произвольные записи
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ */
+@Slf4j
+class BoundedTtlCache<K, V> {
+
+  /**
+   * Название кэша для журнала
+   */
+  private final String name;
+  /**
+   * Максимальное количество записей в кэше
+   */
+  private final int maxSize;
+
+  /**
+   * Записи кэша по ключу
+   */
+  private final Map<K, CacheEntry<V>> entryMap = new ConcurrentHashMap<>();
+  /**
+   * Блокировка очистки кэша при превышении размера
+   */
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  /**
+   * Количество найденных в кэше значений
+   */
+  private final LongAdder hitCount = new LongAdder();
+  /**
+   * Количество не найденных в кэше значений
+   */
+  private final LongAdder missCount = new LongAdder();
+
+  /**
+   * Конструктор для создания кэша
+   * @param name название кэша для журнала
+   * @param maxSize максимальное количество записей в кэше
+   */
+  BoundedTtlCache(String name, int maxSize) {
+    this.name = name;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Возвращает значение из кэша
+   * @param key ключ
+   * @return значение или empty, если ключа нет в кэше или запись устарела
+   */
+  Optional<V> get(K key) {
+
+    CacheEntry<V> cacheEntry = key == null ? null : entryMap.get(key);
+
+    if (cacheEntry == null) {
+      missCount.increment();
+      return Optional.empty();
+    }
+    if (cacheEntry.isExpired(System.currentTimeMillis())) {
+      entryMap.remove(key, cacheEntry);
+      missCount.increment();
+      return Optional.empty();
+    }
+
+    hitCount.increment();
+    return Optional.of(cacheEntry.value);
+  }
+
+  /**
+   * Добавляет значение в кэш. Уже устаревшее значение не добавляется
+   * @param key ключ
+   * @param value значение
+   * @param expirationMillis момент устаревания записи, в миллисекундах {@link System#currentTimeMillis()}
+   */
+  void put(K key, V value, long expirationMillis) {
+
+    if (key == null || value == null || expirationMillis <= System.currentTimeMillis()) {
+      return;
+    }
+
+    entryMap.put(key, new CacheEntry<>(value, expirationMillis));
+
+    if (entryMap.size() > maxSize) {
+      evict();
+    }
+  }
+
+  /**
+   * Удаляет значение из кэша
+   * @param key ключ
+   * @return удаленное значение или {@code null}, если ключа нет в кэше
+   */
+  V remove(K key) {
+
+    CacheEntry<V> cacheEntry = key == null ? null : entryMap.remove(key);
+    return cacheEntry == null ? null : cacheEntry.value;
+  }
+
+  /**
+   * Проверяет наличие ключа в кэше, не учитывая устаревание записи
+   * @param key ключ
+   * @return true, если запись с ключом есть в кэше
+   */
+  boolean containsKey(K key) {
+    return entryMap.containsKey(key);
+  }
+
+  /**
+   * Очищает кэш
+   */
+  void clear() {
+    entryMap.clear();
+  }
+
+  /**
+   * Возвращает количество найденных в кэше значений
+   * @return количество попаданий в кэш
+   */
+  long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /**
+   * Возвращает количество не найденных в кэше значений
+   * @return количество промахов кэша
+   */
+  long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * Возвращает количество записей в кэше
+   * @return размер кэша
+   */
+  int size() {
+    return entryMap.size();
+  }
+
+  /**
+   * Удаляет устаревшие записи, а если их недостаточно - произвольные записи,
+   * пока размер кэша не станет меньше максимального на десятую часть
+   */
+  private void evict() {
+
+    // Очистку выполняет только один поток, остальные продолжают работу
+    if (!evictionLock.tryLock()) {
+      return;
+    }
+
+    try {
+      long now = System.currentTimeMillis();
+      entryMap.values().removeIf(cacheEntry -> cacheEntry.isExpired(now));
+
+      Iterator<CacheEntry<V>> iterator = entryMap.values().iterator();
+      while (entryMap.size() > maxSize - maxSize / 10 && iterator.hasNext()) {
+        iterator.next();
+        iterator.remove();
+      }
+
+      log.info("{} evicted to {} entries. Hits: {}, misses: {}", name, entryMap.size(), getHitCount(), getMissCount());
+
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Запись кэша
+   * @param <V> тип значения
+   */
+  private static class CacheEntry<V> {
+
+    /**
+     * Значение записи
+     */
+    private final V value;
+    /**
+     * Момент устаревания записи, в миллисекундах {@link System#currentTimeMillis()}
+     */
+    private final long expirationMillis;
+
+    /**
+     * Конструктор для создания записи кэша
+     * @param value значение записи
+     * @param expirationMillis момент устаревания записи, в миллисекундах
+     */
+    private CacheEntry(V value, long expirationMillis) {
+      this.value = value;
+      this.expirationMillis = expirationMillis;
+    }
+
+    /**
+     * Проверяет устаревание записи
+     * @param now текущий момент, в миллисекундах
+     * @return true, если запись устарела
+     */
+    private boolean isExpired(long now) {
+      return now >= expirationMillis;
+    }
+  }
+}
@@ -0,0 +1,275 @@
+package com.example.familybenefits.part_auth;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Периодическое удаление истекших кодов входа и токенов восстановления.
+ * Строки удаляются пакетами, каждый пакет - отдельная транзакция, поэтому удаление не блокирует надолго вход в систему.
+ * Удаление выполняет один экземпляр приложения: запуск удерживает рекомендательную блокировку PostgreSQL,
+ * экземпляр, не получивший блокировку, пропускает запуск
+ */
+@Slf4j
+@Component
+public class ExpiredTokensReaper {
+
+  /**
+   * Задержка первого запуска после старта приложения, в секундах
+   */
+  private static final long INITIAL_DELAY_SEC = 60;
+  /**
+   * Период запусков, в секундах
+   */
+  private static final long INTERVAL_SEC = 600;
+  /**
+   * Максимальное количество строк, удаляемых одним запросом
+   */
+  static final int BATCH_SIZE = 1_000;
+  /**
+   * Пауза между пакетами, в миллисекундах. Оставляет бд время для запросов входа в систему
+   */
+  private static final long BATCH_PAUSE_MS = 50;
+  /**
+   * Время ожидания завершения текущего пакета при остановке, в секундах
+   */
+  private static final long SHUTDOWN_TIMEOUT_SEC = 10;
+
+  /**
+   * Запрос получения рекомендательной блокировки удаления на время сессии соединения
+   */
+  private static final String LOCK_QUERY = "SELECT pg_try_advisory_lock(hashtext('family_benefit.expired_tokens_reaper'));";
+  /**
+   * Запрос освобождения рекомендательной блокировки удаления
+   */
+  private static final String UNLOCK_QUERY = "SELECT pg_advisory_unlock(hashtext('family_benefit.expired_tokens_reaper'));";
+  /**
+   * Запрос удаления пакета истекших кодов входа
+   */
+  private static final String DELETE_LOGIN_CODE_QUERY =
+      "DELETE FROM family_benefit.login_code " +
+      "WHERE family_benefit.login_code.id_user IN (" +
+      "SELECT expired.id_user FROM family_benefit.login_code AS expired " +
+      "WHERE expired.date_expiration < ? " +
+      "ORDER BY expired.date_expiration " +
+      "LIMIT ? " +
+      "FOR UPDATE SKIP LOCKED);";
+  /**
+   * Запрос удаления пакета истекших токенов восстановления
+   */
+  private static final String DELETE_REFRESH_TOKEN_QUERY =
+      "DELETE FROM family_benefit.refresh_token " +
+      "WHERE family_benefit.refresh_token.id_user IN (" +
+      "SELECT expired.id_user FROM family_benefit.refresh_token AS expired " +
+      "WHERE expired.date_expiration < ? " +
+      "ORDER BY expired.date_expiration " +
+      "LIMIT ? " +
+      "FOR UPDATE SKIP LOCKED);";
+
+  /**
+   * Шаблон для выполнения запросов на одном соединении
+   */
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Количество выполненных запусков
+   */
+  private final LongAdder runCount = new LongAdder();
+  /**
+   * Количество запусков, пропущенных из-за блокировки другим экземпляром
+   */
+  private final LongAdder skippedRunCount = new LongAdder();
+  /**
+   * Количество удаленных кодов входа
+   */
+  private final LongAdder reclaimedLoginCodeCount = new LongAdder();
+  /**
+   * Количество удаленных токенов восстановления
+   */
+  private final LongAdder reclaimedRefreshTokenCount = new LongAdder();
+  /**
+   * Количество строк, удаленных последним выполненным запуском
+   */
+  private final AtomicLong lastRunReclaimedCount = new AtomicLong();
+
+  /**
+   * Поток удаления
+   */
+  private ScheduledExecutorService executor;
+
+  /**
+   * Конструктор для инициализации шаблона запросов
+   * @param jdbcTemplate шаблон для выполнения запросов
+   */
+  @Autowired
+  public ExpiredTokensReaper(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Запускает поток удаления
+   */
+  @PostConstruct
+  public void start() {
+
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "expired-tokens-reaper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(this::reap, INITIAL_DELAY_SEC, INTERVAL_SEC, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Останавливает поток удаления. Неудаленные строки удаляются следующим запуском
+   */
+  @PreDestroy
+  public void stop() throws InterruptedException {
+
+    executor.shutdown();
+    if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Удаляет истекшие коды входа и токены восстановления, если блокировка удаления свободна
+   */
+  void reap() {
+
+    try {
+      jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+        if (!queryBoolean(connection, LOCK_QUERY)) {
+          skippedRunCount.increment();
+          return null;
+        }
+
+        try {
+          long start = System.nanoTime();
+          LocalDateTime now = LocalDateTime.now();
+          long loginCodes = deleteInBatches(connection, DELETE_LOGIN_CODE_QUERY, now);
+          long refreshTokens = deleteInBatches(connection, DELETE_REFRESH_TOKEN_QUERY, now);
+
+          reclaimedLoginCodeCount.add(loginCodes);
+          reclaimedRefreshTokenCount.add(refreshTokens);
+          lastRunReclaimedCount.set(loginCodes + refreshTokens);
+          runCount.increment();
+          log.info("DB. Expired tokens reaper deleted {} login codes and {} refresh tokens in {} ms",
+                   loginCodes, refreshTokens, (System.nanoTime() - start) / 1_000_000);
+
+        } finally {
+          queryBoolean(connection, UNLOCK_QUERY);
+        }
+        return null;
+      });
+
+    } catch (RuntimeException e) {
+      // Исключение отменило бы периодический запуск
+      log.error("DB. Expired tokens reaper failed: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Удаляет истекшие строки пакетами, пока пакет заполняется полностью
+   * @param connection соединение с бд в режиме автоматической фиксации
+   * @param deleteQuery запрос удаления пакета
+   * @param now текущее время, строки с более ранним временем истечения удаляются
+   * @return количество удаленных строк
+   * @throws SQLException если запрос не выполнен
+   */
+  private long deleteInBatches(Connection connection, String deleteQuery, LocalDateTime now) throws SQLException {
+
+    long deleted = 0;
+
+    try (PreparedStatement statement = connection.prepareStatement(deleteQuery)) {
+      statement.setObject(1, now);
+      statement.setInt(2, BATCH_SIZE);
+
+      int batchDeleted;
+      do {
+        batchDeleted = statement.executeUpdate();
+        deleted += batchDeleted;
+
+        if (batchDeleted == BATCH_SIZE) {
+          try {
+            Thread.sleep(BATCH_PAUSE_MS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      } while (batchDeleted == BATCH_SIZE && !Thread.currentThread().isInterrupted());
+    }
+
+    return deleted;
+  }
+
+  /**
+   * Выполняет запрос, возвращающий одно логическое значение
+   * @param connection соединение с бд
+   * @param query запрос
+   * @return результат запроса
+   * @throws SQLException если запрос не выполнен
+   */
+  private static boolean queryBoolean(Connection connection, String query) throws SQLException {
+
+    try (PreparedStatement statement = connection.prepareStatement(query);
+         ResultSet resultSet = statement.executeQuery()) {
+      return resultSet.next() && resultSet.getBoolean(1);
+    }
+  }
+
+  /**
+   * Возвращает количество выполненных запусков
+   * @return количество запусков
+   */
+  public long getRunCount() {
+    return runCount.sum();
+  }
+
+  /**
+   * Возвращает количество запусков, пропущенных из-за блокировки другим экземпляром
+   * @return количество пропущенных запусков
+   */
+  public long getSkippedRunCount() {
+    return skippedRunCount.sum();
+  }
+
+  /**
+   * Возвращает количество удаленных кодов входа
+   * @return количество удаленных кодов
+   */
+  public long getReclaimedLoginCodeCount() {
+    return reclaimedLoginCodeCount.sum();
+  }
+
+  /**
+   * Возвращает количество удаленных токенов восстановления
+   * @return количество удаленных токенов
+   */
+  public long getReclaimedRefreshTokenCount() {
+    return reclaimedRefreshTokenCount.sum();
+  }
+
+  /**
+   * Возвращает количество строк, удаленных последним выполненным запуском
+   * @return количество удаленных строк
+   */
+  public long getLastRunReclaimedCount() {
+    return lastRunReclaimedCount.get();
+  }
+}
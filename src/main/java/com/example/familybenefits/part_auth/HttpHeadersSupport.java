@@ -66,7 +66,7 @@ public class HttpHeadersSupport {
    */
   public static String getRefreshToken(HttpServletRequest request) {
 
-    if (request == null) {
+    if (request == null || request.getCookies() == null) {
       return null;
     }
 
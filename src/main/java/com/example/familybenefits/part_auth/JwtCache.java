@@ -0,0 +1,75 @@
+package com.example.familybenefits.part_auth;
+
+import com.example.familybenefits.part_auth.models.JwtUserData;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Ограниченный по размеру кэш проверенных токенов доступа (jwt).
+ * Запись живет не дольше срока действия самого токена, поэтому истекший токен всегда проверяется заново
+ * и приводит к обновлению токенов. Избавляет от проверки подписи и разбора токена в каждом запросе
+ */
+@Component
+public class JwtCache {
+
+  /**
+   * Максимальное количество токенов в кэше
+   */
+  private static final int MAX_SIZE = 10_000;
+
+  /**
+   * Данные пользователя по токену доступа. Токен сравнивается целиком, поэтому запись нельзя получить другим токеном
+   */
+  private final BoundedTtlCache<String, JwtUserData> userDataCache = new BoundedTtlCache<>("Jwt cache", MAX_SIZE);
+
+  /**
+   * Возвращает данные пользователя проверенного токена доступа из кэша
+   * @param jwt токен доступа
+   * @return данные пользователя или empty, если токена нет в кэше или он истек
+   */
+  public Optional<JwtUserData> get(String jwt) {
+    return userDataCache.get(jwt);
+  }
+
+  /**
+   * Добавляет в кэш данные пользователя проверенного токена доступа
+   * @param jwt токен доступа с проверенной подписью
+   * @param userData данные пользователя токена
+   * @param expirationMillis момент истечения токена, в миллисекундах {@link System#currentTimeMillis()}
+   */
+  public void put(String jwt, JwtUserData userData, long expirationMillis) {
+    userDataCache.put(jwt, userData, expirationMillis);
+  }
+
+  /**
+   * Очищает кэш
+   */
+  public void invalidateAll() {
+    userDataCache.clear();
+  }
+
+  /**
+   * Возвращает количество найденных в кэше токенов
+   * @return количество попаданий в кэш
+   */
+  public long getHitCount() {
+    return userDataCache.getHitCount();
+  }
+
+  /**
+   * Возвращает количество не найденных в кэше токенов
+   * @return количество промахов кэша
+   */
+  public long getMissCount() {
+    return userDataCache.getMissCount();
+  }
+
+  /**
+   * Возвращает количество токенов в кэше
+   * @return размер кэша
+   */
+  public int size() {
+    return userDataCache.size();
+  }
+}
@@ -0,0 +1,273 @@
+package com.example.familybenefits.part_auth;
+
+import com.example.familybenefits.part_auth.models.AuthData;
+import com.example.familybenefits.part_auth.models.JwtUserData;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одновременных обновлений токенов по одной паре истекшего токена доступа (jwt) и токена восстановления.
+ * Первый запрос с парой обновляет токены, остальные запросы с той же парой получают его результат.
+ * Результат хранится недолго после обновления: запросы, отправленные клиентом вместе с первым, но пришедшие
+ * после замены токена восстановления, получают те же новые токены вместо отказа в доступе.
+ * Результат не выдается после отзыва сессий пользователя
+ */
+@Component
+public class JwtRenewalCoalescer {
+
+  /**
+   * Время, в течение которого результат обновления выдается запросам с прежней парой токенов, в миллисекундах
+   */
+  private static final long RECENT_MS = 10_000;
+  /**
+   * Максимальное время ожидания обновления, выполняемого другим запросом, в миллисекундах
+   */
+  private static final long WAIT_MS = 10_000;
+  /**
+   * Размер, при превышении которого удаляются устаревшие обновления
+   */
+  private static final int PRUNE_SIZE = 1_000;
+
+  /**
+   * Моменты отзыва токенов доступа (jwt)
+   */
+  private final JwtRevocationRegistry jwtRevocationRegistry;
+
+  /**
+   * Обновления по паре токенов
+   */
+  private final Map<String, Renewal> renewalMap = new ConcurrentHashMap<>();
+
+  /**
+   * Количество выполненных обновлений
+   */
+  private final LongAdder renewalCount = new LongAdder();
+  /**
+   * Количество запросов, получивших результат обновления другого запроса
+   */
+  private final LongAdder coalescedCount = new LongAdder();
+  /**
+   * Количество неудачных обновлений
+   */
+  private final LongAdder failureCount = new LongAdder();
+
+  /**
+   * Конструктор для инициализации объединения обновлений
+   * @param jwtRevocationRegistry моменты отзыва токенов доступа (jwt)
+   */
+  @Autowired
+  public JwtRenewalCoalescer(JwtRevocationRegistry jwtRevocationRegistry) {
+    this.jwtRevocationRegistry = jwtRevocationRegistry;
+  }
+
+  /**
+   * Обновляет токены или возвращает результат обновления, выполняемого или недавно выполненного по той же паре токенов
+   * @param expiredJwt истекший токен доступа запроса
+   * @param refreshToken токен восстановления запроса
+   * @param idUser ID пользователя токена восстановления
+   * @param renewalSupplier обновление токенов
+   * @return новые токены
+   * @throws RuntimeException если обновление завершилось ошибкой
+   */
+  public AuthData renew(String expiredJwt, String refreshToken, String idUser, Supplier<AuthData> renewalSupplier) {
+
+    if (expiredJwt == null || refreshToken == null) {
+      renewalCount.increment();
+      return renewalSupplier.get();
+    }
+
+    String key = refreshToken + ' ' + expiredJwt;
+    long now = System.currentTimeMillis();
+    Renewal renewal = new Renewal(idUser);
+
+    // Обновление по паре выполняет только первый запрос
+    Renewal existingRenewal = renewalMap.compute(key, (keyRenewal, current) ->
+        current == null || current.isExpired(now) ? renewal : current);
+    if (existingRenewal != renewal) {
+      coalescedCount.increment();
+      return await(existingRenewal);
+    }
+
+    try {
+      AuthData authData = renewalSupplier.get();
+      renewal.complete(authData);
+      renewalCount.increment();
+      return authData;
+
+    } catch (RuntimeException e) {
+      renewalMap.remove(key, renewal);
+      renewal.future.completeExceptionally(e);
+      failureCount.increment();
+      throw e;
+
+    } finally {
+      if (renewalMap.size() > PRUNE_SIZE) {
+        long pruneNow = System.currentTimeMillis();
+        renewalMap.values().removeIf(current -> current.isExpired(pruneNow));
+      }
+    }
+  }
+
+  /**
+   * Возвращает результат выполняемого или недавно выполненного обновления по паре токенов.
+   * Используется, когда токен восстановления запроса уже заменен обновлением другого запроса
+   * @param expiredJwt истекший токен доступа запроса
+   * @param refreshToken токен восстановления запроса
+   * @return новые токены или empty, если обновления по паре не было, оно завершилось ошибкой
+   * или новый токен доступа выпущен до отзыва сессий пользователя
+   */
+  public Optional<AuthData> findRecent(String expiredJwt, String refreshToken) {
+
+    if (expiredJwt == null || refreshToken == null) {
+      return Optional.empty();
+    }
+
+    Renewal renewal = renewalMap.get(refreshToken + ' ' + expiredJwt);
+    if (renewal == null || renewal.isExpired(System.currentTimeMillis())) {
+      return Optional.empty();
+    }
+
+    AuthData authData;
+    try {
+      authData = await(renewal);
+    } catch (RuntimeException e) {
+      return Optional.empty();
+    }
+
+    // Сессии пользователя могли быть отозваны после обновления
+    JwtUserData userData = authData.getJwtData() == null ? null : authData.getJwtData().getUserData();
+    if (userData == null || jwtRevocationRegistry.isRevoked(userData.getIdUser(), userData.getIssuedAtMillis())) {
+      return Optional.empty();
+    }
+
+    coalescedCount.increment();
+    return Optional.of(authData);
+  }
+
+  /**
+   * Удаляет выполняемые и недавно выполненные обновления пользователя.
+   * Используется при отзыве сессий пользователя
+   * @param idUser ID пользователя
+   */
+  public void invalidateUser(String idUser) {
+
+    if (idUser == null) {
+      return;
+    }
+
+    renewalMap.values().removeIf(renewal -> idUser.equals(renewal.idUser));
+  }
+
+  /**
+   * Возвращает количество выполненных обновлений
+   * @return количество обновлений
+   */
+  public long getRenewalCount() {
+    return renewalCount.sum();
+  }
+
+  /**
+   * Возвращает количество запросов, получивших результат обновления другого запроса
+   * @return количество объединенных обновлений
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.sum();
+  }
+
+  /**
+   * Возвращает количество неудачных обновлений
+   * @return количество неудачных обновлений
+   */
+  public long getFailureCount() {
+    return failureCount.sum();
+  }
+
+  /**
+   * Возвращает количество хранимых обновлений
+   * @return количество обновлений
+   */
+  public int size() {
+    return renewalMap.size();
+  }
+
+  /**
+   * Ожидает результат обновления другого запроса
+   * @param renewal обновление
+   * @return новые токены
+   * @throws RuntimeException если обновление завершилось ошибкой или не завершилось за время ожидания
+   */
+  private static AuthData await(Renewal renewal) {
+
+    try {
+      return renewal.future.get(WAIT_MS, TimeUnit.MILLISECONDS);
+
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException
+          ? (RuntimeException) e.getCause()
+          : new IllegalStateException(e.getCause());
+
+    } catch (TimeoutException e) {
+      throw new IllegalStateException("Jwt renewal by another request timed out", e);
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Jwt renewal wait interrupted", e);
+    }
+  }
+
+  /**
+   * Обновление токенов
+   */
+  private static class Renewal {
+
+    /**
+     * ID пользователя, токены которого обновляются
+     */
+    private final String idUser;
+    /**
+     * Результат обновления
+     */
+    private final CompletableFuture<AuthData> future = new CompletableFuture<>();
+    /**
+     * Момент завершения обновления в миллисекундах, 0 - если обновление выполняется
+     */
+    private volatile long completedAt;
+
+    /**
+     * Конструктор для создания обновления
+     * @param idUser ID пользователя, токены которого обновляются
+     */
+    private Renewal(String idUser) {
+      this.idUser = idUser;
+    }
+
+    /**
+     * Завершает обновление
+     * @param authData новые токены
+     */
+    private void complete(AuthData authData) {
+
+      completedAt = System.currentTimeMillis();
+      future.complete(authData);
+    }
+
+    /**
+     * Проверяет устаревание результата обновления
+     * @param now текущий момент в миллисекундах
+     * @return true, если обновление завершено раньше времени хранения результата
+     */
+    private boolean isExpired(long now) {
+      return completedAt != 0 && now - completedAt > RECENT_MS;
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package com.example.familybenefits.part_auth;
+
+import com.example.familybenefits.resources.R;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Моменты отзыва токенов доступа (jwt) пользователей, хранимые в памяти экземпляра.
+ * Токен, выпущенный раньше момента отзыва пользователя или всех пользователей, не принимается без токена восстановления.
+ * Момент отзыва нужен только пока не истекли выпущенные до него токены, поэтому записи старше срока жизни jwt удаляются
+ */
+@Component
+public class JwtRevocationRegistry {
+
+  /**
+   * Допустимое расхождение часов экземпляров в миллисекундах.
+   * Токены, выпущенные в пределах расхождения после момента отзыва, также считаются отозванными
+   */
+  private static final long CLOCK_SKEW_MS = 5_000;
+  /**
+   * Время, после которого момент отзыва не нужен, в миллисекундах: все выпущенные до него токены истекли
+   */
+  private static final long RETENTION_MS = TimeUnit.SECONDS.toMillis(R.JWT_EXPIRATION_SEC) + CLOCK_SKEW_MS;
+  /**
+   * Размер, при превышении которого удаляются ненужные моменты отзыва
+   */
+  private static final int PRUNE_SIZE = 10_000;
+
+  /**
+   * Моменты отзыва по ID пользователя, в миллисекундах {@link System#currentTimeMillis()}
+   */
+  private final Map<String, Long> revokedAtMap = new ConcurrentHashMap<>();
+  /**
+   * Момент отзыва токенов всех пользователей, в миллисекундах
+   */
+  private volatile long allRevokedAt;
+
+  /**
+   * Отзывает токены доступа пользователя, выпущенные до текущего момента
+   * @param idUser ID пользователя
+   */
+  public void revokeUser(String idUser) {
+
+    if (idUser == null) {
+      return;
+    }
+
+    long now = System.currentTimeMillis();
+    revokedAtMap.put(idUser, now);
+
+    if (revokedAtMap.size() > PRUNE_SIZE) {
+      revokedAtMap.values().removeIf(revokedAt -> now - revokedAt > RETENTION_MS);
+    }
+  }
+
+  /**
+   * Отзывает токены доступа всех пользователей, выпущенные до текущего момента.
+   * Используется, когда уведомления об отзыве могли быть потеряны
+   */
+  public void revokeAll() {
+
+    allRevokedAt = System.currentTimeMillis();
+    revokedAtMap.clear();
+  }
+
+  /**
+   * Проверяет, отозван ли токен доступа пользователя
+   * @param idUser ID пользователя
+   * @param issuedAtMillis момент выпуска токена в миллисекундах, 0 - если неизвестен
+   * @return true, если токен выпущен до момента отзыва или момент выпуска неизвестен
+   */
+  public boolean isRevoked(String idUser, long issuedAtMillis) {
+
+    if (issuedAtMillis <= 0 || issuedAtMillis < allRevokedAt + CLOCK_SKEW_MS) {
+      return true;
+    }
+
+    Long revokedAt = revokedAtMap.get(idUser);
+    return revokedAt != null && issuedAtMillis < revokedAt + CLOCK_SKEW_MS;
+  }
+}
@@ -0,0 +1,242 @@
+package com.example.familybenefits.part_auth;
+
+import com.example.familybenefits.dto.entities.MailOutboxEntity;
+import com.example.familybenefits.dto.repositories.MailOutboxRepository;
+import com.example.familybenefits.resources.R;
+import com.example.familybenefits.resources.RMail;
+import com.example.familybenefits.security.RandomValue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Очередь исходящих сообщений, хранимая в таблице "mail_outbox".
+ * Запрос только добавляет сообщение в очередь, а отправку выполняют потоки отправителя:
+ * пакетами через одно подключение к почтовому серверу, с повторными попытками и увеличивающейся паузой между ними
+ */
+@Slf4j
+@Component
+public class MailOutboxSender {
+
+  /**
+   * Количество потоков отправителя
+   */
+  private static final int SENDER_THREADS = 2;
+  /**
+   * Максимальное количество сообщений в пакете, отправляемом через одно подключение
+   */
+  private static final int BATCH_SIZE = 50;
+  /**
+   * Период проверки очереди каждым потоком, в миллисекундах
+   */
+  private static final long POLL_INTERVAL_MS = 1_000;
+  /**
+   * Время, на которое сообщение захватывается потоком отправителя, в секундах.
+   * Если экземпляр остановился во время отправки, сообщение снова станет доступно по истечении этого времени
+   */
+  private static final long LEASE_SEC = 60;
+  /**
+   * Пауза перед первой повторной попыткой, в секундах. Каждая следующая пауза вдвое больше предыдущей
+   */
+  private static final long BACKOFF_BASE_SEC = 5;
+  /**
+   * Максимальная пауза между попытками, в секундах
+   */
+  private static final long BACKOFF_MAX_SEC = 120;
+  /**
+   * Максимальное количество попыток отправки сообщения, после которого сообщение удаляется из очереди
+   */
+  private static final int MAX_ATTEMPTS = 5;
+  /**
+   * Время ожидания завершения текущей отправки при остановке, в секундах
+   */
+  private static final long SHUTDOWN_TIMEOUT_SEC = 10;
+
+  /**
+   * Репозиторий, работающий с моделью таблицы "mail_outbox"
+   */
+  private final MailOutboxRepository mailOutboxRepository;
+  /**
+   * Сервис для отправки сообщений на электронную почту
+   */
+  private final MailSenderProvider mailSenderProvider;
+
+  /**
+   * Флаг запланированной внеочередной проверки очереди. Объединяет одновременные запросы на проверку в одну
+   */
+  private final AtomicBoolean wakeUpScheduled = new AtomicBoolean();
+  /**
+   * Пул потоков отправителя
+   */
+  private ScheduledExecutorService executor;
+
+  /**
+   * Конструктор для инициализации очереди
+   * @param mailOutboxRepository репозиторий, работающий с моделью таблицы "mail_outbox"
+   * @param mailSenderProvider сервис для отправки сообщений на электронную почту
+   */
+  @Autowired
+  public MailOutboxSender(MailOutboxRepository mailOutboxRepository,
+                          MailSenderProvider mailSenderProvider) {
+    this.mailOutboxRepository = mailOutboxRepository;
+    this.mailSenderProvider = mailSenderProvider;
+  }
+
+  /**
+   * Добавляет в очередь сообщение с кодом для входа указанному пользователю, заменяя его неотправленное сообщение
+   * @param idUser ID пользователя
+   * @param to адрес получателя, email пользователя
+   * @param nameUser имя пользователя
+   * @param loginCode код для входа в систему
+   */
+  public void enqueueLoginCode(String idUser, String to, String nameUser, int loginCode) {
+
+    mailOutboxRepository.enqueue(RandomValue.randomString(R.ID_LENGTH), idUser, to, RMail.LOGIN_MESSAGE_SUBJECT,
+                                 String.format(RMail.LOGIN_MESSAGE_TEXT_PATTERN, nameUser, loginCode),
+                                 LocalDateTime.now());
+    log.info("DB. Message with login code to \"{}\" was added to the mail outbox", to);
+
+    wakeUp();
+  }
+
+  /**
+   * Запускает потоки отправителя
+   */
+  @PostConstruct
+  public void start() {
+
+    AtomicInteger threadNumber = new AtomicInteger();
+    executor = Executors.newScheduledThreadPool(SENDER_THREADS, runnable -> {
+      Thread thread = new Thread(runnable, "mail-outbox-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    for (int i = 0; i < SENDER_THREADS; i++) {
+      executor.scheduleWithFixedDelay(this::drain, 0, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Останавливает потоки отправителя. Неотправленные сообщения остаются в очереди
+   */
+  @PreDestroy
+  public void stop() throws InterruptedException {
+
+    executor.shutdown();
+    if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Запускает внеочередную проверку очереди, чтобы новое сообщение не ждало периодической проверки
+   */
+  private void wakeUp() {
+
+    if (executor == null || !wakeUpScheduled.compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      executor.execute(() -> {
+        wakeUpScheduled.set(false);
+        drain();
+      });
+    } catch (RejectedExecutionException e) {
+      wakeUpScheduled.set(false);
+    }
+  }
+
+  /**
+   * Отправляет сообщения из очереди пакетами, пока есть сообщения, время отправки которых наступило
+   */
+  void drain() {
+
+    try {
+      List<MailOutboxEntity> batch;
+      do {
+        LocalDateTime now = LocalDateTime.now();
+        batch = mailOutboxRepository.claimBatch(now, now.plusSeconds(LEASE_SEC), BATCH_SIZE);
+        if (!batch.isEmpty()) {
+          sendBatch(batch, now);
+        }
+      } while (batch.size() == BATCH_SIZE && !Thread.currentThread().isInterrupted());
+
+    } catch (RuntimeException e) {
+      // Исключение отменило бы периодическую проверку потока
+      log.error("Mail outbox. Sending failed: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Отправляет пакет сообщений, удаляет из очереди отправленные сообщения и назначает повторные попытки остальным
+   * @param batch пакет захваченных сообщений
+   * @param now время захвата пакета
+   */
+  private void sendBatch(List<MailOutboxEntity> batch, LocalDateTime now) {
+
+    // Сообщения пакета и соответствующие им записи очереди
+    Map<SimpleMailMessage, MailOutboxEntity> messageEntityMap = new IdentityHashMap<>();
+    List<SimpleMailMessage> messageList = new ArrayList<>(batch.size());
+    for (MailOutboxEntity mailOutboxEntity : batch) {
+      SimpleMailMessage message = new SimpleMailMessage();
+      message.setTo(mailOutboxEntity.getEmail());
+      message.setSubject(mailOutboxEntity.getSubject());
+      message.setText(mailOutboxEntity.getText());
+      messageEntityMap.put(message, mailOutboxEntity);
+      messageList.add(message);
+    }
+
+    Map<SimpleMailMessage, Exception> failedMessageMap = mailSenderProvider.sendAll(messageList);
+
+    // Отправленные сообщения и сообщения, исчерпавшие попытки, удаляются одним запросом
+    List<String> idDeleteList = new ArrayList<>(batch.size());
+    for (SimpleMailMessage message : messageList) {
+      MailOutboxEntity mailOutboxEntity = messageEntityMap.get(message);
+      Exception exception = failedMessageMap.get(message);
+
+      if (exception == null) {
+        idDeleteList.add(mailOutboxEntity.getId());
+
+      } else if (mailOutboxEntity.getAttempts() + 1 >= MAX_ATTEMPTS) {
+        idDeleteList.add(mailOutboxEntity.getId());
+        log.error("Mail outbox. Message to \"{}\" was dropped after {} attempts: {}",
+                  mailOutboxEntity.getEmail(), MAX_ATTEMPTS, exception.getMessage());
+
+      } else {
+        mailOutboxRepository.reschedule(mailOutboxEntity.getId(), now.plusSeconds(backoffSec(mailOutboxEntity.getAttempts())));
+        log.warn("Mail outbox. Message to \"{}\" was not sent, attempt {}: {}",
+                 mailOutboxEntity.getEmail(), mailOutboxEntity.getAttempts() + 1, exception.getMessage());
+      }
+    }
+
+    if (!idDeleteList.isEmpty()) {
+      mailOutboxRepository.deleteAllByIdCsv(String.join(",", idDeleteList));
+    }
+  }
+
+  /**
+   * Возвращает паузу перед следующей попыткой отправки
+   * @param attempts количество неудачных попыток до текущей
+   * @return пауза в секундах
+   */
+  static long backoffSec(int attempts) {
+    return Math.min(BACKOFF_BASE_SEC << Math.min(attempts, 20), BACKOFF_MAX_SEC);
+  }
+}
@@ -2,26 +2,95 @@ package com.example.familybenefits.part_auth;
 
 import com.example.familybenefits.resources.RMail;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.MailException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
-import org.springframework.stereotype.Service;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Реализация сервиса для отправки сообщений на электронную почту
  */
 @Slf4j
+@Component
 public class MailSenderProvider {
 
   /**
-   * Почтовый сервис
+   * Время ожидания подключения и ответа почтового сервера в миллисекундах
    */
-  private static final JavaMailSenderImpl mailSender;
+  private static final int SMTP_TIMEOUT_MS = 10_000;
+
+  /**
+   * Количество постоянных подключений к почтовому серверу по умолчанию
+   */
+  private static final int DEFAULT_POOL_SIZE = 4;
+  /**
+   * Период проверки простаивающих подключений командой NOOP по умолчанию, в секундах
+   */
+  private static final long DEFAULT_KEEP_ALIVE_INTERVAL_SEC = 30;
+
+  /**
+   * Почтовый сервис, содержащий сессию и параметры подключения
+   */
+  private final JavaMailSenderImpl mailSender;
+  /**
+   * Пул постоянных подключений к почтовому серверу
+   */
+  private final SmtpTransportPool transportPool;
+  /**
+   * Период проверки простаивающих подключений командой NOOP, в секундах
+   */
+  private final long keepAliveIntervalSec;
+
+  /**
+   * Количество отправленных сообщений
+   */
+  private final LongAdder sentCount = new LongAdder();
+  /**
+   * Количество неотправленных сообщений
+   */
+  private final LongAdder failedCount = new LongAdder();
+  /**
+   * Суммарное время отправки сообщений, в наносекундах
+   */
+  private final LongAdder sendNanosTotal = new LongAdder();
+  /**
+   * Максимальное время отправки сообщения, в наносекундах
+   */
+  private final LongAccumulator sendNanosMax = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Поток проверки простаивающих подключений
+   */
+  private ScheduledExecutorService keepAliveExecutor;
+
+  /**
+   * Конструктор для инициализации и настройки почтового сервиса по параметрам из {@link RMail}
+   * @param poolSize максимальное количество постоянных подключений к почтовому серверу
+   * @param keepAliveIntervalSec период проверки простаивающих подключений, в секундах
+   */
+  @Autowired
+  public MailSenderProvider(@Value("${family-benefits.mail.pool-size:4}") int poolSize,
+                            @Value("${family-benefits.mail.keep-alive-interval-sec:30}") long keepAliveIntervalSec) {
 
-  // инициализация и настройка почтового сервиса
-  static {
     mailSender = new JavaMailSenderImpl();
 
     mailSender.setHost(RMail.HOST);
@@ -33,37 +102,227 @@ public class MailSenderProvider {
     props.put("mail.transport.protocol", "smtp");
     props.put("mail.smtp.auth", "true");
     props.put("mail.smtp.starttls.enable", "true");
-    props.put("mail.debug", "true");
+    props.put("mail.smtp.connectiontimeout", String.valueOf(SMTP_TIMEOUT_MS));
+    props.put("mail.smtp.timeout", String.valueOf(SMTP_TIMEOUT_MS));
+    props.put("mail.smtp.writetimeout", String.valueOf(SMTP_TIMEOUT_MS));
+
+    checkSettings(poolSize, keepAliveIntervalSec);
+    this.transportPool = new SmtpTransportPool(mailSender, poolSize);
+    this.keepAliveIntervalSec = keepAliveIntervalSec;
   }
 
   /**
-   * Отправляет сообщение с кодом для входа указанному пользователю
-   * @param to адрес получателя, email пользователя
-   * @param nameUser имя пользователя
-   * @param loginCode код для входа в систему
-   * @throws MailException если не удалось отправить сообщение
+   * Конструктор для использования настроенного почтового сервиса, например, подключенного к локальному серверу
+   * @param mailSender почтовый сервис
    */
-  public static void sendLoginCode(String to, String nameUser, int loginCode) throws MailException {
+  public MailSenderProvider(JavaMailSenderImpl mailSender) {
+    this(mailSender, DEFAULT_POOL_SIZE);
+  }
 
-    send(to, RMail.LOGIN_MESSAGE_SUBJECT, String.format(RMail.LOGIN_MESSAGE_TEXT_PATTERN, nameUser, loginCode));
-    log.info("Message with login code \"{}\" was sent to \"{}\"", loginCode, to);
+  /**
+   * Конструктор для использования настроенного почтового сервиса с указанным размером пула подключений
+   * @param mailSender почтовый сервис
+   * @param poolSize максимальное количество постоянных подключений к почтовому серверу
+   */
+  public MailSenderProvider(JavaMailSenderImpl mailSender, int poolSize) {
+
+    checkSettings(poolSize, DEFAULT_KEEP_ALIVE_INTERVAL_SEC);
+    this.mailSender = mailSender;
+    this.transportPool = new SmtpTransportPool(mailSender, poolSize);
+    this.keepAliveIntervalSec = DEFAULT_KEEP_ALIVE_INTERVAL_SEC;
   }
 
   /**
-   * Отправляет сообщение от имени сервиса пользователю по адресу с темой и текстом
-   * @param to адрес получателя
-   * @param subject тема сообщения
-   * @param text текст сообщения
-   * @throws MailException если не удалось отправить сообщение
+   * Запускает периодическую проверку простаивающих подключений
    */
-  public static void send(String to, String subject, String text) throws MailException {
+  @PostConstruct
+  public void start() {
 
-    SimpleMailMessage message = new SimpleMailMessage();
-    message.setTo(to);
-    message.setSubject(subject);
-    message.setText(text);
+    keepAliveExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "smtp-keep-alive");
+      thread.setDaemon(true);
+      return thread;
+    });
+    keepAliveExecutor.scheduleWithFixedDelay(this::keepAlive, keepAliveIntervalSec, keepAliveIntervalSec, TimeUnit.SECONDS);
+  }
 
-    mailSender.send(message);
+  /**
+   * Останавливает проверку подключений и закрывает простаивающие подключения
+   */
+  @PreDestroy
+  public void stop() {
+
+    if (keepAliveExecutor != null) {
+      keepAliveExecutor.shutdownNow();
+    }
+    transportPool.close();
   }
-}
 
+  /**
+   * Отправляет пакет сообщений через одно подключение из пула.
+   * Ошибка отправки одного сообщения не прерывает отправку остальных.
+   * Если сервер закрыл подключение, сообщение повторяется один раз через новое подключение
+   * @param messageList список сообщений
+   * @return неотправленные сообщения с причиной ошибки, пустая карта, если отправлены все сообщения
+   */
+  public Map<SimpleMailMessage, Exception> sendAll(List<SimpleMailMessage> messageList) {
+
+    Map<SimpleMailMessage, Exception> failedMessageMap = new IdentityHashMap<>();
+    if (messageList.isEmpty()) {
+      return failedMessageMap;
+    }
+
+    Transport transport;
+    try {
+      transport = transportPool.borrow();
+    } catch (MessagingException e) {
+      // Нет подключения к серверу, не отправлено ни одно сообщение
+      messageList.forEach(message -> failedMessageMap.put(message, e));
+      failedCount.add(messageList.size());
+      log.warn("Mail. No SMTP connection, {} messages were not sent: {}", messageList.size(), e.getMessage());
+      return failedMessageMap;
+    }
+
+    try {
+      for (int index = 0; index < messageList.size(); index++) {
+        SimpleMailMessage message = messageList.get(index);
+        long startNanos = System.nanoTime();
+
+        try {
+          MimeMessage mimeMessage = createMimeMessage(message);
+          try {
+            transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+          } catch (MessagingException e) {
+            if (transport.isConnected()) {
+              throw e;
+            }
+            // Подключение закрыто сервером, сообщение повторяется через новое подключение
+            transportPool.discard(transport);
+            transport = null;
+            transport = transportPool.borrow();
+            transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+          }
+
+          long sendNanos = System.nanoTime() - startNanos;
+          sentCount.increment();
+          sendNanosTotal.add(sendNanos);
+          sendNanosMax.accumulate(sendNanos);
+
+        } catch (MessagingException | MailException e) {
+          failedMessageMap.put(message, e);
+          failedCount.increment();
+          if (transport == null) {
+            // Не удалось открыть новое подключение, остальные сообщения не отправляются
+            for (int rest = index + 1; rest < messageList.size(); rest++) {
+              failedMessageMap.put(messageList.get(rest), e);
+              failedCount.increment();
+            }
+            break;
+          }
+        }
+      }
+
+    } finally {
+      if (transport != null) {
+        transportPool.release(transport);
+      }
+    }
+
+    log.info("Mail. {} of {} messages were sent", messageList.size() - failedMessageMap.size(), messageList.size());
+    return failedMessageMap;
+  }
+
+  /**
+   * Возвращает количество отправленных сообщений
+   * @return количество отправленных сообщений
+   */
+  public long getSentCount() {
+    return sentCount.sum();
+  }
+
+  /**
+   * Возвращает количество неотправленных сообщений
+   * @return количество неотправленных сообщений
+   */
+  public long getFailedCount() {
+    return failedCount.sum();
+  }
+
+  /**
+   * Возвращает среднее время отправки одного сообщения
+   * @return среднее время отправки в миллисекундах
+   */
+  public double getAverageSendMillis() {
+
+    long sent = sentCount.sum();
+    return sent == 0 ? 0 : sendNanosTotal.sum() / 1_000_000.0 / sent;
+  }
+
+  /**
+   * Возвращает максимальное время отправки одного сообщения
+   * @return максимальное время отправки в миллисекундах
+   */
+  public double getMaxSendMillis() {
+    return sendNanosMax.get() / 1_000_000.0;
+  }
+
+  /**
+   * Возвращает пул подключений к почтовому серверу
+   * @return пул подключений
+   */
+  public SmtpTransportPool getTransportPool() {
+    return transportPool;
+  }
+
+  /**
+   * Проверяет простаивающие подключения и записывает в лог показатели отправки
+   */
+  void keepAlive() {
+
+    try {
+      transportPool.keepAlive();
+    } catch (RuntimeException e) {
+      log.warn("Mail. SMTP keep-alive failed: {}", e.getMessage());
+    }
+
+    log.debug("Mail. Sent: {}, failed: {}, average send: {} ms, max send: {} ms. " +
+                  "SMTP connections opened: {}, reused: {}, discarded: {}, idle: {}",
+              getSentCount(), getFailedCount(), getAverageSendMillis(), getMaxSendMillis(),
+              transportPool.getOpenedCount(), transportPool.getReusedCount(),
+              transportPool.getDiscardedCount(), transportPool.getIdleCount());
+  }
+
+  /**
+   * Проверяет параметры пула подключений
+   * @param poolSize максимальное количество постоянных подключений к почтовому серверу
+   * @param keepAliveIntervalSec период проверки простаивающих подключений, в секундах
+   * @throws IllegalArgumentException если размер пула или период проверки меньше 1
+   */
+  private static void checkSettings(int poolSize, long keepAliveIntervalSec) {
+
+    if (poolSize < 1) {
+      throw new IllegalArgumentException(String.format("Argument \"poolSize\" %s is less than 1.", poolSize));
+    }
+    if (keepAliveIntervalSec < 1) {
+      throw new IllegalArgumentException(String.format(
+          "Argument \"keepAliveIntervalSec\" %s is less than 1.", keepAliveIntervalSec));
+    }
+  }
+
+  /**
+   * Создает MIME сообщение по простому сообщению
+   * @param message простое сообщение
+   * @return MIME сообщение, готовое к отправке
+   * @throws MessagingException если не удалось сформировать сообщение
+   */
+  private MimeMessage createMimeMessage(SimpleMailMessage message) throws MessagingException {
+
+    MimeMessage mimeMessage = mailSender.createMimeMessage();
+    message.copyTo(new MimeMailMessage(mimeMessage));
+    if (mimeMessage.getSentDate() == null) {
+      mimeMessage.setSentDate(new Date());
+    }
+    mimeMessage.saveChanges();
+    return mimeMessage;
+  }
+}
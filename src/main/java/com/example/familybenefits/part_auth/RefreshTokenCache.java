@@ -0,0 +1,209 @@
+package com.example.familybenefits.part_auth;
+
+import com.example.familybenefits.dto.entities.RefreshTokenEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограниченный по размеру и времени жизни записей кэш токенов восстановления.
+ * Избавляет от запроса к бд при проверке токена восстановления в каждом запросе.
+ * Каждое удаление из кэша получает номер поколения. Токен, прочитанный из бд, добавляется в кэш, только если
+ * токен пользователя не удалялся после начала чтения, поэтому отозванный во время чтения токен не попадает в кэш
+ */
+@Component
+public class RefreshTokenCache {
+
+  /**
+   * Максимальное количество токенов в кэше
+   */
+  private static final int MAX_SIZE = 10_000;
+  /**
+   * Время жизни записи кэша в секундах. Ограничивает время, в течение которого
+   * токен, удаленный в обход кэша или без уведомления других экземпляров, продолжает считаться действительным
+   */
+  private static final long TTL_SEC = 300;
+
+  /**
+   * Модели токенов восстановления по токену
+   */
+  private final BoundedTtlCache<String, RefreshTokenEntity> tokenCache =
+      new BoundedTtlCache<>("Refresh token cache", MAX_SIZE);
+  /**
+   * Токены восстановления в кэше по ID пользователя
+   */
+  private final Map<String, String> userTokenMap = new ConcurrentHashMap<>();
+  /**
+   * Номер поколения последнего удаления из кэша по ID пользователя
+   */
+  private final Map<String, Long> invalidatedGenerationMap = new ConcurrentHashMap<>();
+  /**
+   * Номер поколения последнего удаления из кэша
+   */
+  private final AtomicLong generation = new AtomicLong();
+  /**
+   * Номер поколения, до которого прочитанные из бд токены не добавляются в кэш для всех пользователей.
+   * Увеличивается при очистке кэша и при очистке номеров поколений пользователей
+   */
+  private final AtomicLong floorGeneration = new AtomicLong();
+
+  /**
+   * Возвращает модель токена восстановления из кэша
+   * @param refreshToken токен восстановления
+   * @return модель токена восстановления или empty, если токена нет в кэше или запись устарела
+   */
+  public Optional<RefreshTokenEntity> get(String refreshToken) {
+    return tokenCache.get(refreshToken);
+  }
+
+  /**
+   * Возвращает номер поколения удалений из кэша. Получается перед чтением токена из бд
+   * и передается в {@link #put(RefreshTokenEntity, long)}
+   * @return номер поколения
+   */
+  public long getGeneration() {
+    return generation.get();
+  }
+
+  /**
+   * Добавляет в кэш только что сохраненную модель токена восстановления, заменяя предыдущий токен пользователя
+   * @param refreshTokenEntity модель токена восстановления
+   */
+  public void put(RefreshTokenEntity refreshTokenEntity) {
+    put(refreshTokenEntity, Long.MAX_VALUE);
+  }
+
+  /**
+   * Добавляет в кэш прочитанную из бд модель токена восстановления, заменяя предыдущий токен пользователя.
+   * Модель не добавляется, если токен пользователя удалялся из кэша после начала чтения
+   * @param refreshTokenEntity модель токена восстановления
+   * @param readGeneration номер поколения {@link #getGeneration()}, полученный перед чтением из бд
+   */
+  public void put(RefreshTokenEntity refreshTokenEntity, long readGeneration) {
+
+    String idUser = refreshTokenEntity.getIdUser();
+    String refreshToken = refreshTokenEntity.getToken();
+
+    // Проверка и добавление выполняются атомарно относительно удаления токена пользователя
+    userTokenMap.compute(idUser, (keyIdUser, previousToken) -> {
+      if (isStale(idUser, readGeneration)) {
+        return previousToken;
+      }
+      if (previousToken != null && !previousToken.equals(refreshToken)) {
+        tokenCache.remove(previousToken);
+      }
+      tokenCache.put(refreshToken, refreshTokenEntity,
+                     System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TTL_SEC));
+      return refreshToken;
+    });
+
+    // Кэш мог быть очищен во время добавления
+    if (readGeneration < floorGeneration.get()) {
+      invalidateToken(refreshToken);
+    }
+
+    // Токены, удаленные из кэша при превышении размера, удаляются и из списка токенов пользователей
+    if (userTokenMap.size() > MAX_SIZE) {
+      userTokenMap.entrySet().removeIf(userToken -> !tokenCache.containsKey(userToken.getValue()));
+    }
+  }
+
+  /**
+   * Удаляет токен восстановления из кэша
+   * @param refreshToken токен восстановления
+   */
+  public void invalidateToken(String refreshToken) {
+
+    if (refreshToken == null) {
+      return;
+    }
+
+    RefreshTokenEntity refreshTokenEntity = tokenCache.remove(refreshToken);
+    if (refreshTokenEntity != null) {
+      invalidateUser(refreshTokenEntity.getIdUser());
+    } else {
+      // Владелец токена неизвестен, поэтому выполняемые чтения из бд не добавят токены в кэш
+      floorGeneration.accumulateAndGet(generation.incrementAndGet(), Math::max);
+    }
+  }
+
+  /**
+   * Удаляет из кэша токен восстановления пользователя
+   * @param idUser ID пользователя
+   */
+  public void invalidateUser(String idUser) {
+
+    if (idUser == null) {
+      return;
+    }
+
+    userTokenMap.compute(idUser, (keyIdUser, refreshToken) -> {
+      invalidatedGenerationMap.put(idUser, generation.incrementAndGet());
+      if (refreshToken != null) {
+        tokenCache.remove(refreshToken);
+      }
+      return null;
+    });
+
+    // Номера поколений нужны только выполняемым чтениям, поэтому при переполнении заменяются общим номером
+    if (invalidatedGenerationMap.size() > MAX_SIZE) {
+      long newFloorGeneration = floorGeneration.accumulateAndGet(generation.get(), Math::max);
+      invalidatedGenerationMap.values().removeIf(invalidatedGeneration -> invalidatedGeneration <= newFloorGeneration);
+    }
+  }
+
+  /**
+   * Очищает кэш
+   */
+  public void invalidateAll() {
+
+    floorGeneration.accumulateAndGet(generation.incrementAndGet(), Math::max);
+    tokenCache.clear();
+    userTokenMap.clear();
+    invalidatedGenerationMap.clear();
+  }
+
+  /**
+   * Возвращает количество найденных в кэше токенов
+   * @return количество попаданий в кэш
+   */
+  public long getHitCount() {
+    return tokenCache.getHitCount();
+  }
+
+  /**
+   * Возвращает количество не найденных в кэше токенов
+   * @return количество промахов кэша
+   */
+  public long getMissCount() {
+    return tokenCache.getMissCount();
+  }
+
+  /**
+   * Возвращает количество токенов в кэше
+   * @return размер кэша
+   */
+  public int size() {
+    return tokenCache.size();
+  }
+
+  /**
+   * Проверяет, удалялся ли токен пользователя из кэша после начала чтения из бд
+   * @param idUser ID пользователя
+   * @param readGeneration номер поколения, полученный перед чтением из бд
+   * @return true, если прочитанный токен мог устареть
+   */
+  private boolean isStale(String idUser, long readGeneration) {
+
+    if (readGeneration < floorGeneration.get()) {
+      return true;
+    }
+
+    Long invalidatedGeneration = invalidatedGenerationMap.get(idUser);
+    return invalidatedGeneration != null && invalidatedGeneration > readGeneration;
+  }
+}
@@ -0,0 +1,124 @@
+package com.example.familybenefits.part_auth;
+
+import com.example.familybenefits.cluster.ClusterChannel;
+import com.example.familybenefits.cluster.ClusterNotificationChannel;
+import com.example.familybenefits.cluster.ClusterNotificationListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Канал отзыва токенов восстановления между экземплярами приложения.
+ * Отзыв токена пользователя публикуется в канал {@link ClusterChannel#REFRESH_TOKEN_REVOCATION}, и каждый экземпляр,
+ * включая отправителя, удаляет токен пользователя из своего кэша токенов восстановления.
+ * При отзыве сессий пользователя (выходе из системы) экземпляры также отзывают выпущенные ранее токены доступа (jwt)
+ */
+@Slf4j
+@Component
+public class RefreshTokenRevocationChannel implements ClusterNotificationListener {
+
+  /**
+   * Префикс уведомления об отзыве сессий пользователя. Без префикса уведомление содержит только ID пользователя
+   */
+  private static final String SESSIONS_PREFIX = "sessions:";
+
+  /**
+   * Уведомления между экземплярами приложения
+   */
+  private final ClusterNotificationChannel clusterNotificationChannel;
+  /**
+   * Кэш токенов восстановления
+   */
+  private final RefreshTokenCache refreshTokenCache;
+  /**
+   * Моменты отзыва токенов доступа (jwt)
+   */
+  private final JwtRevocationRegistry jwtRevocationRegistry;
+  /**
+   * Объединение одновременных обновлений токенов
+   */
+  private final JwtRenewalCoalescer jwtRenewalCoalescer;
+
+  /**
+   * Конструктор для инициализации канала
+   * @param clusterNotificationChannel уведомления между экземплярами приложения
+   * @param refreshTokenCache кэш токенов восстановления
+   * @param jwtRevocationRegistry моменты отзыва токенов доступа (jwt)
+   * @param jwtRenewalCoalescer объединение одновременных обновлений токенов
+   */
+  @Autowired
+  public RefreshTokenRevocationChannel(ClusterNotificationChannel clusterNotificationChannel,
+                                       RefreshTokenCache refreshTokenCache,
+                                       JwtRevocationRegistry jwtRevocationRegistry,
+                                       JwtRenewalCoalescer jwtRenewalCoalescer) {
+    this.clusterNotificationChannel = clusterNotificationChannel;
+    this.refreshTokenCache = refreshTokenCache;
+    this.jwtRevocationRegistry = jwtRevocationRegistry;
+    this.jwtRenewalCoalescer = jwtRenewalCoalescer;
+  }
+
+  /**
+   * Подписывается на канал отзыва токенов
+   */
+  @PostConstruct
+  public void subscribe() {
+    clusterNotificationChannel.subscribe(ClusterChannel.REFRESH_TOKEN_REVOCATION, this);
+  }
+
+  /**
+   * Отзывает токен восстановления пользователя: удаляет его из локального кэша и уведомляет остальные экземпляры.
+   * Вызывается после изменения токена в бд, иначе другие экземпляры могут снова закэшировать прежний токен.
+   * Если уведомление не удалось отправить, остальные экземпляры удалят токен по истечении времени жизни записи кэша
+   * @param idUser ID пользователя
+   */
+  public void revokeUser(String idUser) {
+
+    refreshTokenCache.invalidateUser(idUser);
+    clusterNotificationChannel.publish(ClusterChannel.REFRESH_TOKEN_REVOCATION, idUser);
+  }
+
+  /**
+   * Отзывает сессии пользователя: токен восстановления, выпущенные до текущего момента токены доступа (jwt)
+   * и недавние обновления токенов во всех экземплярах. Если уведомление не удалось отправить,
+   * остальные экземпляры принимают токены доступа пользователя без токена восстановления до их истечения
+   * @param idUser ID пользователя
+   */
+  public void revokeUserSessions(String idUser) {
+
+    refreshTokenCache.invalidateUser(idUser);
+    jwtRevocationRegistry.revokeUser(idUser);
+    jwtRenewalCoalescer.invalidateUser(idUser);
+    clusterNotificationChannel.publish(ClusterChannel.REFRESH_TOKEN_REVOCATION, SESSIONS_PREFIX + idUser);
+  }
+
+  /**
+   * Обрабатывает уведомление канала
+   * @param payload содержимое уведомления
+   */
+  @Override
+  public void onNotification(String payload) {
+
+    if (payload.startsWith(SESSIONS_PREFIX)) {
+      String idUser = payload.substring(SESSIONS_PREFIX.length());
+      refreshTokenCache.invalidateUser(idUser);
+      jwtRevocationRegistry.revokeUser(idUser);
+      jwtRenewalCoalescer.invalidateUser(idUser);
+    } else {
+      refreshTokenCache.invalidateUser(payload);
+    }
+  }
+
+  /**
+   * Сбрасывает кэш токенов восстановления и отзывает токены доступа (jwt),
+   * так как уведомления, отправленные без подписки, потеряны
+   */
+  @Override
+  public void onSubscribed() {
+
+    refreshTokenCache.invalidateAll();
+    jwtRevocationRegistry.revokeAll();
+    log.info("Refresh token cache reset after subscription to the revocation channel");
+  }
+}
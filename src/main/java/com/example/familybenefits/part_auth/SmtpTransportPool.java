@@ -0,0 +1,252 @@
+package com.example.familybenefits.part_auth;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Пул постоянных аутентифицированных подключений к почтовому серверу.
+ * Подключение выдается одному потоку, а после отправки возвращается в пул и используется повторно,
+ * поэтому подключение, аутентификация и согласование TLS выполняются только при открытии подключения.
+ * Простаивающие подключения проверяются командой NOOP
+ */
+@Slf4j
+public class SmtpTransportPool implements AutoCloseable {
+
+  /**
+   * Время простоя подключения, после которого оно проверяется командой NOOP перед выдачей, в миллисекундах
+   */
+  private static final long VALIDATE_AFTER_IDLE_MS = 10_000;
+  /**
+   * Время простоя подключения, после которого оно закрывается при проверке пула, в миллисекундах
+   */
+  private static final long MAX_IDLE_MS = 300_000;
+  /**
+   * Время ожидания свободного подключения, в миллисекундах
+   */
+  private static final long BORROW_TIMEOUT_MS = 30_000;
+
+  /**
+   * Почтовый сервис, содержащий сессию и параметры подключения
+   */
+  private final JavaMailSenderImpl mailSender;
+  /**
+   * Разрешения на использование подключений. Ограничивает количество одновременно открытых подключений
+   */
+  private final Semaphore permits;
+  /**
+   * Простаивающие подключения, последнее возвращенное - первое
+   */
+  private final ConcurrentLinkedDeque<PooledTransport> idleDeque = new ConcurrentLinkedDeque<>();
+  /**
+   * Флаг закрытия пула. Подключения, возвращаемые в закрытый пул, закрываются
+   */
+  private volatile boolean closed;
+
+  /**
+   * Количество открытых подключений
+   */
+  private final LongAdder openedCount = new LongAdder();
+  /**
+   * Количество повторных выдач открытых подключений
+   */
+  private final LongAdder reusedCount = new LongAdder();
+  /**
+   * Количество закрытых неисправных или долго простаивающих подключений
+   */
+  private final LongAdder discardedCount = new LongAdder();
+
+  /**
+   * Конструктор для создания пула
+   * @param mailSender почтовый сервис, содержащий сессию и параметры подключения
+   * @param size максимальное количество подключений
+   */
+  public SmtpTransportPool(JavaMailSenderImpl mailSender, int size) {
+    this.mailSender = mailSender;
+    this.permits = new Semaphore(size, true);
+  }
+
+  /**
+   * Выдает подключение из пула, открывая новое, если простаивающих нет.
+   * Подключение необходимо вернуть методом {@link #release(Transport)} или {@link #discard(Transport)}
+   * @return открытое подключение
+   * @throws MessagingException если не удалось открыть подключение или дождаться свободного
+   */
+  public Transport borrow() throws MessagingException {
+
+    try {
+      if (!permits.tryAcquire(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+        throw new MessagingException("No free SMTP connection in the pool");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+    }
+
+    try {
+      // Повторное использование простаивающего подключения, долго простаивающее проверяется
+      PooledTransport pooledTransport;
+      while ((pooledTransport = idleDeque.pollFirst()) != null) {
+        if (System.nanoTime() - pooledTransport.idleSinceNanos < TimeUnit.MILLISECONDS.toNanos(VALIDATE_AFTER_IDLE_MS) ||
+            pooledTransport.transport.isConnected()) {
+          reusedCount.increment();
+          return pooledTransport.transport;
+        }
+        closeQuietly(pooledTransport.transport);
+      }
+
+      // Открытие нового подключения
+      Transport transport = mailSender.getSession().getTransport(mailSender.getProtocol());
+      transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+      openedCount.increment();
+      return transport;
+
+    } catch (MessagingException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Возвращает исправное подключение в пул
+   * @param transport подключение, выданное пулом
+   */
+  public void release(Transport transport) {
+
+    if (closed) {
+      discard(transport);
+      return;
+    }
+
+    idleDeque.offerFirst(new PooledTransport(transport, System.nanoTime()));
+    permits.release();
+  }
+
+  /**
+   * Закрывает неисправное подключение, выданное пулом, и освобождает его место
+   * @param transport подключение, выданное пулом
+   */
+  public void discard(Transport transport) {
+
+    closeQuietly(transport);
+    permits.release();
+  }
+
+  /**
+   * Проверяет простаивающие подключения: долго простаивающие и не отвечающие на NOOP закрываются,
+   * остальные возвращаются в пул. Команда NOOP также не дает серверу закрыть подключение по таймауту
+   */
+  public void keepAlive() {
+
+    // Проверяемое подключение занимает место в пуле, поэтому количество подключений не превышает размер пула
+    int checkCount = idleDeque.size();
+    for (int i = 0; i < checkCount && permits.tryAcquire(); i++) {
+      try {
+        PooledTransport pooledTransport = idleDeque.pollLast();
+        if (pooledTransport == null) {
+          return;
+        }
+
+        if (System.nanoTime() - pooledTransport.idleSinceNanos > TimeUnit.MILLISECONDS.toNanos(MAX_IDLE_MS) ||
+            !pooledTransport.transport.isConnected()) {
+          closeQuietly(pooledTransport.transport);
+        } else {
+          idleDeque.offerFirst(pooledTransport);
+        }
+
+      } finally {
+        permits.release();
+      }
+    }
+  }
+
+  /**
+   * Закрывает простаивающие подключения
+   */
+  @Override
+  public void close() {
+
+    closed = true;
+    PooledTransport pooledTransport;
+    while ((pooledTransport = idleDeque.pollFirst()) != null) {
+      closeQuietly(pooledTransport.transport);
+    }
+  }
+
+  /**
+   * Возвращает количество открытых подключений
+   * @return количество открытых подключений
+   */
+  public long getOpenedCount() {
+    return openedCount.sum();
+  }
+
+  /**
+   * Возвращает количество повторных выдач открытых подключений
+   * @return количество повторных выдач
+   */
+  public long getReusedCount() {
+    return reusedCount.sum();
+  }
+
+  /**
+   * Возвращает количество закрытых неисправных или долго простаивающих подключений
+   * @return количество закрытых подключений
+   */
+  public long getDiscardedCount() {
+    return discardedCount.sum();
+  }
+
+  /**
+   * Возвращает количество простаивающих подключений
+   * @return количество простаивающих подключений
+   */
+  public int getIdleCount() {
+    return idleDeque.size();
+  }
+
+  /**
+   * Закрывает подключение без выбрасывания исключения
+   * @param transport подключение
+   */
+  private void closeQuietly(Transport transport) {
+
+    discardedCount.increment();
+    try {
+      transport.close();
+    } catch (MessagingException e) {
+      log.debug("Mail. SMTP connection was not closed cleanly: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Простаивающее подключение пула
+   */
+  private static class PooledTransport {
+
+    /**
+     * Подключение
+     */
+    private final Transport transport;
+    /**
+     * Момент возврата подключения в пул, в наносекундах {@link System#nanoTime()}
+     */
+    private final long idleSinceNanos;
+
+    /**
+     * Конструктор для создания записи пула
+     * @param transport подключение
+     * @param idleSinceNanos момент возврата подключения в пул, в наносекундах
+     */
+    private PooledTransport(Transport transport, long idleSinceNanos) {
+      this.transport = transport;
+      this.idleSinceNanos = idleSinceNanos;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.example.familybenefits.part_auth.filter;
+
+import com.example.familybenefits.dto.entities.RoleEntity;
+import com.example.familybenefits.part_auth.models.JwtUserData;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Правило доступа к конечной точке API
+ */
+@Getter
+public class AccessRule {
+
+  /**
+   * Вид доступа к конечной точке
+   */
+  public enum Access {
+    /**
+     * Доступно всем клиентам
+     */
+    PERMIT_ALL,
+    /**
+     * Доступно только клиентам без токена восстановления
+     */
+    ANONYMOUS,
+    /**
+     * Доступно аутентифицированным клиентам с одной из ролей
+     */
+    AUTHENTICATED
+  }
+
+  /**
+   * Проверка ID из пути запроса
+   */
+  public enum IdCheck {
+    /**
+     * ID не проверяется
+     */
+    NONE,
+    /**
+     * ID из пути должен совпадать с ID клиента.
+     * Если в пути нет ID, доступ запрещен
+     */
+    OWNER,
+    /**
+     * ID из пути не должен совпадать с ID клиента
+     */
+    NOT_OWNER
+  }
+
+  /**
+   * Вид доступа
+   */
+  private final Access access;
+  /**
+   * Код статуса ответа для клиента с токеном восстановления, если доступ только анонимный
+   */
+  private final int anonymousDeniedStatus;
+  /**
+   * Список ролей, одна из которых необходима аутентифицированному клиенту
+   */
+  private final List<RoleEntity> roleList;
+  /**
+   * Битовая маска ролей из списка ролей, для проверки ролей клиента одной операцией
+   */
+  private final int roleMask;
+  /**
+   * Проверка ID из пути запроса
+   */
+  private final IdCheck idCheck;
+
+  /**
+   * Конструктор для создания правила
+   * @param access вид доступа
+   * @param anonymousDeniedStatus код статуса ответа для клиента с токеном восстановления
+   * @param roleList список ролей
+   * @param idCheck проверка ID из пути запроса
+   */
+  private AccessRule(Access access, int anonymousDeniedStatus, List<RoleEntity> roleList, IdCheck idCheck) {
+    this.access = access;
+    this.anonymousDeniedStatus = anonymousDeniedStatus;
+    this.roleList = roleList;
+    this.roleMask = JwtUserData.roleMaskOf(roleList);
+    this.idCheck = idCheck;
+  }
+
+  /**
+   * Создает правило доступа для всех клиентов
+   * @return правило доступа
+   */
+  public static AccessRule permitAll() {
+    return new AccessRule(Access.PERMIT_ALL, 0, List.of(), IdCheck.NONE);
+  }
+
+  /**
+   * Создает правило доступа только для клиентов без токена восстановления
+   * @param deniedStatus код статуса ответа для клиента с токеном восстановления
+   * @return правило доступа
+   */
+  public static AccessRule anonymous(int deniedStatus) {
+    return new AccessRule(Access.ANONYMOUS, deniedStatus, List.of(), IdCheck.NONE);
+  }
+
+  /**
+   * Создает правило доступа для аутентифицированных клиентов с одной из ролей
+   * @param idCheck проверка ID из пути запроса
+   * @param roles роли, одна из которых необходима клиенту
+   * @return правило доступа
+   */
+  public static AccessRule authenticated(IdCheck idCheck, RoleEntity... roles) {
+    return new AccessRule(Access.AUTHENTICATED, 0, List.of(roles), idCheck);
+  }
+}
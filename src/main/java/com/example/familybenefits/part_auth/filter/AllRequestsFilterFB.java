@@ -1,6 +1,10 @@
 package com.example.familybenefits.part_auth.filter;
 
-import com.example.familybenefits.part_auth.filter.request_handlers.*;
+import com.example.familybenefits.part_auth.HttpHeadersSupport;
+import com.example.familybenefits.part_auth.filter.AccessRule.IdCheck;
+import com.example.familybenefits.part_auth.models.JwtUserData;
+import com.example.familybenefits.part_auth.services.interfaces.AuthService;
+import com.example.familybenefits.resources.RDB;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
@@ -11,6 +15,7 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * Фильтр всех входящих http запросов
@@ -19,105 +24,158 @@ import java.io.IOException;
 public class AllRequestsFilterFB extends OncePerRequestFilter {
 
   /**
-   * Обрабатывает запросы вида "/api/admins**" на основе их данных аутентификации и авторизации.
+   * Таблица маршрутов API с правилами доступа
    */
-  private final AdminRequestHandler adminRequestHandler;
-  /**
-   * Обрабатывает запросы вида "/api/auth**" на основе их данных аутентификации и авторизации.
-   */
-  private final AuthRequestHandler authRequestHandler;
-  /**
-   * Обрабатывает запросы вида "/api/cities**" на основе их данных аутентификации и авторизации.
-   */
-  private final CityRequestHandler cityRequestHandler;
-  /**
-   * Обрабатывает запросы вида "/api/sa**" на основе их данных аутентификации и авторизации.
-   */
-  private final SuperAdminRequestHandler superAdminRequestHandler;
-  /**
-   * Обрабатывает запросы вида "/api/users**" на основе их данных аутентификации и авторизации.
-   */
-  private final UserRequestHandler userRequestHandler;
-  /**
-   * Обрабатывает запросы вида "/api/benefits**" на основе их данных аутентификации и авторизации.
-   */
-  private final BenefitRequestHandler benefitRequestHandler;
-  /**
-   * Обрабатывает запросы вида "/api/criteria**" на основе их данных аутентификации и авторизации.
-   */
-  private final CriterionRequestHandler criterionRequestHandler;
-  /**
-   * Обрабатывает запросы вида "/api/criterion-types**" на основе их данных аутентификации и авторизации.
-   */
-  private final CriterionTypeRequestHandler criterionTypeRequestHandler;
+  static final RouteTable ROUTE_TABLE = new RouteTable()
+      // Пользователи
+      .route("GET", "/api/users/init-data", AccessRule.permitAll())
+      .route("POST", "/api/users", AccessRule.anonymous(HttpServletResponse.SC_FORBIDDEN))
+      .route("GET", "/api/users/{id}", AccessRule.authenticated(IdCheck.OWNER, RDB.ROLE_USER))
+      .route("PUT", "/api/users/{id}", AccessRule.authenticated(IdCheck.OWNER, RDB.ROLE_USER))
+      .route("DELETE", "/api/users/{id}", AccessRule.authenticated(IdCheck.OWNER, RDB.ROLE_USER))
+      // Администраторы
+      .route("GET", "/api/admins/{id}", AccessRule.authenticated(IdCheck.OWNER, RDB.ROLE_ADMIN))
+      .route("PUT", "/api/admins/{id}", AccessRule.authenticated(IdCheck.OWNER, RDB.ROLE_ADMIN))
+      // Вход и выход
+      .route("POST", "/api/auth/pre-login", AccessRule.anonymous(HttpServletResponse.SC_BAD_REQUEST))
+      .route("POST", "/api/auth/login", AccessRule.anonymous(HttpServletResponse.SC_BAD_REQUEST))
+      .route("POST", "/api/auth/logout/{id}", AccessRule.authenticated(IdCheck.OWNER, RDB.ROLE_USER, RDB.ROLE_ADMIN))
+      // Супер-администратор. В пути "/api/sa/admins" нет ID, поэтому доступ к нему запрещен
+      .route("POST", "/api/sa/admins", AccessRule.authenticated(IdCheck.OWNER, RDB.ROLE_SUPER_ADMIN))
+      .route("DELETE", "/api/sa/admins/{id}", AccessRule.authenticated(IdCheck.NOT_OWNER, RDB.ROLE_SUPER_ADMIN))
+      .route("POST", "/api/sa/from-user/{id}", AccessRule.authenticated(IdCheck.OWNER, RDB.ROLE_SUPER_ADMIN))
+      .route("POST", "/api/sa/to-user/{id}", AccessRule.authenticated(IdCheck.OWNER, RDB.ROLE_SUPER_ADMIN))
+      .route("POST", "/api/sa/to-super/{id}", AccessRule.authenticated(IdCheck.OWNER, RDB.ROLE_SUPER_ADMIN))
+      // Города
+      .route("GET", "/api/cities", AccessRule.permitAll())
+      .route("GET", "/api/cities/{id}", AccessRule.permitAll())
+      .route("POST", "/api/cities", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("PUT", "/api/cities/{id}", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("DELETE", "/api/cities/{id}", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("GET", "/api/cities/partial", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      // Учреждения. Путь "/api/institutions/init-data" проверяется для любого http метода
+      .route("GET", "/api/institutions", AccessRule.permitAll())
+      .route("GET", "/api/institutions/{id}", AccessRule.permitAll())
+      .route("GET", "/api/institutions/search", AccessRule.permitAll())
+      .route("POST", "/api/institutions", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("PUT", "/api/institutions/{id}", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("DELETE", "/api/institutions/{id}", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("GET", "/api/institutions/partial", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .routeAnyMethod("/api/institutions/init-data", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      // Пособия
+      .route("GET", "/api/benefits", AccessRule.permitAll())
+      .route("GET", "/api/benefits/{id}", AccessRule.permitAll())
+      .route("GET", "/api/benefits/search", AccessRule.permitAll())
+      .route("POST", "/api/benefits", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("PUT", "/api/benefits/{id}", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("DELETE", "/api/benefits/{id}", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("GET", "/api/benefits/partial", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("GET", "/api/benefits/init-data", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("GET", "/api/benefits/user/{idUser}", AccessRule.authenticated(IdCheck.OWNER, RDB.ROLE_ADMIN))
+      // Критерии
+      .route("GET", "/api/criteria", AccessRule.permitAll())
+      .route("GET", "/api/criteria/{id}", AccessRule.permitAll())
+      .route("GET", "/api/criteria/search", AccessRule.permitAll())
+      .route("POST", "/api/criteria", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("PUT", "/api/criteria/{id}", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("DELETE", "/api/criteria/{id}", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("GET", "/api/criteria/partial", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("GET", "/api/criteria/init-data", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("GET", "/api/criteria/user/{idUser}", AccessRule.authenticated(IdCheck.OWNER, RDB.ROLE_ADMIN))
+      // Типы критерий
+      .route("GET", "/api/criterion-types", AccessRule.permitAll())
+      .route("GET", "/api/criterion-types/{id}", AccessRule.permitAll())
+      .route("POST", "/api/criterion-types", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("PUT", "/api/criterion-types/{id}", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("DELETE", "/api/criterion-types/{id}", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN))
+      .route("GET", "/api/criterion-types/partial", AccessRule.authenticated(IdCheck.NONE, RDB.ROLE_ADMIN));
+
   /**
-   * Обрабатывает запросы вида "/api/institutions**" на основе их данных аутентификации и авторизации.
+   * Интерфейс сервиса, отвечающего за аутентификацию и авторизацию в системе
    */
-  private final InstitutionRequestHandler institutionRequestHandler;
+  private final AuthService authService;
 
   /**
    * Конструктор для инициализации сервисов
-   * @param adminRequestHandler обрабатывает запросы вида "/api/admins" на основе их данных аутентификации и авторизации
-   * @param authRequestHandler обрабатывает запросы вида "/api/auth" на основе их данных аутентификации и авторизации
-   * @param cityRequestHandler обрабатывает запросы вида "/api/cities" на основе их данных аутентификации и авторизации
-   * @param superAdminRequestHandler обрабатывает запросы вида "/api/sa" на основе их данных аутентификации и авторизации
-   * @param userRequestHandler обрабатывает запросы вида "/api/users" на основе их данных аутентификации и авторизации
-   * @param benefitRequestHandler обрабатывает запросы вида "/api/benefits**" на основе их данных аутентификации и авторизации.
-   * @param criterionRequestHandler обрабатывает запросы вида "/api/criteria**" на основе их данных аутентификации и авторизации.
-   * @param criterionTypeRequestHandler обрабатывает запросы вида "/api/criterion-types**" на основе их данных аутентификации и авторизации.
-   * @param institutionRequestHandler обрабатывает запросы вида "/api/institutions**" на основе их данных аутентификации и авторизации.
+   * @param authService интерфейс сервиса, отвечающего за аутентификацию и авторизацию в системе
    */
   @Autowired
-  public AllRequestsFilterFB(AdminRequestHandler adminRequestHandler,
-                             AuthRequestHandler authRequestHandler,
-                             CityRequestHandler cityRequestHandler,
-                             SuperAdminRequestHandler superAdminRequestHandler,
-                             UserRequestHandler userRequestHandler,
-                             BenefitRequestHandler benefitRequestHandler,
-                             CriterionRequestHandler criterionRequestHandler,
-                             CriterionTypeRequestHandler criterionTypeRequestHandler,
-                             InstitutionRequestHandler institutionRequestHandler) {
-    this.adminRequestHandler = adminRequestHandler;
-    this.authRequestHandler = authRequestHandler;
-    this.cityRequestHandler = cityRequestHandler;
-    this.superAdminRequestHandler = superAdminRequestHandler;
-    this.userRequestHandler = userRequestHandler;
-    this.benefitRequestHandler = benefitRequestHandler;
-    this.criterionRequestHandler = criterionRequestHandler;
-    this.criterionTypeRequestHandler = criterionTypeRequestHandler;
-    this.institutionRequestHandler = institutionRequestHandler;
+  public AllRequestsFilterFB(AuthService authService) {
+    this.authService = authService;
   }
 
+  /**
+   * Обрабатывает http запрос по правилу доступа его маршрута и изменяет http ответ. Ответ может быть изменен в следующих случаях:
+   * <ol>
+   *   <li>Запрос не прошел проверку на аутентификацию и авторизацию. В ответ записывается 401 или 403 код статуса.</li>
+   *   <li>Запрос для анонимных клиентов содержит токен восстановления. В ответ записывается 400 или 403 код статуса.</li>
+   *   <li>Запрос содержит просроченный токен доступа. В ответ записываются обновленные токены.</li>
+   *   <li>Запрос содержит просроченный токен восстановления или невалидные токены. Из ответа удаляются токены.</li>
+   *   <li>API не поддерживает конечную точку, указанную в запросе. В ответ записывается 405 код статуса.</li>
+   * </ol>
+   * @param request http запрос
+   * @param response http ответ
+   * @param filterChain цепочка фильтров
+   */
   @Override
   public void doFilterInternal(HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain) throws IOException, ServletException {
 
     String requestURI = request.getRequestURI();
-    boolean isSuccess = false;
-
-    if (requestURI.startsWith("/api/cities")) {
-      isSuccess = cityRequestHandler.handle(request, response);
-    } else if (requestURI.startsWith("/api/users")) {
-      isSuccess = userRequestHandler.handle(request, response);
-    } else if (requestURI.startsWith("/api/admins")) {
-      isSuccess = adminRequestHandler.handle(request, response);
-    } else if (requestURI.startsWith("/api/auth")){
-      isSuccess = authRequestHandler.handle(request, response);
-    } else if (requestURI.startsWith("/api/sa")){
-      isSuccess = superAdminRequestHandler.handle(request, response);
-    } else if (requestURI.startsWith("/api/benefits")){
-      isSuccess = benefitRequestHandler.handle(request, response);
-    } else if (requestURI.startsWith("/api/criteria")){
-      isSuccess = criterionRequestHandler.handle(request, response);
-    } else if (requestURI.startsWith("/api/criterion-types")){
-      isSuccess = criterionTypeRequestHandler.handle(request, response);
-    } else if (requestURI.startsWith("/api/institutions")){
-      isSuccess = institutionRequestHandler.handle(request, response);
-    } else {
+
+    RouteTable.Route route = ROUTE_TABLE.resolve(request.getMethod(), requestURI);
+    if (route == null) {
       response.setStatus(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+      return;
     }
 
-    if (isSuccess) {
+    if (isAccessAllowed(route, requestURI, request, response)) {
       filterChain.doFilter(request, response);
     }
   }
+
+  /**
+   * Проверяет доступ запроса по правилу доступа маршрута. При запрете доступа в ответ записывается код статуса
+   * @param route маршрут запроса
+   * @param requestURI путь запроса
+   * @param request http запрос
+   * @param response http ответ
+   * @return true, если доступ разрешен
+   */
+  private boolean isAccessAllowed(RouteTable.Route route, String requestURI,
+                                  HttpServletRequest request, HttpServletResponse response) {
+
+    AccessRule accessRule = route.getAccessRule();
+
+    switch (accessRule.getAccess()) {
+      case PERMIT_ALL:
+        return true;
+
+      case ANONYMOUS:
+        // Проверка отсутствия аутентификации по наличию токена восстановления
+        if (HttpHeadersSupport.getRefreshToken(request) == null) {
+          return true;
+        }
+        response.setStatus(accessRule.getAnonymousDeniedStatus());
+        return false;
+
+      default:
+        // Проверка аутентификации по токенам доступа (jwt) и восстановления из запроса
+        Optional<JwtUserData> optUserData = authService.authenticate(request, response);
+        if (optUserData.isEmpty()) {
+          response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+          return false;
+        }
+        JwtUserData userData = optUserData.get();
+
+        // Проверка авторизации по наличию необходимых ролей и ID
+        boolean isIdEqual = route.isIdEqual(requestURI, userData.getIdUser());
+        if (!userData.hasAnyRole(accessRule.getRoleMask()) ||
+            (accessRule.getIdCheck() == IdCheck.OWNER && !isIdEqual) ||
+            (accessRule.getIdCheck() == IdCheck.NOT_OWNER && isIdEqual)) {
+          response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+          return false;
+        }
+        return true;
+    }
+  }
 }
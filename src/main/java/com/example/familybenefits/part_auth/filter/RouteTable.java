@@ -0,0 +1,234 @@
+package com.example.familybenefits.part_auth.filter;
+
+import com.example.familybenefits.resources.R;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Таблица маршрутов API в виде префиксного дерева по сегментам пути.
+ * Определяет правило доступа запроса за один проход по пути, без регулярных выражений и создания объектов.
+ * Сегмент шаблона вида "{id}" соответствует ID из символов A-Za-z0-9 длиной {@link R#ID_LENGTH}
+ * и может быть только последним сегментом пути. Сегмент-константа имеет приоритет над ID
+ */
+public class RouteTable {
+
+  /**
+   * Корень дерева, соответствует пути "/"
+   */
+  private final Node root = new Node();
+
+  /**
+   * Добавляет маршрут для указанного http метода
+   * @param method http метод
+   * @param pathTemplate шаблон пути, например "/api/benefits/{id}"
+   * @param accessRule правило доступа
+   * @return эта таблица маршрутов
+   */
+  public RouteTable route(String method, String pathTemplate, AccessRule accessRule) {
+
+    Node node = nodeOf(pathTemplate);
+    node.methodRouteMap.put(method, new Route(accessRule, node.isId));
+    return this;
+  }
+
+  /**
+   * Добавляет маршрут для любого http метода. Маршруты конкретных методов имеют приоритет
+   * @param pathTemplate шаблон пути
+   * @param accessRule правило доступа
+   * @return эта таблица маршрутов
+   */
+  public RouteTable routeAnyMethod(String pathTemplate, AccessRule accessRule) {
+
+    Node node = nodeOf(pathTemplate);
+    node.anyMethodRoute = new Route(accessRule, node.isId);
+    return this;
+  }
+
+  /**
+   * Находит маршрут запроса
+   * @param method http метод запроса
+   * @param uri путь запроса
+   * @return маршрут или {@code null}, если API не поддерживает указанную конечную точку
+   */
+  public Route resolve(String method, String uri) {
+
+    if (uri == null || uri.isEmpty() || uri.charAt(0) != '/') {
+      return null;
+    }
+
+    Node node = root;
+    int start = 1;
+    while (node != null && start <= uri.length()) {
+      int end = uri.indexOf('/', start);
+      if (end < 0) {
+        end = uri.length();
+      }
+      node = node.child(uri, start, end);
+      start = end + 1;
+    }
+
+    if (node == null) {
+      return null;
+    }
+
+    Route route = node.methodRouteMap.get(method);
+    return route != null ? route : node.anyMethodRoute;
+  }
+
+  /**
+   * Возвращает узел дерева по шаблону пути, создавая отсутствующие узлы
+   * @param pathTemplate шаблон пути
+   * @return узел дерева
+   */
+  private Node nodeOf(String pathTemplate) {
+
+    String[] segments = pathTemplate.substring(1).split("/");
+    Node node = root;
+
+    for (int i = 0; i < segments.length; i++) {
+      String segment = segments[i];
+
+      if (segment.startsWith("{") && segment.endsWith("}")) {
+        if (i != segments.length - 1) {
+          throw new IllegalArgumentException(String.format(
+              "ID segment must be the last segment of the path \"%s\"", pathTemplate));
+        }
+        if (node.idChild == null) {
+          node.idChild = new Node();
+          node.idChild.isId = true;
+        }
+        node = node.idChild;
+
+      } else {
+        node = node.literalChild(segment);
+      }
+    }
+
+    return node;
+  }
+
+  /**
+   * Маршрут: правило доступа конечной точки и признак наличия ID в конце пути
+   */
+  public static class Route {
+
+    /**
+     * Правило доступа
+     */
+    private final AccessRule accessRule;
+    /**
+     * Признак наличия ID последним сегментом пути
+     */
+    private final boolean hasId;
+
+    /**
+     * Конструктор для создания маршрута
+     * @param accessRule правило доступа
+     * @param hasId признак наличия ID последним сегментом пути
+     */
+    private Route(AccessRule accessRule, boolean hasId) {
+      this.accessRule = accessRule;
+      this.hasId = hasId;
+    }
+
+    /**
+     * Возвращает правило доступа маршрута
+     * @return правило доступа
+     */
+    public AccessRule getAccessRule() {
+      return accessRule;
+    }
+
+    /**
+     * Проверяет, что ID из пути запроса совпадает с указанным ID
+     * @param uri путь запроса, найденный по этому маршруту
+     * @param id проверяемый ID
+     * @return true, если путь маршрута содержит ID и он равен указанному
+     */
+    public boolean isIdEqual(String uri, String id) {
+      return hasId && id != null && id.length() == R.ID_LENGTH && uri.startsWith(id, uri.length() - id.length());
+    }
+  }
+
+  /**
+   * Узел дерева маршрутов
+   */
+  private static class Node {
+
+    /**
+     * Сегменты-константы дочерних узлов
+     */
+    private String[] literals = new String[0];
+    /**
+     * Дочерние узлы сегментов-констант, в порядке сегментов
+     */
+    private Node[] literalChildren = new Node[0];
+    /**
+     * Дочерний узел сегмента ID
+     */
+    private Node idChild;
+    /**
+     * Признак узла сегмента ID
+     */
+    private boolean isId;
+
+    /**
+     * Маршруты по http методу
+     */
+    private final Map<String, Route> methodRouteMap = new HashMap<>();
+    /**
+     * Маршрут любого http метода
+     */
+    private Route anyMethodRoute;
+
+    /**
+     * Находит дочерний узел по сегменту пути запроса
+     * @param uri путь запроса
+     * @param start начало сегмента, включительно
+     * @param end конец сегмента, не включительно
+     * @return дочерний узел или {@code null}, если сегмент не соответствует ни одному узлу
+     */
+    private Node child(String uri, int start, int end) {
+
+      int length = end - start;
+      for (int i = 0; i < literals.length; i++) {
+        if (literals[i].length() == length && uri.startsWith(literals[i], start)) {
+          return literalChildren[i];
+        }
+      }
+
+      if (idChild == null || length != R.ID_LENGTH) {
+        return null;
+      }
+      for (int i = start; i < end; i++) {
+        char c = uri.charAt(i);
+        if (!(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9')) {
+          return null;
+        }
+      }
+      return idChild;
+    }
+
+    /**
+     * Возвращает дочерний узел сегмента-константы, создавая его при отсутствии
+     * @param literal сегмент-константа
+     * @return дочерний узел
+     */
+    private Node literalChild(String literal) {
+
+      for (int i = 0; i < literals.length; i++) {
+        if (literals[i].equals(literal)) {
+          return literalChildren[i];
+        }
+      }
+
+      literals = Arrays.copyOf(literals, literals.length + 1);
+      literalChildren = Arrays.copyOf(literalChildren, literalChildren.length + 1);
+      literals[literals.length - 1] = literal;
+      literalChildren[literalChildren.length - 1] = new Node();
+      return literalChildren[literalChildren.length - 1];
+    }
+  }
+}
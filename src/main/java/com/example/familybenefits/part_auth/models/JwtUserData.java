@@ -2,29 +2,104 @@ package com.example.familybenefits.part_auth.models;
 
 import com.example.familybenefits.dto.entities.RoleEntity;
 import com.example.familybenefits.resources.R;
+import com.example.familybenefits.resources.RDB;
+import io.jsonwebtoken.Claims;
 import lombok.Builder;
 import lombok.Getter;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * Данные пользователя, хранимые в jwt, необходимые для аутентификации и авторизации
+ * Данные пользователя, хранимые в jwt, необходимые для аутентификации и авторизации.
+ * ID пользователя хранится в subject токена, роли - битовой маской в утверждении {@link #CLAIM_ROLE_MASK}.
+ * Объект неизменяемый, проверка ролей выполняется одной битовой операцией
  */
 @Getter
-@Builder
 public class JwtUserData {
 
+  /**
+   * Название утверждения jwt с битовой маской ролей пользователя
+   */
+  public static final String CLAIM_ROLE_MASK = "rol";
+
+  /**
+   * Названия ролей в порядке битов маски ролей. Порядок входит в формат токена, новые роли добавляются только в конец
+   */
+  private static final List<String> ROLE_NAME_LIST = List.of(
+      RDB.ROLE_USER.getName(), RDB.ROLE_ADMIN.getName(), RDB.ROLE_SUPER_ADMIN.getName());
+
+  /**
+   * Шаблон строки данных авторизации в jwt прежнего формата
+   */
+  private static final Pattern PATTERN_AUTH = Pattern.compile(String.format(
+      "^id=(?<id>[0-9a-zA-Z]{%s})roles=(?<roles>[A-Z_,]+)$", R.ID_LENGTH));
+
   /**
    * ID пользователя
    */
-  private String idUser;
+  private final String idUser;
 
   /**
-   * Список названий ролей пользователя
+   * Битовая маска ролей пользователя
    */
-  private List<String> nameRoleList;
+  private final int roleMask;
+
+  /**
+   * Момент выпуска токена в миллисекундах, 0 - если неизвестен
+   */
+  private final long issuedAtMillis;
+
+  /**
+   * Конструктор для создания данных пользователя по названиям ролей.
+   * Роли, отсутствующие в формате токена, не учитываются
+   * @param idUser ID пользователя
+   * @param nameRoleList список названий ролей пользователя
+   * @param issuedAtMillis момент выпуска токена в миллисекундах, 0 - если неизвестен
+   */
+  @Builder
+  private JwtUserData(String idUser, List<String> nameRoleList, long issuedAtMillis) {
+    this(idUser, roleMaskOfNames(nameRoleList), issuedAtMillis);
+  }
+
+  /**
+   * Конструктор для создания данных пользователя по маске ролей
+   * @param idUser ID пользователя
+   * @param roleMask битовая маска ролей пользователя
+   * @param issuedAtMillis момент выпуска токена в миллисекундах, 0 - если неизвестен
+   */
+  private JwtUserData(String idUser, int roleMask, long issuedAtMillis) {
+    this.idUser = idUser;
+    this.roleMask = roleMask;
+    this.issuedAtMillis = issuedAtMillis;
+  }
+
+  /**
+   * Возвращает список названий ролей пользователя
+   * @return список названий ролей
+   */
+  public List<String> getNameRoleList() {
+
+    List<String> nameRoleList = new ArrayList<>(ROLE_NAME_LIST.size());
+    for (int i = 0; i < ROLE_NAME_LIST.size(); i++) {
+      if ((roleMask & (1 << i)) != 0) {
+        nameRoleList.add(ROLE_NAME_LIST.get(i));
+      }
+    }
+
+    return List.copyOf(nameRoleList);
+  }
+
+  /**
+   * Проверяет наличие у пользователя хотя бы одной роли из маски ролей
+   * @param requiredRoleMask битовая маска ролей, полученная {@link #roleMaskOf(List)}
+   * @return true, если пользовательские данные содержат роль
+   */
+  public boolean hasAnyRole(int requiredRoleMask) {
+    return (roleMask & requiredRoleMask) != 0;
+  }
 
   /**
    * Проверяет наличие роли в пользовательских данных из списка ролей
@@ -32,29 +107,62 @@ public class JwtUserData {
    * @return true, если пользовательские данные содержат роль
    */
   public boolean hasRole(List<RoleEntity> roleEntityList) {
+    return hasAnyRole(roleMaskOf(roleEntityList));
+  }
 
-    boolean containsRole = false;
+  /**
+   * Возвращает битовую маску ролей из списка моделей роли
+   * @param roleEntityList список моделей роли
+   * @return битовая маска ролей
+   */
+  public static int roleMaskOf(List<RoleEntity> roleEntityList) {
 
+    int roleMask = 0;
     for (RoleEntity roleEntity : roleEntityList) {
-      containsRole = nameRoleList.contains(roleEntity.getName());
-      if (containsRole) {
-        break;
-      }
+      roleMask |= roleBit(roleEntity.getName());
+    }
+
+    return roleMask;
+  }
+
+  /**
+   * Преобразует утверждения проверенного jwt в объект данных авторизации.
+   * Токены прежнего формата, без маски ролей, разбираются по subject
+   * @param claims утверждения jwt
+   * @return данные авторизации, {@code null} если утверждения не содержат данных авторизации
+   */
+  public static JwtUserData fromClaims(Claims claims) {
+
+    long issuedAtMillis = claims.getIssuedAt() == null ? 0 : claims.getIssuedAt().getTime();
+
+    Integer roleMask = claims.get(CLAIM_ROLE_MASK, Integer.class);
+    if (roleMask == null) {
+      JwtUserData legacyUserData = fromString(claims.getSubject());
+      return legacyUserData == null
+          ? null
+          : new JwtUserData(legacyUserData.idUser, legacyUserData.roleMask, issuedAtMillis);
+    }
+
+    String idUser = claims.getSubject();
+    if (idUser == null || idUser.length() != R.ID_LENGTH) {
+      return null;
     }
 
-    return containsRole;
+    return new JwtUserData(idUser, roleMask, issuedAtMillis);
   }
 
   /**
-   * Преобразует строку в объект данных авторизации в jwt
+   * Преобразует строку прежнего формата "id=...roles=..." в объект данных авторизации в jwt
    * @param content строка для преобразования
    * @return данные авторизации, {@code null} если не удалось преобразовать строку в объект
    */
   public static JwtUserData fromString(String content) {
 
-    Pattern patternAuth = Pattern.compile(String.format(
-        "^id=(?<id>[0-9a-zA-Z]{%s})roles=(?<roles>[A-Z_,]+)$", R.ID_LENGTH));
-    Matcher matcherData = patternAuth.matcher(content);
+    if (content == null) {
+      return null;
+    }
+
+    Matcher matcherData = PATTERN_AUTH.matcher(content);
 
     if (!matcherData.matches()) {
       return null;
@@ -70,6 +178,34 @@ public class JwtUserData {
   @Override
   public String toString() {
 
-    return String.format("id=%sroles=%s", idUser, String.join(",", nameRoleList));
+    return String.format("id=%sroles=%s", idUser, String.join(",", getNameRoleList()));
+  }
+
+  /**
+   * Возвращает битовую маску ролей из списка названий ролей
+   * @param nameRoleList список названий ролей
+   * @return битовая маска ролей
+   */
+  private static int roleMaskOfNames(List<String> nameRoleList) {
+
+    int roleMask = 0;
+    if (nameRoleList != null) {
+      for (String nameRole : nameRoleList) {
+        roleMask |= roleBit(nameRole);
+      }
+    }
+
+    return roleMask;
+  }
+
+  /**
+   * Возвращает бит роли в маске ролей
+   * @param nameRole название роли
+   * @return бит роли или 0, если роль отсутствует в формате токена
+   */
+  private static int roleBit(String nameRole) {
+
+    int index = ROLE_NAME_LIST.indexOf(nameRole);
+    return index < 0 ? 0 : 1 << index;
   }
 }
@@ -9,7 +9,10 @@ import com.example.familybenefits.dto.repositories.UserRepository;
 import com.example.familybenefits.exceptions.DateTimeException;
 import com.example.familybenefits.exceptions.NotFoundException;
 import com.example.familybenefits.part_auth.HttpHeadersSupport;
-import com.example.familybenefits.part_auth.MailSenderProvider;
+import com.example.familybenefits.part_auth.JwtRenewalCoalescer;
+import com.example.familybenefits.part_auth.JwtRevocationRegistry;
+import com.example.familybenefits.part_auth.MailOutboxSender;
+import com.example.familybenefits.part_auth.RefreshTokenRevocationChannel;
 import com.example.familybenefits.part_auth.models.AuthData;
 import com.example.familybenefits.part_auth.models.JwtUserData;
 import com.example.familybenefits.part_auth.models.LoginResponse;
@@ -19,7 +22,7 @@ import com.example.familybenefits.security.DBSecuritySupport;
 import io.jsonwebtoken.ExpiredJwtException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.MailException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.servlet.http.HttpServletRequest;
@@ -57,6 +60,29 @@ public class AuthServiceFB implements AuthService {
    */
   private final TokenCodeService tokenCodeService;
 
+  /**
+   * Канал отзыва токенов восстановления
+   */
+  private final RefreshTokenRevocationChannel refreshTokenRevocationChannel;
+  /**
+   * Очередь исходящих сообщений
+   */
+  private final MailOutboxSender mailOutboxSender;
+  /**
+   * Моменты отзыва токенов доступа (jwt)
+   */
+  private final JwtRevocationRegistry jwtRevocationRegistry;
+  /**
+   * Объединение одновременных обновлений токенов
+   */
+  private final JwtRenewalCoalescer jwtRenewalCoalescer;
+
+  /**
+   * Режим проверки без токена восстановления: действительный неистекший и неотозванный jwt принимается без запроса к бд,
+   * токен восстановления проверяется только для истекшего или отозванного jwt
+   */
+  private final boolean statelessJwt;
+
   /**
    * Конструктор для инициализации интерфейсов репозиториев и сервисов
    * @param userRepository репозиторий, работающий с моделью таблицы "user"
@@ -64,28 +90,42 @@ public class AuthServiceFB implements AuthService {
    * @param refreshTokenRepository репозиторий, работающий с моделью таблицы "refresh_token"
    * @param loginCodeRepository репозиторий, работающий с моделью таблицы "login_code"
    * @param tokenCodeService интерфейс сервиса для работы с токеном доступа (в формате jwt) и кодом для входа
+   * @param refreshTokenRevocationChannel канал отзыва токенов восстановления
+   * @param mailOutboxSender очередь исходящих сообщений
+   * @param jwtRevocationRegistry моменты отзыва токенов доступа (jwt)
+   * @param jwtRenewalCoalescer объединение одновременных обновлений токенов
+   * @param statelessJwt режим проверки действительного jwt без токена восстановления
    */
   @Autowired
   public AuthServiceFB(UserRepository userRepository,
                        RoleRepository roleRepository,
                        RefreshTokenRepository refreshTokenRepository,
                        LoginCodeRepository loginCodeRepository,
-                       TokenCodeService tokenCodeService) {
+                       TokenCodeService tokenCodeService,
+                       RefreshTokenRevocationChannel refreshTokenRevocationChannel,
+                       MailOutboxSender mailOutboxSender,
+                       JwtRevocationRegistry jwtRevocationRegistry,
+                       JwtRenewalCoalescer jwtRenewalCoalescer,
+                       @Value("${family-benefits.auth.stateless-jwt:false}") boolean statelessJwt) {
     this.userRepository = userRepository;
     this.roleRepository = roleRepository;
     this.refreshTokenRepository = refreshTokenRepository;
     this.loginCodeRepository = loginCodeRepository;
     this.tokenCodeService = tokenCodeService;
+    this.refreshTokenRevocationChannel = refreshTokenRevocationChannel;
+    this.mailOutboxSender = mailOutboxSender;
+    this.jwtRevocationRegistry = jwtRevocationRegistry;
+    this.jwtRenewalCoalescer = jwtRenewalCoalescer;
+    this.statelessJwt = statelessJwt;
   }
 
   /**
-   * Отправляет на почту пользователю код для входа в систему
+   * Ставит в очередь отправки на почту пользователю код для входа в систему
    * @param email почта пользователя
    * @throws NotFoundException если пользователь с данным email не найден
-   * @throws MailException если не удалось отправить сообщение
    */
   @Override
-  public void preLogin(String email) throws NotFoundException, MailException {
+  public void preLogin(String email) throws NotFoundException {
 
     // Получение пользователя по его email, если пользователь существует
     String preparedEmail = DBSecuritySupport.preparePostgreSQLString(email);
@@ -95,8 +135,8 @@ public class AuthServiceFB implements AuthService {
     // Получение сгенерированного кода для входа
     int code = tokenCodeService.generateAndSaveLoginCode(userEntityFromRequest.getId());
 
-    // Отправка кода на почту
-    MailSenderProvider.sendLoginCode(email, userEntityFromRequest.getName(), code);
+    // Добавление сообщения с кодом в очередь отправки на почту
+    mailOutboxSender.enqueueLoginCode(userEntityFromRequest.getId(), email, userEntityFromRequest.getName(), code);
   }
 
   /**
@@ -140,6 +180,7 @@ public class AuthServiceFB implements AuthService {
   public void logout(String idUser) {
 
     refreshTokenRepository.deleteById(idUser);
+    refreshTokenRevocationChannel.revokeUserSessions(idUser);
   }
 
   /**
@@ -153,6 +194,8 @@ public class AuthServiceFB implements AuthService {
    *     Возвращаются данные пользователя и http ответ с обновленными токенами.
    *   </li>
    * </ol>
+   * В режиме без токена восстановления действительный неистекший и неотозванный jwt принимается без проверки
+   * токена восстановления, остальные запросы проверяются как описано выше
    * @param request http запрос, который необходимо проверить
    * @param response http ответ
    * @return Объект с данными пользователя.
@@ -168,11 +211,29 @@ public class AuthServiceFB implements AuthService {
     String requestJwt = HttpHeadersSupport.getJwt(request);
     String requestRefreshToken = HttpHeadersSupport.getRefreshToken(request);
 
+    // Проверка только токена jwt. Истекший, отозванный или некорректный токен проверяется вместе с токеном восстановления
+    if (statelessJwt && requestJwt != null) {
+      try {
+        JwtUserData userData = tokenCodeService.checkJwt(requestJwt);
+        if (!jwtRevocationRegistry.isRevoked(userData.getIdUser(), userData.getIssuedAtMillis())) {
+          return Optional.of(userData);
+        }
+      } catch (RuntimeException e) {
+        // Токен jwt проверяется повторно вместе с токеном восстановления
+      }
+    }
+
     // Проверка токена восстановления
     String idUser;
     try {
       idUser = tokenCodeService.checkRefreshToken(requestRefreshToken);
     } catch (NotFoundException | DateTimeException e) {
+      // Токен восстановления мог быть только что заменен обновлением токенов другого запроса с той же парой токенов
+      Optional<AuthData> recentAuthData = jwtRenewalCoalescer.findRecent(requestJwt, requestRefreshToken);
+      if (recentAuthData.isPresent()) {
+        HttpHeadersSupport.setTokens(response, recentAuthData.get());
+        return Optional.of(recentAuthData.get().getJwtData().getUserData());
+      }
       log.warn("{} {} \"{}\": Refresh token's exceptions. {}", requestAddress, requestMethod, requestURI, e.getMessage());
       return Optional.empty();
     }
@@ -184,8 +245,9 @@ public class AuthServiceFB implements AuthService {
 
     } catch (ExpiredJwtException e) {
       // Токен jwt истек, но корректный.
-      // Запрос новых токенов и сохранение в бд токена восстановления
-      AuthData newAuthData = tokenCodeService.generateAndSaveAuthTokens(idUser);
+      // Запрос новых токенов и сохранение в бд токена восстановления, одно на все одновременные запросы с этими токенами
+      AuthData newAuthData = jwtRenewalCoalescer.renew(
+          requestJwt, requestRefreshToken, idUser, () -> tokenCodeService.generateAndSaveAuthTokens(idUser));
       userData = newAuthData.getJwtData().getUserData();
       // Установка токенов в заголовки http ответа
       HttpHeadersSupport.setTokens(response, newAuthData);
@@ -195,6 +257,7 @@ public class AuthServiceFB implements AuthService {
       // Удаление токена восстановления.
       HttpHeadersSupport.removeRefreshToken(response);
       refreshTokenRepository.deleteByToken(requestRefreshToken);
+      refreshTokenRevocationChannel.revokeUserSessions(idUser);
       log.warn("{} {} \"{}\": Jwt token's exceptions. {}", requestAddress, requestMethod, requestURI, e.getMessage());
       return Optional.empty();
     }
@@ -8,6 +8,9 @@ import com.example.familybenefits.dto.repositories.RefreshTokenRepository;
 import com.example.familybenefits.dto.repositories.RoleRepository;
 import com.example.familybenefits.exceptions.DateTimeException;
 import com.example.familybenefits.exceptions.NotFoundException;
+import com.example.familybenefits.part_auth.JwtCache;
+import com.example.familybenefits.part_auth.RefreshTokenCache;
+import com.example.familybenefits.part_auth.RefreshTokenRevocationChannel;
 import com.example.familybenefits.part_auth.models.AuthData;
 import com.example.familybenefits.part_auth.models.JwtData;
 import com.example.familybenefits.part_auth.models.JwtUserData;
@@ -16,15 +19,22 @@ import com.example.familybenefits.resources.R;
 import com.example.familybenefits.security.DBSecuritySupport;
 import com.example.familybenefits.security.DateTimeSupport;
 import com.example.familybenefits.security.RandomValue;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.impl.TextCodec;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.spec.SecretKeySpec;
+import java.security.Key;
 import java.time.ZoneOffset;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -34,6 +44,16 @@ import java.util.stream.Collectors;
 @Service
 public class TokenCodeServiceFB implements TokenCodeService {
 
+  /**
+   * Ключ подписи токенов доступа (jwt), полученный из секрета один раз
+   */
+  private static final Key JWT_KEY = new SecretKeySpec(
+      TextCodec.BASE64.decode(R.JWT_SECRET), SignatureAlgorithm.HS512.getJcaName());
+  /**
+   * Настроенный разборщик токенов доступа (jwt). После настройки не изменяется и используется всеми потоками
+   */
+  private static final JwtParser JWT_PARSER = Jwts.parser().setSigningKey(JWT_KEY);
+
   /**
    * Репозиторий, работающий с моделью таблицы "access_token"
    */
@@ -47,22 +67,45 @@ public class TokenCodeServiceFB implements TokenCodeService {
    */
   private final RoleRepository roleRepository;
 
+  /**
+   * Кэш токенов восстановления
+   */
+  private final RefreshTokenCache refreshTokenCache;
+  /**
+   * Канал отзыва токенов восстановления
+   */
+  private final RefreshTokenRevocationChannel refreshTokenRevocationChannel;
+  /**
+   * Кэш проверенных токенов доступа (jwt)
+   */
+  private final JwtCache jwtCache;
+
   /**
    * Конструктор для инициализации сервиса
    * @param refreshTokenRepository репозиторий, работающий с моделью таблицы "access_token"
    * @param roleRepository репозиторий, работающий с моделью таблицы "role"
+   * @param refreshTokenCache кэш токенов восстановления
+   * @param refreshTokenRevocationChannel канал отзыва токенов восстановления
+   * @param jwtCache кэш проверенных токенов доступа (jwt)
    */
   @Autowired
   public TokenCodeServiceFB(RefreshTokenRepository refreshTokenRepository,
                             LoginCodeRepository loginCodeRepository,
-                            RoleRepository roleRepository) {
+                            RoleRepository roleRepository,
+                            RefreshTokenCache refreshTokenCache,
+                            RefreshTokenRevocationChannel refreshTokenRevocationChannel,
+                            JwtCache jwtCache) {
     this.refreshTokenRepository = refreshTokenRepository;
     this.loginCodeRepository = loginCodeRepository;
     this.roleRepository = roleRepository;
+    this.refreshTokenCache = refreshTokenCache;
+    this.refreshTokenRevocationChannel = refreshTokenRevocationChannel;
+    this.jwtCache = jwtCache;
   }
 
   /**
-   * Извлекает данные пользователя из строки, формата токена jwt
+   * Извлекает данные пользователя из строки, формата токена jwt.
+   * Данные уже проверенного и не истекшего токена берутся из кэша без проверки подписи
    * @param jwt токен пользователя, jwt
    * @return данные пользователя
    * @throws RuntimeException если не удалось извлечь данные пользователя из строки
@@ -70,9 +113,23 @@ public class TokenCodeServiceFB implements TokenCodeService {
   @Override
   public JwtUserData checkJwt(String jwt) throws RuntimeException {
 
-    return JwtUserData.fromString(
-        Jwts.parser().setSigningKey(R.JWT_SECRET)
-            .parseClaimsJws(jwt).getBody().getSubject());
+    Optional<JwtUserData> userDataFromCache = jwtCache.get(jwt);
+    if (userDataFromCache.isPresent()) {
+      return userDataFromCache.get();
+    }
+
+    // Проверка подписи и срока действия токена, истекший токен приводит к ExpiredJwtException
+    Claims claims = JWT_PARSER.parseClaimsJws(jwt).getBody();
+    JwtUserData userData = JwtUserData.fromClaims(claims);
+    if (userData == null) {
+      throw new MalformedJwtException("Jwt does not contain user data");
+    }
+
+    if (claims.getExpiration() != null) {
+      jwtCache.put(jwt, userData, claims.getExpiration().getTime());
+    }
+
+    return userData;
   }
 
   /**
@@ -85,10 +142,21 @@ public class TokenCodeServiceFB implements TokenCodeService {
   @Override
   public String checkRefreshToken(String refreshToken) throws NotFoundException, DateTimeException {
 
-    // Получение модели токена восстановления из бд
-    String prepareRefreshToken = DBSecuritySupport.preparePostgreSQLString(refreshToken);
-    RefreshTokenEntity refreshTokenEntityFromRequest = refreshTokenRepository.findByToken(prepareRefreshToken)
-        .orElseThrow(() -> new NotFoundException(String.format("Refresh token %s not found", refreshToken)));
+    // Получение модели токена восстановления из кэша, иначе из бд с сохранением в кэш
+    Optional<RefreshTokenEntity> refreshTokenEntityFromCache = refreshTokenCache.get(refreshToken);
+    RefreshTokenEntity refreshTokenEntityFromRequest;
+
+    if (refreshTokenEntityFromCache.isPresent()) {
+      refreshTokenEntityFromRequest = refreshTokenEntityFromCache.get();
+
+    } else {
+      // Токен, отозванный во время чтения из бд, не добавляется в кэш
+      long readGeneration = refreshTokenCache.getGeneration();
+      String prepareRefreshToken = DBSecuritySupport.preparePostgreSQLString(refreshToken);
+      refreshTokenEntityFromRequest = refreshTokenRepository.findByToken(prepareRefreshToken)
+          .orElseThrow(() -> new NotFoundException(String.format("Refresh token %s not found", refreshToken)));
+      refreshTokenCache.put(refreshTokenEntityFromRequest, readGeneration);
+    }
 
     // Проверка токена восстановления на свежесть
     DateTimeSupport.checkDateTimeAfterNow(refreshTokenEntityFromRequest.getDateExpiration());
@@ -170,6 +238,8 @@ public class TokenCodeServiceFB implements TokenCodeService {
    */
   private JwtData generateJwt(String id, List<RoleEntity> roleEntityList) {
 
+    // Моменты в токене хранятся с точностью до секунды
+    long issuedAtMillis = System.currentTimeMillis() / 1000 * 1000;
     JwtUserData userData = JwtUserData
         .builder()
         .idUser(id)
@@ -177,16 +247,24 @@ public class TokenCodeServiceFB implements TokenCodeService {
                           .stream()
                           .map(RoleEntity::getName)
                           .collect(Collectors.toList()))
+        .issuedAtMillis(issuedAtMillis)
         .build();
 
+    Date expiration = Date.from(DateTimeSupport.getExpiration(R.JWT_EXPIRATION_SEC).toInstant(ZoneOffset.UTC));
+    String tokenJwt = Jwts.builder()
+        .setSubject(userData.getIdUser())
+        .claim(JwtUserData.CLAIM_ROLE_MASK, userData.getRoleMask())
+        .setIssuedAt(new Date(issuedAtMillis))
+        .setExpiration(expiration)
+        .signWith(SignatureAlgorithm.HS512, JWT_KEY)
+        .compact();
+
+    // Новый токен сразу добавляется в кэш, первый запрос с ним не проверяет подпись
+    jwtCache.put(tokenJwt, userData, expiration.getTime() / 1000 * 1000);
+
     return JwtData
         .builder()
-        .tokenJwt(Jwts.builder()
-                      .setSubject(userData.toString())
-                      .setExpiration(Date.from(
-                          DateTimeSupport.getExpiration(R.JWT_EXPIRATION_SEC).toInstant(ZoneOffset.UTC)))
-                      .signWith(SignatureAlgorithm.HS512, R.JWT_SECRET)
-                      .compact())
+        .tokenJwt(tokenJwt)
         .userData(userData)
         .build();
   }
@@ -200,13 +278,17 @@ public class TokenCodeServiceFB implements TokenCodeService {
 
     String refreshToken = RandomValue.randomString(R.REFRESH_LENGTH);
 
-    // Сохранение токена восстановления
-    refreshTokenRepository.save(RefreshTokenEntity
-                                    .builder()
-                                    .idUser(idUser)
-                                    .token(refreshToken)
-                                    .dateExpiration(DateTimeSupport.getExpiration(R.REFRESH_EXPIRATION_SEC))
-                                    .build());
+    // Сохранение токена восстановления, заменяющего предыдущий токен пользователя во всех экземплярах
+    RefreshTokenEntity refreshTokenEntity = RefreshTokenEntity
+        .builder()
+        .idUser(idUser)
+        .token(refreshToken)
+        .dateExpiration(DateTimeSupport.getExpiration(R.REFRESH_EXPIRATION_SEC))
+        .build();
+    refreshTokenRepository.save(refreshTokenEntity);
+    // Уведомление только после сохранения: иначе другие экземпляры могут закэшировать прежний токен из бд
+    refreshTokenRevocationChannel.revokeUser(idUser);
+    refreshTokenCache.put(refreshTokenEntity);
     log.info("DB. Refresh token \"{}\" created for the user with id \"{}\"", refreshToken, idUser);
 
     return refreshToken;
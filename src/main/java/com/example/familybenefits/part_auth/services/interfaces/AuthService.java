@@ -4,7 +4,6 @@ import com.example.familybenefits.exceptions.DateTimeException;
 import com.example.familybenefits.exceptions.NotFoundException;
 import com.example.familybenefits.part_auth.models.JwtUserData;
 import com.example.familybenefits.part_auth.models.LoginResponse;
-import org.springframework.mail.MailException;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -16,12 +15,11 @@ import java.util.Optional;
 public interface AuthService {
 
   /**
-   * Отправляет на почту пользователю код для входа в систему
+   * Ставит в очередь отправки на почту пользователю код для входа в систему
    * @param email почта пользователя
    * @throws NotFoundException если пользователь с данным email не найден
-   * @throws MailException если не удалось отправить сообщение
    */
-  void preLogin(String email) throws NotFoundException, MailException;
+  void preLogin(String email) throws NotFoundException;
 
   /**
    * Вход в систему по почте и коду для входа
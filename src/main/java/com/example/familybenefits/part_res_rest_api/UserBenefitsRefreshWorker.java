@@ -0,0 +1,177 @@
+package com.example.familybenefits.part_res_rest_api;
+
+import com.example.familybenefits.dto.repositories.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Фоновый подбор пособий пользователей, отмеченных несвежими после изменения пособий.
+ * Потоки обработчика перестраивают несвежих пользователей пакетами, начиная с недавно активных,
+ * поэтому запрос пособий пользователя после изменения каталога, как правило, читает готовый результат
+ */
+@Slf4j
+@Component
+public class UserBenefitsRefreshWorker {
+
+  /**
+   * Количество потоков обработчика
+   */
+  private static final int WORKER_THREADS = 2;
+  /**
+   * Максимальное количество пользователей в пакете, перестраиваемом одним запросом
+   */
+  private static final int BATCH_SIZE = 200;
+  /**
+   * Период проверки очереди каждым потоком, в миллисекундах
+   */
+  private static final long POLL_INTERVAL_MS = 1_000;
+  /**
+   * Время ожидания завершения текущего пакета при остановке, в секундах
+   */
+  private static final long SHUTDOWN_TIMEOUT_SEC = 10;
+
+  /**
+   * Репозиторий, работающий с моделью таблицы "user"
+   */
+  private final UserRepository userRepository;
+
+  /**
+   * Количество перестроенных пользователей
+   */
+  private final LongAdder refreshedUserCount = new LongAdder();
+  /**
+   * Количество перестроенных пакетов
+   */
+  private final LongAdder batchCount = new LongAdder();
+  /**
+   * Суммарное время перестроения пакетов, в наносекундах
+   */
+  private final LongAdder refreshNanosTotal = new LongAdder();
+  /**
+   * Максимальное время перестроения пакета, в наносекундах
+   */
+  private final LongAccumulator refreshNanosMax = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Пул потоков обработчика
+   */
+  private ScheduledExecutorService executor;
+
+  /**
+   * Конструктор для инициализации интерфейса репозитория
+   * @param userRepository репозиторий, работающий с моделью таблицы "user"
+   */
+  @Autowired
+  public UserBenefitsRefreshWorker(UserRepository userRepository) {
+    this.userRepository = userRepository;
+  }
+
+  /**
+   * Запускает потоки обработчика
+   */
+  @PostConstruct
+  public void start() {
+
+    AtomicInteger threadNumber = new AtomicInteger();
+    executor = Executors.newScheduledThreadPool(WORKER_THREADS, runnable -> {
+      Thread thread = new Thread(runnable, "benefits-refresh-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    for (int i = 0; i < WORKER_THREADS; i++) {
+      executor.scheduleWithFixedDelay(this::drain, 0, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Останавливает потоки обработчика. Неперестроенные пользователи остаются в очереди
+   */
+  @PreDestroy
+  public void stop() throws InterruptedException {
+
+    executor.shutdown();
+    if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Перестраивает несвежих пользователей пакетами, пока очередь не опустеет
+   */
+  void drain() {
+
+    try {
+      int refreshed;
+      do {
+        long start = System.nanoTime();
+        refreshed = userRepository.refreshStaleBenefits(BATCH_SIZE);
+
+        if (refreshed > 0) {
+          long nanos = System.nanoTime() - start;
+          refreshedUserCount.add(refreshed);
+          batchCount.increment();
+          refreshNanosTotal.add(nanos);
+          refreshNanosMax.accumulate(nanos);
+          log.info("DB. Benefits of {} users were refreshed in {} ms", refreshed, nanos / 1_000_000);
+        }
+      } while (refreshed == BATCH_SIZE && !Thread.currentThread().isInterrupted());
+
+    } catch (RuntimeException e) {
+      // Исключение отменило бы периодическую проверку потока
+      log.error("Benefits refresh. Refresh failed: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Возвращает размер очереди: количество пользователей, пособия которых не свежие. Выполняет запрос к бд
+   * @return количество несвежих пользователей
+   */
+  public long getQueueDepth() {
+    return userRepository.countStaleBenefits();
+  }
+
+  /**
+   * Возвращает количество перестроенных пользователей
+   * @return количество перестроенных пользователей
+   */
+  public long getRefreshedUserCount() {
+    return refreshedUserCount.sum();
+  }
+
+  /**
+   * Возвращает количество перестроенных пакетов
+   * @return количество перестроенных пакетов
+   */
+  public long getBatchCount() {
+    return batchCount.sum();
+  }
+
+  /**
+   * Возвращает пропускную способность: количество пользователей, перестраиваемых за секунду работы обработчика
+   * @return количество пользователей в секунду
+   */
+  public double getUsersPerSecond() {
+
+    long nanos = refreshNanosTotal.sum();
+    return nanos == 0 ? 0 : refreshedUserCount.sum() * 1_000_000_000.0 / nanos;
+  }
+
+  /**
+   * Возвращает максимальное время перестроения пакета
+   * @return максимальное время в миллисекундах
+   */
+  public double getMaxBatchMillis() {
+    return refreshNanosMax.get() / 1_000_000.0;
+  }
+}
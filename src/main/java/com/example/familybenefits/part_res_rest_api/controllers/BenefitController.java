@@ -8,12 +8,17 @@ import com.example.familybenefits.part_res_rest_api.api_model.benefit.BenefitInf
 import com.example.familybenefits.part_res_rest_api.api_model.benefit.BenefitInitData;
 import com.example.familybenefits.part_res_rest_api.api_model.benefit.BenefitSave;
 import com.example.familybenefits.part_res_rest_api.api_model.common.ObjectShortInfo;
+import com.example.familybenefits.part_res_rest_api.models.KeysetPage;
+import com.example.familybenefits.part_res_rest_api.models.ReferenceDataSnapshot;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.BenefitService;
+import com.example.familybenefits.part_res_rest_api.services.interfaces.ReferenceDataService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -27,14 +32,28 @@ public class BenefitController {
    * Интерфейс сервиса, управляющего объектом "пособие"
    */
   private final BenefitService benefitService;
+  /**
+   * Интерфейс сервиса, хранящего снимок справочных данных
+   */
+  private final ReferenceDataService referenceDataService;
+  /**
+   * Преобразователь объектов в JSON для ответов, записываемых потоком
+   */
+  private final ObjectMapper objectMapper;
 
   /**
-   * Конструктор для инициализации интерфейса сервиса
+   * Конструктор для инициализации интерфейсов сервисов и преобразователя JSON
    * @param benefitService интерфейс сервиса, управляющего объектом "пособие"
+   * @param referenceDataService интерфейс сервиса, хранящего снимок справочных данных
+   * @param objectMapper преобразователь объектов в JSON
    */
   @Autowired
-  public BenefitController(BenefitService benefitService) {
+  public BenefitController(BenefitService benefitService,
+                           ReferenceDataService referenceDataService,
+                           ObjectMapper objectMapper) {
     this.benefitService = benefitService;
+    this.referenceDataService = referenceDataService;
+    this.objectMapper = objectMapper;
   }
 
   /**
@@ -46,7 +65,9 @@ public class BenefitController {
    * @param idCity ID города
    * @param idCriterion ID критерия
    * @param idInstitution ID учреждения
-   * @return список пособий и код ответа
+   * @param after ID последнего объекта предыдущей страницы, без параметра - с начала списка
+   * @param limit количество объектов на странице, не больше {@link KeysetPage#MAX_LIMIT}. Без параметра - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница пособий и код ответа
    */
   @GetMapping(
       value = "/api/benefits",
@@ -55,10 +76,63 @@ public class BenefitController {
   public ResponseEntity<List<ObjectShortInfo>> readAllFilter(@RequestParam(name = "name", required = false) String name,
                                                              @RequestParam(name = "idCity", required = false) String idCity,
                                                              @RequestParam(name = "idCriterion", required = false) String idCriterion,
-                                                             @RequestParam(name = "idInstitution", required = false) String idInstitution) {
+                                                             @RequestParam(name = "idInstitution", required = false) String idInstitution,
+                                                             @RequestParam(name = "after", required = false) String after,
+                                                             @RequestParam(name = "limit", required = false) Integer limit) {
 
     return ResponseEntity.status(HttpStatus.CREATED)
-        .body(benefitService.readAllFilter(name, idCity, idCriterion, idInstitution));
+        .body(benefitService.readAllFilter(name, idCity, idCriterion, idInstitution, after, limit));
+  }
+
+  /**
+   * Обрабатывает GET запрос "/api/benefits?stream=true" на получение списка пособий потоком.
+   * Фильтр такой же, как у {@link #readAllFilter}, количество объектов по умолчанию не ограничено.
+   * Элементы JSON массива записываются в ответ по мере чтения из бд, список не создается.
+   * Выполнить запрос может любой клиент
+   * @param name название пособия
+   * @param idCity ID города
+   * @param idCriterion ID критерия
+   * @param idInstitution ID учреждения
+   * @param after ID последнего объекта предыдущей страницы, без параметра - с начала списка
+   * @param limit максимальное количество объектов, без параметра - без ограничения
+   * @return краткие информации о пособиях, записываемые потоком, и код ответа
+   */
+  @GetMapping(
+      value = "/api/benefits",
+      params = "stream=true",
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamAllFilter(@RequestParam(name = "name", required = false) String name,
+                                                               @RequestParam(name = "idCity", required = false) String idCity,
+                                                               @RequestParam(name = "idCriterion", required = false) String idCriterion,
+                                                               @RequestParam(name = "idInstitution", required = false) String idInstitution,
+                                                               @RequestParam(name = "after", required = false) String after,
+                                                               @RequestParam(name = "limit", required = false) Integer limit) {
+
+    return ResponseEntity.status(HttpStatus.OK)
+        .body(ShortInfoStreamingBody.of(objectMapper, consumer ->
+            benefitService.writeAllFilter(name, idCity, idCriterion, idInstitution, after, limit, consumer)));
+  }
+
+  /**
+   * Обрабатывает GET запрос "/api/benefits/search" на поиск пособий по тексту.
+   * Найдены пособия, у которых название или информация содержат слова запроса, или название содержит текст запроса.
+   * Результат упорядочен по убыванию релевантности, ищутся только пособия из списка "/api/benefits".
+   * Выполнить запрос может любой клиент
+   * @param text текст запроса: слова, фразы в кавычках, исключение словом с минусом
+   * @param limit количество объектов на странице, по умолчанию {@link KeysetPage#DEFAULT_LIMIT}, не больше {@link KeysetPage#MAX_LIMIT}
+   * @param offset количество пропускаемых объектов, не больше {@link KeysetPage#MAX_OFFSET}
+   * @return страница найденных пособий и код ответа
+   */
+  @GetMapping(
+      value = "/api/benefits/search",
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public ResponseEntity<List<ObjectShortInfo>> search(@RequestParam(name = "q", required = false) String text,
+                                                      @RequestParam(name = "limit", required = false) Integer limit,
+                                                      @RequestParam(name = "offset", required = false) Integer offset) {
+
+    return ResponseEntity.status(HttpStatus.OK)
+        .body(benefitService.search(text, limit, offset));
   }
 
   /**
@@ -136,16 +210,19 @@ public class BenefitController {
    * Обрабатывает GET запрос "/api/benefits/partial" на получение списки пособий,
    * в которых нет городов, учреждений или критерий.
    * Для выполнения запроса клиент должен быть аутентифицирован и иметь роль "ROLE_ADMIN"
-   * @return список пособий, если запрос выполнен успешно, и код ответа
+   * @param after ID последнего объекта предыдущей страницы, без параметра - с начала списка
+   * @param limit количество объектов на странице, не больше {@link KeysetPage#MAX_LIMIT}. Без параметра - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница пособий, если запрос выполнен успешно, и код ответа
    */
   @GetMapping(
       value = "/api/benefits/partial",
       produces = MediaType.APPLICATION_JSON_VALUE)
   @ResponseBody
-  public ResponseEntity<List<ObjectShortInfo>> readAllPartial() {
+  public ResponseEntity<List<ObjectShortInfo>> readAllPartial(@RequestParam(name = "after", required = false) String after,
+                                                              @RequestParam(name = "limit", required = false) Integer limit) {
 
     return ResponseEntity.status(HttpStatus.OK)
-        .body(benefitService.readAllPartial());
+        .body(benefitService.readAllPartial(after, limit));
   }
 
   /**
@@ -160,8 +237,11 @@ public class BenefitController {
   @ResponseBody
   public ResponseEntity<BenefitInitData> getInitData() {
 
+    // Если ETag снимка совпадает с If-None-Match запроса, ответ формируется с кодом 304 без тела
+    ReferenceDataSnapshot snapshot = referenceDataService.getSnapshot();
     return ResponseEntity.status(HttpStatus.OK)
-        .body(benefitService.getInitData());
+        .eTag(snapshot.getETag())
+        .body(snapshot.getBenefitInitData());
   }
 
   /**
@@ -6,12 +6,15 @@ import com.example.familybenefits.exceptions.NotFoundException;
 import com.example.familybenefits.part_res_rest_api.api_model.city.CityInfo;
 import com.example.familybenefits.part_res_rest_api.api_model.city.CitySave;
 import com.example.familybenefits.part_res_rest_api.api_model.common.ObjectShortInfo;
+import com.example.familybenefits.part_res_rest_api.models.KeysetPage;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.CityService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -25,14 +28,21 @@ public class CityController {
    * Интерфейс сервиса, управляющего объектом "город"
    */
   private final CityService cityService;
+  /**
+   * Преобразователь объектов в JSON для ответов, записываемых потоком
+   */
+  private final ObjectMapper objectMapper;
 
   /**
-   * Конструктор для инициализации интерфейса сервиса
+   * Конструктор для инициализации интерфейса сервиса и преобразователя JSON
    * @param cityService интерфейс сервиса, управляющего объектом "город"
+   * @param objectMapper преобразователь объектов в JSON
    */
   @Autowired
-  public CityController(CityService cityService) {
+  public CityController(CityService cityService,
+                        ObjectMapper objectMapper) {
     this.cityService = cityService;
+    this.objectMapper = objectMapper;
   }
 
   /**
@@ -43,18 +53,49 @@ public class CityController {
    * @param name название города
    * @param idBenefit ID пособия
    * @param idInstitution ID учреждения
-   * @return список городов, если запрос выполнен успешно, и код ответа
+   * @param after ID последнего объекта предыдущей страницы, без параметра - с начала списка
+   * @param limit количество объектов на странице, не больше {@link KeysetPage#MAX_LIMIT}. Без параметра - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница городов, если запрос выполнен успешно, и код ответа
    */
   @GetMapping(
       value = "/api/cities",
       produces = MediaType.APPLICATION_JSON_VALUE)
   @ResponseBody
-  public ResponseEntity<List<ObjectShortInfo>> readAllFilter(@RequestParam(name = "name", required = false) String name, 
+  public ResponseEntity<List<ObjectShortInfo>> readAllFilter(@RequestParam(name = "name", required = false) String name,
                                                              @RequestParam(name = "idBenefit", required = false) String idBenefit,
-                                                             @RequestParam(name = "idInst", required = false) String idInstitution) {
+                                                             @RequestParam(name = "idInst", required = false) String idInstitution,
+                                                             @RequestParam(name = "after", required = false) String after,
+                                                             @RequestParam(name = "limit", required = false) Integer limit) {
+
+    return ResponseEntity.status(HttpStatus.OK)
+        .body(cityService.readAllFilter(name, idBenefit, idInstitution, after, limit));
+  }
+
+  /**
+   * Обрабатывает GET запрос "/api/cities?stream=true" на получение списка городов потоком.
+   * Фильтр такой же, как у {@link #readAllFilter}, количество объектов по умолчанию не ограничено.
+   * Элементы JSON массива записываются в ответ по мере чтения из бд, список не создается.
+   * Выполнить запрос может любой клиент
+   * @param name название города
+   * @param idBenefit ID пособия
+   * @param idInstitution ID учреждения
+   * @param after ID последнего объекта предыдущей страницы, без параметра - с начала списка
+   * @param limit максимальное количество объектов, без параметра - без ограничения
+   * @return краткие информации о городах, записываемые потоком, и код ответа
+   */
+  @GetMapping(
+      value = "/api/cities",
+      params = "stream=true",
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamAllFilter(@RequestParam(name = "name", required = false) String name,
+                                                               @RequestParam(name = "idBenefit", required = false) String idBenefit,
+                                                               @RequestParam(name = "idInst", required = false) String idInstitution,
+                                                               @RequestParam(name = "after", required = false) String after,
+                                                               @RequestParam(name = "limit", required = false) Integer limit) {
 
     return ResponseEntity.status(HttpStatus.OK)
-        .body(cityService.readAllFilter(name, idBenefit, idInstitution));
+        .body(ShortInfoStreamingBody.of(objectMapper, consumer ->
+            cityService.writeAllFilter(name, idBenefit, idInstitution, after, limit, consumer)));
   }
 
   /**
@@ -131,15 +172,18 @@ public class CityController {
    * Обрабатывает GET запрос "/api/cities/partial" на получение списка городов,
    * в которых нет учреждений или пособий.
    * Для выполнения запроса клиент должен быть аутентифицирован и иметь роль "ROLE_ADMIN"
-   * @return список городов, если запрос выполнен успешно, и код ответа
+   * @param after ID последнего объекта предыдущей страницы, без параметра - с начала списка
+   * @param limit количество объектов на странице, не больше {@link KeysetPage#MAX_LIMIT}. Без параметра - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница городов, если запрос выполнен успешно, и код ответа
    */
   @GetMapping(
       value = "/api/cities/partial",
       produces = MediaType.APPLICATION_JSON_VALUE)
   @ResponseBody
-  public ResponseEntity<List<ObjectShortInfo>> readAllPartial() {
+  public ResponseEntity<List<ObjectShortInfo>> readAllPartial(@RequestParam(name = "after", required = false) String after,
+                                                              @RequestParam(name = "limit", required = false) Integer limit) {
 
     return ResponseEntity.status(HttpStatus.OK)
-        .body(cityService.readAllPartial());
+        .body(cityService.readAllPartial(after, limit));
   }
 }
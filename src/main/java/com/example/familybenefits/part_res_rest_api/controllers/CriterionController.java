@@ -7,12 +7,17 @@ import com.example.familybenefits.part_res_rest_api.api_model.common.ObjectShort
 import com.example.familybenefits.part_res_rest_api.api_model.criterion.CriterionInfo;
 import com.example.familybenefits.part_res_rest_api.api_model.criterion.CriterionInitData;
 import com.example.familybenefits.part_res_rest_api.api_model.criterion.CriterionSave;
+import com.example.familybenefits.part_res_rest_api.models.KeysetPage;
+import com.example.familybenefits.part_res_rest_api.models.ReferenceDataSnapshot;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.CriterionService;
+import com.example.familybenefits.part_res_rest_api.services.interfaces.ReferenceDataService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -26,14 +31,28 @@ public class CriterionController {
    * Интерфейс сервиса, управляющего объектом "критерий"
    */
   private final CriterionService criterionService;
+  /**
+   * Интерфейс сервиса, хранящего снимок справочных данных
+   */
+  private final ReferenceDataService referenceDataService;
+  /**
+   * Преобразователь объектов в JSON для ответов, записываемых потоком
+   */
+  private final ObjectMapper objectMapper;
 
   /**
-   * Конструктор для инициализации интерфейса сервиса
+   * Конструктор для инициализации интерфейсов сервисов и преобразователя JSON
    * @param criterionService интерфейс сервиса, управляющего объектом "критерий"
+   * @param referenceDataService интерфейс сервиса, хранящего снимок справочных данных
+   * @param objectMapper преобразователь объектов в JSON
    */
   @Autowired
-  public CriterionController(CriterionService criterionService) {
+  public CriterionController(CriterionService criterionService,
+                             ReferenceDataService referenceDataService,
+                             ObjectMapper objectMapper) {
     this.criterionService = criterionService;
+    this.referenceDataService = referenceDataService;
+    this.objectMapper = objectMapper;
   }
 
   /**
@@ -44,18 +63,71 @@ public class CriterionController {
    * @param name название критерия
    * @param idBenefit ID пособия
    * @param idCriterionType ID типа критерия
-   * @return список критерий, если запрос выполнен успешно, и код ответа
+   * @param after ID последнего объекта предыдущей страницы, без параметра - с начала списка
+   * @param limit количество объектов на странице, не больше {@link KeysetPage#MAX_LIMIT}. Без параметра - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница критерий, если запрос выполнен успешно, и код ответа
    */
   @GetMapping(
       value = "/api/criteria",
       produces = MediaType.APPLICATION_JSON_VALUE)
   @ResponseBody
   public ResponseEntity<List<ObjectShortInfo>> readAllFilter(@RequestParam(name = "name", required = false) String name,
-                                                             @RequestParam(name = "idBenefit", required = false) String idBenefit, 
-                                                             @RequestParam(name = "idCriterionType", required = false) String idCriterionType) {
-    
+                                                             @RequestParam(name = "idBenefit", required = false) String idBenefit,
+                                                             @RequestParam(name = "idCriterionType", required = false) String idCriterionType,
+                                                             @RequestParam(name = "after", required = false) String after,
+                                                             @RequestParam(name = "limit", required = false) Integer limit) {
+
+    return ResponseEntity.status(HttpStatus.OK)
+        .body(criterionService.readAllFilter(name, idBenefit, idCriterionType, after, limit));
+  }
+
+  /**
+   * Обрабатывает GET запрос "/api/criteria?stream=true" на получение списка критерий потоком.
+   * Фильтр такой же, как у {@link #readAllFilter}, количество объектов по умолчанию не ограничено.
+   * Элементы JSON массива записываются в ответ по мере чтения из бд, список не создается.
+   * Выполнить запрос может любой клиент
+   * @param name название критерия
+   * @param idBenefit ID пособия
+   * @param idCriterionType ID типа критерия
+   * @param after ID последнего объекта предыдущей страницы, без параметра - с начала списка
+   * @param limit максимальное количество объектов, без параметра - без ограничения
+   * @return краткие информации о критериях, записываемые потоком, и код ответа
+   */
+  @GetMapping(
+      value = "/api/criteria",
+      params = "stream=true",
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamAllFilter(@RequestParam(name = "name", required = false) String name,
+                                                               @RequestParam(name = "idBenefit", required = false) String idBenefit,
+                                                               @RequestParam(name = "idCriterionType", required = false) String idCriterionType,
+                                                               @RequestParam(name = "after", required = false) String after,
+                                                               @RequestParam(name = "limit", required = false) Integer limit) {
+
+    return ResponseEntity.status(HttpStatus.OK)
+        .body(ShortInfoStreamingBody.of(objectMapper, consumer ->
+            criterionService.writeAllFilter(name, idBenefit, idCriterionType, after, limit, consumer)));
+  }
+
+  /**
+   * Обрабатывает GET запрос "/api/criteria/search" на поиск критерий по тексту.
+   * Найдены критерии, у которых название или информация содержат слова запроса, или название содержит текст запроса.
+   * Результат упорядочен по убыванию релевантности, ищутся только критерии из списка "/api/criteria".
+   * Выполнить запрос может любой клиент
+   * @param text текст запроса: слова, фразы в кавычках, исключение словом с минусом
+   * @param limit количество объектов на странице, по умолчанию {@link KeysetPage#DEFAULT_LIMIT}, не больше {@link KeysetPage#MAX_LIMIT}
+   * @param offset количество пропускаемых объектов, не больше {@link KeysetPage#MAX_OFFSET}
+   * @return страница найденных критерий и код ответа
+   */
+  @GetMapping(
+      value = "/api/criteria/search",
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public ResponseEntity<List<ObjectShortInfo>> search(@RequestParam(name = "q", required = false) String text,
+                                                      @RequestParam(name = "limit", required = false) Integer limit,
+                                                      @RequestParam(name = "offset", required = false) Integer offset) {
+
     return ResponseEntity.status(HttpStatus.OK)
-        .body(criterionService.readAllFilter(name, idBenefit, idCriterionType));
+        .body(criterionService.search(text, limit, offset));
   }
 
   /**
@@ -133,16 +205,19 @@ public class CriterionController {
    * Обрабатывает GET запрос "/api/criteria/partial" на получение списка критерий,
    * в которых нет пособий.
    * Для выполнения запроса клиент должен быть аутентифицирован и иметь роль "ROLE_ADMIN"
-   * @return список критерий, если запрос выполнен успешно, и код ответа
+   * @param after ID последнего объекта предыдущей страницы, без параметра - с начала списка
+   * @param limit количество объектов на странице, не больше {@link KeysetPage#MAX_LIMIT}. Без параметра - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница критерий, если запрос выполнен успешно, и код ответа
    */
   @GetMapping(
       value = "/api/criteria/partial",
       produces = MediaType.APPLICATION_JSON_VALUE)
   @ResponseBody
-  public ResponseEntity<List<ObjectShortInfo>> readAllPartial() {
+  public ResponseEntity<List<ObjectShortInfo>> readAllPartial(@RequestParam(name = "after", required = false) String after,
+                                                              @RequestParam(name = "limit", required = false) Integer limit) {
 
     return ResponseEntity.status(HttpStatus.OK)
-        .body(criterionService.readAllPartial());
+        .body(criterionService.readAllPartial(after, limit));
   }
 
   /**
@@ -154,8 +229,11 @@ public class CriterionController {
   @GetMapping(value = "/api/criteria/init-data")
   public ResponseEntity<CriterionInitData> getInitData() {
 
+    // Если ETag снимка совпадает с If-None-Match запроса, ответ формируется с кодом 304 без тела
+    ReferenceDataSnapshot snapshot = referenceDataService.getSnapshot();
     return ResponseEntity.status(HttpStatus.OK)
-        .body(criterionService.getInitData());
+        .eTag(snapshot.getETag())
+        .body(snapshot.getCriterionInitData());
   }
 
   /**
@@ -6,12 +6,15 @@ import com.example.familybenefits.exceptions.NotFoundException;
 import com.example.familybenefits.part_res_rest_api.api_model.common.ObjectShortInfo;
 import com.example.familybenefits.part_res_rest_api.api_model.criterion_type.CriterionTypeInfo;
 import com.example.familybenefits.part_res_rest_api.api_model.criterion_type.CriterionTypeSave;
+import com.example.familybenefits.part_res_rest_api.models.KeysetPage;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.CriterionTypeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -25,14 +28,21 @@ public class CriterionTypeController {
    * Интерфейс сервиса, управляющего объектом "тип критерия"
    */
   private final CriterionTypeService criterionTypeService;
+  /**
+   * Преобразователь объектов в JSON для ответов, записываемых потоком
+   */
+  private final ObjectMapper objectMapper;
 
   /**
-   * Конструктор для инициализации интерфейса сервиса
+   * Конструктор для инициализации интерфейса сервиса и преобразователя JSON
    * @param criterionTypeService интерфейс сервиса, управляющего объектом "тип критерия"
+   * @param objectMapper преобразователь объектов в JSON
    */
   @Autowired
-  public CriterionTypeController(CriterionTypeService criterionTypeService) {
+  public CriterionTypeController(CriterionTypeService criterionTypeService,
+                                 ObjectMapper objectMapper) {
     this.criterionTypeService = criterionTypeService;
+    this.objectMapper = objectMapper;
   }
 
   /**
@@ -42,17 +52,46 @@ public class CriterionTypeController {
    * Выполнить запрос может любой клиент
    * @param name название типа критерия
    * @param idCriterion ID критерия
-   * @return список типов критерий и код ответа
+   * @param after ID последнего объекта предыдущей страницы, без параметра - с начала списка
+   * @param limit количество объектов на странице, не больше {@link KeysetPage#MAX_LIMIT}. Без параметра - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница типов критерий и код ответа
    */
   @GetMapping(
       value = "/api/criterion-types",
       produces = MediaType.APPLICATION_JSON_VALUE)
   @ResponseBody
   public ResponseEntity<List<ObjectShortInfo>> readAllFilter(@RequestParam(name = "name", required = false) String name,
-                                                             @RequestParam(name = "idCriterion", required = false) String idCriterion) {
+                                                             @RequestParam(name = "idCriterion", required = false) String idCriterion,
+                                                             @RequestParam(name = "after", required = false) String after,
+                                                             @RequestParam(name = "limit", required = false) Integer limit) {
+
+    return ResponseEntity.status(HttpStatus.OK)
+        .body(criterionTypeService.readAllFilter(name, idCriterion, after, limit));
+  }
+
+  /**
+   * Обрабатывает GET запрос "/api/criterion-types?stream=true" на получение списка типов критерия потоком.
+   * Фильтр такой же, как у {@link #readAllFilter}, количество объектов по умолчанию не ограничено.
+   * Элементы JSON массива записываются в ответ по мере чтения из бд, список не создается.
+   * Выполнить запрос может любой клиент
+   * @param name название типа критерия
+   * @param idCriterion ID критерия
+   * @param after ID последнего объекта предыдущей страницы, без параметра - с начала списка
+   * @param limit максимальное количество объектов, без параметра - без ограничения
+   * @return краткие информации о типах критерия, записываемые потоком, и код ответа
+   */
+  @GetMapping(
+      value = "/api/criterion-types",
+      params = "stream=true",
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamAllFilter(@RequestParam(name = "name", required = false) String name,
+                                                               @RequestParam(name = "idCriterion", required = false) String idCriterion,
+                                                               @RequestParam(name = "after", required = false) String after,
+                                                               @RequestParam(name = "limit", required = false) Integer limit) {
 
     return ResponseEntity.status(HttpStatus.OK)
-        .body(criterionTypeService.readAllFilter(name, idCriterion));
+        .body(ShortInfoStreamingBody.of(objectMapper, consumer ->
+            criterionTypeService.writeAllFilter(name, idCriterion, after, limit, consumer)));
   }
 
   /**
@@ -129,15 +168,18 @@ public class CriterionTypeController {
    * Обрабатывает GET запрос "/api/criterion-types/partial" на получение списка типов критерия,
    * в которых нет критерий.
    * Выполнить запрос может любой клиент
-   * @return список типов критерий и код ответа
+   * @param after ID последнего объекта предыдущей страницы, без параметра - с начала списка
+   * @param limit количество объектов на странице, не больше {@link KeysetPage#MAX_LIMIT}. Без параметра - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница типов критерий и код ответа
    */
   @GetMapping(
       value = "/api/criterion-types/partial",
       produces = MediaType.APPLICATION_JSON_VALUE)
   @ResponseBody
-  public ResponseEntity<List<ObjectShortInfo>> readAllPartial() {
+  public ResponseEntity<List<ObjectShortInfo>> readAllPartial(@RequestParam(name = "after", required = false) String after,
+                                                              @RequestParam(name = "limit", required = false) Integer limit) {
 
     return ResponseEntity.status(HttpStatus.OK)
-        .body(criterionTypeService.readAllPartial());
+        .body(criterionTypeService.readAllPartial(after, limit));
   }
 }
@@ -7,12 +7,17 @@ import com.example.familybenefits.part_res_rest_api.api_model.common.ObjectShort
 import com.example.familybenefits.part_res_rest_api.api_model.institution.InstitutionInfo;
 import com.example.familybenefits.part_res_rest_api.api_model.institution.InstitutionInitData;
 import com.example.familybenefits.part_res_rest_api.api_model.institution.InstitutionSave;
+import com.example.familybenefits.part_res_rest_api.models.KeysetPage;
+import com.example.familybenefits.part_res_rest_api.models.ReferenceDataSnapshot;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.InstitutionService;
+import com.example.familybenefits.part_res_rest_api.services.interfaces.ReferenceDataService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -26,14 +31,28 @@ public class InstitutionController {
    * Интерфейс сервиса, управляющего объектом "учреждение"
    */
   private final InstitutionService institutionService;
+  /**
+   * Интерфейс сервиса, хранящего снимок справочных данных
+   */
+  private final ReferenceDataService referenceDataService;
+  /**
+   * Преобразователь объектов в JSON для ответов, записываемых потоком
+   */
+  private final ObjectMapper objectMapper;
 
   /**
-   * Конструктор для инициализации интерфейса сервиса
+   * Конструктор для инициализации интерфейсов сервисов и преобразователя JSON
    * @param institutionService интерфейс сервиса, управляющего объектом "учреждение"
+   * @param referenceDataService интерфейс сервиса, хранящего снимок справочных данных
+   * @param objectMapper преобразователь объектов в JSON
    */
   @Autowired
-  public InstitutionController(InstitutionService institutionService) {
+  public InstitutionController(InstitutionService institutionService,
+                               ReferenceDataService referenceDataService,
+                               ObjectMapper objectMapper) {
     this.institutionService = institutionService;
+    this.referenceDataService = referenceDataService;
+    this.objectMapper = objectMapper;
   }
 
   /**
@@ -44,7 +63,9 @@ public class InstitutionController {
    * @param name название учреждения
    * @param idCity ID города
    * @param idBenefit ID пособия
-   * @return список учреждений и код ответа
+   * @param after ID последнего объекта предыдущей страницы, без параметра - с начала списка
+   * @param limit количество объектов на странице, не больше {@link KeysetPage#MAX_LIMIT}. Без параметра - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница учреждений и код ответа
    */
   @GetMapping(
       value = "/api/institutions",
@@ -52,10 +73,61 @@ public class InstitutionController {
   @ResponseBody
   public ResponseEntity<List<ObjectShortInfo>> readAllFilter(@RequestParam(name = "name", required = false) String name,
                                                              @RequestParam(name = "idCity", required = false) String idCity,
-                                                             @RequestParam(name = "idBenefit", required = false) String idBenefit) {
+                                                             @RequestParam(name = "idBenefit", required = false) String idBenefit,
+                                                             @RequestParam(name = "after", required = false) String after,
+                                                             @RequestParam(name = "limit", required = false) Integer limit) {
+
+    return ResponseEntity.status(HttpStatus.OK)
+        .body(institutionService.readAllFilter(name, idCity, idBenefit, after, limit));
+  }
+
+  /**
+   * Обрабатывает GET запрос "/api/institutions?stream=true" на получение списка учреждений потоком.
+   * Фильтр такой же, как у {@link #readAllFilter}, количество объектов по умолчанию не ограничено.
+   * Элементы JSON массива записываются в ответ по мере чтения из бд, список не создается.
+   * Выполнить запрос может любой клиент
+   * @param name название учреждения
+   * @param idCity ID города
+   * @param idBenefit ID пособия
+   * @param after ID последнего объекта предыдущей страницы, без параметра - с начала списка
+   * @param limit максимальное количество объектов, без параметра - без ограничения
+   * @return краткие информации о учреждениях, записываемые потоком, и код ответа
+   */
+  @GetMapping(
+      value = "/api/institutions",
+      params = "stream=true",
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamAllFilter(@RequestParam(name = "name", required = false) String name,
+                                                               @RequestParam(name = "idCity", required = false) String idCity,
+                                                               @RequestParam(name = "idBenefit", required = false) String idBenefit,
+                                                               @RequestParam(name = "after", required = false) String after,
+                                                               @RequestParam(name = "limit", required = false) Integer limit) {
+
+    return ResponseEntity.status(HttpStatus.OK)
+        .body(ShortInfoStreamingBody.of(objectMapper, consumer ->
+            institutionService.writeAllFilter(name, idCity, idBenefit, after, limit, consumer)));
+  }
+
+  /**
+   * Обрабатывает GET запрос "/api/institutions/search" на поиск учреждений по тексту.
+   * Найдены учреждения, у которых название или адрес содержат слова запроса, или название или адрес содержит текст запроса.
+   * Результат упорядочен по убыванию релевантности, ищутся только учреждения из списка "/api/institutions".
+   * Выполнить запрос может любой клиент
+   * @param text текст запроса: слова, фразы в кавычках, исключение словом с минусом
+   * @param limit количество объектов на странице, по умолчанию {@link KeysetPage#DEFAULT_LIMIT}, не больше {@link KeysetPage#MAX_LIMIT}
+   * @param offset количество пропускаемых объектов, не больше {@link KeysetPage#MAX_OFFSET}
+   * @return страница найденных учреждений и код ответа
+   */
+  @GetMapping(
+      value = "/api/institutions/search",
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public ResponseEntity<List<ObjectShortInfo>> search(@RequestParam(name = "q", required = false) String text,
+                                                      @RequestParam(name = "limit", required = false) Integer limit,
+                                                      @RequestParam(name = "offset", required = false) Integer offset) {
 
     return ResponseEntity.status(HttpStatus.OK)
-        .body(institutionService.readAllFilter(name, idCity, idBenefit));
+        .body(institutionService.search(text, limit, offset));
   }
 
   /**
@@ -133,16 +205,19 @@ public class InstitutionController {
    * Обрабатывает GET запрос "/api/institutions/partial" на получение списка учреждений,
    * в которых нет пособий.
    * Для выполнения запроса клиент должен быть аутентифицирован и иметь роль "ROLE_ADMIN"
-   * @return список учреждений и код ответа
+   * @param after ID последнего объекта предыдущей страницы, без параметра - с начала списка
+   * @param limit количество объектов на странице, не больше {@link KeysetPage#MAX_LIMIT}. Без параметра - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница учреждений и код ответа
    */
   @GetMapping(
       value = "/api/institutions/partial",
       produces = MediaType.APPLICATION_JSON_VALUE)
   @ResponseBody
-  public ResponseEntity<List<ObjectShortInfo>> readAllPartial() {
+  public ResponseEntity<List<ObjectShortInfo>> readAllPartial(@RequestParam(name = "after", required = false) String after,
+                                                              @RequestParam(name = "limit", required = false) Integer limit) {
 
     return ResponseEntity.status(HttpStatus.OK)
-        .body(institutionService.readAllPartial());
+        .body(institutionService.readAllPartial(after, limit));
   }
 
   /**
@@ -157,7 +232,10 @@ public class InstitutionController {
   @ResponseBody
   public ResponseEntity<InstitutionInitData> getInitData() {
 
+    // Если ETag снимка совпадает с If-None-Match запроса, ответ формируется с кодом 304 без тела
+    ReferenceDataSnapshot snapshot = referenceDataService.getSnapshot();
     return ResponseEntity.status(HttpStatus.OK)
-        .body(institutionService.getInitData());
+        .eTag(snapshot.getETag())
+        .body(snapshot.getInstitutionInitData());
   }
 }
@@ -0,0 +1,53 @@
+package com.example.familybenefits.part_res_rest_api.controllers;
+
+import com.example.familybenefits.part_res_rest_api.api_model.common.ObjectShortInfo;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Формирует тело ответа, записывающее краткие информации об объектах JSON массивом по мере их чтения из бд.
+ * Элементы массива записываются в поток ответа сразу, список объектов не создается
+ */
+public class ShortInfoStreamingBody {
+
+  /**
+   * Создает тело ответа
+   * @param objectMapper преобразователь объектов в JSON
+   * @param writeAllFunc функция, передающая получателю краткие информации об объектах
+   * @return тело ответа, записываемое после выхода из обработчика запроса
+   */
+  public static StreamingResponseBody of(ObjectMapper objectMapper, Consumer<Consumer<ObjectShortInfo>> writeAllFunc) {
+
+    return outputStream -> {
+      try (JsonGenerator generator = objectMapper.createGenerator(outputStream, JsonEncoding.UTF8)) {
+        generator.writeStartArray();
+        writeAllFunc.accept(shortInfo -> writeElement(generator, shortInfo));
+        generator.writeEndArray();
+
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    };
+  }
+
+  /**
+   * Записывает элемент массива
+   * @param generator генератор JSON, записывающий в поток ответа
+   * @param shortInfo краткая информация об объекте
+   * @throws UncheckedIOException если не удалось записать в поток ответа, например, клиент закрыл подключение
+   */
+  private static void writeElement(JsonGenerator generator, ObjectShortInfo shortInfo) {
+
+    try {
+      generator.writeObject(shortInfo);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -4,6 +4,8 @@ import com.example.familybenefits.exceptions.*;
 import com.example.familybenefits.part_res_rest_api.api_model.user.UserInfo;
 import com.example.familybenefits.part_res_rest_api.api_model.user.UserInitData;
 import com.example.familybenefits.part_res_rest_api.api_model.user.UserSave;
+import com.example.familybenefits.part_res_rest_api.models.ReferenceDataSnapshot;
+import com.example.familybenefits.part_res_rest_api.services.interfaces.ReferenceDataService;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -21,14 +23,21 @@ public class UserController {
    * Интерфейс сервиса, управляющего объектом "пользователь"
    */
   private final UserService userService;
+  /**
+   * Интерфейс сервиса, хранящего снимок справочных данных
+   */
+  private final ReferenceDataService referenceDataService;
 
   /**
-   * Конструктор для инициализации интерфейса сервиса
+   * Конструктор для инициализации интерфейсов сервисов
    * @param userService интерфейс сервиса, управляющего объектом "пользователь"
+   * @param referenceDataService интерфейс сервиса, хранящего снимок справочных данных
    */
   @Autowired
-  public UserController(UserService userService) {
+  public UserController(UserService userService,
+                        ReferenceDataService referenceDataService) {
     this.userService = userService;
+    this.referenceDataService = referenceDataService;
   }
 
   /**
@@ -120,7 +129,10 @@ public class UserController {
   @ResponseBody
   public ResponseEntity<UserInitData> getInitData() {
 
+    // Если ETag снимка совпадает с If-None-Match запроса, ответ формируется с кодом 304 без тела
+    ReferenceDataSnapshot snapshot = referenceDataService.getSnapshot();
     return ResponseEntity.status(HttpStatus.OK)
-        .body(userService.getInitData());
+        .eTag(snapshot.getETag())
+        .body(snapshot.getUserInitData());
   }
 }
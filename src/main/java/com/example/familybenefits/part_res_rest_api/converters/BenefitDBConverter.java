@@ -77,4 +77,18 @@ public class BenefitDBConverter {
         .nameObject(benefitEntity.getName())
         .build();
   }
+
+  /**
+   * Преобразует строку запроса кратких информаций {@code BenefitRepository.streamShortFilter} в объект краткой информации об объекте
+   * @param shortRow строка запроса: ID и название пособия
+   * @return краткая информация о пособии
+   */
+  public static ObjectShortInfo toShortInfo(Object[] shortRow) {
+
+    return ObjectShortInfo
+        .builder()
+        .idObject((String) shortRow[0])
+        .nameObject((String) shortRow[1])
+        .build();
+  }
 }
@@ -75,4 +75,18 @@ public class CityDBConverter {
         .nameObject(cityEntity.getName())
         .build();
   }
+
+  /**
+   * Преобразует строку запроса кратких информаций {@code CityRepository.streamShortFilter} в объект краткой информации об объекте
+   * @param shortRow строка запроса: ID и название города
+   * @return краткая информация о городе
+   */
+  public static ObjectShortInfo toShortInfo(Object[] shortRow) {
+
+    return ObjectShortInfo
+        .builder()
+        .idObject((String) shortRow[0])
+        .nameObject((String) shortRow[1])
+        .build();
+  }
 }
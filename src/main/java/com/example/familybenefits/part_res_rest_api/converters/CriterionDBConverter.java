@@ -8,7 +8,10 @@ import com.example.familybenefits.part_res_rest_api.api_model.criterion.Criterio
 import com.example.familybenefits.resources.R;
 import com.example.familybenefits.security.RandomValue;
 
+import java.util.List;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Класс преобразования модели таблицы "criterion" в другие объекты и получения из других объектов, обрабатывая строковые поля для БД.
@@ -61,6 +64,35 @@ public class CriterionDBConverter {
         .build();
   }
 
+  /**
+   * Преобразует строку запроса критерия с названием типа в объект информации о критерии
+   * @param criterionRow строка запроса: ID, название, информация критерия и название типа критерия
+   * @return информация о критерии
+   */
+  public static CriterionInfo toInfo(Object[] criterionRow) {
+
+    return CriterionInfo
+        .builder()
+        .id((String) criterionRow[0])
+        .name((String) criterionRow[1])
+        .info((String) criterionRow[2])
+        .nameCriterionType((String) criterionRow[3])
+        .build();
+  }
+
+  /**
+   * Преобразует поток строк запроса критерий с названиями типов в список информаций о критериях.
+   * Строки преобразуются по мере чтения потока, поток не закрывается
+   * @param criterionRowStream поток строк запроса: ID, название, информация критерия и название типа критерия
+   * @return список информаций о критериях
+   */
+  public static List<CriterionInfo> toInfoList(Stream<Object[]> criterionRowStream) {
+
+    return criterionRowStream
+        .map(CriterionDBConverter::toInfo)
+        .collect(Collectors.toList());
+  }
+
   /**
    * Преобразует модель таблицы "criterion" в объект краткой информации об объекте
    * @param criterionEntity модель таблицы "criterion"
@@ -78,4 +110,18 @@ public class CriterionDBConverter {
         .nameObject(criterionEntity.getName())
         .build();
   }
+
+  /**
+   * Преобразует строку запроса кратких информаций {@code CriterionRepository.streamShortFilter} в объект краткой информации об объекте
+   * @param shortRow строка запроса: ID и название критерия
+   * @return краткая информация о критерии
+   */
+  public static ObjectShortInfo toShortInfo(Object[] shortRow) {
+
+    return ObjectShortInfo
+        .builder()
+        .idObject((String) shortRow[0])
+        .nameObject((String) shortRow[1])
+        .build();
+  }
 }
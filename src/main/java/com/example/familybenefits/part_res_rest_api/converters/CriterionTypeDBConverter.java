@@ -75,4 +75,18 @@ public class CriterionTypeDBConverter {
         .nameObject(criterionTypeEntity.getName())
         .build();
   }
+
+  /**
+   * Преобразует строку запроса кратких информаций {@code CriterionTypeRepository.streamShortFilter} в объект краткой информации об объекте
+   * @param shortRow строка запроса: ID и название типа критерия
+   * @return краткая информация о типе критерия
+   */
+  public static ObjectShortInfo toShortInfo(Object[] shortRow) {
+
+    return ObjectShortInfo
+        .builder()
+        .idObject((String) shortRow[0])
+        .nameObject((String) shortRow[1])
+        .build();
+  }
 }
@@ -86,4 +86,18 @@ public class InstitutionDBConverter {
         .nameObject(institutionEntity.getName())
         .build();
   }
+
+  /**
+   * Преобразует строку запроса кратких информаций {@code InstitutionRepository.streamShortFilter} в объект краткой информации об объекте
+   * @param shortRow строка запроса: ID и название учреждения
+   * @return краткая информация о учреждении
+   */
+  public static ObjectShortInfo toShortInfo(Object[] shortRow) {
+
+    return ObjectShortInfo
+        .builder()
+        .idObject((String) shortRow[0])
+        .nameObject((String) shortRow[1])
+        .build();
+  }
 }
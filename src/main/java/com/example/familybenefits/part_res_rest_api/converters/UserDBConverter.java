@@ -7,6 +7,7 @@ import com.example.familybenefits.exceptions.InvalidStringException;
 import com.example.familybenefits.part_res_rest_api.api_model.user.UserInfo;
 import com.example.familybenefits.part_res_rest_api.api_model.user.UserSave;
 import com.example.familybenefits.resources.R;
+import com.example.familybenefits.security.DateTimeSupport;
 import com.example.familybenefits.security.RandomValue;
 
 import java.util.List;
@@ -67,7 +68,7 @@ public class UserDBConverter {
         .email(userEntity.getEmail())
         .birthDateChildren(childBirthEntityList
                                .stream()
-                               .map(childEntity -> R.SIMPLE_DATE_FORMAT.format(childEntity.getDateBirth()))
+                               .map(childEntity -> DateTimeSupport.dateToStr(childEntity.getDateBirth()))
                                .collect(Collectors.toList()))
         .nameRoleList(roleEntityList
                           .stream()
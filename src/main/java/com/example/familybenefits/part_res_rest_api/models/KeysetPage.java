@@ -0,0 +1,102 @@
+package com.example.familybenefits.part_res_rest_api.models;
+
+import com.example.familybenefits.security.DBSecuritySupport;
+
+/**
+ * Параметры постраничного чтения списков по ключу. Страница упорядочена по ID объекта
+ * и начинается после ID последнего объекта предыдущей страницы, поэтому запрос страницы
+ * не перебирает строки предыдущих страниц. Постраничное чтение включается параметрами limit или after,
+ * без них список возвращается целиком, как до появления страниц
+ */
+public class KeysetPage {
+
+  /**
+   * Количество объектов на странице поиска или страницы после ключа, если клиент его не указал
+   */
+  public static final int DEFAULT_LIMIT = 100;
+  /**
+   * Максимальное количество объектов на странице
+   */
+  public static final int MAX_LIMIT = 1000;
+  /**
+   * Количество объектов без ограничения, для внутреннего чтения полных списков и потоковой выдачи
+   */
+  public static final int UNLIMITED = Integer.MAX_VALUE;
+  /**
+   * Значение ключа для чтения с начала списка
+   */
+  public static final String FROM_START = "";
+  /**
+   * Максимальное количество пропускаемых объектов в ранжированном поиске, где страницы не упорядочены по ID
+   */
+  public static final int MAX_OFFSET = 10_000;
+
+  /**
+   * Возвращает количество объектов на странице, ограниченное допустимыми значениями
+   * @param limit количество объектов, указанное клиентом, или {@code null}
+   * @return количество объектов от 1 до {@link #MAX_LIMIT}, {@link #DEFAULT_LIMIT}, если не указано
+   */
+  public static int prepareLimit(Integer limit) {
+
+    if (limit == null) {
+      return DEFAULT_LIMIT;
+    }
+    return Math.max(1, Math.min(limit, MAX_LIMIT));
+  }
+
+  /**
+   * Возвращает количество объектов на странице списка, упорядоченного по ключу.
+   * Без количества и ключа список не ограничивается, чтобы клиенты без постраничного чтения получали его целиком
+   * @param limit количество объектов, указанное клиентом, или {@code null}
+   * @param after ID последнего объекта предыдущей страницы, указанный клиентом, или {@code null}
+   * @return количество объектов от 1 до {@link #MAX_LIMIT}, {@link #DEFAULT_LIMIT}, если указан только ключ,
+   * {@link #UNLIMITED}, если не указаны количество и ключ
+   */
+  public static int prepareLimit(Integer limit, String after) {
+
+    if (limit == null && after == null) {
+      return UNLIMITED;
+    }
+    return prepareLimit(limit);
+  }
+
+  /**
+   * Возвращает количество объектов потоковой выдачи
+   * @param limit количество объектов, указанное клиентом, или {@code null}
+   * @return количество объектов не меньше 1, {@link #UNLIMITED}, если не указано
+   */
+  public static int prepareStreamLimit(Integer limit) {
+
+    if (limit == null) {
+      return UNLIMITED;
+    }
+    return Math.max(1, limit);
+  }
+
+  /**
+   * Возвращает ключ, после которого начинается страница, подготовленный для запроса в бд
+   * @param after ID последнего объекта предыдущей страницы или {@code null}
+   * @return подготовленный ID или {@link #FROM_START}, если не указан
+   */
+  public static String prepareAfter(String after) {
+
+    if (after == null) {
+      return FROM_START;
+    }
+    return DBSecuritySupport.preparePostgreSQLString(after);
+  }
+
+  /**
+   * Возвращает количество пропускаемых объектов ранжированного поиска.
+   * Порядок результатов поиска задается релевантностью, а не ID, поэтому страницы поиска задаются смещением
+   * @param offset количество пропускаемых объектов, указанное клиентом, или {@code null}
+   * @return количество от 0 до {@link #MAX_OFFSET}, 0, если не указано
+   */
+  public static int prepareOffset(Integer offset) {
+
+    if (offset == null) {
+      return 0;
+    }
+    return Math.max(0, Math.min(offset, MAX_OFFSET));
+  }
+}
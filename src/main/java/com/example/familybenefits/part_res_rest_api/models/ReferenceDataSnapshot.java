@@ -0,0 +1,48 @@
+package com.example.familybenefits.part_res_rest_api.models;
+
+import com.example.familybenefits.part_res_rest_api.api_model.benefit.BenefitInitData;
+import com.example.familybenefits.part_res_rest_api.api_model.criterion.CriterionInitData;
+import com.example.familybenefits.part_res_rest_api.api_model.institution.InstitutionInitData;
+import com.example.familybenefits.part_res_rest_api.api_model.user.UserInitData;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Неизменяемый снимок справочных данных: дополнительные данные для пользователя, пособия, учреждения и критерия.
+ * Списки снимка неизменяемы, а сами объекты дополнительных данных не должны изменяться получателями,
+ * так как снимок используется всеми запросами до его замены
+ */
+@Getter
+@Builder
+public class ReferenceDataSnapshot {
+
+  /**
+   * Номер версии снимка в текущем экземпляре приложения
+   */
+  private final long version;
+
+  /**
+   * Строгий ETag снимка, вычисленный по содержимому. Совпадает у экземпляров приложения с одинаковыми данными
+   */
+  private final String eTag;
+
+  /**
+   * Дополнительные данные для пользователя
+   */
+  private final UserInitData userInitData;
+
+  /**
+   * Дополнительные данные для пособия
+   */
+  private final BenefitInitData benefitInitData;
+
+  /**
+   * Дополнительные данные для учреждения
+   */
+  private final InstitutionInitData institutionInitData;
+
+  /**
+   * Дополнительные данные для критерия
+   */
+  private final CriterionInitData criterionInitData;
+}
@@ -3,7 +3,6 @@ package com.example.familybenefits.part_res_rest_api.services.implementations;
 import com.example.familybenefits.dto.repositories.ChildBirthRepository;
 import com.example.familybenefits.exceptions.InvalidStringException;
 import com.example.familybenefits.part_res_rest_api.api_model.benefit.BenefitInfo;
-import com.example.familybenefits.part_res_rest_api.api_model.benefit.BenefitInitData;
 import com.example.familybenefits.part_res_rest_api.api_model.benefit.BenefitSave;
 import com.example.familybenefits.part_res_rest_api.api_model.common.ObjectShortInfo;
 import com.example.familybenefits.part_res_rest_api.converters.BenefitDBConverter;
@@ -13,19 +12,25 @@ import com.example.familybenefits.dto.repositories.UserRepository;
 import com.example.familybenefits.exceptions.AlreadyExistsException;
 import com.example.familybenefits.exceptions.DateTimeException;
 import com.example.familybenefits.exceptions.NotFoundException;
+import com.example.familybenefits.part_res_rest_api.models.KeysetPage;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.BenefitService;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.CityService;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.CriterionService;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.InstitutionService;
+import com.example.familybenefits.part_res_rest_api.services.interfaces.ReferenceDataService;
 import com.example.familybenefits.security.DBSecuritySupport;
 import com.example.familybenefits.security.DateTimeSupport;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Реализация сервиса, управляющего объектом "пособие"
@@ -59,6 +64,11 @@ public class BenefitServiceFB implements BenefitService {
    */
   private final InstitutionService institutionService;
 
+  /**
+   * Интерфейс сервиса, хранящего снимок справочных данных
+   */
+  private final ReferenceDataService referenceDataService;
+
   /**
    * Конструктор для инициализации интерфейсов репозиториев и сервисов
    * @param benefitRepository репозиторий, работающий с моделью таблицы "benefit"
@@ -67,6 +77,7 @@ public class BenefitServiceFB implements BenefitService {
    * @param cityService интерфейс сервиса, управляющего объектом "город"
    * @param criterionService интерфейс сервиса, управляющего объектом "критерий"
    * @param institutionService интерфейс сервиса, управляющего объектом "учреждение"
+   * @param referenceDataService интерфейс сервиса, хранящего снимок справочных данных
    */
   @Autowired
   public BenefitServiceFB(BenefitRepository benefitRepository,
@@ -74,27 +85,31 @@ public class BenefitServiceFB implements BenefitService {
                           ChildBirthRepository childBirthRepository,
                           CityService cityService,
                           CriterionService criterionService,
-                          @Lazy InstitutionService institutionService) {
+                          @Lazy InstitutionService institutionService,
+                          @Lazy ReferenceDataService referenceDataService) {
     this.benefitRepository = benefitRepository;
     this.userRepository = userRepository;
     this.childBirthRepository = childBirthRepository;
     this.cityService = cityService;
     this.criterionService = criterionService;
     this.institutionService = institutionService;
+    this.referenceDataService = referenceDataService;
   }
 
   /**
-   * Возвращает список пособий, в которых есть города, учреждения и критерии.
+   * Возвращает страницу пособий, в которых есть города, учреждения и критерии.
    * Фильтр по названию, ID города, критерия и учреждения.
    * В качестве параметра может быть указан null, если данный параметр не участвует в фильтрации
    * @param name название пособия
    * @param idCity ID города
    * @param idCriterion ID критерия
    * @param idInstitution ID учреждения
-   * @return список кратких информаций о пособиях
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций о пособиях
    */
   @Override
-  public List<ObjectShortInfo> readAllFilter(String name, String idCity, String idCriterion, String idInstitution) {
+  public List<ObjectShortInfo> readAllFilter(String name, String idCity, String idCriterion, String idInstitution, String after, Integer limit) {
 
     String preparedName = DBSecuritySupport.preparePostgreSQLString(name);
     String preparedIdCity = DBSecuritySupport.preparePostgreSQLString(idCity);
@@ -102,26 +117,80 @@ public class BenefitServiceFB implements BenefitService {
     String preparedIdInstitution = DBSecuritySupport.preparePostgreSQLString(idInstitution);
 
     return benefitRepository.findAllFilter(
-        preparedName, preparedIdCity, preparedIdCriterion, preparedIdInstitution)
+        preparedName, preparedIdCity, preparedIdCriterion, preparedIdInstitution, KeysetPage.prepareAfter(after), KeysetPage.prepareLimit(limit, after))
+        .stream()
+        .map(BenefitDBConverter::toShortInfo)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Передает получателю краткие информации о пособиях по мере чтения из бд, не собирая их в список.
+   * Фильтр такой же, как у {@link #readAllFilter}, количество объектов по умолчанию не ограничено
+   * @param name название пособия
+   * @param idCity ID города
+   * @param idCriterion ID критерия
+   * @param idInstitution ID учреждения
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit максимальное количество объектов, null - без ограничения
+   * @param consumer получатель кратких информаций о пособиях, вызывается в порядке возрастания ID
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public void writeAllFilter(String name, String idCity, String idCriterion, String idInstitution, String after, Integer limit, Consumer<ObjectShortInfo> consumer) {
+
+    String preparedName = DBSecuritySupport.preparePostgreSQLString(name);
+    String preparedIdCity = DBSecuritySupport.preparePostgreSQLString(idCity);
+    String preparedIdCriterion = DBSecuritySupport.preparePostgreSQLString(idCriterion);
+    String preparedIdInstitution = DBSecuritySupport.preparePostgreSQLString(idInstitution);
+
+    try (Stream<Object[]> shortRowStream = benefitRepository.streamShortFilter(
+        preparedName, preparedIdCity, preparedIdCriterion, preparedIdInstitution, KeysetPage.prepareAfter(after), KeysetPage.prepareStreamLimit(limit))) {
+      shortRowStream
+          .map(BenefitDBConverter::toShortInfo)
+          .forEach(consumer);
+    }
+  }
+
+  /**
+   * Возвращает страницу пособий, найденных по тексту запроса, в порядке убывания релевантности.
+   * Найдены пособия, у которых название или информация содержат слова запроса, или название содержит текст запроса.
+   * Ищутся только пособий, возвращаемые {@link #readAllFilter}
+   * @param text текст запроса
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT}
+   * @param offset количество пропускаемых объектов, null - 0
+   * @return страница кратких информаций о пособиях, пустая, если текст запроса не указан
+   */
+  @Override
+  public List<ObjectShortInfo> search(String text, Integer limit, Integer offset) {
+
+    if (text == null || text.isBlank()) {
+      return Collections.emptyList();
+    }
+
+    return benefitRepository.search(
+        DBSecuritySupport.preparePostgreSQLString(text), DBSecuritySupport.prepareLikeContainsPattern(text),
+        KeysetPage.prepareLimit(limit), KeysetPage.prepareOffset(offset))
         .stream()
         .map(BenefitDBConverter::toShortInfo)
         .collect(Collectors.toList());
   }
 
   /**
-   * Создает пособие по запросу на сохранение
+   * Создает пособие по запросу на сохранение.
+   * Пособие, его связи и отметка несвежести пользователей сохраняются одной транзакцией
    * @param benefitSave объект запроса для сохранения пособия
    * @throws AlreadyExistsException если пособие с указанным названием уже существует
    * @throws NotFoundException если город, критерий или учреждение пособия с указанным ID не найдено
    * @throws InvalidStringException если строковое поле объекта запроса не содержит букв или цифр
    */
   @Override
+  @Transactional(rollbackFor = Exception.class)
   public void create(BenefitSave benefitSave) throws AlreadyExistsException, NotFoundException, InvalidStringException {
 
     // Проверка существования городов, критерий и учреждений по их ID
-    DBSecuritySupport.checkExistenceById(cityService::existsById, benefitSave.getIdCityList());
-    DBSecuritySupport.checkExistenceById(criterionService::existsById, benefitSave.getIdCriterionList());
-    DBSecuritySupport.checkExistenceById(institutionService::existsById, benefitSave.getIdInstitutionList());
+    DBSecuritySupport.checkExistenceByIdList(cityService::findMissingIds, benefitSave.getIdCityList());
+    DBSecuritySupport.checkExistenceByIdList(criterionService::findMissingIds, benefitSave.getIdCriterionList());
+    DBSecuritySupport.checkExistenceByIdList(institutionService::findMissingIds, benefitSave.getIdInstitutionList());
 
     // Проверка отсутствия пособия по его названию
     DBSecuritySupport.checkAbsenceByUniqStr(benefitRepository::existsByName, benefitSave.getName());
@@ -131,6 +200,8 @@ public class BenefitServiceFB implements BenefitService {
         .fromSave(null, benefitSave, DBSecuritySupport::preparePostgreSQLString);
 
     benefitRepository.saveAndFlush(benefitEntityFromSave);
+    setLinksToBenefit(benefitEntityFromSave.getId(), benefitSave);
+    referenceDataService.invalidate();
   }
 
   /**
@@ -151,7 +222,8 @@ public class BenefitServiceFB implements BenefitService {
   }
 
   /**
-   * Обновляет пособие по запросу на сохранение
+   * Обновляет пособие по запросу на сохранение.
+   * Пособие, его связи и отметка несвежести пользователей сохраняются одной транзакцией
    * @param idBenefit ID пособия
    * @param benefitSave объект запроса для сохранения пособия
    * @throws NotFoundException если пособие с указанным ID не найдено
@@ -159,6 +231,7 @@ public class BenefitServiceFB implements BenefitService {
    * @throws InvalidStringException если строковое поле объекта запроса не содержит букв или цифр
    */
   @Override
+  @Transactional(rollbackFor = Exception.class)
   public void update(String idBenefit, BenefitSave benefitSave) throws NotFoundException, AlreadyExistsException, InvalidStringException {
 
     // Проверка существования пособия по его ID
@@ -169,9 +242,9 @@ public class BenefitServiceFB implements BenefitService {
         benefitRepository::existsByIdIsNotAndName, idBenefit, benefitSave.getName());
 
     // Проверка существования городов, критерий и учреждений по их ID
-    DBSecuritySupport.checkExistenceById(cityService::existsById, benefitSave.getIdCityList());
-    DBSecuritySupport.checkExistenceById(criterionService::existsById, benefitSave.getIdCriterionList());
-    DBSecuritySupport.checkExistenceById(institutionService::existsById, benefitSave.getIdInstitutionList());
+    DBSecuritySupport.checkExistenceByIdList(cityService::findMissingIds, benefitSave.getIdCityList());
+    DBSecuritySupport.checkExistenceByIdList(criterionService::findMissingIds, benefitSave.getIdCriterionList());
+    DBSecuritySupport.checkExistenceByIdList(institutionService::findMissingIds, benefitSave.getIdInstitutionList());
 
     // Получение модели таблицы из запроса с подготовкой строковых значений для БД
     BenefitEntity benefitEntityFromSave = BenefitDBConverter
@@ -180,6 +253,8 @@ public class BenefitServiceFB implements BenefitService {
     benefitEntityFromSave.setId(idBenefit);
 
     benefitRepository.saveAndFlush(benefitEntityFromSave);
+    setLinksToBenefit(benefitEntityFromSave.getId(), benefitSave);
+    referenceDataService.invalidate();
   }
 
   /**
@@ -194,37 +269,24 @@ public class BenefitServiceFB implements BenefitService {
     DBSecuritySupport.checkExistenceById(benefitRepository::existsById, idBenefit);
 
     benefitRepository.deleteById(idBenefit);
+    referenceDataService.invalidate();
   }
 
   /**
-   * Возвращает список пособий, в которых нет городов, учреждений или критерий
-   * @return список кратких информаций о пособиях
+   * Возвращает страницу пособий, в которых нет городов, учреждений или критерий
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций о пособиях
    */
   @Override
-  public List<ObjectShortInfo> readAllPartial() {
+  public List<ObjectShortInfo> readAllPartial(String after, Integer limit) {
 
-    return benefitRepository.findAllPartial()
+    return benefitRepository.findAllPartial(KeysetPage.prepareAfter(after), KeysetPage.prepareLimit(limit, after))
         .stream()
         .map(BenefitDBConverter::toShortInfo)
         .collect(Collectors.toList());
   }
 
-  /**
-   * Возвращает дополнительные данные для пособия.
-   * Данные содержат в себе множества кратких информаций о городах, полных критериях и учреждениях
-   * @return дополнительные данные для пособия
-   */
-  @Override
-  public BenefitInitData getInitData() {
-
-    return BenefitInitData
-        .builder()
-        .shortCityList(cityService.readAllFullShort())
-        .criterionList(criterionService.readAllFull())
-        .shortInstitutionList(institutionService.findAllFullShort())
-        .build();
-  }
-
   /**
    * Возвращает подобранные пользователю пособия
    * @param idUser ID пользователя
@@ -246,28 +308,14 @@ public class BenefitServiceFB implements BenefitService {
     DateTimeSupport.checkBirthdayBefore(userEntityFromRequest.getDateBirth(), localDateCriterion);
     DateTimeSupport.checkChildBirthdayBefore(childBirthRepository.findAllByIdUser(idUser), localDateCriterion);
 
-    // Если пособия пользователя не свежие, то
-    // подбираются пособия, критерии которых включают в себя все критерии пользователя,
-    // обновляется флаг свежести пособий и внесенные изменения сохраняются
-    List<BenefitEntity> usersBenefitList;
-
+    // Пособия пользователя перестраиваются в бд триггерами при изменении критерий и города пользователя.
+    // После изменения пособий пользователь отмечается несвежим и перестраивается фоновым обработчиком.
+    // Если обработчик еще не дошел до пользователя, то пособия подбираются одним запросом в бд
     if (!userEntityFromRequest.isFreshBenefits()) {
-      userRepository.deleteAllBenefits(idUser);
-
-      List<ObjectShortInfo> userCriteria = criterionService.readAllOfUser(idUser);
-      usersBenefitList = benefitRepository.findAllFilter(null, userEntityFromRequest.getIdCity(), null, null);
-      usersBenefitList
-          .stream()
-          .filter(benefitEntity -> userCriteria.containsAll(criterionService.readAllFilter(null, benefitEntity.getId(), null)))
-          .forEach(benefitEntity -> userRepository.addBenefit(idUser, benefitEntity.getId()));
-
-      userEntityFromRequest.setFreshBenefits(true);
-
-    } else {
-      usersBenefitList = benefitRepository.findAllByIdUser(idUser);
+      userRepository.refreshBenefits(preparedIdUser);
     }
 
-    return usersBenefitList
+    return benefitRepository.findAllByIdUser(preparedIdUser)
         .stream()
         .map(BenefitDBConverter::toShortInfo)
         .collect(Collectors.toList());
@@ -284,6 +332,17 @@ public class BenefitServiceFB implements BenefitService {
     return benefitRepository.existsById(idBenefit);
   }
 
+  /**
+   * Возвращает ID пособий, которых нет в базе данных, одним запросом
+   * @param idCsv ID пособий, предварительно обработанные и разделенные запятой
+   * @return список ненайденных ID
+   */
+  @Override
+  public List<String> findMissingIds(String idCsv) {
+
+    return benefitRepository.findMissingIds(idCsv);
+  }
+
   /**
    * Возвращает список кратких информаций пособий, в которых есть город, критерий и учреждение
    * @return список кратких информаций пособий
@@ -291,9 +350,23 @@ public class BenefitServiceFB implements BenefitService {
   @Override
   public List<ObjectShortInfo> findAllFullShort() {
 
-    return benefitRepository.findAllFilter(null, null, null, null)
+    return benefitRepository.findAllFilter("", "", "", "", KeysetPage.FROM_START, KeysetPage.UNLIMITED)
         .stream()
         .map(BenefitDBConverter::toShortInfo)
         .collect(Collectors.toList());
   }
+
+  /**
+   * Заменяет города, критерии и учреждения пособия указанными в запросе на сохранение.
+   * Каждая замена выполняется одним запросом, пользователи отмечаются несвежими триггерами связей.
+   * Вызывается внутри транзакции сохранения пособия
+   * @param idBenefit ID пособия
+   * @param benefitSave объект запроса для сохранения пособия
+   */
+  private void setLinksToBenefit(String idBenefit, BenefitSave benefitSave) {
+
+    benefitRepository.replaceCities(idBenefit, String.join(",", benefitSave.getIdCityList()));
+    benefitRepository.replaceCriteria(idBenefit, String.join(",", benefitSave.getIdCriterionList()));
+    benefitRepository.replaceInstitutions(idBenefit, String.join(",", benefitSave.getIdInstitutionList()));
+  }
 }
@@ -9,14 +9,20 @@ import com.example.familybenefits.part_res_rest_api.api_model.city.CityInfo;
 import com.example.familybenefits.part_res_rest_api.api_model.city.CitySave;
 import com.example.familybenefits.part_res_rest_api.api_model.common.ObjectShortInfo;
 import com.example.familybenefits.part_res_rest_api.converters.CityDBConverter;
+import com.example.familybenefits.part_res_rest_api.models.KeysetPage;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.CityService;
+import com.example.familybenefits.part_res_rest_api.services.interfaces.ReferenceDataService;
 import com.example.familybenefits.security.DBSecuritySupport;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Реализация сервиса, управляющего объектом "город"
@@ -29,37 +35,74 @@ public class CityServiceFB implements CityService {
    */
   private final CityRepository cityRepository;
 
+  /**
+   * Интерфейс сервиса, хранящего снимок справочных данных
+   */
+  private final ReferenceDataService referenceDataService;
+
   /**
    * Конструктор для инициализации интерфейсов репозиториев и сервиса
    * @param cityRepository репозиторий, работающий с моделью таблицы "city"
+   * @param referenceDataService интерфейс сервиса, хранящего снимок справочных данных
    */
   @Autowired
-  public CityServiceFB(CityRepository cityRepository) {
+  public CityServiceFB(CityRepository cityRepository,
+                       @Lazy ReferenceDataService referenceDataService) {
     this.cityRepository = cityRepository;
+    this.referenceDataService = referenceDataService;
   }
 
   /**
-   * Возвращает список городов, в которых есть учреждения и пособия.
+   * Возвращает страницу городов, в которых есть учреждения и пособия.
    * Фильтр по названию, ID пособия или учреждения.
    * В качестве параметра может быть указан null, если данный параметр не участвует в фильтрации
    * @param name название города
    * @param idBenefit ID пособия
    * @param idInstitution ID учреждения
-   * @return список кратких информаций о городах
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций о городах
    */
   @Override
-  public List<ObjectShortInfo> readAllFilter(String name, String idBenefit, String idInstitution) {
+  public List<ObjectShortInfo> readAllFilter(String name, String idBenefit, String idInstitution, String after, Integer limit) {
 
     String preparedName = DBSecuritySupport.preparePostgreSQLString(name);
     String preparedIdBenefit = DBSecuritySupport.preparePostgreSQLString(idBenefit);
     String preparedIdInstitution = DBSecuritySupport.preparePostgreSQLString(idInstitution);
 
-    return cityRepository.findAllFilter(preparedName, preparedIdBenefit, preparedIdInstitution)
+    return cityRepository.findAllFilter(
+        preparedName, preparedIdBenefit, preparedIdInstitution, KeysetPage.prepareAfter(after), KeysetPage.prepareLimit(limit, after))
         .stream()
         .map(CityDBConverter::toShortInfo)
         .collect(Collectors.toList());
   }
 
+  /**
+   * Передает получателю краткие информации о городах по мере чтения из бд, не собирая их в список.
+   * Фильтр такой же, как у {@link #readAllFilter}, количество объектов по умолчанию не ограничено
+   * @param name название города
+   * @param idBenefit ID пособия
+   * @param idInstitution ID учреждения
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit максимальное количество объектов, null - без ограничения
+   * @param consumer получатель кратких информаций о городах, вызывается в порядке возрастания ID
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public void writeAllFilter(String name, String idBenefit, String idInstitution, String after, Integer limit, Consumer<ObjectShortInfo> consumer) {
+
+    String preparedName = DBSecuritySupport.preparePostgreSQLString(name);
+    String preparedIdBenefit = DBSecuritySupport.preparePostgreSQLString(idBenefit);
+    String preparedIdInstitution = DBSecuritySupport.preparePostgreSQLString(idInstitution);
+
+    try (Stream<Object[]> shortRowStream = cityRepository.streamShortFilter(
+        preparedName, preparedIdBenefit, preparedIdInstitution, KeysetPage.prepareAfter(after), KeysetPage.prepareStreamLimit(limit))) {
+      shortRowStream
+          .map(CityDBConverter::toShortInfo)
+          .forEach(consumer);
+    }
+  }
+
   /**
    * Создает город по запросу на сохранение
    * @param citySave объект запроса на сохранение города
@@ -75,6 +118,7 @@ public class CityServiceFB implements CityService {
     // Получение модели таблицы из запроса с подготовкой строковых значений для БД
     cityRepository.saveAndFlush(
         CityDBConverter.fromSave(null, citySave, DBSecuritySupport::preparePostgreSQLString));
+    referenceDataService.invalidate();
   }
 
   /**
@@ -119,6 +163,7 @@ public class CityServiceFB implements CityService {
     cityEntityFromSave.setId(idCity);
 
     cityRepository.saveAndFlush(cityEntityFromSave);
+    referenceDataService.invalidate();
   }
 
   /**
@@ -133,16 +178,19 @@ public class CityServiceFB implements CityService {
     DBSecuritySupport.checkExistenceById(cityRepository::existsById, idCity);
 
     cityRepository.deleteById(idCity);
+    referenceDataService.invalidate();
   }
 
   /**
-   * Возвращает список городов, в которых нет учреждений или пособий
-   * @return список кратких информаций о городах
+   * Возвращает страницу городов, в которых нет учреждений или пособий
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций о городах
    */
   @Override
-  public List<ObjectShortInfo> readAllPartial() {
+  public List<ObjectShortInfo> readAllPartial(String after, Integer limit) {
 
-    return cityRepository.findAllPartial()
+    return cityRepository.findAllPartial(KeysetPage.prepareAfter(after), KeysetPage.prepareLimit(limit, after))
         .stream()
         .map(CityDBConverter::toShortInfo)
         .collect(Collectors.toList());
@@ -159,6 +207,17 @@ public class CityServiceFB implements CityService {
     return cityRepository.existsById(idCity);
   }
 
+  /**
+   * Возвращает ID городов, которых нет в базе данных, одним запросом
+   * @param idCsv ID городов, предварительно обработанные и разделенные запятой
+   * @return список ненайденных ID
+   */
+  @Override
+  public List<String> findMissingIds(String idCsv) {
+
+    return cityRepository.findMissingIds(idCsv);
+  }
+
   /**
    * Возвращает список кратких информаций о городах, в которых есть пособия и учреждения
    * @return список кратких информаций о городах
@@ -167,7 +226,7 @@ public class CityServiceFB implements CityService {
   public List<ObjectShortInfo> readAllFullShort() {
 
     return cityRepository
-        .findAllFilter(null, null, null)
+        .findAllFilter("", "", "", KeysetPage.FROM_START, KeysetPage.UNLIMITED)
         .stream()
         .map(CityDBConverter::toShortInfo)
         .collect(Collectors.toList());
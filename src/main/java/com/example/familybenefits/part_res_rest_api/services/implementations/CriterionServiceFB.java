@@ -7,19 +7,24 @@ import com.example.familybenefits.exceptions.InvalidStringException;
 import com.example.familybenefits.exceptions.NotFoundException;
 import com.example.familybenefits.part_res_rest_api.api_model.common.ObjectShortInfo;
 import com.example.familybenefits.part_res_rest_api.api_model.criterion.CriterionInfo;
-import com.example.familybenefits.part_res_rest_api.api_model.criterion.CriterionInitData;
 import com.example.familybenefits.part_res_rest_api.api_model.criterion.CriterionSave;
 import com.example.familybenefits.part_res_rest_api.converters.CriterionDBConverter;
+import com.example.familybenefits.part_res_rest_api.models.KeysetPage;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.CriterionService;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.CriterionTypeService;
+import com.example.familybenefits.part_res_rest_api.services.interfaces.ReferenceDataService;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.UserService;
 import com.example.familybenefits.security.DBSecuritySupport;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Реализация сервиса, управляющего объектом "критерий"
@@ -41,38 +46,99 @@ public class CriterionServiceFB implements CriterionService {
    */
   private final UserService userService;
 
+  /**
+   * Интерфейс сервиса, хранящего снимок справочных данных
+   */
+  private final ReferenceDataService referenceDataService;
+
   /**
    * Конструктор для инициализации интерфейсов репозиториев и сервиса
    * @param criterionRepository репозиторий, работающий с моделью таблицы "criterion"
    * @param criterionTypeService интерфейс сервиса, управляющего объектом "тип критерия"
    * @param userService интерфейс сервиса, управляющего объектом "пользователь"
+   * @param referenceDataService интерфейс сервиса, хранящего снимок справочных данных
    */
   @Autowired
   public CriterionServiceFB(CriterionRepository criterionRepository,
                             CriterionTypeService criterionTypeService,
-                            @Lazy UserService userService) {
+                            @Lazy UserService userService,
+                            @Lazy ReferenceDataService referenceDataService) {
     this.criterionRepository = criterionRepository;
     this.criterionTypeService = criterionTypeService;
     this.userService = userService;
+    this.referenceDataService = referenceDataService;
   }
 
   /**
-   * Возвращает список критерий, в которых есть пособия.
+   * Возвращает страницу критерий, в которых есть пособия.
    * Фильтр по названию, ID пособия или типа критерия.
    * В качестве параметра может быть указан null, если данный параметр не участвует в фильтрации
    * @param name название критерия
    * @param idBenefit ID пособия
    * @param idCriterionType ID типа критерия
-   * @return список кратких информаций о критериях
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций о критериях
    */
   @Override
-  public List<ObjectShortInfo> readAllFilter(String name, String idBenefit, String idCriterionType) {
+  public List<ObjectShortInfo> readAllFilter(String name, String idBenefit, String idCriterionType, String after, Integer limit) {
 
     String preparedName = DBSecuritySupport.preparePostgreSQLString(name);
     String preparedIdBenefit = DBSecuritySupport.preparePostgreSQLString(idBenefit);
     String preparedIdCriterionType = DBSecuritySupport.preparePostgreSQLString(idCriterionType);
 
-    return criterionRepository.findAllFilter(preparedName, preparedIdBenefit, preparedIdCriterionType)
+    return criterionRepository.findAllFilter(
+        preparedName, preparedIdBenefit, preparedIdCriterionType, KeysetPage.prepareAfter(after), KeysetPage.prepareLimit(limit, after))
+        .stream()
+        .map(CriterionDBConverter::toShortInfo)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Передает получателю краткие информации о критериях по мере чтения из бд, не собирая их в список.
+   * Фильтр такой же, как у {@link #readAllFilter}, количество объектов по умолчанию не ограничено
+   * @param name название критерия
+   * @param idBenefit ID пособия
+   * @param idCriterionType ID типа критерия
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit максимальное количество объектов, null - без ограничения
+   * @param consumer получатель кратких информаций о критериях, вызывается в порядке возрастания ID
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public void writeAllFilter(String name, String idBenefit, String idCriterionType, String after, Integer limit, Consumer<ObjectShortInfo> consumer) {
+
+    String preparedName = DBSecuritySupport.preparePostgreSQLString(name);
+    String preparedIdBenefit = DBSecuritySupport.preparePostgreSQLString(idBenefit);
+    String preparedIdCriterionType = DBSecuritySupport.preparePostgreSQLString(idCriterionType);
+
+    try (Stream<Object[]> shortRowStream = criterionRepository.streamShortFilter(
+        preparedName, preparedIdBenefit, preparedIdCriterionType, KeysetPage.prepareAfter(after), KeysetPage.prepareStreamLimit(limit))) {
+      shortRowStream
+          .map(CriterionDBConverter::toShortInfo)
+          .forEach(consumer);
+    }
+  }
+
+  /**
+   * Возвращает страницу критериев, найденных по тексту запроса, в порядке убывания релевантности.
+   * Найдены критерии, у которых название или информация содержат слова запроса, или название содержит текст запроса.
+   * Ищутся только критериев, возвращаемые {@link #readAllFilter}
+   * @param text текст запроса
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT}
+   * @param offset количество пропускаемых объектов, null - 0
+   * @return страница кратких информаций о критериях, пустая, если текст запроса не указан
+   */
+  @Override
+  public List<ObjectShortInfo> search(String text, Integer limit, Integer offset) {
+
+    if (text == null || text.isBlank()) {
+      return Collections.emptyList();
+    }
+
+    return criterionRepository.search(
+        DBSecuritySupport.preparePostgreSQLString(text), DBSecuritySupport.prepareLikeContainsPattern(text),
+        KeysetPage.prepareLimit(limit), KeysetPage.prepareOffset(offset))
         .stream()
         .map(CriterionDBConverter::toShortInfo)
         .collect(Collectors.toList());
@@ -98,6 +164,7 @@ public class CriterionServiceFB implements CriterionService {
         .fromSave(null, criterionSave, DBSecuritySupport::preparePostgreSQLString);
 
     criterionRepository.saveAndFlush(criterionEntityFromSave);
+    referenceDataService.invalidate();
   }
 
   /**
@@ -146,6 +213,7 @@ public class CriterionServiceFB implements CriterionService {
     criterionEntityFromSave.setId(idCriterion);
 
     criterionRepository.saveAndFlush(criterionEntityFromSave);
+    referenceDataService.invalidate();
   }
 
   /**
@@ -160,35 +228,24 @@ public class CriterionServiceFB implements CriterionService {
     DBSecuritySupport.checkExistenceById(criterionRepository::existsById, idCriterion);
 
     criterionRepository.deleteById(idCriterion);
+    referenceDataService.invalidate();
   }
 
   /**
-   * Возвращает список критерий, в которых нет пособий
-   * @return список кратких информаций о критериях
+   * Возвращает страницу критерий, в которых нет пособий
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций о критериях
    */
   @Override
-  public List<ObjectShortInfo> readAllPartial() {
+  public List<ObjectShortInfo> readAllPartial(String after, Integer limit) {
 
-    return criterionRepository.findAllPartial()
+    return criterionRepository.findAllPartial(KeysetPage.prepareAfter(after), KeysetPage.prepareLimit(limit, after))
         .stream()
         .map(CriterionDBConverter::toShortInfo)
         .collect(Collectors.toList());
   }
 
-  /**
-   * Возвращает дополнительные данные для критерия.
-   * Данные содержат в себе список кратких информаций о типах критерий
-   * @return дополнительные данные для критерия
-   */
-  @Override
-  public CriterionInitData getInitData() {
-
-    return CriterionInitData
-        .builder()
-        .shortCriterionTypeList(criterionTypeService.readAllFullShort())
-        .build();
-  }
-
   /**
    * Возвращает критерии пользователя
    * @param idUser ID пользователя
@@ -216,7 +273,8 @@ public class CriterionServiceFB implements CriterionService {
   public List<ObjectShortInfo> readAllOfBenefit(String idBenefit) {
 
     String preparedIdBenefit = DBSecuritySupport.preparePostgreSQLString(idBenefit);
-    return criterionRepository.findAllFilter(null, preparedIdBenefit, null)
+    return criterionRepository.findAllFilter(
+        "", preparedIdBenefit, "", KeysetPage.FROM_START, KeysetPage.UNLIMITED)
         .stream()
         .map(CriterionDBConverter::toShortInfo)
         .collect(Collectors.toList());
@@ -234,16 +292,27 @@ public class CriterionServiceFB implements CriterionService {
   }
 
   /**
-   * Возвращает список информаций о критериях, в которых есть пособия
+   * Возвращает ID критериев, которых нет в базе данных, одним запросом
+   * @param idCsv ID критериев, предварительно обработанные и разделенные запятой
+   * @return список ненайденных ID
+   */
+  @Override
+  public List<String> findMissingIds(String idCsv) {
+
+    return criterionRepository.findMissingIds(idCsv);
+  }
+
+  /**
+   * Возвращает список информаций о критериях, в которых есть пособия, вместе с названиями их типов
    * @return список информаций о критериях
    */
   @Override
+  @Transactional(readOnly = true)
   public List<CriterionInfo> readAllFull() {
 
-    return criterionRepository.findAllFilter(null, null, null)
-        .stream()
-        .map(criterionEntity -> CriterionDBConverter
-            .toInfo(criterionEntity, criterionTypeService.readNameByIdCriterion(criterionEntity.getId())))
-        .collect(Collectors.toList());
+    // Критерии и названия их типов читаются одним запросом
+    try (Stream<Object[]> criterionRowStream = criterionRepository.streamAllFullWithNameType()) {
+      return CriterionDBConverter.toInfoList(criterionRowStream);
+    }
   }
 }
@@ -9,13 +9,19 @@ import com.example.familybenefits.part_res_rest_api.api_model.common.ObjectShort
 import com.example.familybenefits.part_res_rest_api.api_model.criterion_type.CriterionTypeInfo;
 import com.example.familybenefits.part_res_rest_api.api_model.criterion_type.CriterionTypeSave;
 import com.example.familybenefits.part_res_rest_api.converters.CriterionTypeDBConverter;
+import com.example.familybenefits.part_res_rest_api.models.KeysetPage;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.CriterionTypeService;
+import com.example.familybenefits.part_res_rest_api.services.interfaces.ReferenceDataService;
 import com.example.familybenefits.security.DBSecuritySupport;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Реализация сервиса, управляющего объектом "тип критерия"
@@ -28,35 +34,70 @@ public class CriterionTypeServiceFB implements CriterionTypeService {
    */
   private final CriterionTypeRepository criterionTypeRepository;
 
+  /**
+   * Интерфейс сервиса, хранящего снимок справочных данных
+   */
+  private final ReferenceDataService referenceDataService;
+
   /**
    * Конструктор для инициализации интерфейсов репозитория и сервиса
    * @param criterionTypeRepository репозиторий, работающий с моделью таблицы "criterion_type"
+   * @param referenceDataService интерфейс сервиса, хранящего снимок справочных данных
    */
   @Autowired
-  public CriterionTypeServiceFB(CriterionTypeRepository criterionTypeRepository) {
+  public CriterionTypeServiceFB(CriterionTypeRepository criterionTypeRepository,
+                                @Lazy ReferenceDataService referenceDataService) {
     this.criterionTypeRepository = criterionTypeRepository;
+    this.referenceDataService = referenceDataService;
   }
 
   /**
-   * Возвращает список типов критерия, в которых есть критерии
+   * Возвращает страницу типов критерия, в которых есть критерии
    * Фильтр по названию или ID критерия.
    * В качестве параметра может быть указан null, если данный параметр не участвует в фильтрации
    * @param name название типа критерия
    * @param idCriterion ID критерия
-   * @return список кратких информаций о типах критерий
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций о типах критерий
    */
   @Override
-  public List<ObjectShortInfo> readAllFilter(String name, String idCriterion) {
+  public List<ObjectShortInfo> readAllFilter(String name, String idCriterion, String after, Integer limit) {
 
     String preparedName = DBSecuritySupport.preparePostgreSQLString(name);
     String preparedIdCriterion = DBSecuritySupport.preparePostgreSQLString(idCriterion);
 
-    return criterionTypeRepository.findAllFilter(preparedName, preparedIdCriterion)
+    return criterionTypeRepository.findAllFilter(
+        preparedName, preparedIdCriterion, KeysetPage.prepareAfter(after), KeysetPage.prepareLimit(limit, after))
         .stream()
         .map(CriterionTypeDBConverter::toShortInfo)
         .collect(Collectors.toList());
   }
 
+  /**
+   * Передает получателю краткие информации о типах критерий по мере чтения из бд, не собирая их в список.
+   * Фильтр такой же, как у {@link #readAllFilter}, количество объектов по умолчанию не ограничено
+   * @param name название типа критерия
+   * @param idCriterion ID критерия
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit максимальное количество объектов, null - без ограничения
+   * @param consumer получатель кратких информаций о типах критерий, вызывается в порядке возрастания ID
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public void writeAllFilter(String name, String idCriterion, String after, Integer limit, Consumer<ObjectShortInfo> consumer) {
+
+    String preparedName = DBSecuritySupport.preparePostgreSQLString(name);
+    String preparedIdCriterion = DBSecuritySupport.preparePostgreSQLString(idCriterion);
+
+    try (Stream<Object[]> shortRowStream = criterionTypeRepository.streamShortFilter(
+        preparedName, preparedIdCriterion, KeysetPage.prepareAfter(after), KeysetPage.prepareStreamLimit(limit))) {
+      shortRowStream
+          .map(CriterionTypeDBConverter::toShortInfo)
+          .forEach(consumer);
+    }
+  }
+
   /**
    * Создает тип критерия по запросу на сохранение
    * @param criterionTypeSave объект запроса для сохранения типа критерия
@@ -74,6 +115,7 @@ public class CriterionTypeServiceFB implements CriterionTypeService {
         .fromSave(null, criterionTypeSave, DBSecuritySupport::preparePostgreSQLString);
 
     criterionTypeRepository.saveAndFlush(criterionTypeEntityFromSave);
+    referenceDataService.invalidate();
   }
 
   /**
@@ -117,6 +159,7 @@ public class CriterionTypeServiceFB implements CriterionTypeService {
     criterionTypeEntityFromSave.setId(idCriterionType);
 
     criterionTypeRepository.saveAndFlush(criterionTypeEntityFromSave);
+    referenceDataService.invalidate();
   }
 
   /**
@@ -131,16 +174,19 @@ public class CriterionTypeServiceFB implements CriterionTypeService {
     DBSecuritySupport.checkExistenceById(criterionTypeRepository::existsById, idCriterionType);
 
     criterionTypeRepository.deleteById(idCriterionType);
+    referenceDataService.invalidate();
   }
 
   /**
-   * Возвращает список типов критерия, в которых нет критерий
-   * @return список кратких информаций о типах критерий
+   * Возвращает страницу типов критерия, в которых нет критерий
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций о типах критерий
    */
   @Override
-  public List<ObjectShortInfo> readAllPartial() {
+  public List<ObjectShortInfo> readAllPartial(String after, Integer limit) {
 
-    return criterionTypeRepository.findAllPartial()
+    return criterionTypeRepository.findAllPartial(KeysetPage.prepareAfter(after), KeysetPage.prepareLimit(limit, after))
         .stream()
         .map(CriterionTypeDBConverter::toShortInfo)
         .collect(Collectors.toList());
@@ -164,7 +210,7 @@ public class CriterionTypeServiceFB implements CriterionTypeService {
   @Override
   public List<ObjectShortInfo> readAllFullShort() {
 
-    return criterionTypeRepository.findAllFilter(null, null)
+    return criterionTypeRepository.findAllFilter("", "", KeysetPage.FROM_START, KeysetPage.UNLIMITED)
         .stream()
         .map(CriterionTypeDBConverter::toShortInfo)
         .collect(Collectors.toList());
@@ -180,7 +226,8 @@ public class CriterionTypeServiceFB implements CriterionTypeService {
 
     // Получение типа критерия по ID критерия, если критерий существует
     String preparedIdCriterion = DBSecuritySupport.preparePostgreSQLString(idCriterion);
-    List<CriterionTypeEntity> criterionTypeEntityList = criterionTypeRepository.findAllFilter(null, preparedIdCriterion);
+    List<CriterionTypeEntity> criterionTypeEntityList = criterionTypeRepository.findAllFilter(
+        "", preparedIdCriterion, KeysetPage.FROM_START, 1);
 
     if (criterionTypeEntityList.isEmpty()) {
       return null;
@@ -7,19 +7,24 @@ import com.example.familybenefits.exceptions.InvalidStringException;
 import com.example.familybenefits.exceptions.NotFoundException;
 import com.example.familybenefits.part_res_rest_api.api_model.common.ObjectShortInfo;
 import com.example.familybenefits.part_res_rest_api.api_model.institution.InstitutionInfo;
-import com.example.familybenefits.part_res_rest_api.api_model.institution.InstitutionInitData;
 import com.example.familybenefits.part_res_rest_api.api_model.institution.InstitutionSave;
 import com.example.familybenefits.part_res_rest_api.converters.InstitutionDBConverter;
+import com.example.familybenefits.part_res_rest_api.models.KeysetPage;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.BenefitService;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.CityService;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.InstitutionService;
+import com.example.familybenefits.part_res_rest_api.services.interfaces.ReferenceDataService;
 import com.example.familybenefits.security.DBSecuritySupport;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Реализация сервиса, управляющего объектом "учреждение"
@@ -41,38 +46,99 @@ public class InstitutionServiceFB implements InstitutionService {
    */
   private final BenefitService benefitService;
 
+  /**
+   * Интерфейс сервиса, хранящего снимок справочных данных
+   */
+  private final ReferenceDataService referenceDataService;
+
   /**
    * Конструктор для инициализации интерфейсов репозиториев и сервиса
    * @param institutionRepository репозиторий, работающий с моделью таблицы "institution"
    * @param cityService интерфейс сервиса, управляющего объектом "город"
    * @param benefitService интерфейс сервиса, управляющего объектом "пособие"
+   * @param referenceDataService интерфейс сервиса, хранящего снимок справочных данных
    */
   @Autowired
   public InstitutionServiceFB(InstitutionRepository institutionRepository,
                               CityService cityService,
-                              @Lazy BenefitService benefitService) {
+                              @Lazy BenefitService benefitService,
+                              @Lazy ReferenceDataService referenceDataService) {
     this.institutionRepository = institutionRepository;
     this.cityService = cityService;
     this.benefitService = benefitService;
+    this.referenceDataService = referenceDataService;
   }
 
   /**
-   * Возвращает список учреждений, в которых есть пособия и города.
+   * Возвращает страницу учреждений, в которых есть пособия и города.
    * Фильтр по названию, ID города или пособия.
    * В качестве параметра может быть указан null, если данный параметр не участвует в фильтрации
    * @param name название учреждения
    * @param idCity ID города
    * @param idBenefit ID пособия
-   * @return список кратких информаций об учреждениях
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций об учреждениях
+   */
+  @Override
+  public List<ObjectShortInfo> readAllFilter(String name, String idCity, String idBenefit, String after, Integer limit) {
+
+    String preparedName = DBSecuritySupport.preparePostgreSQLString(name);
+    String preparedIdCity = DBSecuritySupport.preparePostgreSQLString(idCity);
+    String preparedIdBenefit = DBSecuritySupport.preparePostgreSQLString(idBenefit);
+
+    return institutionRepository.findAllFilter(
+        preparedName, preparedIdCity, preparedIdBenefit, KeysetPage.prepareAfter(after), KeysetPage.prepareLimit(limit, after))
+        .stream()
+        .map(InstitutionDBConverter::toShortInfo)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Передает получателю краткие информации о учреждениях по мере чтения из бд, не собирая их в список.
+   * Фильтр такой же, как у {@link #readAllFilter}, количество объектов по умолчанию не ограничено
+   * @param name название учреждения
+   * @param idCity ID города
+   * @param idBenefit ID пособия
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit максимальное количество объектов, null - без ограничения
+   * @param consumer получатель кратких информаций о учреждениях, вызывается в порядке возрастания ID
    */
   @Override
-  public List<ObjectShortInfo> readAllFilter(String name, String idCity, String idBenefit) {
+  @Transactional(readOnly = true)
+  public void writeAllFilter(String name, String idCity, String idBenefit, String after, Integer limit, Consumer<ObjectShortInfo> consumer) {
 
     String preparedName = DBSecuritySupport.preparePostgreSQLString(name);
     String preparedIdCity = DBSecuritySupport.preparePostgreSQLString(idCity);
     String preparedIdBenefit = DBSecuritySupport.preparePostgreSQLString(idBenefit);
 
-    return institutionRepository.findAllFilter(preparedName, preparedIdCity, preparedIdBenefit)
+    try (Stream<Object[]> shortRowStream = institutionRepository.streamShortFilter(
+        preparedName, preparedIdCity, preparedIdBenefit, KeysetPage.prepareAfter(after), KeysetPage.prepareStreamLimit(limit))) {
+      shortRowStream
+          .map(InstitutionDBConverter::toShortInfo)
+          .forEach(consumer);
+    }
+  }
+
+  /**
+   * Возвращает страницу учреждений, найденных по тексту запроса, в порядке убывания релевантности.
+   * Найдены учреждения, у которых название или адрес содержат слова запроса, или название или адрес содержит текст запроса.
+   * Ищутся только учреждений, возвращаемые {@link #readAllFilter}
+   * @param text текст запроса
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT}
+   * @param offset количество пропускаемых объектов, null - 0
+   * @return страница кратких информаций о учреждениях, пустая, если текст запроса не указан
+   */
+  @Override
+  public List<ObjectShortInfo> search(String text, Integer limit, Integer offset) {
+
+    if (text == null || text.isBlank()) {
+      return Collections.emptyList();
+    }
+
+    return institutionRepository.search(
+        DBSecuritySupport.preparePostgreSQLString(text), DBSecuritySupport.prepareLikeContainsPattern(text),
+        KeysetPage.prepareLimit(limit), KeysetPage.prepareOffset(offset))
         .stream()
         .map(InstitutionDBConverter::toShortInfo)
         .collect(Collectors.toList());
@@ -93,13 +159,14 @@ public class InstitutionServiceFB implements InstitutionService {
 
     // Проверка существования города и пособий по их ID
     DBSecuritySupport.checkExistenceById(cityService::existsById, institutionSave.getIdCity());
-    DBSecuritySupport.checkExistenceById(benefitService::existsById, institutionSave.getIdBenefitList());
+    DBSecuritySupport.checkExistenceByIdList(benefitService::findMissingIds, institutionSave.getIdBenefitList());
 
     // Получение модели таблицы из запроса с подготовкой строковых значений для БД
     InstitutionEntity institutionEntityFromSave = InstitutionDBConverter
         .fromSave(null, institutionSave, DBSecuritySupport::preparePostgreSQLString);
 
     institutionRepository.saveAndFlush(institutionEntityFromSave);
+    referenceDataService.invalidate();
   }
 
   /**
@@ -140,7 +207,7 @@ public class InstitutionServiceFB implements InstitutionService {
 
     // Проверка существования города и пособий по их ID
     DBSecuritySupport.checkExistenceById(cityService::existsById, institutionSave.getIdCity());
-    DBSecuritySupport.checkExistenceById(benefitService::existsById, institutionSave.getIdBenefitList());
+    DBSecuritySupport.checkExistenceByIdList(benefitService::findMissingIds, institutionSave.getIdBenefitList());
 
     // Получение модели таблицы из запроса с подготовкой строковых значений для БД
     InstitutionEntity institutionEntityFromSave = InstitutionDBConverter
@@ -149,6 +216,7 @@ public class InstitutionServiceFB implements InstitutionService {
     institutionEntityFromSave.setId(idInstitution);
 
     institutionRepository.saveAndFlush(institutionEntityFromSave);
+    referenceDataService.invalidate();
   }
 
   /**
@@ -163,45 +231,44 @@ public class InstitutionServiceFB implements InstitutionService {
     DBSecuritySupport.checkExistenceById(institutionRepository::existsById, idInstitution);
 
     institutionRepository.deleteById(idInstitution);
+    referenceDataService.invalidate();
   }
 
   /**
-   * Возвращает список учреждений, в которых нет пособий
-   * @return список кратких информаций об учреждениях
+   * Возвращает страницу учреждений, в которых нет пособий
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций об учреждениях
    */
   @Override
-  public List<ObjectShortInfo> readAllPartial() {
+  public List<ObjectShortInfo> readAllPartial(String after, Integer limit) {
 
-    return institutionRepository.findAllPartial()
+    return institutionRepository.findAllPartial(KeysetPage.prepareAfter(after), KeysetPage.prepareLimit(limit, after))
         .stream()
         .map(InstitutionDBConverter::toShortInfo)
         .collect(Collectors.toList());
   }
 
   /**
-   * Возвращает дополнительные данные для учреждения.
-   * Данные содержат в себе список кратких информаций о городах.
-   * @return дополнительные данные для учреждения
+   * Проверяет существование учреждения по его ID
+   * @param idInstitution ID учреждения, предварительно обработанный
+   * @return true, если учреждение найдено
    */
   @Override
-  public InstitutionInitData getInitData() {
+  public boolean existsById(String idInstitution) {
 
-    return InstitutionInitData
-        .builder()
-        .shortCityList(cityService.readAllFullShort())
-        .shortBenefitList(benefitService.findAllFullShort())
-        .build();
+    return institutionRepository.existsById(idInstitution);
   }
 
   /**
-   * Проверяет существование учреждения по его ID
-   * @param idInstitution ID учреждения, предварительно обработанный
-   * @return true, если учреждение найдено
+   * Возвращает ID учреждений, которых нет в базе данных, одним запросом
+   * @param idCsv ID учреждений, предварительно обработанные и разделенные запятой
+   * @return список ненайденных ID
    */
   @Override
-  public boolean existsById(String idInstitution) {
+  public List<String> findMissingIds(String idCsv) {
 
-    return institutionRepository.existsById(idInstitution);
+    return institutionRepository.findMissingIds(idCsv);
   }
 
   /**
@@ -211,7 +278,7 @@ public class InstitutionServiceFB implements InstitutionService {
   @Override
   public List<ObjectShortInfo> findAllFullShort() {
 
-    return institutionRepository.findAllFilter(null, null, null)
+    return institutionRepository.findAllFilter("", "", "", KeysetPage.FROM_START, KeysetPage.UNLIMITED)
         .stream()
         .map(InstitutionDBConverter::toShortInfo)
         .collect(Collectors.toList());
@@ -0,0 +1,282 @@
+package com.example.familybenefits.part_res_rest_api.services.implementations;
+
+import com.example.familybenefits.cluster.ClusterChannel;
+import com.example.familybenefits.cluster.ClusterNotificationChannel;
+import com.example.familybenefits.cluster.ClusterNotificationListener;
+import com.example.familybenefits.part_res_rest_api.api_model.benefit.BenefitInitData;
+import com.example.familybenefits.part_res_rest_api.api_model.common.ObjectShortInfo;
+import com.example.familybenefits.part_res_rest_api.api_model.criterion.CriterionInfo;
+import com.example.familybenefits.part_res_rest_api.api_model.criterion.CriterionInitData;
+import com.example.familybenefits.part_res_rest_api.api_model.institution.InstitutionInitData;
+import com.example.familybenefits.part_res_rest_api.api_model.user.UserInitData;
+import com.example.familybenefits.part_res_rest_api.models.ReferenceDataSnapshot;
+import com.example.familybenefits.part_res_rest_api.services.interfaces.*;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Реализация сервиса, хранящего снимок справочных данных для запросов дополнительных данных.
+ * Снимок создается один раз после каждого изменения данных и используется всеми запросами без обращения к бд.
+ * Об изменении данных уведомляются остальные экземпляры приложения. Снимок также пересоздается по истечении
+ * времени жизни, если уведомление было потеряно
+ */
+@Slf4j
+@Service
+public class ReferenceDataServiceFB implements ReferenceDataService, ClusterNotificationListener {
+
+  /**
+   * Количество байт хэша содержимого, используемых в ETag
+   */
+  private static final int ETAG_HASH_BYTES = 16;
+  /**
+   * Время жизни снимка в секундах. Ограничивает время выдачи устаревших данных при потере уведомления об изменении
+   */
+  private static final long SNAPSHOT_TTL_SEC = 300;
+
+  /**
+   * Интерфейс сервиса, управляющего объектом "город"
+   */
+  private final CityService cityService;
+  /**
+   * Интерфейс сервиса, управляющего объектом "критерий"
+   */
+  private final CriterionService criterionService;
+  /**
+   * Интерфейс сервиса, управляющего объектом "тип критерия"
+   */
+  private final CriterionTypeService criterionTypeService;
+  /**
+   * Интерфейс сервиса, управляющего объектом "учреждение"
+   */
+  private final InstitutionService institutionService;
+  /**
+   * Интерфейс сервиса, управляющего объектом "пособие"
+   */
+  private final BenefitService benefitService;
+  /**
+   * Преобразователь объектов в json, по которому вычисляется ETag
+   */
+  private final ObjectMapper objectMapper;
+  /**
+   * Уведомления между экземплярами приложения
+   */
+  private final ClusterNotificationChannel clusterNotificationChannel;
+
+  /**
+   * Блокировка создания снимка. Снимок создает один поток, остальные ожидают его
+   */
+  private final Object buildLock = new Object();
+  /**
+   * Актуальный снимок или {@code null}, если снимок сброшен
+   */
+  private volatile ReferenceDataSnapshot snapshot;
+  /**
+   * Момент устаревания актуального снимка, в наносекундах {@link System#nanoTime()}
+   */
+  private volatile long snapshotExpirationNanos;
+  /**
+   * Номер изменения данных. Увеличивается при каждом сбросе снимка
+   */
+  private long modificationNumber = 0;
+  /**
+   * Номер версии последнего созданного снимка
+   */
+  private long lastVersion = 0;
+
+  /**
+   * Конструктор для инициализации интерфейсов сервисов
+   * @param cityService интерфейс сервиса, управляющего объектом "город"
+   * @param criterionService интерфейс сервиса, управляющего объектом "критерий"
+   * @param criterionTypeService интерфейс сервиса, управляющего объектом "тип критерия"
+   * @param institutionService интерфейс сервиса, управляющего объектом "учреждение"
+   * @param benefitService интерфейс сервиса, управляющего объектом "пособие"
+   * @param objectMapper преобразователь объектов в json
+   * @param clusterNotificationChannel уведомления между экземплярами приложения
+   */
+  @Autowired
+  public ReferenceDataServiceFB(CityService cityService,
+                                CriterionService criterionService,
+                                CriterionTypeService criterionTypeService,
+                                InstitutionService institutionService,
+                                BenefitService benefitService,
+                                ObjectMapper objectMapper,
+                                ClusterNotificationChannel clusterNotificationChannel) {
+    this.cityService = cityService;
+    this.criterionService = criterionService;
+    this.criterionTypeService = criterionTypeService;
+    this.institutionService = institutionService;
+    this.benefitService = benefitService;
+    this.objectMapper = objectMapper;
+    this.clusterNotificationChannel = clusterNotificationChannel;
+  }
+
+  /**
+   * Подписывается на канал изменения справочных данных
+   */
+  @PostConstruct
+  public void subscribe() {
+    clusterNotificationChannel.subscribe(ClusterChannel.REFERENCE_DATA_CHANGE, this);
+  }
+
+  /**
+   * Возвращает актуальный снимок справочных данных, создавая его при отсутствии
+   * @return снимок справочных данных
+   */
+  @Override
+  public ReferenceDataSnapshot getSnapshot() {
+
+    ReferenceDataSnapshot currentSnapshot = snapshot;
+    if (isActual(currentSnapshot)) {
+      return currentSnapshot;
+    }
+
+    synchronized (buildLock) {
+      // Снимок мог быть создан другим потоком за время ожидания
+      currentSnapshot = snapshot;
+      if (isActual(currentSnapshot)) {
+        return currentSnapshot;
+      }
+
+      long buildModificationNumber;
+      long version;
+      synchronized (this) {
+        buildModificationNumber = modificationNumber;
+        version = ++lastVersion;
+      }
+
+      ReferenceDataSnapshot builtSnapshot = build(version);
+
+      // Если за время создания данные изменились, снимок используется только для текущего запроса
+      synchronized (this) {
+        if (buildModificationNumber == modificationNumber) {
+          snapshotExpirationNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(SNAPSHOT_TTL_SEC);
+          snapshot = builtSnapshot;
+        }
+      }
+
+      log.info("DB. Reference data snapshot {} with ETag {} was built", version, builtSnapshot.getETag());
+      return builtSnapshot;
+    }
+  }
+
+  /**
+   * Сбрасывает снимок после изменения городов, критерий, типов критерий, учреждений или пособий
+   * в этом и остальных экземплярах приложения. Новый снимок будет создан при следующем запросе
+   */
+  @Override
+  public void invalidate() {
+
+    invalidateLocally();
+    clusterNotificationChannel.publish(ClusterChannel.REFERENCE_DATA_CHANGE, "");
+  }
+
+  /**
+   * Сбрасывает снимок по уведомлению об изменении данных от экземпляра приложения
+   * @param payload содержимое уведомления, не используется
+   */
+  @Override
+  public void onNotification(String payload) {
+    invalidateLocally();
+  }
+
+  /**
+   * Сбрасывает снимок, так как уведомления, отправленные без подписки, потеряны
+   */
+  @Override
+  public void onSubscribed() {
+    invalidateLocally();
+  }
+
+  /**
+   * Сбрасывает снимок только в этом экземпляре приложения
+   */
+  private void invalidateLocally() {
+
+    synchronized (this) {
+      modificationNumber++;
+      snapshot = null;
+    }
+  }
+
+  /**
+   * Проверяет, можно ли выдать снимок без пересоздания
+   * @param currentSnapshot снимок или {@code null}
+   * @return true, если снимок существует и не устарел
+   */
+  private boolean isActual(ReferenceDataSnapshot currentSnapshot) {
+    return currentSnapshot != null && System.nanoTime() - snapshotExpirationNanos < 0;
+  }
+
+  /**
+   * Создает снимок справочных данных по данным из бд
+   * @param version номер версии снимка
+   * @return снимок справочных данных
+   */
+  private ReferenceDataSnapshot build(long version) {
+
+    List<ObjectShortInfo> shortCityList = List.copyOf(cityService.readAllFullShort());
+    List<CriterionInfo> criterionList = List.copyOf(criterionService.readAllFull());
+    List<ObjectShortInfo> shortCriterionTypeList = List.copyOf(criterionTypeService.readAllFullShort());
+    List<ObjectShortInfo> shortInstitutionList = List.copyOf(institutionService.findAllFullShort());
+    List<ObjectShortInfo> shortBenefitList = List.copyOf(benefitService.findAllFullShort());
+
+    UserInitData userInitData = UserInitData
+        .builder()
+        .shortCityList(shortCityList)
+        .criterionList(criterionList)
+        .build();
+    BenefitInitData benefitInitData = BenefitInitData
+        .builder()
+        .shortCityList(shortCityList)
+        .criterionList(criterionList)
+        .shortInstitutionList(shortInstitutionList)
+        .build();
+    InstitutionInitData institutionInitData = InstitutionInitData
+        .builder()
+        .shortCityList(shortCityList)
+        .shortBenefitList(shortBenefitList)
+        .build();
+    CriterionInitData criterionInitData = CriterionInitData
+        .builder()
+        .shortCriterionTypeList(shortCriterionTypeList)
+        .build();
+
+    return ReferenceDataSnapshot
+        .builder()
+        .version(version)
+        .eTag(toETag(List.of(userInitData, benefitInitData, institutionInitData, criterionInitData)))
+        .userInitData(userInitData)
+        .benefitInitData(benefitInitData)
+        .institutionInitData(institutionInitData)
+        .criterionInitData(criterionInitData)
+        .build();
+  }
+
+  /**
+   * Вычисляет строгий ETag по json представлению данных
+   * @param content данные снимка
+   * @return ETag в кавычках
+   */
+  private String toETag(Object content) {
+
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(content));
+      byte[] hashPrefix = new byte[ETAG_HASH_BYTES];
+      System.arraycopy(hash, 0, hashPrefix, 0, ETAG_HASH_BYTES);
+      return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hashPrefix) + "\"";
+
+    } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Reference data ETag was not computed", e);
+    }
+  }
+}
@@ -1,24 +1,20 @@
 package com.example.familybenefits.part_res_rest_api.services.implementations;
 
-import com.example.familybenefits.dto.entities.ChildBirthEntity;
 import com.example.familybenefits.dto.entities.UserEntity;
 import com.example.familybenefits.dto.repositories.ChildBirthRepository;
 import com.example.familybenefits.dto.repositories.RoleRepository;
 import com.example.familybenefits.dto.repositories.UserRepository;
 import com.example.familybenefits.exceptions.*;
 import com.example.familybenefits.part_res_rest_api.api_model.user.UserInfo;
-import com.example.familybenefits.part_res_rest_api.api_model.user.UserInitData;
 import com.example.familybenefits.part_res_rest_api.api_model.user.UserSave;
 import com.example.familybenefits.part_res_rest_api.converters.UserDBConverter;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.CityService;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.CriterionService;
 import com.example.familybenefits.part_res_rest_api.services.interfaces.UserService;
-import com.example.familybenefits.resources.R;
 import com.example.familybenefits.resources.RDB;
 import com.example.familybenefits.security.DBSecuritySupport;
 import com.example.familybenefits.security.DateTimeSupport;
 import com.example.familybenefits.security.MailSecuritySupport;
-import com.example.familybenefits.security.RandomValue;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
@@ -26,7 +22,7 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Реализация сервиса, управляющего объектом "пользователь"
@@ -102,7 +98,7 @@ public class UserServiceFB implements UserService {
 
     // Проверка существования города и критерий по их ID
     DBSecuritySupport.checkExistenceById(cityService::existsById, userSave.getIdCity());
-    DBSecuritySupport.checkExistenceById(criterionService::existsById, userSave.getIdCriterionList());
+    DBSecuritySupport.checkExistenceByIdList(criterionService::findMissingIds, userSave.getIdCriterionList());
 
     // Проверка на отсутствие пользователя или администратора по email
     DBSecuritySupport.checkAbsenceByUniqStr(userRepository::existsByEmail, userSave.getEmail());
@@ -175,7 +171,7 @@ public class UserServiceFB implements UserService {
 
     // Проверка существования города и критерий по их ID
     DBSecuritySupport.checkExistenceById(cityService::existsById, userSave.getIdCity());
-    DBSecuritySupport.checkExistenceById(criterionService::existsById, userSave.getIdCriterionList());
+    DBSecuritySupport.checkExistenceByIdList(criterionService::findMissingIds, userSave.getIdCriterionList());
 
     // Получение пользователя по его ID, если пользователь существует
     UserEntity userEntityFromDB = getUserEntity(idUser);
@@ -194,6 +190,7 @@ public class UserServiceFB implements UserService {
 
     userEntityFromDB.setEmail(userEntityFromSave.getEmail());
     userEntityFromDB.setName(userEntityFromSave.getName());
+    userEntityFromDB.setIdCity(userEntityFromSave.getIdCity());
 
     userRepository.save(userEntityFromDB);
     setChildrenToUser(idUser, childBirthList);
@@ -223,21 +220,6 @@ public class UserServiceFB implements UserService {
     }
   }
 
-  /**
-   * Возвращает дополнительные данные для пользователя.
-   * Данные содержат в себе множества кратких информаций о городах и полных критериях
-   * @return дополнительные данные для пользователя
-   */
-  @Override
-  public UserInitData getInitData() {
-
-    return UserInitData
-        .builder()
-        .shortCityList(cityService.readAllFullShort())
-        .criterionList(criterionService.readAllFull())
-        .build();
-  }
-
   /**
    * Проверяет существование пользователя по его ID
    * @param idUser ID пользователя, предварительно обработанный
@@ -269,22 +251,11 @@ public class UserServiceFB implements UserService {
    */
   private void setChildrenToUser(String idUser, List<LocalDate> childBirthList) {
 
-    userRepository.deleteAllChildBirths(idUser);
-
-    for (LocalDate childBirth : childBirthList) {
-
-      // Получение существующей модели рождения ребенка или же создание новой
-      Optional<ChildBirthEntity> childEntityOpt = childBirthRepository.findByDateBirth(childBirth);
-
-      if (childEntityOpt.isPresent()) {
-        userRepository.addChild(idUser, childEntityOpt.get().getId());
-
-      } else {
-        ChildBirthEntity newChildBirthEntity = new ChildBirthEntity(RandomValue.randomString(R.ID_LENGTH), childBirth);
-        childBirthRepository.save(newChildBirthEntity);
-        userRepository.addChild(idUser, newChildBirthEntity.getId());
-      }
-    }
+    // Отсутствующие даты рождения создаются в том же запросе, что и связи с пользователем
+    userRepository.replaceChildBirths(idUser, childBirthList
+        .stream()
+        .map(LocalDate::toString)
+        .collect(Collectors.joining(",")));
   }
 
   /**
@@ -294,7 +265,6 @@ public class UserServiceFB implements UserService {
    */
   private void setCriteriaToUser(String idUser, List<String> idCriterionList) {
 
-    userRepository.deleteAllCriteria(idUser);
-    idCriterionList.forEach(idCriterion -> userRepository.addCriterion(idUser, idCriterion));
+    userRepository.replaceCriteria(idUser, String.join(",", idCriterionList));
   }
 }
@@ -5,11 +5,12 @@ import com.example.familybenefits.exceptions.DateTimeException;
 import com.example.familybenefits.exceptions.InvalidStringException;
 import com.example.familybenefits.exceptions.NotFoundException;
 import com.example.familybenefits.part_res_rest_api.api_model.benefit.BenefitInfo;
-import com.example.familybenefits.part_res_rest_api.api_model.benefit.BenefitInitData;
 import com.example.familybenefits.part_res_rest_api.api_model.benefit.BenefitSave;
 import com.example.familybenefits.part_res_rest_api.api_model.common.ObjectShortInfo;
+import com.example.familybenefits.part_res_rest_api.models.KeysetPage;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Интерфейс сервиса, управляющего объектом "пособие"
@@ -17,16 +18,42 @@ import java.util.List;
 public interface BenefitService {
 
   /**
-   * Возвращает список пособий, в которых есть города, учреждения и критерии.
+   * Возвращает страницу пособий, в которых есть города, учреждения и критерии.
    * Фильтр по названию, ID города, критерия и учреждения.
    * В качестве параметра может быть указан null, если данный параметр не участвует в фильтрации
    * @param name название пособия
    * @param idCity ID города
    * @param idCriterion ID критерия
    * @param idInstitution ID учреждения
-   * @return список кратких информаций о пособиях
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций о пособиях
+   */
+  List<ObjectShortInfo> readAllFilter(String name, String idCity, String idCriterion, String idInstitution, String after, Integer limit);
+
+  /**
+   * Передает получателю краткие информации о пособиях по мере чтения из бд, не собирая их в список.
+   * Фильтр такой же, как у {@link #readAllFilter}, количество объектов по умолчанию не ограничено
+   * @param name название пособия
+   * @param idCity ID города
+   * @param idCriterion ID критерия
+   * @param idInstitution ID учреждения
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit максимальное количество объектов, null - без ограничения
+   * @param consumer получатель кратких информаций о пособиях, вызывается в порядке возрастания ID
+   */
+  void writeAllFilter(String name, String idCity, String idCriterion, String idInstitution, String after, Integer limit, Consumer<ObjectShortInfo> consumer);
+
+  /**
+   * Возвращает страницу пособий, найденных по тексту запроса, в порядке убывания релевантности.
+   * Найдены пособия, у которых название или информация содержат слова запроса, или название содержит текст запроса.
+   * Ищутся только пособий, возвращаемые {@link #readAllFilter}
+   * @param text текст запроса
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT}
+   * @param offset количество пропускаемых объектов, null - 0
+   * @return страница кратких информаций о пособиях, пустая, если текст запроса не указан
    */
-  List<ObjectShortInfo> readAllFilter(String name, String idCity, String idCriterion, String idInstitution);
+  List<ObjectShortInfo> search(String text, Integer limit, Integer offset);
 
   /**
    * Создает пособие по запросу на сохранение
@@ -65,17 +92,12 @@ public interface BenefitService {
   void delete(String idBenefit) throws NotFoundException;
 
   /**
-   * Возвращает список пособий, в которых нет городов, учреждений или критерий
-   * @return список кратких информаций о пособиях
+   * Возвращает страницу пособий, в которых нет городов, учреждений или критерий
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций о пособиях
    */
-  List<ObjectShortInfo> readAllPartial();
-
-  /**
-   * Возвращает дополнительные данные для пособия.
-   * Данные содержат в себе множества кратких информаций о городах и полных критериях
-   * @return дополнительные данные для пособия
-   */
-  BenefitInitData getInitData();
+  List<ObjectShortInfo> readAllPartial(String after, Integer limit);
 
   /**
    * Возвращает подобранные пользователю пособия
@@ -94,6 +116,13 @@ public interface BenefitService {
    */
   boolean existsById(String idBenefit);
 
+  /**
+   * Возвращает ID пособий, которых нет в базе данных, одним запросом
+   * @param idCsv ID пособий, предварительно обработанные и разделенные запятой
+   * @return список ненайденных ID
+   */
+  List<String> findMissingIds(String idCsv);
+
   /**
    * Возвращает список кратких информаций пособий, в которых есть город, критерий и учреждение
    * @return список кратких информаций пособий
@@ -6,8 +6,10 @@ import com.example.familybenefits.part_res_rest_api.api_model.city.CityInfo;
 import com.example.familybenefits.part_res_rest_api.api_model.common.ObjectShortInfo;
 import com.example.familybenefits.exceptions.AlreadyExistsException;
 import com.example.familybenefits.exceptions.NotFoundException;
+import com.example.familybenefits.part_res_rest_api.models.KeysetPage;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Интерфейс сервиса, управляющего объектом "город"
@@ -15,15 +17,29 @@ import java.util.List;
 public interface CityService {
 
   /**
-   * Возвращает список городов, в которых есть учреждения и пособия.
+   * Возвращает страницу городов, в которых есть учреждения и пособия.
    * Фильтр по названию, ID пособия или учреждения.
    * В качестве параметра может быть указан null, если данный параметр не участвует в фильтрации
    * @param name название города
    * @param idBenefit ID пособия
    * @param idInstitution ID учреждения
-   * @return список кратких информаций о городах
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций о городах
    */
-  List<ObjectShortInfo> readAllFilter(String name, String idBenefit, String idInstitution);
+  List<ObjectShortInfo> readAllFilter(String name, String idBenefit, String idInstitution, String after, Integer limit);
+
+  /**
+   * Передает получателю краткие информации о городах по мере чтения из бд, не собирая их в список.
+   * Фильтр такой же, как у {@link #readAllFilter}, количество объектов по умолчанию не ограничено
+   * @param name название города
+   * @param idBenefit ID пособия
+   * @param idInstitution ID учреждения
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit максимальное количество объектов, null - без ограничения
+   * @param consumer получатель кратких информаций о городах, вызывается в порядке возрастания ID
+   */
+  void writeAllFilter(String name, String idBenefit, String idInstitution, String after, Integer limit, Consumer<ObjectShortInfo> consumer);
 
   /**
    * Создает город по запросу на сохранение
@@ -61,10 +77,12 @@ public interface CityService {
   void delete(String idCity) throws NotFoundException;
 
   /**
-   * Возвращает список городов, в которых нет учреждений или пособий
-   * @return список кратких информаций о городах
+   * Возвращает страницу городов, в которых нет учреждений или пособий
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций о городах
    */
-  List<ObjectShortInfo> readAllPartial();
+  List<ObjectShortInfo> readAllPartial(String after, Integer limit);
 
   /**
    * Проверяет существование города по его ID
@@ -73,6 +91,13 @@ public interface CityService {
    */
   boolean existsById(String idCity);
 
+  /**
+   * Возвращает ID городов, которых нет в базе данных, одним запросом
+   * @param idCsv ID городов, предварительно обработанные и разделенные запятой
+   * @return список ненайденных ID
+   */
+  List<String> findMissingIds(String idCsv);
+
   /**
    * Возвращает список кратких информаций о городах, в которых есть пособия и учреждения
    * @return список кратких информаций о городах
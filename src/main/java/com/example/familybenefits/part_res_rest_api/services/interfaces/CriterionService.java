@@ -5,11 +5,12 @@ import com.example.familybenefits.exceptions.InvalidStringException;
 import com.example.familybenefits.part_res_rest_api.api_model.common.ObjectShortInfo;
 import com.example.familybenefits.part_res_rest_api.api_model.criterion.CriterionSave;
 import com.example.familybenefits.part_res_rest_api.api_model.criterion.CriterionInfo;
-import com.example.familybenefits.part_res_rest_api.api_model.criterion.CriterionInitData;
 import com.example.familybenefits.exceptions.AlreadyExistsException;
 import com.example.familybenefits.exceptions.NotFoundException;
+import com.example.familybenefits.part_res_rest_api.models.KeysetPage;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Интерфейс сервиса, управляющего объектом "критерий"
@@ -17,15 +18,40 @@ import java.util.List;
 public interface CriterionService {
 
   /**
-   * Возвращает список критерий, в которых есть пособия.
+   * Возвращает страницу критерий, в которых есть пособия.
    * Фильтр по названию, ID пособия или типа критерия.
    * В качестве параметра может быть указан null, если данный параметр не участвует в фильтрации
    * @param name название критерия
    * @param idBenefit ID пособия
    * @param idCriterionType ID типа критерия
-   * @return список кратких информаций о критериях
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций о критериях
    */
-  List<ObjectShortInfo> readAllFilter(String name, String idBenefit, String idCriterionType);
+  List<ObjectShortInfo> readAllFilter(String name, String idBenefit, String idCriterionType, String after, Integer limit);
+
+  /**
+   * Передает получателю краткие информации о критериях по мере чтения из бд, не собирая их в список.
+   * Фильтр такой же, как у {@link #readAllFilter}, количество объектов по умолчанию не ограничено
+   * @param name название критерия
+   * @param idBenefit ID пособия
+   * @param idCriterionType ID типа критерия
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit максимальное количество объектов, null - без ограничения
+   * @param consumer получатель кратких информаций о критериях, вызывается в порядке возрастания ID
+   */
+  void writeAllFilter(String name, String idBenefit, String idCriterionType, String after, Integer limit, Consumer<ObjectShortInfo> consumer);
+
+  /**
+   * Возвращает страницу критериев, найденных по тексту запроса, в порядке убывания релевантности.
+   * Найдены критерии, у которых название или информация содержат слова запроса, или название содержит текст запроса.
+   * Ищутся только критериев, возвращаемые {@link #readAllFilter}
+   * @param text текст запроса
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT}
+   * @param offset количество пропускаемых объектов, null - 0
+   * @return страница кратких информаций о критериях, пустая, если текст запроса не указан
+   */
+  List<ObjectShortInfo> search(String text, Integer limit, Integer offset);
 
   /**
    * Создает критерий по запросу на сохранение
@@ -64,17 +90,12 @@ public interface CriterionService {
   void delete(String idCriterion) throws NotFoundException;
 
   /**
-   * Возвращает список критерий, в которых нет пособий
-   * @return список кратких информаций о критериях
-   */
-  List<ObjectShortInfo> readAllPartial();
-
-  /**
-   * Возвращает дополнительные данные для критерия.
-   * Данные содержат в себе список кратких информаций о типах критерий
-   * @return дополнительные данные для критерия
+   * Возвращает страницу критерий, в которых нет пособий
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций о критериях
    */
-  CriterionInitData getInitData();
+  List<ObjectShortInfo> readAllPartial(String after, Integer limit);
 
   /**
    * Возвращает критерии пользователя
@@ -98,6 +119,13 @@ public interface CriterionService {
    */
   boolean existsById(String idCity);
 
+  /**
+   * Возвращает ID критериев, которых нет в базе данных, одним запросом
+   * @param idCsv ID критериев, предварительно обработанные и разделенные запятой
+   * @return список ненайденных ID
+   */
+  List<String> findMissingIds(String idCsv);
+
   /**
    * Возвращает список информаций о критериях, в которых есть пособия
    * @return список информаций о критериях
@@ -6,8 +6,10 @@ import com.example.familybenefits.part_res_rest_api.api_model.criterion_type.Cri
 import com.example.familybenefits.part_res_rest_api.api_model.criterion_type.CriterionTypeInfo;
 import com.example.familybenefits.exceptions.AlreadyExistsException;
 import com.example.familybenefits.exceptions.NotFoundException;
+import com.example.familybenefits.part_res_rest_api.models.KeysetPage;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Интерфейс сервиса, управляющего объектом "тип критерия"
@@ -15,14 +17,27 @@ import java.util.List;
 public interface CriterionTypeService {
 
   /**
-   * Возвращает список типов критерия, в которых есть критерии
+   * Возвращает страницу типов критерия, в которых есть критерии
    * Фильтр по названию или ID критерия.
    * В качестве параметра может быть указан null, если данный параметр не участвует в фильтрации
    * @param name название типа критерия
    * @param idCriterion ID критерия
-   * @return список кратких информаций о типах критерий
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций о типах критерий
    */
-  List<ObjectShortInfo> readAllFilter(String name, String idCriterion);
+  List<ObjectShortInfo> readAllFilter(String name, String idCriterion, String after, Integer limit);
+
+  /**
+   * Передает получателю краткие информации о типах критерий по мере чтения из бд, не собирая их в список.
+   * Фильтр такой же, как у {@link #readAllFilter}, количество объектов по умолчанию не ограничено
+   * @param name название типа критерия
+   * @param idCriterion ID критерия
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit максимальное количество объектов, null - без ограничения
+   * @param consumer получатель кратких информаций о типах критерий, вызывается в порядке возрастания ID
+   */
+  void writeAllFilter(String name, String idCriterion, String after, Integer limit, Consumer<ObjectShortInfo> consumer);
 
   /**
    * Создает тип критерия по запросу на сохранение
@@ -59,10 +74,12 @@ public interface CriterionTypeService {
   void delete(String idCriterionType) throws NotFoundException;
 
   /**
-   * Возвращает список типов критерия, в которых нет критерий
-   * @return список кратких информаций о типах критерий
+   * Возвращает страницу типов критерия, в которых нет критерий
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций о типах критерий
    */
-  List<ObjectShortInfo> readAllPartial();
+  List<ObjectShortInfo> readAllPartial(String after, Integer limit);
 
   /**
    * Проверяет существование типа критерия по его ID
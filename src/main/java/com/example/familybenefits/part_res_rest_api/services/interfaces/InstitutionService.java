@@ -4,11 +4,12 @@ import com.example.familybenefits.exceptions.InvalidStringException;
 import com.example.familybenefits.part_res_rest_api.api_model.common.ObjectShortInfo;
 import com.example.familybenefits.part_res_rest_api.api_model.institution.InstitutionSave;
 import com.example.familybenefits.part_res_rest_api.api_model.institution.InstitutionInfo;
-import com.example.familybenefits.part_res_rest_api.api_model.institution.InstitutionInitData;
 import com.example.familybenefits.exceptions.AlreadyExistsException;
 import com.example.familybenefits.exceptions.NotFoundException;
+import com.example.familybenefits.part_res_rest_api.models.KeysetPage;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Интерфейс сервиса, управляющего объектом "учреждение"
@@ -16,15 +17,40 @@ import java.util.List;
 public interface InstitutionService {
 
   /**
-   * Возвращает список учреждений, в которых есть пособия и города.
+   * Возвращает страницу учреждений, в которых есть пособия и города.
    * Фильтр по названию, ID города или пособия.
    * В качестве параметра может быть указан null, если данный параметр не участвует в фильтрации
    * @param name название учреждения
    * @param idCity ID города
    * @param idBenefit ID пособия
-   * @return список кратких информаций об учреждениях
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций об учреждениях
    */
-  List<ObjectShortInfo> readAllFilter(String name, String idCity, String idBenefit);
+  List<ObjectShortInfo> readAllFilter(String name, String idCity, String idBenefit, String after, Integer limit);
+
+  /**
+   * Передает получателю краткие информации о учреждениях по мере чтения из бд, не собирая их в список.
+   * Фильтр такой же, как у {@link #readAllFilter}, количество объектов по умолчанию не ограничено
+   * @param name название учреждения
+   * @param idCity ID города
+   * @param idBenefit ID пособия
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit максимальное количество объектов, null - без ограничения
+   * @param consumer получатель кратких информаций о учреждениях, вызывается в порядке возрастания ID
+   */
+  void writeAllFilter(String name, String idCity, String idBenefit, String after, Integer limit, Consumer<ObjectShortInfo> consumer);
+
+  /**
+   * Возвращает страницу учреждений, найденных по тексту запроса, в порядке убывания релевантности.
+   * Найдены учреждения, у которых название или адрес содержат слова запроса, или название или адрес содержит текст запроса.
+   * Ищутся только учреждений, возвращаемые {@link #readAllFilter}
+   * @param text текст запроса
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT}
+   * @param offset количество пропускаемых объектов, null - 0
+   * @return страница кратких информаций о учреждениях, пустая, если текст запроса не указан
+   */
+  List<ObjectShortInfo> search(String text, Integer limit, Integer offset);
 
   /**
    * Создает учреждение по запросу на сохранение
@@ -63,17 +89,12 @@ public interface InstitutionService {
   void delete(String idInstitution) throws NotFoundException;
 
   /**
-   * Возвращает список учреждений, в которых нет пособий
-   * @return список кратких информаций об учреждениях
-   */
-  List<ObjectShortInfo> readAllPartial();
-
-  /**
-   * Возвращает дополнительные данные для учреждения.
-   * Данные содержат в себе список кратких информаций о городах.
-   * @return дополнительные данные для учреждения
+   * Возвращает страницу учреждений, в которых нет пособий
+   * @param after ID последнего объекта предыдущей страницы, null - с начала списка
+   * @param limit количество объектов на странице, null - {@link KeysetPage#DEFAULT_LIMIT} при указанном after, иначе без ограничения
+   * @return страница кратких информаций об учреждениях
    */
-  InstitutionInitData getInitData();
+  List<ObjectShortInfo> readAllPartial(String after, Integer limit);
 
   /**
    * Проверяет существование учреждения по его ID
@@ -82,6 +103,13 @@ public interface InstitutionService {
    */
   boolean existsById(String idInstitution);
 
+  /**
+   * Возвращает ID учреждений, которых нет в базе данных, одним запросом
+   * @param idCsv ID учреждений, предварительно обработанные и разделенные запятой
+   * @return список ненайденных ID
+   */
+  List<String> findMissingIds(String idCsv);
+
   /**
    * Возвращает список кратких информаций учреждений, в которых есть пособие и город
    * @return список кратких информаций учреждений
@@ -0,0 +1,21 @@
+package com.example.familybenefits.part_res_rest_api.services.interfaces;
+
+import com.example.familybenefits.part_res_rest_api.models.ReferenceDataSnapshot;
+
+/**
+ * Интерфейс сервиса, хранящего снимок справочных данных для запросов дополнительных данных
+ */
+public interface ReferenceDataService {
+
+  /**
+   * Возвращает актуальный снимок справочных данных, создавая его при отсутствии
+   * @return снимок справочных данных
+   */
+  ReferenceDataSnapshot getSnapshot();
+
+  /**
+   * Сбрасывает снимок после изменения городов, критерий, типов критерий, учреждений или пособий
+   * в этом и остальных экземплярах приложения. Новый снимок будет создан при следующем запросе
+   */
+  void invalidate();
+}
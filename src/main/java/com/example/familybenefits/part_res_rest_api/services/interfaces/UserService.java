@@ -1,7 +1,6 @@
 package com.example.familybenefits.part_res_rest_api.services.interfaces;
 
 import com.example.familybenefits.part_res_rest_api.api_model.user.UserInfo;
-import com.example.familybenefits.part_res_rest_api.api_model.user.UserInitData;
 import com.example.familybenefits.part_res_rest_api.api_model.user.UserSave;
 import com.example.familybenefits.exceptions.*;
 
@@ -62,13 +61,6 @@ public interface UserService {
    */
   void delete(String idUser) throws NotFoundException;
 
-  /**
-   * Возвращает дополнительные данные для пользователя.
-   * Данные содержат в себе множества кратких информаций о городах
-   * @return дополнительные данные для пользователя
-   */
-  UserInitData getInitData();
-
   /**
    * Проверяет существование пользователя по его ID
    * @param idUser ID пользователя, предварительно обработанный
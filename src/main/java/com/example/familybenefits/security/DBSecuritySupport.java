@@ -3,7 +3,10 @@ package com.example.familybenefits.security;
 import com.example.familybenefits.exceptions.AlreadyExistsException;
 import com.example.familybenefits.exceptions.NotFoundException;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -27,15 +30,35 @@ public class DBSecuritySupport {
   }
 
   /**
-   * Проверяет существование в базе данных объектов по их ID
-   * @param existFunc функция проверки, принимающая параметр типа {@link String} и возвращающая значение типа {@link Boolean}
+   * Проверяет существование в базе данных объектов по их ID одним запросом
+   * @param findMissingFunc функция, принимающая строку ID, разделенных запятой, и возвращающая список ненайденных ID
    * @param idList список ID проверяемых объектов
-   * @throws NotFoundException если один из объектов не найден
+   * @throws NotFoundException если не найден хотя бы один объект. Сообщение содержит все ненайденные ID
    */
-  public static void checkExistenceById(Function<String, Boolean> existFunc, List<String> idList) throws NotFoundException {
+  public static void checkExistenceByIdList(Function<String, List<String>> findMissingFunc, List<String> idList) throws NotFoundException {
+
+    if (idList == null || idList.isEmpty()) {
+      return;
+    }
 
+    // ID, не представимые в строке через запятую, не могут существовать
+    List<String> missingIdList = new ArrayList<>();
+    Set<String> preparedIdSet = new LinkedHashSet<>();
     for (String id : idList) {
-      checkExistenceById(existFunc, id);
+      if (id == null || id.isEmpty() || id.indexOf(',') >= 0) {
+        missingIdList.add(id);
+      } else {
+        preparedIdSet.add(preparePostgreSQLString(id));
+      }
+    }
+
+    if (!preparedIdSet.isEmpty()) {
+      missingIdList.addAll(findMissingFunc.apply(String.join(",", preparedIdSet)));
+    }
+
+    if (!missingIdList.isEmpty()) {
+      throw new NotFoundException(String.format(
+          "Entities with IDs %s not found in repository %s", missingIdList, findMissingFunc.getClass().getName()));
     }
   }
 
@@ -81,5 +104,20 @@ public class DBSecuritySupport {
 
     return content.replace("'", "''");
   }
-}
 
+  /**
+   * Подготавливает шаблон LIKE, которому соответствуют строки, содержащие указанный текст.
+   * Текст обрабатывается как {@link #preparePostgreSQLString(String)}, символы шаблона экранируются
+   * @param content искомый текст
+   * @return шаблон LIKE
+   */
+  public static String prepareLikeContainsPattern(String content) {
+
+    String escaped = preparePostgreSQLString(content)
+        .replace("\\", "\\\\")
+        .replace("%", "\\%")
+        .replace("_", "\\_");
+
+    return "%" + escaped + "%";
+  }
+}
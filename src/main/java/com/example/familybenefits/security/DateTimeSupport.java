@@ -3,12 +3,11 @@ package com.example.familybenefits.security;
 import com.example.familybenefits.dto.entities.ChildBirthEntity;
 import com.example.familybenefits.exceptions.DateFormatException;
 import com.example.familybenefits.exceptions.DateTimeException;
-import com.example.familybenefits.resources.R;
 
-import java.text.ParseException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.TemporalAccessor;
+import java.time.Month;
+import java.time.Year;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -17,6 +16,11 @@ import java.util.List;
  */
 public class DateTimeSupport {
 
+  /**
+   * Длина строки даты формата "dd.mm.yyyy"
+   */
+  private static final int DATE_LENGTH = 10;
+
   /**
    * Возвращает дату истечения срока жизни. Дата формируется из текущего времени и прибавленных секунд
    * @param expireSec число секунд, по окончанию которых истечет срок
@@ -28,38 +32,76 @@ public class DateTimeSupport {
   }
 
   /**
-   * Преобразует строку формата "dd.mm.yyyy" в дату
-   * @param userBirth дата в строковом виде
+   * Преобразует строку формата "dd.mm.yyyy" в дату.
+   * Строка разбирается посимвольно, без общего объекта формата, поэтому метод потокобезопасен
+   * и не создает промежуточных объектов даты
+   * @param strDate дата в строковом виде
    * @return преобразованная строка в формат даты
    * @throws DateFormatException если полученная строка не соответствует формату "dd.mm.yyyy"
+   * или день и месяц вне допустимых значений
    */
-  public static LocalDate strToDate(String userBirth) throws DateFormatException {
+  public static LocalDate strToDate(String strDate) throws DateFormatException {
+
+    if (strDate == null || strDate.length() != DATE_LENGTH
+        || strDate.charAt(2) != '.' || strDate.charAt(5) != '.') {
+      throw new DateFormatException(String.format(
+          "The string \"%s\" doesn't match the date format \"dd.mm.yyyy\"", strDate));
+    }
+
+    int day = parseDigits(strDate, 0, 2);
+    int month = parseDigits(strDate, 3, 5);
+    int year = parseDigits(strDate, 6, 10);
+    if (day < 0 || month < 0 || year < 0) {
+      throw new DateFormatException(String.format(
+          "The string \"%s\" doesn't match the date format \"dd.mm.yyyy\"", strDate));
+    }
 
-    try {
-      return LocalDate.from((TemporalAccessor) R.SIMPLE_DATE_FORMAT.parse(userBirth));
-    } catch (ParseException e) {
+    // Проверка диапазонов с учетом длины месяца и високосного года
+    if (year < 1 || month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
       throw new DateFormatException(String.format(
-          "The string \"%s\" doesn't match the date format \"dd.mm.yyyy\"", userBirth));
+          "The string \"%s\" isn't a valid date", strDate));
     }
+
+    return LocalDate.of(year, month, day);
   }
 
   /**
-   * Преобразует строки формата "dd.mm.yyyy" в даты
-   *
-   * @param userBirthList список дат в строковом виде
-   * @return преобразованная строка в формат даты
+   * Преобразует строки формата "dd.mm.yyyy" в даты за один проход по списку
+   * @param strDateList список дат в строковом виде или {@code null}
+   * @return список преобразованных дат, пустой, если список строк не указан
    * @throws DateFormatException если одна из полученных строк не соответствует формату "dd.mm.yyyy"
    */
-  public static List<LocalDate> strToDate(List<String> userBirthList) throws DateFormatException {
+  public static List<LocalDate> strToDate(List<String> strDateList) throws DateFormatException {
+
+    if (strDateList == null) {
+      return new ArrayList<>();
+    }
 
-    List<LocalDate> localDateList = new ArrayList<>(userBirthList.size());
-    for (String userBirth : userBirthList) {
-      localDateList.add(strToDate(userBirth));
+    List<LocalDate> localDateList = new ArrayList<>(strDateList.size());
+    for (String strDate : strDateList) {
+      localDateList.add(strToDate(strDate));
     }
 
     return localDateList;
   }
 
+  /**
+   * Преобразует дату в строку формата "dd.mm.yyyy"
+   * @param date дата
+   * @return дата в строковом виде
+   */
+  public static String dateToStr(LocalDate date) {
+
+    char[] chars = new char[DATE_LENGTH];
+    writeDigits(chars, 0, 2, date.getDayOfMonth());
+    chars[2] = '.';
+    writeDigits(chars, 3, 5, date.getMonthValue());
+    chars[5] = '.';
+    writeDigits(chars, 6, 10, date.getYear());
+
+    return new String(chars);
+  }
+
   /**
    * Проверяет дату на предшествие текущей дате
    * @param dateCheck проверяемая дата
@@ -81,8 +123,12 @@ public class DateTimeSupport {
    */
   public static void checkDateBeforeNow(List<LocalDate> dateList) throws DateTimeException {
 
+    LocalDate dateCurrent = LocalDate.now();
     for (LocalDate date : dateList) {
-      checkDateBeforeNow(date);
+      if (date.isAfter(dateCurrent)) {
+        throw new DateTimeException(String.format(
+            "The date \"%s\" is after current date \"%s\"", date, dateCurrent));
+      }
     }
   }
 
@@ -126,5 +172,39 @@ public class DateTimeSupport {
       checkBirthdayBefore(childBirthEntity.getDateBirth(), dateCheck);
     }
   }
-}
 
+  /**
+   * Разбирает десятичное число из цифр строки
+   * @param str строка
+   * @param from индекс первой цифры
+   * @param to индекс после последней цифры
+   * @return разобранное число или -1, если в диапазоне есть не цифра
+   */
+  private static int parseDigits(String str, int from, int to) {
+
+    int value = 0;
+    for (int i = from; i < to; i++) {
+      int digit = str.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  /**
+   * Записывает число цифрами в массив символов, дополняя его нулями слева
+   * @param chars массив символов
+   * @param from индекс первой цифры
+   * @param to индекс после последней цифры
+   * @param value неотрицательное число
+   */
+  private static void writeDigits(char[] chars, int from, int to, int value) {
+
+    for (int i = to - 1; i >= from; i--) {
+      chars[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+  }
+}
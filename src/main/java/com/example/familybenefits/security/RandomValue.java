@@ -3,7 +3,10 @@ package com.example.familybenefits.security;
 import java.security.SecureRandom;
 
 /**
- * Генератор случайных значений
+ * Генератор случайных значений.
+ * Значения берутся из криптографически стойкого генератора, одного на поток: генератор заполняется из источника
+ * энтропии системы при первом использовании в потоке и не создается заново при каждом вызове.
+ * Байты переводятся в символы и цифры отбором без округления, поэтому все символы равновероятны
  */
 public class RandomValue {
 
@@ -11,6 +14,28 @@ public class RandomValue {
       'A','B','C','D','E','F','G','H','I','J','K','L','M','N','O','P','Q','R','S','T','U','V','W','X','Y','Z',
       'a','b','c','d','e','f','g','h','i','j','k','l','m','n','o','p','q','r','s','t','u','v','w','x','y','z'};
 
+  /**
+   * Маска младших 6 бит байта: значение 0-63, из которого отбираются номера 0-61 символов строки
+   */
+  private static final int SYMBOL_MASK = 0x3F;
+  /**
+   * Граница отбора байта для цифры 0-9: 250 - наибольшее кратное 10 число не больше 256
+   */
+  private static final int DIGIT_BOUND = 250;
+  /**
+   * Граница отбора байта для первой цифры 1-9: 252 - наибольшее кратное 9 число не больше 256
+   */
+  private static final int FIRST_DIGIT_BOUND = 252;
+  /**
+   * Максимальная длина числа, которое помещается в int
+   */
+  private static final int MAX_INTEGER_LENGTH = 9;
+
+  /**
+   * Генераторы случайных байтов потоков
+   */
+  private static final ThreadLocal<SecureRandom> SECURE_RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
   /**
    * Генерирует строку из символов A-Za-z0-9 указанной длины
    * @param length длина строки
@@ -22,54 +47,61 @@ public class RandomValue {
       throw new IllegalArgumentException(String.format("Argument \"length\" %s is less than 0.", length));
     }
 
-    byte[] randBytes = new byte[length];
-    StringBuilder resultString = new StringBuilder();
-
-    int countRefSymbols = RANDOM_STRING_SYMBOLS.length;
-
-    // Для пропорционального приведения диапазона [0-255] к диапазону [0-REFRESH_SYMBOLS.length]
-    double part = countRefSymbols / 256.0;
-
-    // Получение случайных значений
-    (new SecureRandom()).nextBytes(randBytes);
-
-    // Заполнение токена символами
-    for (int randI = 0; randI < length; randI++) {
-      resultString.append(RANDOM_STRING_SYMBOLS[(int) Math.floor((randBytes[randI] + 128) * part)]);
+    SecureRandom secureRandom = SECURE_RANDOM.get();
+    char[] chars = new char[length];
+    // Отбрасывается 2 значения из 64, поэтому запаса в 1/8 длины обычно хватает без повторного заполнения
+    byte[] randBytes = new byte[length + length / 8 + 8];
+    int byteIndex = randBytes.length;
+
+    for (int charIndex = 0; charIndex < length; ) {
+      if (byteIndex == randBytes.length) {
+        secureRandom.nextBytes(randBytes);
+        byteIndex = 0;
+      }
+
+      int symbolIndex = randBytes[byteIndex++] & SYMBOL_MASK;
+      if (symbolIndex < RANDOM_STRING_SYMBOLS.length) {
+        chars[charIndex++] = RANDOM_STRING_SYMBOLS[symbolIndex];
+      }
     }
 
-    return resultString.toString();
+    return new String(chars);
   }
 
   /**
-   * Генерирует число указанной длины
-   * @param length длина числа в символах
+   * Генерирует число указанной длины. Первая цифра числа не равна нулю
+   * @param length длина числа в символах, от 1 до 9
    * @return сгенерированное число
    */
   public static int randomInteger(int length) {
 
-    if (length < 0) {
-      throw new IllegalArgumentException(String.format("Argument \"length\" %s is less than 0.", length));
+    if (length < 1 || length > MAX_INTEGER_LENGTH) {
+      throw new IllegalArgumentException(String.format(
+          "Argument \"length\" %s is out of range [1, %s].", length, MAX_INTEGER_LENGTH));
     }
 
-    byte[] randBytes = new byte[length];
-
-    // Для пропорционального приведения диапазона [0-255] к диапазону [1-9], для первой цифры кода
-    double part1 = 9 / 256.0;
-    // Для пропорционального приведения диапазона [0-255] к диапазону [0-9]
-    double part = 10 / 256.0;
-
-    // Получение случайных значений
-    (new SecureRandom()).nextBytes(randBytes);
-
-    // Добавление первой цифры из диапазона [1-9]
-    int resultInteger = ((int) Math.floor((randBytes[0] + 128) * part1)) + 1;
-    // Заполнение числа оставшимися цифрами
-    for (int randI = 1, tempVal = 10; randI < length; randI++, tempVal *= 10) {
-      resultInteger += tempVal * (int) Math.floor((randBytes[randI] + 128) * part);
+    SecureRandom secureRandom = SECURE_RANDOM.get();
+    byte[] randBytes = new byte[length + 4];
+    int byteIndex = randBytes.length;
+
+    int resultInteger = 0;
+    for (int digitIndex = 0; digitIndex < length; ) {
+      if (byteIndex == randBytes.length) {
+        secureRandom.nextBytes(randBytes);
+        byteIndex = 0;
+      }
+
+      int randValue = randBytes[byteIndex++] & 0xFF;
+      // Первая цифра из диапазона [1-9], остальные из диапазона [0-9]
+      if (digitIndex == 0 && randValue < FIRST_DIGIT_BOUND) {
+        resultInteger = randValue % 9 + 1;
+        digitIndex++;
+      } else if (digitIndex > 0 && randValue < DIGIT_BOUND) {
+        resultInteger = resultInteger * 10 + randValue % 10;
+        digitIndex++;
+      }
     }
 
     return resultInteger;
   }
 }
-
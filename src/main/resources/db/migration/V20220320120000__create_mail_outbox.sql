@@ -0,0 +1,27 @@
+CREATE TABLE family_benefit.mail_outbox (
+
+  "id" TEXT NOT NULL,
+  "id_user" TEXT NOT NULL,
+  "email" TEXT NOT NULL,
+  "subject" TEXT NOT NULL,
+  "text" TEXT NOT NULL,
+  "attempts" INT NOT NULL DEFAULT 0,
+  "date_next_attempt" TIMESTAMP NOT NULL,
+
+  CONSTRAINT mail_outbox_pk PRIMARY KEY ("id"),
+  CONSTRAINT mail_outbox_uniq_user UNIQUE ("id_user"),
+  CONSTRAINT mail_outbox_fk_user FOREIGN KEY ("id_user")
+    REFERENCES family_benefit.user("id")
+    ON DELETE CASCADE
+    ON UPDATE CASCADE
+);
+
+CREATE INDEX mail_outbox_idx_date_next_attempt ON family_benefit.mail_outbox ("date_next_attempt");
+
+COMMENT ON COLUMN family_benefit.mail_outbox.id IS 'ID сообщения, меняется при замене сообщения пользователя';
+COMMENT ON COLUMN family_benefit.mail_outbox.id_user IS 'ID пользователя-получателя, не более одного сообщения на пользователя';
+COMMENT ON COLUMN family_benefit.mail_outbox.email IS 'Адрес получателя';
+COMMENT ON COLUMN family_benefit.mail_outbox.subject IS 'Тема сообщения';
+COMMENT ON COLUMN family_benefit.mail_outbox.text IS 'Текст сообщения';
+COMMENT ON COLUMN family_benefit.mail_outbox.attempts IS 'Количество неудачных попыток отправки';
+COMMENT ON COLUMN family_benefit.mail_outbox.date_next_attempt IS 'Время следующей попытки отправки';
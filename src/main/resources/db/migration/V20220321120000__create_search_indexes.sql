@@ -0,0 +1,29 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm WITH SCHEMA public;
+
+ALTER TABLE family_benefit.benefit
+  ADD COLUMN "search_vector" TSVECTOR GENERATED ALWAYS AS (
+    setweight(to_tsvector('russian', "name"), 'A') ||
+    setweight(to_tsvector('russian', "info"), 'B')) STORED;
+
+ALTER TABLE family_benefit.institution
+  ADD COLUMN "search_vector" TSVECTOR GENERATED ALWAYS AS (
+    setweight(to_tsvector('russian', "name"), 'A') ||
+    setweight(to_tsvector('russian', "address"), 'B')) STORED;
+
+ALTER TABLE family_benefit.criterion
+  ADD COLUMN "search_vector" TSVECTOR GENERATED ALWAYS AS (
+    setweight(to_tsvector('russian', "name"), 'A') ||
+    setweight(to_tsvector('russian', "info"), 'B')) STORED;
+
+CREATE INDEX benefit_idx_search_vector ON family_benefit.benefit USING GIN ("search_vector");
+CREATE INDEX institution_idx_search_vector ON family_benefit.institution USING GIN ("search_vector");
+CREATE INDEX criterion_idx_search_vector ON family_benefit.criterion USING GIN ("search_vector");
+
+CREATE INDEX benefit_idx_name_trgm ON family_benefit.benefit USING GIN ("name" public.gin_trgm_ops);
+CREATE INDEX institution_idx_name_trgm ON family_benefit.institution USING GIN ("name" public.gin_trgm_ops);
+CREATE INDEX institution_idx_address_trgm ON family_benefit.institution USING GIN ("address" public.gin_trgm_ops);
+CREATE INDEX criterion_idx_name_trgm ON family_benefit.criterion USING GIN ("name" public.gin_trgm_ops);
+
+COMMENT ON COLUMN family_benefit.benefit.search_vector IS 'Поисковый вектор названия (вес A) и информации (вес B) пособия';
+COMMENT ON COLUMN family_benefit.institution.search_vector IS 'Поисковый вектор названия (вес A) и адреса (вес B) учреждения';
+COMMENT ON COLUMN family_benefit.criterion.search_vector IS 'Поисковый вектор названия (вес A) и информации (вес B) критерия';
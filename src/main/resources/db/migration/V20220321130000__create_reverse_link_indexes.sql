@@ -0,0 +1,16 @@
+-- Первичные ключи таблиц связей начинаются с левого столбца, поэтому поиск по правому столбцу
+-- (EXISTS по городу, критерию, учреждению, каскадное удаление критерия, пособия, роли) читает всю таблицу.
+-- Индексы в обратном порядке столбцов покрывают такие запросы без обращения к таблице
+
+CREATE INDEX benefits_cities_idx_city ON family_benefit.benefits_cities ("id_city", "id_benefit");
+CREATE INDEX benefits_criteria_idx_criterion ON family_benefit.benefits_criteria ("id_criterion", "id_benefit");
+CREATE INDEX benefits_institutions_idx_institution ON family_benefit.benefits_institutions ("id_institution", "id_benefit");
+
+CREATE INDEX users_criteria_idx_criterion ON family_benefit.users_criteria ("id_criterion", "id_user");
+CREATE INDEX users_benefits_idx_benefit ON family_benefit.users_benefits ("id_benefit", "id_user");
+CREATE INDEX users_child_births_idx_child_birth ON family_benefit.users_child_births ("id_child_birth", "id_user");
+CREATE INDEX users_roles_idx_role ON family_benefit.users_roles ("id_role", "id_user");
+
+-- Внешние ключи без индекса: учреждения города и критерии типа
+CREATE INDEX institution_idx_city ON family_benefit.institution ("id_city");
+CREATE INDEX criterion_idx_type ON family_benefit.criterion ("id_type");
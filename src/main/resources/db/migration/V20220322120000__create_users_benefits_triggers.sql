@@ -0,0 +1,188 @@
+-- Подобранные пользователям пособия хранятся в таблице users_benefits и поддерживаются триггерами:
+-- при изменении критерий или города пользователя перестраиваются пособия этого пользователя,
+-- при изменении городов, критерий или учреждений пособия перестраиваются пользователи этого пособия
+
+CREATE INDEX user_idx_city ON family_benefit.user ("id_city");
+
+-- Пособие подходит пользователю, если пособие есть в городе пользователя, в пособии есть учреждения и критерии,
+-- и все критерии пособия входят в критерии пользователя
+CREATE VIEW family_benefit.users_benefits_eligible AS
+  SELECT family_benefit.user.id AS id_user, family_benefit.benefits_cities.id_benefit AS id_benefit
+  FROM family_benefit.user
+  INNER JOIN family_benefit.benefits_cities ON family_benefit.benefits_cities.id_city = family_benefit.user.id_city
+  WHERE EXISTS (SELECT 1 FROM family_benefit.benefits_institutions
+    WHERE family_benefit.benefits_institutions.id_benefit = family_benefit.benefits_cities.id_benefit)
+  AND EXISTS (SELECT 1 FROM family_benefit.benefits_criteria
+    WHERE family_benefit.benefits_criteria.id_benefit = family_benefit.benefits_cities.id_benefit)
+  AND NOT EXISTS (SELECT 1 FROM family_benefit.benefits_criteria
+    WHERE family_benefit.benefits_criteria.id_benefit = family_benefit.benefits_cities.id_benefit
+    AND NOT EXISTS (SELECT 1 FROM family_benefit.users_criteria
+      WHERE family_benefit.users_criteria.id_user = family_benefit.user.id
+      AND family_benefit.users_criteria.id_criterion = family_benefit.benefits_criteria.id_criterion));
+
+-- Перестраивает пособия данных пользователей и отмечает их свежими.
+-- Возвращает количество удаленных и добавленных связей
+CREATE OR REPLACE FUNCTION family_benefit.refresh_users_benefits_by_user(id_user_array TEXT[]) RETURNS INTEGER
+  AS $$
+
+  DECLARE
+    deleted_count INTEGER;
+    inserted_count INTEGER;
+
+  BEGIN
+    DELETE FROM family_benefit.users_benefits
+    WHERE family_benefit.users_benefits.id_user = ANY(id_user_array)
+    AND NOT EXISTS (SELECT 1 FROM family_benefit.users_benefits_eligible
+      WHERE family_benefit.users_benefits_eligible.id_user = family_benefit.users_benefits.id_user
+      AND family_benefit.users_benefits_eligible.id_benefit = family_benefit.users_benefits.id_benefit);
+    GET DIAGNOSTICS deleted_count = ROW_COUNT;
+
+    INSERT INTO family_benefit.users_benefits (id_user, id_benefit)
+    SELECT family_benefit.users_benefits_eligible.id_user, family_benefit.users_benefits_eligible.id_benefit
+    FROM family_benefit.users_benefits_eligible
+    WHERE family_benefit.users_benefits_eligible.id_user = ANY(id_user_array)
+    ON CONFLICT DO NOTHING;
+    GET DIAGNOSTICS inserted_count = ROW_COUNT;
+
+    UPDATE family_benefit.user SET is_fresh_benefits = TRUE
+    WHERE family_benefit.user.id = ANY(id_user_array)
+    AND family_benefit.user.is_fresh_benefits IS NOT TRUE;
+
+    RETURN deleted_count + inserted_count;
+  END;
+
+  $$
+  LANGUAGE plpgsql;
+
+-- Перестраивает пользователей данных пособий.
+-- Возвращает количество удаленных и добавленных связей
+CREATE OR REPLACE FUNCTION family_benefit.refresh_users_benefits_by_benefit(id_benefit_array TEXT[]) RETURNS INTEGER
+  AS $$
+
+  DECLARE
+    deleted_count INTEGER;
+    inserted_count INTEGER;
+
+  BEGIN
+    DELETE FROM family_benefit.users_benefits
+    WHERE family_benefit.users_benefits.id_benefit = ANY(id_benefit_array)
+    AND NOT EXISTS (SELECT 1 FROM family_benefit.users_benefits_eligible
+      WHERE family_benefit.users_benefits_eligible.id_user = family_benefit.users_benefits.id_user
+      AND family_benefit.users_benefits_eligible.id_benefit = family_benefit.users_benefits.id_benefit);
+    GET DIAGNOSTICS deleted_count = ROW_COUNT;
+
+    INSERT INTO family_benefit.users_benefits (id_user, id_benefit)
+    SELECT family_benefit.users_benefits_eligible.id_user, family_benefit.users_benefits_eligible.id_benefit
+    FROM family_benefit.users_benefits_eligible
+    WHERE family_benefit.users_benefits_eligible.id_benefit = ANY(id_benefit_array)
+    ON CONFLICT DO NOTHING;
+    GET DIAGNOSTICS inserted_count = ROW_COUNT;
+
+    RETURN deleted_count + inserted_count;
+  END;
+
+  $$
+  LANGUAGE plpgsql;
+
+-- Триггерная функция таблицы users_criteria: перестраивает пособия пользователей измененных строк.
+-- Таблицы переходов: new_rows - для вставки и обновления, old_rows - для удаления и обновления
+CREATE OR REPLACE FUNCTION family_benefit.refresh_users_benefits_by_user_trigger() RETURNS TRIGGER
+  AS $$
+
+  BEGIN
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+      PERFORM family_benefit.refresh_users_benefits_by_user(ARRAY(SELECT DISTINCT id_user FROM new_rows));
+    END IF;
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+      PERFORM family_benefit.refresh_users_benefits_by_user(ARRAY(SELECT DISTINCT id_user FROM old_rows));
+    END IF;
+    RETURN NULL;
+  END;
+
+  $$
+  LANGUAGE plpgsql;
+
+-- Триггерная функция таблиц связей пособий: перестраивает пользователей пособий измененных строк.
+-- Таблицы переходов: new_rows - для вставки и обновления, old_rows - для удаления и обновления
+CREATE OR REPLACE FUNCTION family_benefit.refresh_users_benefits_by_benefit_trigger() RETURNS TRIGGER
+  AS $$
+
+  BEGIN
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+      PERFORM family_benefit.refresh_users_benefits_by_benefit(ARRAY(SELECT DISTINCT id_benefit FROM new_rows));
+    END IF;
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+      PERFORM family_benefit.refresh_users_benefits_by_benefit(ARRAY(SELECT DISTINCT id_benefit FROM old_rows));
+    END IF;
+    RETURN NULL;
+  END;
+
+  $$
+  LANGUAGE plpgsql;
+
+-- Триггерная функция таблицы user: перестраивает пособия пользователя после смены города
+CREATE OR REPLACE FUNCTION family_benefit.refresh_users_benefits_by_city_trigger() RETURNS TRIGGER
+  AS $$
+
+  BEGIN
+    PERFORM family_benefit.refresh_users_benefits_by_user(ARRAY[NEW.id]);
+    RETURN NULL;
+  END;
+
+  $$
+  LANGUAGE plpgsql;
+
+-- Триггеры уровня оператора срабатывают один раз на запрос, поэтому замена всех критерий пользователя
+-- или удаление критерия с каскадным удалением связей перестраивает каждого пользователя и пособие один раз
+CREATE TRIGGER users_criteria_refresh_insert AFTER INSERT ON family_benefit.users_criteria
+  REFERENCING NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.refresh_users_benefits_by_user_trigger();
+CREATE TRIGGER users_criteria_refresh_update AFTER UPDATE ON family_benefit.users_criteria
+  REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.refresh_users_benefits_by_user_trigger();
+CREATE TRIGGER users_criteria_refresh_delete AFTER DELETE ON family_benefit.users_criteria
+  REFERENCING OLD TABLE AS old_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.refresh_users_benefits_by_user_trigger();
+
+CREATE TRIGGER benefits_cities_refresh_insert AFTER INSERT ON family_benefit.benefits_cities
+  REFERENCING NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.refresh_users_benefits_by_benefit_trigger();
+CREATE TRIGGER benefits_cities_refresh_update AFTER UPDATE ON family_benefit.benefits_cities
+  REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.refresh_users_benefits_by_benefit_trigger();
+CREATE TRIGGER benefits_cities_refresh_delete AFTER DELETE ON family_benefit.benefits_cities
+  REFERENCING OLD TABLE AS old_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.refresh_users_benefits_by_benefit_trigger();
+
+CREATE TRIGGER benefits_criteria_refresh_insert AFTER INSERT ON family_benefit.benefits_criteria
+  REFERENCING NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.refresh_users_benefits_by_benefit_trigger();
+CREATE TRIGGER benefits_criteria_refresh_update AFTER UPDATE ON family_benefit.benefits_criteria
+  REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.refresh_users_benefits_by_benefit_trigger();
+CREATE TRIGGER benefits_criteria_refresh_delete AFTER DELETE ON family_benefit.benefits_criteria
+  REFERENCING OLD TABLE AS old_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.refresh_users_benefits_by_benefit_trigger();
+
+CREATE TRIGGER benefits_institutions_refresh_insert AFTER INSERT ON family_benefit.benefits_institutions
+  REFERENCING NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.refresh_users_benefits_by_benefit_trigger();
+CREATE TRIGGER benefits_institutions_refresh_update AFTER UPDATE ON family_benefit.benefits_institutions
+  REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.refresh_users_benefits_by_benefit_trigger();
+CREATE TRIGGER benefits_institutions_refresh_delete AFTER DELETE ON family_benefit.benefits_institutions
+  REFERENCING OLD TABLE AS old_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.refresh_users_benefits_by_benefit_trigger();
+
+CREATE TRIGGER user_refresh_city AFTER UPDATE OF id_city ON family_benefit.user
+  FOR EACH ROW WHEN (OLD.id_city IS DISTINCT FROM NEW.id_city)
+  EXECUTE FUNCTION family_benefit.refresh_users_benefits_by_city_trigger();
+
+-- Флаг свежести ведется только в бд. Пособия всех пользователей подбираются заново
+UPDATE family_benefit.user SET is_fresh_benefits = FALSE WHERE is_fresh_benefits IS NULL;
+ALTER TABLE family_benefit.user ALTER COLUMN is_fresh_benefits SET DEFAULT FALSE;
+ALTER TABLE family_benefit.user ALTER COLUMN is_fresh_benefits SET NOT NULL;
+
+SELECT family_benefit.refresh_users_benefits_by_user(ARRAY(SELECT id FROM family_benefit.user));
+
+COMMENT ON COLUMN family_benefit.user.is_fresh_benefits IS 'Флаг свежести подобранных пособий, устанавливается при подборе пособий в бд';
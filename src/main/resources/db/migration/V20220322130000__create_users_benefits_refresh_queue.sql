@@ -0,0 +1,157 @@
+-- Изменения пособий больше не перестраивают пользователей в транзакции администратора:
+-- затронутые пользователи отмечаются несвежими, их пособия перестраивает фоновый обработчик пакетами.
+-- Несвежие пользователи образуют очередь, которую обходит частичный индекс
+
+CREATE INDEX user_idx_stale_benefits ON family_benefit.user ("id") WHERE NOT "is_fresh_benefits";
+
+-- Перестраивает пособия данных пользователей и отмечает их свежими.
+-- Строки пользователей блокируются до подбора: отметка несвежести, сделанная во время подбора,
+-- дожидается его завершения и не теряется.
+-- Возвращает количество удаленных и добавленных связей
+CREATE OR REPLACE FUNCTION family_benefit.refresh_users_benefits_by_user(id_user_array TEXT[]) RETURNS INTEGER
+  AS $$
+
+  DECLARE
+    deleted_count INTEGER;
+    inserted_count INTEGER;
+
+  BEGIN
+    PERFORM 1 FROM family_benefit.user
+    WHERE family_benefit.user.id = ANY(id_user_array)
+    ORDER BY family_benefit.user.id
+    FOR UPDATE;
+
+    DELETE FROM family_benefit.users_benefits
+    WHERE family_benefit.users_benefits.id_user = ANY(id_user_array)
+    AND NOT EXISTS (SELECT 1 FROM family_benefit.users_benefits_eligible
+      WHERE family_benefit.users_benefits_eligible.id_user = family_benefit.users_benefits.id_user
+      AND family_benefit.users_benefits_eligible.id_benefit = family_benefit.users_benefits.id_benefit);
+    GET DIAGNOSTICS deleted_count = ROW_COUNT;
+
+    INSERT INTO family_benefit.users_benefits (id_user, id_benefit)
+    SELECT family_benefit.users_benefits_eligible.id_user, family_benefit.users_benefits_eligible.id_benefit
+    FROM family_benefit.users_benefits_eligible
+    WHERE family_benefit.users_benefits_eligible.id_user = ANY(id_user_array)
+    ON CONFLICT DO NOTHING;
+    GET DIAGNOSTICS inserted_count = ROW_COUNT;
+
+    UPDATE family_benefit.user SET is_fresh_benefits = TRUE
+    WHERE family_benefit.user.id = ANY(id_user_array)
+    AND family_benefit.user.is_fresh_benefits IS NOT TRUE;
+
+    RETURN deleted_count + inserted_count;
+  END;
+
+  $$
+  LANGUAGE plpgsql;
+
+-- Перестраивает пакет несвежих пользователей, начиная с недавно активных: с самым поздним сроком токена восстановления.
+-- Пользователи, захваченные другими обработчиками, пропускаются.
+-- Возвращает количество перестроенных пользователей
+CREATE OR REPLACE FUNCTION family_benefit.refresh_stale_users_benefits(batch_size INTEGER) RETURNS INTEGER
+  AS $$
+
+  DECLARE
+    id_user_array TEXT[];
+
+  BEGIN
+    id_user_array := ARRAY(
+      SELECT family_benefit.user.id FROM family_benefit.user
+      WHERE NOT family_benefit.user.is_fresh_benefits
+      ORDER BY (SELECT family_benefit.refresh_token.date_expiration FROM family_benefit.refresh_token
+        WHERE family_benefit.refresh_token.id_user = family_benefit.user.id) DESC NULLS LAST
+      LIMIT batch_size
+      FOR UPDATE SKIP LOCKED);
+
+    PERFORM family_benefit.refresh_users_benefits_by_user(id_user_array);
+
+    RETURN cardinality(id_user_array);
+  END;
+
+  $$
+  LANGUAGE plpgsql;
+
+-- Отмечает несвежими пользователей, пособия которых могли измениться вместе с данными пособиями:
+-- пользователей городов пособий и пользователей, которым пособия подобраны
+CREATE OR REPLACE FUNCTION family_benefit.invalidate_users_benefits_by_benefit(id_benefit_array TEXT[]) RETURNS INTEGER
+  AS $$
+
+  DECLARE
+    invalidated_count INTEGER;
+
+  BEGIN
+    UPDATE family_benefit.user SET is_fresh_benefits = FALSE
+    WHERE family_benefit.user.is_fresh_benefits
+    AND (family_benefit.user.id_city IN (SELECT family_benefit.benefits_cities.id_city FROM family_benefit.benefits_cities
+        WHERE family_benefit.benefits_cities.id_benefit = ANY(id_benefit_array))
+      OR EXISTS (SELECT 1 FROM family_benefit.users_benefits
+        WHERE family_benefit.users_benefits.id_user = family_benefit.user.id
+        AND family_benefit.users_benefits.id_benefit = ANY(id_benefit_array)));
+    GET DIAGNOSTICS invalidated_count = ROW_COUNT;
+
+    RETURN invalidated_count;
+  END;
+
+  $$
+  LANGUAGE plpgsql;
+
+-- Триггерная функция таблиц связей пособий: отмечает несвежими пользователей пособий измененных строк.
+-- Таблицы переходов: new_rows - для вставки и обновления, old_rows - для удаления и обновления
+CREATE OR REPLACE FUNCTION family_benefit.invalidate_users_benefits_by_benefit_trigger() RETURNS TRIGGER
+  AS $$
+
+  BEGIN
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+      PERFORM family_benefit.invalidate_users_benefits_by_benefit(ARRAY(SELECT DISTINCT id_benefit FROM new_rows));
+    END IF;
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+      PERFORM family_benefit.invalidate_users_benefits_by_benefit(ARRAY(SELECT DISTINCT id_benefit FROM old_rows));
+    END IF;
+    RETURN NULL;
+  END;
+
+  $$
+  LANGUAGE plpgsql;
+
+DROP TRIGGER benefits_cities_refresh_insert ON family_benefit.benefits_cities;
+DROP TRIGGER benefits_cities_refresh_update ON family_benefit.benefits_cities;
+DROP TRIGGER benefits_cities_refresh_delete ON family_benefit.benefits_cities;
+DROP TRIGGER benefits_criteria_refresh_insert ON family_benefit.benefits_criteria;
+DROP TRIGGER benefits_criteria_refresh_update ON family_benefit.benefits_criteria;
+DROP TRIGGER benefits_criteria_refresh_delete ON family_benefit.benefits_criteria;
+DROP TRIGGER benefits_institutions_refresh_insert ON family_benefit.benefits_institutions;
+DROP TRIGGER benefits_institutions_refresh_update ON family_benefit.benefits_institutions;
+DROP TRIGGER benefits_institutions_refresh_delete ON family_benefit.benefits_institutions;
+
+DROP FUNCTION family_benefit.refresh_users_benefits_by_benefit_trigger();
+DROP FUNCTION family_benefit.refresh_users_benefits_by_benefit(TEXT[]);
+
+CREATE TRIGGER benefits_cities_invalidate_insert AFTER INSERT ON family_benefit.benefits_cities
+  REFERENCING NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.invalidate_users_benefits_by_benefit_trigger();
+CREATE TRIGGER benefits_cities_invalidate_update AFTER UPDATE ON family_benefit.benefits_cities
+  REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.invalidate_users_benefits_by_benefit_trigger();
+CREATE TRIGGER benefits_cities_invalidate_delete AFTER DELETE ON family_benefit.benefits_cities
+  REFERENCING OLD TABLE AS old_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.invalidate_users_benefits_by_benefit_trigger();
+
+CREATE TRIGGER benefits_criteria_invalidate_insert AFTER INSERT ON family_benefit.benefits_criteria
+  REFERENCING NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.invalidate_users_benefits_by_benefit_trigger();
+CREATE TRIGGER benefits_criteria_invalidate_update AFTER UPDATE ON family_benefit.benefits_criteria
+  REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.invalidate_users_benefits_by_benefit_trigger();
+CREATE TRIGGER benefits_criteria_invalidate_delete AFTER DELETE ON family_benefit.benefits_criteria
+  REFERENCING OLD TABLE AS old_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.invalidate_users_benefits_by_benefit_trigger();
+
+CREATE TRIGGER benefits_institutions_invalidate_insert AFTER INSERT ON family_benefit.benefits_institutions
+  REFERENCING NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.invalidate_users_benefits_by_benefit_trigger();
+CREATE TRIGGER benefits_institutions_invalidate_update AFTER UPDATE ON family_benefit.benefits_institutions
+  REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.invalidate_users_benefits_by_benefit_trigger();
+CREATE TRIGGER benefits_institutions_invalidate_delete AFTER DELETE ON family_benefit.benefits_institutions
+  REFERENCING OLD TABLE AS old_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.invalidate_users_benefits_by_benefit_trigger();
@@ -0,0 +1,144 @@
+-- Изменение пособия отмечает несвежими только пользователей, подбор которых мог измениться:
+-- пользователей, которым пособие подобрано, и пользователей городов пособия, у которых есть хотя бы один критерий пособия.
+-- Пользователь без общих критериев с пособием не подходит ему ни до, ни после изменения
+
+-- Отмечает несвежими пользователей, пособия которых могли измениться вместе с данными пособиями.
+-- Города пособий ограничиваются данными городами, NULL - все города пособий, пустой массив - только пользователи с пособиями.
+-- Кандидаты находятся по индексам связей, начиная с измененных пособий, без перебора пользователей.
+-- Возвращает количество отмеченных пользователей
+CREATE OR REPLACE FUNCTION family_benefit.invalidate_users_benefits(id_benefit_array TEXT[], id_city_array TEXT[]) RETURNS INTEGER
+  AS $$
+
+  DECLARE
+    invalidated_count INTEGER;
+
+  BEGIN
+    WITH affected AS (
+      SELECT family_benefit.users_benefits.id_user
+      FROM family_benefit.users_benefits
+      WHERE family_benefit.users_benefits.id_benefit = ANY(id_benefit_array)
+      UNION
+      SELECT family_benefit.user.id
+      FROM family_benefit.benefits_cities
+      INNER JOIN family_benefit.user ON family_benefit.user.id_city = family_benefit.benefits_cities.id_city
+      WHERE family_benefit.benefits_cities.id_benefit = ANY(id_benefit_array)
+      AND (id_city_array IS NULL OR family_benefit.benefits_cities.id_city = ANY(id_city_array))
+      AND EXISTS (SELECT 1 FROM family_benefit.benefits_criteria
+        INNER JOIN family_benefit.users_criteria
+          ON family_benefit.users_criteria.id_criterion = family_benefit.benefits_criteria.id_criterion
+        WHERE family_benefit.benefits_criteria.id_benefit = family_benefit.benefits_cities.id_benefit
+        AND family_benefit.users_criteria.id_user = family_benefit.user.id))
+    UPDATE family_benefit.user SET is_fresh_benefits = FALSE
+    WHERE family_benefit.user.id IN (SELECT affected.id_user FROM affected)
+    AND family_benefit.user.is_fresh_benefits;
+    GET DIAGNOSTICS invalidated_count = ROW_COUNT;
+
+    RETURN invalidated_count;
+  END;
+
+  $$
+  LANGUAGE plpgsql;
+
+-- Триггерная функция таблицы benefits_criteria: пользователи всех городов измененных пособий
+CREATE OR REPLACE FUNCTION family_benefit.invalidate_users_benefits_by_criteria_trigger() RETURNS TRIGGER
+  AS $$
+
+  BEGIN
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+      PERFORM family_benefit.invalidate_users_benefits(ARRAY(SELECT DISTINCT id_benefit FROM new_rows), NULL);
+    END IF;
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+      PERFORM family_benefit.invalidate_users_benefits(ARRAY(SELECT DISTINCT id_benefit FROM old_rows), NULL);
+    END IF;
+    RETURN NULL;
+  END;
+
+  $$
+  LANGUAGE plpgsql;
+
+-- Триггерная функция таблицы benefits_cities: пользователи добавленных городов.
+-- В удаленных городах пособие могло быть подобрано только пользователям, которым оно уже подобрано
+CREATE OR REPLACE FUNCTION family_benefit.invalidate_users_benefits_by_cities_trigger() RETURNS TRIGGER
+  AS $$
+
+  BEGIN
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+      PERFORM family_benefit.invalidate_users_benefits(
+        ARRAY(SELECT DISTINCT id_benefit FROM new_rows), ARRAY(SELECT DISTINCT id_city FROM new_rows));
+    END IF;
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+      PERFORM family_benefit.invalidate_users_benefits(ARRAY(SELECT DISTINCT id_benefit FROM old_rows), '{}');
+    END IF;
+    RETURN NULL;
+  END;
+
+  $$
+  LANGUAGE plpgsql;
+
+-- Триггерная функция таблицы benefits_institutions: подбор меняется, только если у пособия появились первые учреждения
+-- или не осталось учреждений. Добавление и удаление учреждений в остальных пособиях никого не затрагивает
+CREATE OR REPLACE FUNCTION family_benefit.invalidate_users_benefits_by_institutions_trigger() RETURNS TRIGGER
+  AS $$
+
+  BEGIN
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+      PERFORM family_benefit.invalidate_users_benefits(ARRAY(
+        SELECT new_rows.id_benefit FROM new_rows
+        GROUP BY new_rows.id_benefit
+        HAVING count(*) = (SELECT count(*) FROM family_benefit.benefits_institutions
+          WHERE family_benefit.benefits_institutions.id_benefit = new_rows.id_benefit)), NULL);
+    END IF;
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+      PERFORM family_benefit.invalidate_users_benefits(ARRAY(
+        SELECT DISTINCT old_rows.id_benefit FROM old_rows
+        WHERE NOT EXISTS (SELECT 1 FROM family_benefit.benefits_institutions
+          WHERE family_benefit.benefits_institutions.id_benefit = old_rows.id_benefit)), '{}');
+    END IF;
+    RETURN NULL;
+  END;
+
+  $$
+  LANGUAGE plpgsql;
+
+DROP TRIGGER benefits_cities_invalidate_insert ON family_benefit.benefits_cities;
+DROP TRIGGER benefits_cities_invalidate_update ON family_benefit.benefits_cities;
+DROP TRIGGER benefits_cities_invalidate_delete ON family_benefit.benefits_cities;
+DROP TRIGGER benefits_criteria_invalidate_insert ON family_benefit.benefits_criteria;
+DROP TRIGGER benefits_criteria_invalidate_update ON family_benefit.benefits_criteria;
+DROP TRIGGER benefits_criteria_invalidate_delete ON family_benefit.benefits_criteria;
+DROP TRIGGER benefits_institutions_invalidate_insert ON family_benefit.benefits_institutions;
+DROP TRIGGER benefits_institutions_invalidate_update ON family_benefit.benefits_institutions;
+DROP TRIGGER benefits_institutions_invalidate_delete ON family_benefit.benefits_institutions;
+
+DROP FUNCTION family_benefit.invalidate_users_benefits_by_benefit_trigger();
+DROP FUNCTION family_benefit.invalidate_users_benefits_by_benefit(TEXT[]);
+
+CREATE TRIGGER benefits_cities_invalidate_insert AFTER INSERT ON family_benefit.benefits_cities
+  REFERENCING NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.invalidate_users_benefits_by_cities_trigger();
+CREATE TRIGGER benefits_cities_invalidate_update AFTER UPDATE ON family_benefit.benefits_cities
+  REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.invalidate_users_benefits_by_cities_trigger();
+CREATE TRIGGER benefits_cities_invalidate_delete AFTER DELETE ON family_benefit.benefits_cities
+  REFERENCING OLD TABLE AS old_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.invalidate_users_benefits_by_cities_trigger();
+
+CREATE TRIGGER benefits_criteria_invalidate_insert AFTER INSERT ON family_benefit.benefits_criteria
+  REFERENCING NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.invalidate_users_benefits_by_criteria_trigger();
+CREATE TRIGGER benefits_criteria_invalidate_update AFTER UPDATE ON family_benefit.benefits_criteria
+  REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.invalidate_users_benefits_by_criteria_trigger();
+CREATE TRIGGER benefits_criteria_invalidate_delete AFTER DELETE ON family_benefit.benefits_criteria
+  REFERENCING OLD TABLE AS old_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.invalidate_users_benefits_by_criteria_trigger();
+
+CREATE TRIGGER benefits_institutions_invalidate_insert AFTER INSERT ON family_benefit.benefits_institutions
+  REFERENCING NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.invalidate_users_benefits_by_institutions_trigger();
+CREATE TRIGGER benefits_institutions_invalidate_update AFTER UPDATE ON family_benefit.benefits_institutions
+  REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.invalidate_users_benefits_by_institutions_trigger();
+CREATE TRIGGER benefits_institutions_invalidate_delete AFTER DELETE ON family_benefit.benefits_institutions
+  REFERENCING OLD TABLE AS old_rows
+  FOR EACH STATEMENT EXECUTE FUNCTION family_benefit.invalidate_users_benefits_by_institutions_trigger();
@@ -0,0 +1,5 @@
+-- Истекшие коды входа и токены восстановления удаляются пакетами, начиная с самых старых.
+-- Индексы по времени истечения позволяют выбрать пакет без чтения всей таблицы
+
+CREATE INDEX login_code_idx_date_expiration ON family_benefit.login_code ("date_expiration");
+CREATE INDEX refresh_token_idx_date_expiration ON family_benefit.refresh_token ("date_expiration");
@@ -0,0 +1,50 @@
+-- Отметка несвежести блокирует строки пользователей в порядке ID, как и перестроение пособий пользователей.
+-- Раньше UPDATE блокировал строки в порядке плана запроса, и одновременные изменения связей пособий
+-- и перестроение пособий пользователей, блокирующие строки в порядке ID, могли взаимно заблокироваться.
+-- Фоновый обработчик захватывает пользователей с SKIP LOCKED и не ожидает блокировок отметки несвежести
+
+-- Отмечает несвежими пользователей, пособия которых могли измениться вместе с данными пособиями.
+-- Города пособий ограничиваются данными городами, NULL - все города пособий, пустой массив - только пользователи с пособиями.
+-- Кандидаты находятся по индексам связей, начиная с измененных пособий, без перебора пользователей.
+-- Строки пользователей блокируются в порядке ID до изменения.
+-- Возвращает количество отмеченных пользователей
+CREATE OR REPLACE FUNCTION family_benefit.invalidate_users_benefits(id_benefit_array TEXT[], id_city_array TEXT[]) RETURNS INTEGER
+  AS $$
+
+  DECLARE
+    id_user_array TEXT[];
+    invalidated_count INTEGER;
+
+  BEGIN
+    id_user_array := ARRAY(
+      WITH affected AS (
+        SELECT family_benefit.users_benefits.id_user
+        FROM family_benefit.users_benefits
+        WHERE family_benefit.users_benefits.id_benefit = ANY(id_benefit_array)
+        UNION
+        SELECT family_benefit.user.id
+        FROM family_benefit.benefits_cities
+        INNER JOIN family_benefit.user ON family_benefit.user.id_city = family_benefit.benefits_cities.id_city
+        WHERE family_benefit.benefits_cities.id_benefit = ANY(id_benefit_array)
+        AND (id_city_array IS NULL OR family_benefit.benefits_cities.id_city = ANY(id_city_array))
+        AND EXISTS (SELECT 1 FROM family_benefit.benefits_criteria
+          INNER JOIN family_benefit.users_criteria
+            ON family_benefit.users_criteria.id_criterion = family_benefit.benefits_criteria.id_criterion
+          WHERE family_benefit.benefits_criteria.id_benefit = family_benefit.benefits_cities.id_benefit
+          AND family_benefit.users_criteria.id_user = family_benefit.user.id))
+      SELECT family_benefit.user.id FROM family_benefit.user
+      WHERE family_benefit.user.id IN (SELECT affected.id_user FROM affected)
+      AND family_benefit.user.is_fresh_benefits
+      ORDER BY family_benefit.user.id
+      FOR UPDATE);
+
+    UPDATE family_benefit.user SET is_fresh_benefits = FALSE
+    WHERE family_benefit.user.id = ANY(id_user_array)
+    AND family_benefit.user.is_fresh_benefits;
+    GET DIAGNOSTICS invalidated_count = ROW_COUNT;
+
+    RETURN invalidated_count;
+  END;
+
+  $$
+  LANGUAGE plpgsql;
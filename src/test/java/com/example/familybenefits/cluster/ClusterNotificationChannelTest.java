@@ -0,0 +1,86 @@
+package com.example.familybenefits.cluster;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+
+/**
+ * Проверка уведомлений между экземплярами: ошибка получателя не прерывает подписку на каналы
+ */
+class ClusterNotificationChannelTest {
+
+  @Test
+  void notificationAfterFailedHandlingIsStillDelivered() throws Exception {
+
+    DataSource dataSource = Mockito.mock(DataSource.class);
+    Connection connection = Mockito.mock(Connection.class);
+    PGConnection pgConnection = Mockito.mock(PGConnection.class);
+    Mockito.when(dataSource.getConnection()).thenReturn(connection);
+    Mockito.when(connection.createStatement()).thenReturn(Mockito.mock(Statement.class));
+    Mockito.when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+    Mockito.when(pgConnection.getNotifications(anyInt())).thenReturn(
+        new PGNotification[] {notification("fail")},
+        new PGNotification[] {notification("user")})
+        .thenAnswer(invocation -> {
+          // Без уведомлений драйвер ожидает их до истечения времени ожидания
+          try {
+            Thread.sleep(10);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return null;
+        });
+
+    List<String> payloadList = new CopyOnWriteArrayList<>();
+    CountDownLatch deliveredLatch = new CountDownLatch(1);
+    ClusterNotificationChannel clusterNotificationChannel = new ClusterNotificationChannel(
+        dataSource, Mockito.mock(JdbcTemplate.class));
+    clusterNotificationChannel.subscribe(ClusterChannel.REFRESH_TOKEN_REVOCATION, new ClusterNotificationListener() {
+      @Override
+      public void onNotification(String payload) {
+        payloadList.add(payload);
+        if ("fail".equals(payload)) {
+          throw new IllegalStateException("Handling failed");
+        }
+        deliveredLatch.countDown();
+      }
+
+      @Override
+      public void onSubscribed() {
+      }
+    });
+
+    clusterNotificationChannel.start();
+    try {
+      assertTrue(deliveredLatch.await(5, TimeUnit.SECONDS));
+    } finally {
+      clusterNotificationChannel.stop();
+    }
+
+    assertEquals(List.of("fail", "user"), payloadList);
+    // Подписка не прерывалась, соединение не пересоздавалось
+    Mockito.verify(dataSource).getConnection();
+  }
+
+  private static PGNotification notification(String payload) {
+
+    PGNotification notification = Mockito.mock(PGNotification.class);
+    Mockito.when(notification.getName()).thenReturn(ClusterChannel.REFRESH_TOKEN_REVOCATION.getName());
+    Mockito.when(notification.getParameter()).thenReturn(payload);
+    return notification;
+  }
+}
@@ -0,0 +1,175 @@
+package com.example.familybenefits.dto.repositories;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.data.jpa.repository.Query;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка использования индексов запросами репозиториев по плану выполнения EXPLAIN.
+ * Выполняется на локальной базе данных PostgreSQL, указанной переменными окружения
+ * FB_TEST_DB_URL, FB_TEST_DB_USER, FB_TEST_DB_PASSWORD, иначе пропускается.
+ * Перебор таблиц и соединения хешированием запрещены, поэтому план без подходящего индекса
+ * содержит полный перебор таблицы, а не название индекса
+ */
+class RepositoryIndexUsageTest {
+
+  private static Connection connection;
+
+  @BeforeAll
+  static void connect() throws SQLException {
+
+    String url = System.getenv("FB_TEST_DB_URL");
+    Assumptions.assumeTrue(url != null && !url.isBlank(), "FB_TEST_DB_URL is not set");
+    String user = System.getenv("FB_TEST_DB_USER");
+    String password = System.getenv("FB_TEST_DB_PASSWORD");
+
+    Flyway.configure()
+        .dataSource(url, user, password)
+        .locations("classpath:db/migration")
+        .defaultSchema("family_benefit")
+        .schemas("family_benefit")
+        .createSchemas(true)
+        .outOfOrder(true)
+        .load()
+        .migrate();
+
+    connection = DriverManager.getConnection(url, user, password);
+    connection.setAutoCommit(false);
+
+    // Данные и настройки планировщика действуют только в транзакции теста и откатываются
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("INSERT INTO family_benefit.city (id, name) " +
+          "SELECT 'index-city-' || n, 'index city ' || n FROM generate_series(1, 200) AS n");
+      statement.execute("INSERT INTO family_benefit.criterion_type (id, name, info) " +
+          "SELECT 'index-type-' || n, 'index type ' || n, 'index' FROM generate_series(1, 20) AS n");
+      statement.execute("INSERT INTO family_benefit.criterion (id, name, info, id_type) " +
+          "SELECT 'index-criterion-' || n, 'index criterion ' || n, 'index', 'index-type-' || (n % 20 + 1) " +
+          "FROM generate_series(1, 200) AS n");
+      statement.execute("INSERT INTO family_benefit.institution (id, name, info, address, phone, schedule, id_city) " +
+          "SELECT 'index-institution-' || n, 'index institution ' || n, 'index', 'index', 'index', 'index', " +
+          "'index-city-' || (n % 200 + 1) FROM generate_series(1, 400) AS n");
+      statement.execute("INSERT INTO family_benefit.benefit (id, name, info, documents) " +
+          "SELECT 'index-benefit-' || n, 'index benefit ' || n, 'index', 'index' FROM generate_series(1, 1000) AS n");
+      statement.execute("INSERT INTO family_benefit.benefits_cities (id_benefit, id_city) " +
+          "SELECT 'index-benefit-' || b, 'index-city-' || ((b + c) % 200 + 1) " +
+          "FROM generate_series(1, 1000) AS b, generate_series(1, 10) AS c");
+      statement.execute("INSERT INTO family_benefit.benefits_criteria (id_benefit, id_criterion) " +
+          "SELECT 'index-benefit-' || b, 'index-criterion-' || ((b + c) % 200 + 1) " +
+          "FROM generate_series(1, 1000) AS b, generate_series(1, 10) AS c");
+      statement.execute("INSERT INTO family_benefit.benefits_institutions (id_benefit, id_institution) " +
+          "SELECT 'index-benefit-' || b, 'index-institution-' || ((b + i) % 400 + 1) " +
+          "FROM generate_series(1, 1000) AS b, generate_series(1, 10) AS i");
+      statement.execute("ANALYZE");
+
+      statement.execute("SET LOCAL enable_seqscan = off");
+      statement.execute("SET LOCAL enable_hashjoin = off");
+      statement.execute("SET LOCAL enable_mergejoin = off");
+      statement.execute("SET LOCAL plan_cache_mode = force_custom_plan");
+    }
+  }
+
+  @AfterAll
+  static void disconnect() throws SQLException {
+
+    if (connection != null) {
+      connection.rollback();
+      connection.close();
+    }
+  }
+
+  static Stream<Arguments> repositoryQueries() {
+
+    return Stream.of(
+        Arguments.of(CityRepository.class, "findAllFilter",
+            new Object[] {"", "", "", "", 10}, "benefits_cities_idx_city"),
+        Arguments.of(CityRepository.class, "findAllFilter",
+            new Object[] {"", "", "", "", 10}, "institution_idx_city"),
+        Arguments.of(CityRepository.class, "findAllPartial",
+            new Object[] {"", 10}, "benefits_cities_idx_city"),
+        Arguments.of(CityRepository.class, "findAllPartial",
+            new Object[] {"", 10}, "institution_idx_city"),
+        Arguments.of(InstitutionRepository.class, "findAllFilter",
+            new Object[] {"", "", "", "", 10}, "benefits_institutions_idx_institution"),
+        Arguments.of(InstitutionRepository.class, "findAllFilter",
+            new Object[] {"", "index-city-1", "", "", 10}, "institution_idx_city"),
+        Arguments.of(CriterionRepository.class, "findAllFilter",
+            new Object[] {"", "", "", "", 10}, "benefits_criteria_idx_criterion"),
+        Arguments.of(CriterionTypeRepository.class, "findAllFilter",
+            new Object[] {"", "", "", 10}, "criterion_idx_type"));
+  }
+
+  @ParameterizedTest(name = "{0}.{1} uses {3}")
+  @MethodSource("repositoryQueries")
+  void queryUsesIndex(Class<?> repositoryClass, String methodName, Object[] args, String indexName) throws SQLException {
+
+    String plan = explain(findQuery(repositoryClass, methodName, args.length), args);
+
+    assertTrue(plan.contains(indexName), () -> String.format("Plan does not use %s:%n%s", indexName, plan));
+  }
+
+  /**
+   * Возвращает текст запроса метода репозитория с параметрами PostgreSQL вида $n
+   * @param repositoryClass класс репозитория
+   * @param methodName название метода
+   * @param paramCount количество параметров метода
+   * @return текст запроса
+   */
+  private static String findQuery(Class<?> repositoryClass, String methodName, int paramCount) {
+
+    Method method = Arrays.stream(repositoryClass.getMethods())
+        .filter(m -> m.getName().equals(methodName) && m.getParameterCount() == paramCount)
+        .findAny()
+        .orElseThrow();
+
+    return method.getAnnotation(Query.class).value()
+        .replaceAll("\\?(\\d+)", "\\$$1")
+        .replaceAll(";\\s*$", "");
+  }
+
+  /**
+   * Возвращает план выполнения подготовленного запроса с указанными значениями параметров
+   * @param query текст запроса с параметрами вида $n
+   * @param args значения параметров: строки и целые числа
+   * @return план выполнения
+   * @throws SQLException если запрос не выполнен
+   */
+  private static String explain(String query, Object[] args) throws SQLException {
+
+    String types = Arrays.stream(args)
+        .map(arg -> arg instanceof Integer ? "integer" : "text")
+        .collect(Collectors.joining(", "));
+    String values = Arrays.stream(args)
+        .map(arg -> arg instanceof Integer ? arg.toString() : "'" + arg.toString().replace("'", "''") + "'")
+        .collect(Collectors.joining(", "));
+
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("PREPARE index_usage_query (" + types + ") AS " + query);
+      try (ResultSet resultSet = statement.executeQuery("EXPLAIN EXECUTE index_usage_query (" + values + ")")) {
+        StringBuilder plan = new StringBuilder();
+        while (resultSet.next()) {
+          plan.append(resultSet.getString(1)).append(System.lineSeparator());
+        }
+        return plan.toString();
+      } finally {
+        statement.execute("DEALLOCATE index_usage_query");
+      }
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package com.example.familybenefits.part_auth;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+
+/**
+ * Проверка пакетного удаления истекших кодов входа и токенов восстановления под рекомендательной блокировкой
+ */
+class ExpiredTokensReaperTest {
+
+  private final JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+  private final Connection connection = Mockito.mock(Connection.class);
+
+  private final PreparedStatement lockStatement = Mockito.mock(PreparedStatement.class);
+  private final PreparedStatement unlockStatement = Mockito.mock(PreparedStatement.class);
+  private final PreparedStatement loginCodeStatement = Mockito.mock(PreparedStatement.class);
+  private final PreparedStatement refreshTokenStatement = Mockito.mock(PreparedStatement.class);
+
+  private final ExpiredTokensReaper expiredTokensReaper = new ExpiredTokensReaper(jdbcTemplate);
+
+  @Test
+  void reapDeletesInBatchesUnderLock() throws SQLException {
+
+    prepareConnection(true);
+    Mockito.when(loginCodeStatement.executeUpdate()).thenReturn(ExpiredTokensReaper.BATCH_SIZE, ExpiredTokensReaper.BATCH_SIZE, 5);
+    Mockito.when(refreshTokenStatement.executeUpdate()).thenReturn(3);
+
+    expiredTokensReaper.reap();
+
+    Mockito.verify(loginCodeStatement, Mockito.times(3)).executeUpdate();
+    Mockito.verify(refreshTokenStatement, Mockito.times(1)).executeUpdate();
+    Mockito.verify(unlockStatement).executeQuery();
+    assertEquals(2 * ExpiredTokensReaper.BATCH_SIZE + 5, expiredTokensReaper.getReclaimedLoginCodeCount());
+    assertEquals(3, expiredTokensReaper.getReclaimedRefreshTokenCount());
+    assertEquals(2 * ExpiredTokensReaper.BATCH_SIZE + 8, expiredTokensReaper.getLastRunReclaimedCount());
+    assertEquals(1, expiredTokensReaper.getRunCount());
+  }
+
+  @Test
+  void reapSkipsRunWhenLockIsHeldElsewhere() throws SQLException {
+
+    prepareConnection(false);
+
+    expiredTokensReaper.reap();
+
+    Mockito.verify(loginCodeStatement, Mockito.never()).executeUpdate();
+    Mockito.verify(refreshTokenStatement, Mockito.never()).executeUpdate();
+    Mockito.verify(unlockStatement, Mockito.never()).executeQuery();
+    assertEquals(1, expiredTokensReaper.getSkippedRunCount());
+    assertEquals(0, expiredTokensReaper.getRunCount());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void reapSurvivesUnexpectedException() {
+
+    Mockito.when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenThrow(new IllegalStateException("unexpected"));
+
+    expiredTokensReaper.reap();
+
+    assertEquals(0, expiredTokensReaper.getRunCount());
+  }
+
+  /**
+   * Настраивает шаблон запросов на выполнение запросов через подготовленные запросы-заглушки
+   * @param isLocked результат получения блокировки
+   */
+  @SuppressWarnings("unchecked")
+  private void prepareConnection(boolean isLocked) throws SQLException {
+
+    Mockito.when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+        .thenAnswer(invocation -> ((ConnectionCallback<Object>) invocation.getArgument(0)).doInConnection(connection));
+
+    Mockito.when(connection.prepareStatement(anyString())).thenThrow(new SQLException("unexpected query"));
+    Mockito.doReturn(lockStatement).when(connection).prepareStatement(contains("pg_try_advisory_lock"));
+    Mockito.doReturn(unlockStatement).when(connection).prepareStatement(contains("pg_advisory_unlock"));
+    Mockito.doReturn(loginCodeStatement).when(connection).prepareStatement(contains("DELETE FROM family_benefit.login_code"));
+    Mockito.doReturn(refreshTokenStatement).when(connection).prepareStatement(contains("DELETE FROM family_benefit.refresh_token"));
+
+    ResultSet lockResultSet = Mockito.mock(ResultSet.class);
+    Mockito.when(lockResultSet.next()).thenReturn(true);
+    Mockito.when(lockResultSet.getBoolean(1)).thenReturn(isLocked);
+    Mockito.when(lockStatement.executeQuery()).thenReturn(lockResultSet);
+
+    ResultSet unlockResultSet = Mockito.mock(ResultSet.class);
+    Mockito.when(unlockResultSet.next()).thenReturn(true);
+    Mockito.when(unlockResultSet.getBoolean(1)).thenReturn(true);
+    Mockito.when(unlockStatement.executeQuery()).thenReturn(unlockResultSet);
+  }
+}
@@ -0,0 +1,61 @@
+package com.example.familybenefits.part_auth;
+
+import com.example.familybenefits.part_auth.models.JwtUserData;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка кэша проверенных токенов доступа: попадания, истечение по сроку токена и ограничение размера
+ */
+class JwtCacheTest {
+
+  private final JwtCache jwtCache = new JwtCache();
+
+  private final JwtUserData userData = JwtUserData
+      .builder()
+      .idUser("user")
+      .nameRoleList(List.of("ROLE_USER"))
+      .build();
+
+  @Test
+  void getReturnsCachedUserDataUntilTokenExpires() {
+
+    jwtCache.put("jwt", userData, System.currentTimeMillis() + 60_000);
+
+    assertSame(userData, jwtCache.get("jwt").orElseThrow());
+    assertEquals(Optional.empty(), jwtCache.get("jwt-other"));
+    assertEquals(Optional.empty(), jwtCache.get(null));
+    assertEquals(1, jwtCache.getHitCount());
+    assertEquals(2, jwtCache.getMissCount());
+  }
+
+  @Test
+  void expiredTokensAreNeitherStoredNorReturned() throws InterruptedException {
+
+    jwtCache.put("jwt-expired", userData, System.currentTimeMillis() - 1);
+    jwtCache.put("jwt-expiring", userData, System.currentTimeMillis() + 20);
+    assertEquals(1, jwtCache.size());
+
+    Thread.sleep(50);
+
+    assertEquals(Optional.empty(), jwtCache.get("jwt-expiring"));
+    assertEquals(0, jwtCache.size());
+  }
+
+  @Test
+  void sizeIsBounded() {
+
+    long expirationMillis = System.currentTimeMillis() + 60_000;
+    for (int i = 0; i < 25_000; i++) {
+      jwtCache.put("jwt" + i, userData, expirationMillis);
+    }
+
+    assertTrue(jwtCache.size() <= 10_000, "size " + jwtCache.size());
+  }
+}
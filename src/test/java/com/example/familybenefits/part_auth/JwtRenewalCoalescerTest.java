@@ -0,0 +1,125 @@
+package com.example.familybenefits.part_auth;
+
+import com.example.familybenefits.part_auth.models.AuthData;
+import com.example.familybenefits.part_auth.models.JwtData;
+import com.example.familybenefits.part_auth.models.JwtUserData;
+import com.example.familybenefits.resources.R;
+import com.example.familybenefits.resources.RDB;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверка объединения одновременных обновлений токенов по одной паре токенов
+ */
+class JwtRenewalCoalescerTest {
+
+  private static final String ID_USER = "A".repeat(R.ID_LENGTH);
+
+  private final JwtRevocationRegistry jwtRevocationRegistry = new JwtRevocationRegistry();
+  private final JwtRenewalCoalescer jwtRenewalCoalescer = new JwtRenewalCoalescer(jwtRevocationRegistry);
+
+  private final AuthData authData = AuthData
+      .builder()
+      .jwtData(JwtData
+                   .builder()
+                   .tokenJwt("jwt-new")
+                   .userData(JwtUserData
+                                 .builder()
+                                 .idUser(ID_USER)
+                                 .nameRoleList(List.of(RDB.ROLE_USER.getName()))
+                                 .issuedAtMillis(System.currentTimeMillis())
+                                 .build())
+                   .build())
+      .refreshToken("refresh-new")
+      .build();
+
+  @Test
+  void concurrentRenewalsOfSamePairShareOneResult() throws Exception {
+
+    int threadCount = 8;
+    AtomicInteger supplierCalls = new AtomicInteger();
+    CountDownLatch startLatch = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+    try {
+      List<Future<AuthData>> futureList = new ArrayList<>(threadCount);
+      for (int t = 0; t < threadCount; t++) {
+        futureList.add(executor.submit(() -> {
+          startLatch.await();
+          return jwtRenewalCoalescer.renew("jwt", "refresh", ID_USER, () -> {
+            supplierCalls.incrementAndGet();
+            sleep(200);
+            return authData;
+          });
+        }));
+      }
+      startLatch.countDown();
+
+      for (Future<AuthData> future : futureList) {
+        assertSame(authData, future.get(10, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(1, supplierCalls.get());
+    assertEquals(1, jwtRenewalCoalescer.getRenewalCount());
+    assertEquals(threadCount - 1, jwtRenewalCoalescer.getCoalescedCount());
+    assertSame(authData, jwtRenewalCoalescer.findRecent("jwt", "refresh").orElseThrow());
+    assertEquals(Optional.empty(), jwtRenewalCoalescer.findRecent("jwt", "refresh-other"));
+  }
+
+  @Test
+  void failedRenewalIsNotReused() {
+
+    assertThrows(IllegalStateException.class, () -> jwtRenewalCoalescer.renew("jwt", "refresh", ID_USER, () -> {
+      throw new IllegalStateException("db unavailable");
+    }));
+
+    assertEquals(Optional.empty(), jwtRenewalCoalescer.findRecent("jwt", "refresh"));
+    assertSame(authData, jwtRenewalCoalescer.renew("jwt", "refresh", ID_USER, () -> authData));
+    assertEquals(1, jwtRenewalCoalescer.getFailureCount());
+  }
+
+  @Test
+  void recentRenewalIsNotReturnedAfterSessionsRevocation() {
+
+    jwtRenewalCoalescer.renew("jwt", "refresh", ID_USER, () -> authData);
+    jwtRevocationRegistry.revokeUser(ID_USER);
+
+    assertEquals(Optional.empty(), jwtRenewalCoalescer.findRecent("jwt", "refresh"));
+  }
+
+  @Test
+  void invalidatedUserRenewalsAreDropped() {
+
+    jwtRenewalCoalescer.renew("jwt", "refresh", ID_USER, () -> authData);
+    jwtRenewalCoalescer.renew("jwt-other", "refresh-other", "B".repeat(R.ID_LENGTH), () -> authData);
+    jwtRenewalCoalescer.invalidateUser(ID_USER);
+
+    assertEquals(Optional.empty(), jwtRenewalCoalescer.findRecent("jwt", "refresh"));
+    assertEquals(1, jwtRenewalCoalescer.size());
+  }
+
+  private static void sleep(long millis) {
+
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
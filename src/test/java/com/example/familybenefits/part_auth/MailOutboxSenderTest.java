@@ -0,0 +1,100 @@
+package com.example.familybenefits.part_auth;
+
+import com.example.familybenefits.dto.entities.MailOutboxEntity;
+import com.example.familybenefits.dto.repositories.MailOutboxRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+/**
+ * Проверка отправки очереди исходящих сообщений через локальный SMTP сервер
+ */
+class MailOutboxSenderTest {
+
+  private final MailOutboxRepository mailOutboxRepository = Mockito.mock(MailOutboxRepository.class);
+
+  @Test
+  void drainSendsBatchOverOneConnectionAndDeletesSentMessages() throws Exception {
+
+    try (SmtpStandIn smtpStandIn = new SmtpStandIn()) {
+      MailOutboxSender mailOutboxSender = mailOutboxSender(smtpStandIn);
+      Mockito.when(mailOutboxRepository.claimBatch(any(), any(), anyInt())).thenReturn(
+          List.of(entity("id1", "a@test.com", 0), entity("id2", "b@test.com", 0), entity("id3", "c@test.com", 0)),
+          List.of());
+
+      mailOutboxSender.drain();
+
+      assertEquals(List.of("a@test.com", "b@test.com", "c@test.com"), smtpStandIn.getRecipientList());
+      assertEquals(1, smtpStandIn.getConnectionCount());
+      Mockito.verify(mailOutboxRepository).deleteAllByIdCsv("id1,id2,id3");
+      Mockito.verify(mailOutboxRepository, Mockito.never()).reschedule(anyString(), any());
+    }
+  }
+
+  @Test
+  void drainReschedulesFailedMessagesAndDropsExhaustedOnes() throws Exception {
+
+    try (SmtpStandIn smtpStandIn = new SmtpStandIn("retry@test.com", "dropped@test.com")) {
+      MailOutboxSender mailOutboxSender = mailOutboxSender(smtpStandIn);
+      Mockito.when(mailOutboxRepository.claimBatch(any(), any(), anyInt())).thenReturn(
+          List.of(entity("id1", "retry@test.com", 2), entity("id2", "sent@test.com", 0), entity("id3", "dropped@test.com", 4)),
+          List.of());
+
+      LocalDateTime before = LocalDateTime.now();
+      mailOutboxSender.drain();
+
+      assertEquals(List.of("sent@test.com"), smtpStandIn.getRecipientList());
+      Mockito.verify(mailOutboxRepository).deleteAllByIdCsv("id2,id3");
+      Mockito.verify(mailOutboxRepository).reschedule(eq("id1"), Mockito.argThat(
+          dateNextAttempt -> !dateNextAttempt.isBefore(before.plusSeconds(MailOutboxSender.backoffSec(2)))));
+    }
+  }
+
+  @Test
+  void backoffGrowsAndIsCapped() {
+
+    assertEquals(5, MailOutboxSender.backoffSec(0));
+    assertEquals(10, MailOutboxSender.backoffSec(1));
+    assertEquals(40, MailOutboxSender.backoffSec(3));
+    assertEquals(120, MailOutboxSender.backoffSec(10));
+    assertEquals(120, MailOutboxSender.backoffSec(Integer.MAX_VALUE));
+  }
+
+  /**
+   * Создает очередь, отправляющую сообщения через локальный SMTP сервер
+   * @param smtpStandIn локальный SMTP сервер
+   * @return очередь исходящих сообщений
+   */
+  private MailOutboxSender mailOutboxSender(SmtpStandIn smtpStandIn) {
+    return new MailOutboxSender(mailOutboxRepository, new MailSenderProvider(smtpStandIn.mailSender()));
+  }
+
+  /**
+   * Создает модель сообщения очереди
+   * @param id ID сообщения
+   * @param email адрес получателя
+   * @param attempts количество неудачных попыток
+   * @return модель сообщения
+   */
+  private static MailOutboxEntity entity(String id, String email, int attempts) {
+
+    return MailOutboxEntity
+        .builder()
+        .id(id)
+        .idUser("user-" + id)
+        .email(email)
+        .subject("Login code")
+        .text("Code: 123456")
+        .attempts(attempts)
+        .dateNextAttempt(LocalDateTime.now())
+        .build();
+  }
+}
@@ -0,0 +1,80 @@
+package com.example.familybenefits.part_auth;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка пула подключений сервиса отправки сообщений через локальный SMTP сервер
+ */
+class MailSenderProviderTest {
+
+  @Test
+  void consecutiveBatchesReuseOneConnection() throws Exception {
+
+    try (SmtpStandIn smtpStandIn = new SmtpStandIn()) {
+      MailSenderProvider mailSenderProvider = new MailSenderProvider(smtpStandIn.mailSender(), 2);
+
+      assertTrue(mailSenderProvider.sendAll(List.of(message("a@test.com"), message("b@test.com"))).isEmpty());
+      assertTrue(mailSenderProvider.sendAll(List.of(message("c@test.com"), message("d@test.com"))).isEmpty());
+
+      assertEquals(List.of("a@test.com", "b@test.com", "c@test.com", "d@test.com"), smtpStandIn.getRecipientList());
+      assertEquals(1, smtpStandIn.getConnectionCount());
+      assertEquals(1, mailSenderProvider.getTransportPool().getOpenedCount());
+      assertEquals(1, mailSenderProvider.getTransportPool().getReusedCount());
+      assertEquals(4, mailSenderProvider.getSentCount());
+      assertTrue(mailSenderProvider.getMaxSendMillis() >= mailSenderProvider.getAverageSendMillis());
+      mailSenderProvider.stop();
+    }
+  }
+
+  @Test
+  void keepAliveChecksIdleConnectionWithNoop() throws Exception {
+
+    try (SmtpStandIn smtpStandIn = new SmtpStandIn()) {
+      MailSenderProvider mailSenderProvider = new MailSenderProvider(smtpStandIn.mailSender(), 2);
+      mailSenderProvider.sendAll(List.of(message("a@test.com")));
+
+      mailSenderProvider.keepAlive();
+
+      assertEquals(1, smtpStandIn.getNoopCount());
+      assertEquals(1, mailSenderProvider.getTransportPool().getIdleCount());
+      mailSenderProvider.stop();
+    }
+  }
+
+  @Test
+  void connectionClosedByServerIsReopened() throws Exception {
+
+    try (SmtpStandIn smtpStandIn = new SmtpStandIn()) {
+      MailSenderProvider mailSenderProvider = new MailSenderProvider(smtpStandIn.mailSender(), 2);
+      mailSenderProvider.sendAll(List.of(message("a@test.com")));
+
+      smtpStandIn.dropConnections();
+
+      assertTrue(mailSenderProvider.sendAll(List.of(message("b@test.com"))).isEmpty());
+      assertEquals(List.of("a@test.com", "b@test.com"), smtpStandIn.getRecipientList());
+      assertEquals(2, smtpStandIn.getConnectionCount());
+      assertEquals(1, mailSenderProvider.getTransportPool().getDiscardedCount());
+      mailSenderProvider.stop();
+    }
+  }
+
+  /**
+   * Создает сообщение указанному получателю
+   * @param to адрес получателя
+   * @return сообщение
+   */
+  private static SimpleMailMessage message(String to) {
+
+    SimpleMailMessage message = new SimpleMailMessage();
+    message.setTo(to);
+    message.setSubject("Login code");
+    message.setText("Code: 123456");
+    return message;
+  }
+}
@@ -0,0 +1,64 @@
+package com.example.familybenefits.part_auth;
+
+import com.example.familybenefits.dto.entities.RefreshTokenEntity;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Проверка кэша токенов восстановления: токен, отозванный во время чтения из бд, не добавляется в кэш
+ */
+class RefreshTokenCacheTest {
+
+  private final RefreshTokenCache refreshTokenCache = new RefreshTokenCache();
+
+  private final RefreshTokenEntity refreshTokenEntity = RefreshTokenEntity
+      .builder()
+      .idUser("user")
+      .token("refresh")
+      .dateExpiration(LocalDateTime.now().plusDays(1))
+      .build();
+
+  @Test
+  void readTokenIsCachedWithoutConcurrentInvalidation() {
+
+    long readGeneration = refreshTokenCache.getGeneration();
+    refreshTokenCache.invalidateUser("user-other");
+    refreshTokenCache.put(refreshTokenEntity, readGeneration);
+
+    assertSame(refreshTokenEntity, refreshTokenCache.get("refresh").orElseThrow());
+  }
+
+  @Test
+  void readTokenIsNotCachedAfterUserInvalidation() {
+
+    long readGeneration = refreshTokenCache.getGeneration();
+    refreshTokenCache.invalidateUser("user");
+    refreshTokenCache.put(refreshTokenEntity, readGeneration);
+
+    assertEquals(Optional.empty(), refreshTokenCache.get("refresh"));
+  }
+
+  @Test
+  void readTokenIsNotCachedAfterInvalidateAll() {
+
+    long readGeneration = refreshTokenCache.getGeneration();
+    refreshTokenCache.invalidateAll();
+    refreshTokenCache.put(refreshTokenEntity, readGeneration);
+
+    assertEquals(Optional.empty(), refreshTokenCache.get("refresh"));
+  }
+
+  @Test
+  void savedTokenIsCachedAfterUserInvalidation() {
+
+    refreshTokenCache.invalidateUser("user");
+    refreshTokenCache.put(refreshTokenEntity);
+
+    assertSame(refreshTokenEntity, refreshTokenCache.get("refresh").orElseThrow());
+  }
+}
@@ -0,0 +1,200 @@
+package com.example.familybenefits.part_auth;
+
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Локальный SMTP сервер для тестов. Принимает сообщения без аутентификации и шифрования,
+ * отклоняет получателей из указанного множества и считает подключения и команды
+ */
+class SmtpStandIn implements AutoCloseable {
+
+  /**
+   * Серверный сокет
+   */
+  private final ServerSocket serverSocket;
+  /**
+   * Отклоняемые адреса получателей
+   */
+  private final Set<String> rejectedRecipientSet;
+
+  /**
+   * Адреса получателей принятых сообщений
+   */
+  private final List<String> recipientList = new CopyOnWriteArrayList<>();
+  /**
+   * Количество подключений
+   */
+  private final AtomicInteger connectionCount = new AtomicInteger();
+  /**
+   * Количество команд NOOP
+   */
+  private final AtomicInteger noopCount = new AtomicInteger();
+  /**
+   * Сокеты открытых подключений
+   */
+  private final List<Socket> socketList = new CopyOnWriteArrayList<>();
+
+  /**
+   * Запускает сервер на свободном порту
+   * @param rejectedRecipients отклоняемые адреса получателей
+   * @throws IOException если не удалось открыть сокет
+   */
+  SmtpStandIn(String... rejectedRecipients) throws IOException {
+
+    serverSocket = new ServerSocket(0);
+    rejectedRecipientSet = Set.of(rejectedRecipients);
+
+    Thread acceptThread = new Thread(this::accept, "smtp-stand-in");
+    acceptThread.setDaemon(true);
+    acceptThread.start();
+  }
+
+  /**
+   * Создает почтовый сервис, подключенный к этому серверу
+   * @return почтовый сервис
+   */
+  JavaMailSenderImpl mailSender() {
+
+    JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+    mailSender.setHost("localhost");
+    mailSender.setPort(serverSocket.getLocalPort());
+    mailSender.getJavaMailProperties().put("mail.smtp.from", "noreply@localhost");
+    return mailSender;
+  }
+
+  /**
+   * Возвращает адреса получателей принятых сообщений
+   * @return список адресов
+   */
+  List<String> getRecipientList() {
+    return recipientList;
+  }
+
+  /**
+   * Возвращает количество подключений
+   * @return количество подключений
+   */
+  int getConnectionCount() {
+    return connectionCount.get();
+  }
+
+  /**
+   * Возвращает количество команд NOOP
+   * @return количество команд NOOP
+   */
+  int getNoopCount() {
+    return noopCount.get();
+  }
+
+  /**
+   * Закрывает открытые подключения со стороны сервера
+   * @throws IOException если не удалось закрыть сокет
+   */
+  void dropConnections() throws IOException {
+
+    for (Socket socket : socketList) {
+      socket.close();
+    }
+    socketList.clear();
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+  }
+
+  /**
+   * Принимает подключения, каждое обслуживается в отдельном потоке
+   */
+  private void accept() {
+
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        connectionCount.incrementAndGet();
+        socketList.add(socket);
+        Thread sessionThread = new Thread(() -> serve(socket), "smtp-stand-in-session");
+        sessionThread.setDaemon(true);
+        sessionThread.start();
+      } catch (IOException e) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Обслуживает SMTP сессию
+   * @param socket сокет подключения
+   */
+  private void serve(Socket socket) {
+
+    try (socket;
+         BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+         Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+
+      reply(writer, "220 localhost");
+      String recipient = null;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String command = line.length() < 4 ? line.toUpperCase() : line.substring(0, 4).toUpperCase();
+
+        switch (command) {
+          case "EHLO":
+          case "HELO":
+          case "MAIL":
+          case "RSET":
+            reply(writer, "250 OK");
+            break;
+          case "NOOP":
+            noopCount.incrementAndGet();
+            reply(writer, "250 OK");
+            break;
+          case "RCPT":
+            recipient = line.substring(line.indexOf('<') + 1, line.indexOf('>'));
+            reply(writer, rejectedRecipientSet.contains(recipient) ? "550 Mailbox unavailable" : "250 OK");
+            break;
+          case "DATA":
+            reply(writer, "354 End data with <CR><LF>.<CR><LF>");
+            while ((line = reader.readLine()) != null && !line.equals(".")) {
+              // Текст сообщения не проверяется
+            }
+            recipientList.add(recipient);
+            reply(writer, "250 OK");
+            break;
+          case "QUIT":
+            reply(writer, "221 Bye");
+            return;
+          default:
+            reply(writer, "502 Command not implemented");
+        }
+      }
+    } catch (IOException e) {
+      // Клиент закрыл подключение
+    }
+  }
+
+  /**
+   * Отправляет ответ сервера
+   * @param writer поток записи подключения
+   * @param reply строка ответа
+   * @throws IOException если не удалось записать ответ
+   */
+  private static void reply(Writer writer, String reply) throws IOException {
+
+    writer.write(reply + "\r\n");
+    writer.flush();
+  }
+}
@@ -0,0 +1,257 @@
+package com.example.familybenefits.part_auth.filter;
+
+import com.example.familybenefits.dto.entities.RoleEntity;
+import com.example.familybenefits.part_auth.models.JwtUserData;
+import com.example.familybenefits.part_auth.services.interfaces.AuthService;
+import com.example.familybenefits.resources.R;
+import com.example.familybenefits.resources.RDB;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+
+/**
+ * Проверка правил доступа фильтра для всех конечных точек спецификации API.
+ * Ожидаемые результаты повторяют поведение обработчиков запросов, которые заменила таблица маршрутов
+ */
+class AllRequestsFilterFBTest {
+
+  /**
+   * Результат, при котором запрос передан дальше по цепочке фильтров
+   */
+  private static final int PASSED = 0;
+
+  /**
+   * ID клиента, совпадающий с ID из пути запроса
+   */
+  private static final String ID_OWNER = "A".repeat(R.ID_LENGTH);
+  /**
+   * ID клиента, отличный от ID из пути запроса
+   */
+  private static final String ID_OTHER = "B".repeat(R.ID_LENGTH);
+
+  private final AuthService authService = Mockito.mock(AuthService.class);
+  private final AllRequestsFilterFB allRequestsFilterFB = new AllRequestsFilterFB(authService);
+
+  @ParameterizedTest
+  @CsvSource({
+      "POST, /api/auth/pre-login, ANONYMOUS_400",
+      "POST, /api/auth/login, ANONYMOUS_400",
+      "POST, /api/auth/logout/{id}, USER_OR_ADMIN_OWNER",
+      "POST, /api/users, ANONYMOUS_403",
+      "GET, /api/users/{id}, USER_OWNER",
+      "PUT, /api/users/{id}, USER_OWNER",
+      "DELETE, /api/users/{id}, USER_OWNER",
+      "GET, /api/users/init-data, PERMIT_ALL",
+      "GET, /api/admins/{id}, ADMIN_OWNER",
+      "PUT, /api/admins/{id}, ADMIN_OWNER",
+      "POST, /api/sa/admins, SUPER_ADMIN_DENIED",
+      "DELETE, /api/sa/admins/{id}, SUPER_ADMIN_NOT_OWNER",
+      "POST, /api/sa/from-user/{id}, SUPER_ADMIN_OWNER",
+      "POST, /api/sa/to-user/{id}, SUPER_ADMIN_OWNER",
+      "POST, /api/sa/to-super/{id}, SUPER_ADMIN_OWNER",
+      "GET, /api/cities, PERMIT_ALL",
+      "POST, /api/cities, ADMIN",
+      "GET, /api/cities/{id}, PERMIT_ALL",
+      "PUT, /api/cities/{id}, ADMIN",
+      "DELETE, /api/cities/{id}, ADMIN",
+      "GET, /api/cities/partial, ADMIN",
+      "GET, /api/institutions, PERMIT_ALL",
+      "POST, /api/institutions, ADMIN",
+      "GET, /api/institutions/{id}, PERMIT_ALL",
+      "GET, /api/institutions/search, PERMIT_ALL",
+      "PUT, /api/institutions/{id}, ADMIN",
+      "DELETE, /api/institutions/{id}, ADMIN",
+      "GET, /api/institutions/partial, ADMIN",
+      "GET, /api/institutions/init-data, ADMIN",
+      "GET, /api/benefits, PERMIT_ALL",
+      "POST, /api/benefits, ADMIN",
+      "GET, /api/benefits/{id}, PERMIT_ALL",
+      "GET, /api/benefits/search, PERMIT_ALL",
+      "PUT, /api/benefits/{id}, ADMIN",
+      "DELETE, /api/benefits/{id}, ADMIN",
+      "GET, /api/benefits/partial, ADMIN",
+      "GET, /api/benefits/init-data, ADMIN",
+      "GET, /api/benefits/user/{idUser}, ADMIN_OWNER",
+      "GET, /api/criteria, PERMIT_ALL",
+      "POST, /api/criteria, ADMIN",
+      "GET, /api/criteria/{id}, PERMIT_ALL",
+      "GET, /api/criteria/search, PERMIT_ALL",
+      "PUT, /api/criteria/{id}, ADMIN",
+      "DELETE, /api/criteria/{id}, ADMIN",
+      "GET, /api/criteria/partial, ADMIN",
+      "GET, /api/criteria/init-data, ADMIN",
+      "GET, /api/criteria/user/{idUser}, ADMIN_OWNER",
+      "GET, /api/criterion-types, PERMIT_ALL",
+      "POST, /api/criterion-types, ADMIN",
+      "GET, /api/criterion-types/{id}, PERMIT_ALL",
+      "PUT, /api/criterion-types/{id}, ADMIN",
+      "DELETE, /api/criterion-types/{id}, ADMIN",
+      "GET, /api/criterion-types/partial, ADMIN",
+      // Любой метод пути "/api/institutions/init-data" проверяется как GET
+      "POST, /api/institutions/init-data, ADMIN",
+      "DELETE, /api/institutions/init-data, ADMIN"
+  })
+  void apiRoutesKeepAccessRules(String method, String pathTemplate, String access) {
+
+    String uri = pathTemplate.replaceAll("\\{\\w+}", ID_OWNER);
+
+    assertEquals(expectedAnonymous(access), doFilter(method, uri, null, false),
+                 "anonymous " + method + " " + uri);
+
+    for (RoleEntity role : List.of(RDB.ROLE_USER, RDB.ROLE_ADMIN, RDB.ROLE_SUPER_ADMIN)) {
+      assertEquals(expectedAuthenticated(access, role, true), doFilter(method, uri, userData(ID_OWNER, role), true),
+                   role.getName() + " owner " + method + " " + uri);
+      assertEquals(expectedAuthenticated(access, role, false), doFilter(method, uri, userData(ID_OTHER, role), true),
+                   role.getName() + " other " + method + " " + uri);
+    }
+  }
+
+  @Test
+  void unknownRoutesAreNotAllowed() {
+
+    List<String[]> requests = List.of(
+        new String[] {"GET", "/"},
+        new String[] {"GET", "/api"},
+        new String[] {"GET", "/api/unknown"},
+        new String[] {"GET", "/api/citiesX"},
+        new String[] {"GET", "/api/sample"},
+        new String[] {"GET", "/api/benefits/"},
+        new String[] {"GET", "/api/benefits/short"},
+        new String[] {"GET", "/api/benefits/" + "A".repeat(R.ID_LENGTH - 1)},
+        new String[] {"GET", "/api/benefits/" + "A".repeat(R.ID_LENGTH + 1)},
+        new String[] {"GET", "/api/benefits/" + "A".repeat(R.ID_LENGTH - 1) + "-"},
+        new String[] {"GET", "/api/benefits/" + ID_OWNER + "/"},
+        new String[] {"GET", "/api/benefits/user"},
+        new String[] {"GET", "/api/users"},
+        new String[] {"PATCH", "/api/cities"},
+        new String[] {"POST", "/api/cities/partial"},
+        new String[] {"POST", "/api/sa/admins/" + ID_OWNER},
+        new String[] {"DELETE", "/api/sa/to-user/" + ID_OWNER});
+
+    for (String[] request : requests) {
+      assertEquals(HttpServletResponse.SC_METHOD_NOT_ALLOWED,
+                   doFilter(request[0], request[1], userData(ID_OWNER, RDB.ROLE_SUPER_ADMIN), false),
+                   request[0] + " " + request[1]);
+    }
+  }
+
+  /**
+   * Возвращает ожидаемый результат запроса клиента без токенов
+   * @param access вид доступа конечной точки
+   * @return ожидаемый код статуса или {@link #PASSED}
+   */
+  private static int expectedAnonymous(String access) {
+
+    switch (access) {
+      case "PERMIT_ALL":
+      case "ANONYMOUS_400":
+      case "ANONYMOUS_403":
+        return PASSED;
+      default:
+        return HttpServletResponse.SC_UNAUTHORIZED;
+    }
+  }
+
+  /**
+   * Возвращает ожидаемый результат запроса аутентифицированного клиента с токеном восстановления
+   * @param access вид доступа конечной точки
+   * @param role роль клиента
+   * @param isOwner true, если ID клиента совпадает с ID из пути запроса
+   * @return ожидаемый код статуса или {@link #PASSED}
+   */
+  private static int expectedAuthenticated(String access, RoleEntity role, boolean isOwner) {
+
+    boolean isUser = role == RDB.ROLE_USER;
+    boolean isAdmin = role == RDB.ROLE_ADMIN;
+    boolean isSuperAdmin = role == RDB.ROLE_SUPER_ADMIN;
+
+    switch (access) {
+      case "PERMIT_ALL":
+        return PASSED;
+      case "ANONYMOUS_400":
+        return HttpServletResponse.SC_BAD_REQUEST;
+      case "ANONYMOUS_403":
+        return HttpServletResponse.SC_FORBIDDEN;
+      case "ADMIN":
+        return allowedOrForbidden(isAdmin);
+      case "ADMIN_OWNER":
+        return allowedOrForbidden(isAdmin && isOwner);
+      case "USER_OWNER":
+        return allowedOrForbidden(isUser && isOwner);
+      case "USER_OR_ADMIN_OWNER":
+        return allowedOrForbidden((isUser || isAdmin) && isOwner);
+      case "SUPER_ADMIN_OWNER":
+        return allowedOrForbidden(isSuperAdmin && isOwner);
+      case "SUPER_ADMIN_NOT_OWNER":
+        return allowedOrForbidden(isSuperAdmin && !isOwner);
+      case "SUPER_ADMIN_DENIED":
+        return HttpServletResponse.SC_FORBIDDEN;
+      default:
+        throw new IllegalArgumentException(access);
+    }
+  }
+
+  /**
+   * Возвращает результат проверки авторизации
+   * @param isAllowed true, если доступ разрешен
+   * @return {@link #PASSED} или код статуса 403
+   */
+  private static int allowedOrForbidden(boolean isAllowed) {
+    return isAllowed ? PASSED : HttpServletResponse.SC_FORBIDDEN;
+  }
+
+  /**
+   * Создает данные пользователя с одной ролью
+   * @param idUser ID пользователя
+   * @param role роль пользователя
+   * @return данные пользователя
+   */
+  private static JwtUserData userData(String idUser, RoleEntity role) {
+
+    return JwtUserData
+        .builder()
+        .idUser(idUser)
+        .nameRoleList(List.of(role.getName()))
+        .build();
+  }
+
+  /**
+   * Выполняет запрос через фильтр
+   * @param method http метод
+   * @param uri путь запроса
+   * @param userData данные аутентифицированного пользователя или {@code null}, если аутентификация не проходит
+   * @param hasRefreshToken true, если запрос содержит токен восстановления
+   * @return {@link #PASSED}, если запрос передан дальше, иначе код статуса ответа
+   */
+  private int doFilter(String method, String uri, JwtUserData userData, boolean hasRefreshToken) {
+
+    MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+    if (hasRefreshToken) {
+      request.setCookies(new Cookie(R.REFRESH_NAME_COOKIE, "refresh"));
+    }
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    MockFilterChain filterChain = new MockFilterChain();
+
+    Mockito.when(authService.authenticate(any(), any())).thenReturn(Optional.ofNullable(userData));
+
+    try {
+      allRequestsFilterFB.doFilter(request, response, filterChain);
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+
+    return filterChain.getRequest() != null ? PASSED : response.getStatus();
+  }
+}
@@ -0,0 +1,62 @@
+package com.example.familybenefits.part_auth.models;
+
+import com.example.familybenefits.resources.R;
+import com.example.familybenefits.resources.RDB;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.impl.DefaultClaims;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка разбора данных пользователя из утверждений jwt нового и прежнего формата и проверки ролей по маске
+ */
+class JwtUserDataTest {
+
+  private static final String ID_USER = "A".repeat(R.ID_LENGTH);
+
+  private final JwtUserData userData = JwtUserData
+      .builder()
+      .idUser(ID_USER)
+      .nameRoleList(List.of(RDB.ROLE_USER.getName(), RDB.ROLE_SUPER_ADMIN.getName(), "ROLE_UNKNOWN"))
+      .build();
+
+  @Test
+  void claimsRoundTripKeepsIdAndRoles() {
+
+    Claims claims = new DefaultClaims().setSubject(userData.getIdUser());
+    claims.put(JwtUserData.CLAIM_ROLE_MASK, userData.getRoleMask());
+
+    JwtUserData userDataFromClaims = JwtUserData.fromClaims(claims);
+
+    assertEquals(ID_USER, userDataFromClaims.getIdUser());
+    assertEquals(List.of(RDB.ROLE_USER.getName(), RDB.ROLE_SUPER_ADMIN.getName()), userDataFromClaims.getNameRoleList());
+  }
+
+  @Test
+  void legacySubjectIsStillAccepted() {
+
+    JwtUserData userDataFromClaims = JwtUserData.fromClaims(
+        new DefaultClaims().setSubject(String.format("id=%sroles=%s,%s",
+                                                     ID_USER, RDB.ROLE_ADMIN.getName(), RDB.ROLE_USER.getName())));
+
+    assertEquals(ID_USER, userDataFromClaims.getIdUser());
+    assertEquals(List.of(RDB.ROLE_USER.getName(), RDB.ROLE_ADMIN.getName()), userDataFromClaims.getNameRoleList());
+    assertNull(JwtUserData.fromClaims(new DefaultClaims().setSubject("id=1roles=ROLE_USER")));
+    assertNull(JwtUserData.fromClaims(new DefaultClaims()));
+  }
+
+  @Test
+  void roleChecksUseMask() {
+
+    assertTrue(userData.hasAnyRole(JwtUserData.roleMaskOf(List.of(RDB.ROLE_ADMIN, RDB.ROLE_USER))));
+    assertTrue(userData.hasRole(List.of(RDB.ROLE_SUPER_ADMIN)));
+    assertFalse(userData.hasRole(List.of(RDB.ROLE_ADMIN)));
+    assertFalse(userData.hasAnyRole(0));
+  }
+}
@@ -0,0 +1,125 @@
+package com.example.familybenefits.part_auth.services.implementations;
+
+import com.example.familybenefits.dto.repositories.LoginCodeRepository;
+import com.example.familybenefits.dto.repositories.RefreshTokenRepository;
+import com.example.familybenefits.dto.repositories.RoleRepository;
+import com.example.familybenefits.dto.repositories.UserRepository;
+import com.example.familybenefits.exceptions.NotFoundException;
+import com.example.familybenefits.part_auth.JwtRenewalCoalescer;
+import com.example.familybenefits.part_auth.JwtRevocationRegistry;
+import com.example.familybenefits.part_auth.MailOutboxSender;
+import com.example.familybenefits.part_auth.RefreshTokenRevocationChannel;
+import com.example.familybenefits.part_auth.models.AuthData;
+import com.example.familybenefits.part_auth.models.JwtData;
+import com.example.familybenefits.part_auth.models.JwtUserData;
+import com.example.familybenefits.part_auth.services.interfaces.TokenCodeService;
+import com.example.familybenefits.resources.R;
+import com.example.familybenefits.resources.RDB;
+import io.jsonwebtoken.ExpiredJwtException;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.Cookie;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+
+/**
+ * Проверка аутентификации запросов в режиме без токена восстановления
+ */
+class AuthServiceFBTest {
+
+  private static final String ID_USER = "A".repeat(R.ID_LENGTH);
+  private static final String JWT = "jwt";
+  private static final String REFRESH_TOKEN = "refresh";
+
+  private final TokenCodeService tokenCodeService = Mockito.mock(TokenCodeService.class);
+  private final JwtRevocationRegistry jwtRevocationRegistry = new JwtRevocationRegistry();
+
+  private final JwtUserData userData = JwtUserData
+      .builder()
+      .idUser(ID_USER)
+      .nameRoleList(List.of(RDB.ROLE_USER.getName()))
+      .issuedAtMillis(System.currentTimeMillis() / 1000 * 1000)
+      .build();
+
+  @Test
+  void statelessModeAcceptsValidJwtWithoutRefreshToken() throws Exception {
+
+    Mockito.when(tokenCodeService.checkJwt(JWT)).thenReturn(userData);
+
+    assertEquals(Optional.of(userData), authService(true).authenticate(request(), new MockHttpServletResponse()));
+    Mockito.verify(tokenCodeService, Mockito.never()).checkRefreshToken(any());
+  }
+
+  @Test
+  void statelessModeChecksRefreshTokenOfRevokedJwt() throws Exception {
+
+    Mockito.when(tokenCodeService.checkJwt(JWT)).thenReturn(userData);
+    Mockito.when(tokenCodeService.checkRefreshToken(REFRESH_TOKEN)).thenThrow(new NotFoundException("not found"));
+    jwtRevocationRegistry.revokeUser(ID_USER);
+
+    assertEquals(Optional.empty(), authService(true).authenticate(request(), new MockHttpServletResponse()));
+    Mockito.verify(tokenCodeService).checkRefreshToken(REFRESH_TOKEN);
+  }
+
+  @Test
+  void statelessModeRenewsExpiredJwtByRefreshToken() throws Exception {
+
+    Mockito.when(tokenCodeService.checkJwt(JWT)).thenThrow(new ExpiredJwtException(null, null, "expired"));
+    Mockito.when(tokenCodeService.checkRefreshToken(REFRESH_TOKEN)).thenReturn(ID_USER);
+    Mockito.when(tokenCodeService.generateAndSaveAuthTokens(ID_USER)).thenReturn(AuthData
+        .builder()
+        .jwtData(JwtData.builder().tokenJwt("jwt-new").userData(userData).build())
+        .refreshToken("refresh-new")
+        .build());
+
+    assertEquals(Optional.of(userData), authService(true).authenticate(request(), new MockHttpServletResponse()));
+    Mockito.verify(tokenCodeService).generateAndSaveAuthTokens(ID_USER);
+  }
+
+  @Test
+  void defaultModeChecksRefreshTokenOfValidJwt() throws Exception {
+
+    Mockito.when(tokenCodeService.checkJwt(JWT)).thenReturn(userData);
+    Mockito.when(tokenCodeService.checkRefreshToken(REFRESH_TOKEN)).thenReturn(ID_USER);
+
+    assertEquals(Optional.of(userData), authService(false).authenticate(request(), new MockHttpServletResponse()));
+    Mockito.verify(tokenCodeService).checkRefreshToken(REFRESH_TOKEN);
+  }
+
+  /**
+   * Создает сервис аутентификации
+   * @param statelessJwt режим проверки действительного jwt без токена восстановления
+   * @return сервис аутентификации
+   */
+  private AuthServiceFB authService(boolean statelessJwt) {
+
+    return new AuthServiceFB(Mockito.mock(UserRepository.class),
+                             Mockito.mock(RoleRepository.class),
+                             Mockito.mock(RefreshTokenRepository.class),
+                             Mockito.mock(LoginCodeRepository.class),
+                             tokenCodeService,
+                             Mockito.mock(RefreshTokenRevocationChannel.class),
+                             Mockito.mock(MailOutboxSender.class),
+                             jwtRevocationRegistry,
+                             new JwtRenewalCoalescer(jwtRevocationRegistry),
+                             statelessJwt);
+  }
+
+  /**
+   * Создает запрос с токенами доступа и восстановления
+   * @return http запрос
+   */
+  private static MockHttpServletRequest request() {
+
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/" + ID_USER);
+    request.addHeader(R.AUTHORIZATION_HEADER, R.ACCESS_TOKEN_PREFIX + JWT);
+    request.setCookies(new Cookie(R.REFRESH_NAME_COOKIE, REFRESH_TOKEN));
+    return request;
+  }
+}
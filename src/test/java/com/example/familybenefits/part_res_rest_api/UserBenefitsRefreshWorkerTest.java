@@ -0,0 +1,44 @@
+package com.example.familybenefits.part_res_rest_api;
+
+import com.example.familybenefits.dto.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+
+/**
+ * Проверка фонового подбора пособий несвежих пользователей
+ */
+class UserBenefitsRefreshWorkerTest {
+
+  private final UserRepository userRepository = Mockito.mock(UserRepository.class);
+
+  private final UserBenefitsRefreshWorker userBenefitsRefreshWorker = new UserBenefitsRefreshWorker(userRepository);
+
+  @Test
+  void drainRefreshesFullBatchesUntilQueueIsEmpty() {
+
+    Mockito.when(userRepository.refreshStaleBenefits(anyInt())).thenReturn(200, 200, 37);
+
+    userBenefitsRefreshWorker.drain();
+
+    Mockito.verify(userRepository, Mockito.times(3)).refreshStaleBenefits(200);
+    assertEquals(437, userBenefitsRefreshWorker.getRefreshedUserCount());
+    assertEquals(3, userBenefitsRefreshWorker.getBatchCount());
+  }
+
+  @Test
+  void drainStopsOnFailureWithoutThrowing() {
+
+    Mockito.when(userRepository.refreshStaleBenefits(anyInt()))
+        .thenReturn(200)
+        .thenThrow(new IllegalStateException("connection lost"));
+
+    userBenefitsRefreshWorker.drain();
+
+    Mockito.verify(userRepository, Mockito.times(2)).refreshStaleBenefits(200);
+    assertEquals(200, userBenefitsRefreshWorker.getRefreshedUserCount());
+    assertEquals(1, userBenefitsRefreshWorker.getBatchCount());
+  }
+}
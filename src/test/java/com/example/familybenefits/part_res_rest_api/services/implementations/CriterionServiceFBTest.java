@@ -0,0 +1,57 @@
+package com.example.familybenefits.part_res_rest_api.services.implementations;
+
+import com.example.familybenefits.dto.repositories.CriterionRepository;
+import com.example.familybenefits.part_res_rest_api.api_model.criterion.CriterionInfo;
+import com.example.familybenefits.part_res_rest_api.services.interfaces.CriterionTypeService;
+import com.example.familybenefits.part_res_rest_api.services.interfaces.ReferenceDataService;
+import com.example.familybenefits.part_res_rest_api.services.interfaces.UserService;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка количества запросов к бд при получении полного списка критерий
+ */
+class CriterionServiceFBTest {
+
+  private final CriterionRepository criterionRepository = Mockito.mock(CriterionRepository.class);
+  private final CriterionTypeService criterionTypeService = Mockito.mock(CriterionTypeService.class);
+
+  private final CriterionServiceFB criterionServiceFB = new CriterionServiceFB(
+      criterionRepository, criterionTypeService, Mockito.mock(UserService.class),
+      Mockito.mock(ReferenceDataService.class));
+
+  @ParameterizedTest
+  @ValueSource(ints = {0, 1, 100, 10_000})
+  void readAllFullRunsOneQueryRegardlessOfCatalogSize(int criterionCount) {
+
+    AtomicBoolean isStreamClosed = new AtomicBoolean();
+    Stream<Object[]> criterionRowStream = IntStream.range(0, criterionCount)
+        .mapToObj(i -> new Object[] {"id" + i, "criterion" + i, "info" + i, "type" + i % 10})
+        .onClose(() -> isStreamClosed.set(true));
+    Mockito.when(criterionRepository.streamAllFullWithNameType()).thenReturn(criterionRowStream);
+
+    List<CriterionInfo> criterionInfoList = criterionServiceFB.readAllFull();
+
+    assertEquals(criterionCount, criterionInfoList.size());
+    if (criterionCount > 0) {
+      CriterionInfo last = criterionInfoList.get(criterionCount - 1);
+      assertEquals("id" + (criterionCount - 1), last.getId());
+      assertEquals("type" + (criterionCount - 1) % 10, last.getNameCriterionType());
+    }
+    assertTrue(isStreamClosed.get());
+
+    // Один запрос к бд, без запросов названий типов по каждому критерию
+    Mockito.verify(criterionRepository, Mockito.times(1)).streamAllFullWithNameType();
+    Mockito.verifyNoMoreInteractions(criterionRepository);
+    Mockito.verifyNoInteractions(criterionTypeService);
+  }
+}
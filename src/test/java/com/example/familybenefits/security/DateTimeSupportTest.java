@@ -0,0 +1,89 @@
+package com.example.familybenefits.security;
+
+import com.example.familybenefits.exceptions.DateFormatException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка разбора и форматирования дат "dd.mm.yyyy", в том числе из нескольких потоков одновременно
+ */
+class DateTimeSupportTest {
+
+  @Test
+  void strToDateParsesValidDates() throws DateFormatException {
+
+    assertEquals(LocalDate.of(1988, 7, 14), DateTimeSupport.strToDate("14.07.1988"));
+    assertEquals(LocalDate.of(2012, 2, 29), DateTimeSupport.strToDate("29.02.2012"));
+    assertEquals(LocalDate.of(2000, 12, 31), DateTimeSupport.strToDate("31.12.2000"));
+    assertEquals(List.of(LocalDate.of(2010, 3, 2), LocalDate.of(2015, 1, 1)),
+                 DateTimeSupport.strToDate(List.of("02.03.2010", "01.01.2015")));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"", "1.07.1988", "14-07-1988", "14.7.1988", "14.07.88", "a4.07.1988", "14.07.1988 ",
+                          "00.07.1988", "32.01.1988", "31.04.1988", "29.02.2013", "14.00.1988", "14.13.1988", "14.07.0000"})
+  void strToDateRejectsMalformedAndOutOfRangeDates(String strDate) {
+
+    assertThrows(DateFormatException.class, () -> DateTimeSupport.strToDate(strDate));
+  }
+
+  @Test
+  void strToDateRejectsNullDateAndAcceptsNullList() throws DateFormatException {
+
+    assertThrows(DateFormatException.class, () -> DateTimeSupport.strToDate((String) null));
+    assertTrue(DateTimeSupport.strToDate((List<String>) null).isEmpty());
+  }
+
+  @Test
+  void dateToStrIsInverseOfStrToDate() throws DateFormatException {
+
+    for (LocalDate date = LocalDate.of(1999, 1, 1); date.isBefore(LocalDate.of(2001, 1, 1)); date = date.plusDays(1)) {
+      assertEquals(date, DateTimeSupport.strToDate(DateTimeSupport.dateToStr(date)));
+    }
+    assertEquals("05.03.0987", DateTimeSupport.dateToStr(LocalDate.of(987, 3, 5)));
+  }
+
+  @Test
+  void strToDateIsThreadSafe() throws Exception {
+
+    int threadCount = 8;
+    int iterations = 20_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+    try {
+      List<Future<Integer>> futureList = new ArrayList<>(threadCount);
+      for (int t = 0; t < threadCount; t++) {
+        // Каждый поток разбирает свою последовательность дат, результат сверяется с исходной датой
+        LocalDate start = LocalDate.of(1950 + t * 5, 1, 1);
+        futureList.add(executor.submit(() -> {
+          int checked = 0;
+          for (int i = 0; i < iterations; i++) {
+            LocalDate expected = start.plusDays(i % 3_000);
+            assertEquals(expected, DateTimeSupport.strToDate(DateTimeSupport.dateToStr(expected)));
+            checked++;
+          }
+          return checked;
+        }));
+      }
+
+      for (Future<Integer> future : futureList) {
+        assertEquals(iterations, future.get(60, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
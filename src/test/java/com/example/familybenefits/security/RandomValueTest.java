@@ -0,0 +1,86 @@
+package com.example.familybenefits.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка длины, алфавита и равномерности случайных строк и чисел.
+ * Границы критерия хи-квадрат соответствуют уровню значимости около 1e-6, поэтому случайные падения практически исключены
+ */
+class RandomValueTest {
+
+  private static final String SYMBOLS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+  @Test
+  void randomStringHasRequestedLengthAndAlphabet() {
+
+    assertEquals("", RandomValue.randomString(0));
+    for (int length = 1; length <= 200; length++) {
+      String randomString = RandomValue.randomString(length);
+      assertEquals(length, randomString.length());
+      assertTrue(randomString.chars().allMatch(symbol -> SYMBOLS.indexOf(symbol) >= 0), randomString);
+    }
+    assertNotEquals(RandomValue.randomString(32), RandomValue.randomString(32));
+    assertThrows(IllegalArgumentException.class, () -> RandomValue.randomString(-1));
+  }
+
+  @Test
+  void randomStringSymbolsAreUniform() {
+
+    int expectedPerSymbol = 10_000;
+    long[] counts = new long[SYMBOLS.length()];
+    for (int i = 0; i < expectedPerSymbol; i++) {
+      RandomValue.randomString(SYMBOLS.length()).chars().forEach(symbol -> counts[SYMBOLS.indexOf(symbol)]++);
+    }
+
+    // 61 степень свободы
+    double chiSquare = chiSquare(counts, expectedPerSymbol);
+    assertTrue(chiSquare < 130, "chi-square " + chiSquare);
+  }
+
+  @Test
+  void randomIntegerHasRequestedDigitCount() {
+
+    for (int length = 1; length <= 9; length++) {
+      for (int i = 0; i < 1_000; i++) {
+        assertEquals(length, String.valueOf(RandomValue.randomInteger(length)).length());
+      }
+    }
+    assertThrows(IllegalArgumentException.class, () -> RandomValue.randomInteger(0));
+    assertThrows(IllegalArgumentException.class, () -> RandomValue.randomInteger(10));
+  }
+
+  @Test
+  void randomIntegerDigitsAreUniform() {
+
+    int expectedPerDigit = 10_000;
+    long[] firstCounts = new long[9];
+    long[] lastCounts = new long[10];
+    for (int i = 0; i < expectedPerDigit * 9; i++) {
+      int randomInteger = RandomValue.randomInteger(6);
+      firstCounts[randomInteger / 100_000 - 1]++;
+    }
+    for (int i = 0; i < expectedPerDigit * 10; i++) {
+      lastCounts[RandomValue.randomInteger(6) % 10]++;
+    }
+
+    // 8 и 9 степеней свободы
+    double firstChiSquare = chiSquare(firstCounts, expectedPerDigit);
+    double lastChiSquare = chiSquare(lastCounts, expectedPerDigit);
+    assertTrue(firstChiSquare < 45, "first digit chi-square " + firstChiSquare);
+    assertTrue(lastChiSquare < 46, "last digit chi-square " + lastChiSquare);
+  }
+
+  private static double chiSquare(long[] counts, double expected) {
+
+    double chiSquare = 0;
+    for (long count : counts) {
+      chiSquare += (count - expected) * (count - expected) / expected;
+    }
+    return chiSquare;
+  }
+}
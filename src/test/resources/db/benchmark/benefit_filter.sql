@@ -0,0 +1,96 @@
+-- Сравнение фильтра пособий на синтетическом каталоге: прежний запрос с тремя INNER JOIN и запрос с EXISTS.
+-- Запуск на базе данных с примененными миграциями, изменения откатываются:
+--   psql -d familyben -f src/test/resources/db/benchmark/benefit_filter.sql
+-- В выводе EXPLAIN сравниваются "rows" и "actual time" узлов и "Execution Time"
+
+BEGIN;
+
+-- Каталог: 2 000 пособий, у каждого 20 городов, 15 критериев и 10 учреждений
+INSERT INTO family_benefit.city (id, name)
+SELECT 'bench-city-' || n, 'bench city ' || n FROM generate_series(1, 50) AS n;
+
+INSERT INTO family_benefit.criterion_type (id, name, info)
+VALUES ('bench-type', 'bench type', 'bench');
+
+INSERT INTO family_benefit.criterion (id, name, info, id_type)
+SELECT 'bench-criterion-' || n, 'bench criterion ' || n, 'bench', 'bench-type' FROM generate_series(1, 40) AS n;
+
+INSERT INTO family_benefit.institution (id, name, info, address, phone, schedule, id_city)
+SELECT 'bench-institution-' || n, 'bench institution ' || n, 'bench', 'bench', 'bench', 'bench', 'bench-city-' || (n % 50 + 1)
+FROM generate_series(1, 30) AS n;
+
+INSERT INTO family_benefit.benefit (id, name, info, documents)
+SELECT 'bench-benefit-' || n, 'bench benefit ' || n, 'bench', 'bench' FROM generate_series(1, 2000) AS n;
+
+INSERT INTO family_benefit.benefits_cities (id_benefit, id_city)
+SELECT 'bench-benefit-' || b, 'bench-city-' || ((b + c) % 50 + 1)
+FROM generate_series(1, 2000) AS b, generate_series(1, 20) AS c;
+
+INSERT INTO family_benefit.benefits_criteria (id_benefit, id_criterion)
+SELECT 'bench-benefit-' || b, 'bench-criterion-' || ((b + c) % 40 + 1)
+FROM generate_series(1, 2000) AS b, generate_series(1, 15) AS c;
+
+INSERT INTO family_benefit.benefits_institutions (id_benefit, id_institution)
+SELECT 'bench-benefit-' || b, 'bench-institution-' || ((b + i) % 30 + 1)
+FROM generate_series(1, 2000) AS b, generate_series(1, 10) AS i;
+
+ANALYZE family_benefit.benefit;
+ANALYZE family_benefit.benefits_cities;
+ANALYZE family_benefit.benefits_criteria;
+ANALYZE family_benefit.benefits_institutions;
+
+-- Прежний запрос без фильтра: 2 000 * 20 * 15 * 10 = 6 000 000 строк
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT family_benefit.benefit.id, family_benefit.benefit.name, family_benefit.benefit.info, family_benefit.benefit.documents
+FROM family_benefit.benefit
+INNER JOIN family_benefit.benefits_cities ON family_benefit.benefits_cities.id_benefit = family_benefit.benefit.id
+INNER JOIN family_benefit.benefits_criteria ON family_benefit.benefits_criteria.id_benefit = family_benefit.benefit.id
+INNER JOIN family_benefit.benefits_institutions ON family_benefit.benefits_institutions.id_benefit = family_benefit.benefit.id
+WHERE ('' = '' OR family_benefit.benefit.name = '')
+AND ('' = '' OR family_benefit.benefits_cities.id_city = '')
+AND ('' = '' OR family_benefit.benefits_criteria.id_criterion = '')
+AND ('' = '' OR family_benefit.benefits_institutions.id_institution = '');
+
+-- Запрос с EXISTS без фильтра: 2 000 строк
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT family_benefit.benefit.id, family_benefit.benefit.name, family_benefit.benefit.info, family_benefit.benefit.documents
+FROM family_benefit.benefit
+WHERE ('' = '' OR family_benefit.benefit.name = '')
+AND EXISTS (SELECT 1 FROM family_benefit.benefits_cities
+  WHERE family_benefit.benefits_cities.id_benefit = family_benefit.benefit.id
+  AND ('' = '' OR family_benefit.benefits_cities.id_city = ''))
+AND EXISTS (SELECT 1 FROM family_benefit.benefits_criteria
+  WHERE family_benefit.benefits_criteria.id_benefit = family_benefit.benefit.id
+  AND ('' = '' OR family_benefit.benefits_criteria.id_criterion = ''))
+AND EXISTS (SELECT 1 FROM family_benefit.benefits_institutions
+  WHERE family_benefit.benefits_institutions.id_benefit = family_benefit.benefit.id
+  AND ('' = '' OR family_benefit.benefits_institutions.id_institution = ''));
+
+-- Прежний запрос с фильтром по городу
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT family_benefit.benefit.id, family_benefit.benefit.name, family_benefit.benefit.info, family_benefit.benefit.documents
+FROM family_benefit.benefit
+INNER JOIN family_benefit.benefits_cities ON family_benefit.benefits_cities.id_benefit = family_benefit.benefit.id
+INNER JOIN family_benefit.benefits_criteria ON family_benefit.benefits_criteria.id_benefit = family_benefit.benefit.id
+INNER JOIN family_benefit.benefits_institutions ON family_benefit.benefits_institutions.id_benefit = family_benefit.benefit.id
+WHERE ('' = '' OR family_benefit.benefit.name = '')
+AND ('bench-city-1' = '' OR family_benefit.benefits_cities.id_city = 'bench-city-1')
+AND ('' = '' OR family_benefit.benefits_criteria.id_criterion = '')
+AND ('' = '' OR family_benefit.benefits_institutions.id_institution = '');
+
+-- Запрос с EXISTS с фильтром по городу
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT family_benefit.benefit.id, family_benefit.benefit.name, family_benefit.benefit.info, family_benefit.benefit.documents
+FROM family_benefit.benefit
+WHERE ('' = '' OR family_benefit.benefit.name = '')
+AND EXISTS (SELECT 1 FROM family_benefit.benefits_cities
+  WHERE family_benefit.benefits_cities.id_benefit = family_benefit.benefit.id
+  AND ('bench-city-1' = '' OR family_benefit.benefits_cities.id_city = 'bench-city-1'))
+AND EXISTS (SELECT 1 FROM family_benefit.benefits_criteria
+  WHERE family_benefit.benefits_criteria.id_benefit = family_benefit.benefit.id
+  AND ('' = '' OR family_benefit.benefits_criteria.id_criterion = ''))
+AND EXISTS (SELECT 1 FROM family_benefit.benefits_institutions
+  WHERE family_benefit.benefits_institutions.id_benefit = family_benefit.benefit.id
+  AND ('' = '' OR family_benefit.benefits_institutions.id_institution = ''));
+
+ROLLBACK;